@@ -9,7 +9,9 @@ import org.springframework.stereotype.Component;
 import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
 import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
 import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
 import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductReferenceCountRepository;
 
 import lombok.RequiredArgsConstructor;
 
@@ -19,6 +21,8 @@ import lombok.RequiredArgsConstructor;
 public class DatabaseFillerWithExampleData implements CommandLineRunner {
   private final InventoryRepository inventoryRepository;
   private final ProductInInvRepository productInInvRepository;
+  private final ProductReferenceCountRepository referenceCountRepository;
+  private final InventorySummaryRepository summaryRepository;
   
   @Override
   public void run(String... args) throws Exception {
@@ -248,5 +252,8 @@ public class DatabaseFillerWithExampleData implements CommandLineRunner {
       .isAvailable(true)
       .inventory(inv2)
     .build());
+
+    referenceCountRepository.rebuildAccount(accountId);
+    summaryRepository.rebuildAccount(accountId);
   }
 }
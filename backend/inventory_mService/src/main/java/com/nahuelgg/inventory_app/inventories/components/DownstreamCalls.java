@@ -0,0 +1,112 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import jakarta.annotation.PreDestroy;
+
+/*
+  Ejecuta en paralelo llamados independientes a los otros microservicios, así la demora total es la del más lento y no la suma
+  de todos. Usa un pool de como máximo max-concurrency hilos compartido por toda la aplicación (los llamados que excedan ese
+  límite esperan a que se libere un hilo) y cada llamado ve la misma request y el mismo SecurityContext que quien los lanzó,
+  por lo que puede tomar de ahí el token de autorización.
+  Con spring.threads.virtual.enabled (y un JDK que los soporte) cada llamado corre en un hilo virtual nuevo y max-concurrency
+  pasa a limitar cuántos corren a la vez en lugar del tamaño del pool.
+  Los llamados no deben lanzar a su vez otros con all(): esperarían a hilos del mismo pool
+*/
+@Component
+public class DownstreamCalls {
+  private final Executor executor;
+
+  @Autowired
+  public DownstreamCalls(
+    @Value("${services.fan-out.max-concurrency:16}") int maxConcurrency,
+    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+  ) {
+    this(virtualThreads && Runtime.version().feature() >= 21 ? newVirtualExecutor(maxConcurrency) : newPool(maxConcurrency));
+  }
+
+  public DownstreamCalls(Executor executor) {
+    this.executor = executor;
+  }
+
+  private static ExecutorService newPool(int maxConcurrency) {
+    checkMaxConcurrency(maxConcurrency);
+
+    AtomicInteger threadCount = new AtomicInteger();
+    return Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+      Thread thread = new Thread(runnable, "downstream-call-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private static Executor newVirtualExecutor(int maxConcurrency) {
+    checkMaxConcurrency(maxConcurrency);
+
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("downstream-call-");
+    executor.setVirtualThreads(true);
+    executor.setConcurrencyLimit(maxConcurrency);
+    return executor;
+  }
+
+  private static void checkMaxConcurrency(int maxConcurrency) {
+    if (maxConcurrency < 1) throw new IllegalArgumentException("services.fan-out.max-concurrency debe ser al menos 1");
+  }
+
+  // Devuelve los resultados en el orden de los llamados. Si alguno falla se espera a los demás y se relanza la excepción del primero
+  // (en ese orden) que falló
+  public <T> List<T> all(List<Supplier<T>> calls) {
+    if (calls.size() <= 1) return calls.stream().map(Supplier::get).toList();
+
+    RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+    SecurityContext securityContext = SecurityContextHolder.getContext();
+    List<CompletableFuture<T>> futures = calls.stream().map(call -> CompletableFuture.supplyAsync(
+      () -> withContext(requestAttributes, securityContext, call), executor
+    )).toList();
+
+    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+    return futures.stream().map(future -> {
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException cause) throw cause;
+        throw e;
+      }
+    }).toList();
+  }
+
+  private static <T> T withContext(RequestAttributes requestAttributes, SecurityContext securityContext, Supplier<T> call) {
+    RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+    SecurityContext previousContext = SecurityContextHolder.getContext();
+    RequestContextHolder.setRequestAttributes(requestAttributes);
+    SecurityContextHolder.setContext(securityContext);
+    try {
+      return call.get();
+    } finally {
+      RequestContextHolder.setRequestAttributes(previousAttributes);
+      SecurityContextHolder.setContext(previousContext);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (executor instanceof ExecutorService pool) pool.shutdown();
+    if (executor instanceof SimpleAsyncTaskExecutor virtualExecutor) virtualExecutor.close();
+  }
+}
@@ -0,0 +1,66 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.PersistedQueryCache;
+import graphql.execution.preparsed.persisted.PersistedQueryCacheMiss;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Caché acotada de los documentos GraphQL ya parseados y validados, por el hash SHA-256 de su texto (ver GraphQlDocumentsConfig).
+// Sirve tanto para las consultas persistidas, que llegan solo con el hash, como para las que llegan con el texto completo.
+// Las métricas se publican como "cache.*" con el tag cache=graphqlDocuments, y la proporción de aciertos como
+// "cache.hit.ratio" con el mismo tag
+@Component
+public class GraphQlDocumentCache implements PersistedQueryCache {
+  public static final String CACHE_NAME = "graphqlDocuments";
+
+  private final Cache<String, PreparsedDocumentEntry> cache;
+
+  public GraphQlDocumentCache(@Value("${inventory.graphql-documents.max-size:1000}") long maxSize, MeterRegistry meterRegistry) {
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .recordStats()
+    .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+      .tag("cache", CACHE_NAME)
+      .description("Proporción de pedidos a la caché resueltos sin parsear ni validar el documento")
+    .register(meterRegistry);
+  }
+
+  // Si el hash no está y la request no trae el texto (consulta persistida que no se registró o que se desalojó) responde
+  // PersistedQueryNotFound, y el cliente debe reenviarla con el texto completo para registrarla
+  @Override
+  public CompletableFuture<PreparsedDocumentEntry> getPersistedQueryDocumentAsync(
+    Object persistedQueryId, ExecutionInput executionInput, PersistedQueryCacheMiss onCacheMiss
+  ) throws PersistedQueryNotFound {
+    return CompletableFuture.completedFuture(cache.get(persistedQueryId.toString().toLowerCase(Locale.ROOT), hash -> {
+      String query = executionInput.getQuery();
+      if (query == null || query.isBlank() || PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(query))
+        throw new PersistedQueryNotFound(persistedQueryId);
+      return onCacheMiss.apply(query);
+    }));
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+}
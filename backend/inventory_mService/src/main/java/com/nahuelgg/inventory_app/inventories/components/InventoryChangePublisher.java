@@ -0,0 +1,72 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
+import com.nahuelgg.inventory_app.inventories.exceptions.SubscriberOverflowException;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/*
+  Reparte entre los suscriptos a inventoryChanges los cambios de stock y de productos de cada inventario. Los cambios hechos
+  dentro de una transacción se envían recién cuando se confirma, así nunca se avisa de uno que después se revierte.
+
+  El sink no espera a ningún suscriptor: cada suscripción tiene su propio buffer de como mucho buffer-size cambios, que se
+  envían al cliente desde otro hilo (la mutation no queda esperando a un WebSocket lento). Si un cliente no llega a recibirlos
+  y su buffer se llena, deja de recibir cambios nuevos en vez de acumular memoria sin límite o frenar a los demás: le llegan
+  los que ya tenía pendientes y su suscripción termina con SubscriberOverflowException, tras lo cual tiene que volver a leer
+  el inventario y suscribirse de nuevo
+*/
+@Component
+public class InventoryChangePublisher {
+  private final Sinks.Many<InventoryChangeDTO> sink = Sinks.many().multicast().directBestEffort();
+  private final int bufferSize;
+
+  public InventoryChangePublisher(@Value("${inventory.subscriptions.buffer-size:256}") int bufferSize) {
+    if (bufferSize < 1) throw new IllegalArgumentException("inventory.subscriptions.buffer-size debe ser mayor a 0");
+    this.bufferSize = bufferSize;
+  }
+
+  public void publish(InventoryChangeDTO change) {
+    if (change.getProducts().isEmpty()) return;
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      emit(change);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        emit(change);
+      }
+    });
+  }
+
+  // el sink no acepta emisiones simultáneas desde varios hilos, en ese caso se reintenta
+  private void emit(InventoryChangeDTO change) {
+    sink.emitNext(change, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+  }
+
+  public Flux<InventoryChangeDTO> changesOf(UUID invId) {
+    String id = invId.toString();
+    return sink.asFlux()
+      .filter(change -> change.getInvId().equals(id))
+      .onBackpressureBuffer(bufferSize, BufferOverflowStrategy.ERROR)
+      .onErrorMap(Exceptions::isOverflow, e -> new SubscriberOverflowException(bufferSize))
+      .publishOn(Schedulers.boundedElastic(), 1);
+  }
+
+  public int getSubscriberCount() {
+    return sink.currentSubscriberCount();
+  }
+}
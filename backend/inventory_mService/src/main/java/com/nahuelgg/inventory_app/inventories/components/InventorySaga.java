@@ -0,0 +1,57 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.InventorySagaStepEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventorySagaStepType;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySagaStepRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/*
+  Registra en inventory_saga_step los pasos que la creación y el borrado de un inventario tienen que hacer en los servicios de
+  usuarios y productos. Solo puede llamarse dentro de la transacción que hace el cambio local, así los pasos se guardan si y
+  solo si el cambio se confirma; InventorySagaRelay es quien después los ejecuta, con reintentos y compensación
+*/
+@Component
+@RequiredArgsConstructor
+public class InventorySaga {
+  private final InventorySagaStepRepository repository;
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void inventoryCreated(InventoryEntity inv, String accountUsername) {
+    repository.save(toStep(InventorySagaStepType.assignInventory, inv, accountUsername, null));
+  }
+
+  // Si la asignación del inventario todavía no se ejecutó se descarta, así no puede llegar al servicio de usuarios después
+  // de quitarla. Quitarla igual se registra siempre, por si la asignación ya estaba en curso
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void inventoryDeleted(InventoryEntity inv, List<UUID> exclusiveRefIds, String accountUsername) {
+    repository.deleteByInventoryIdAndType(inv.getId(), InventorySagaStepType.assignInventory);
+
+    repository.save(toStep(InventorySagaStepType.unassignInventory, inv, accountUsername, null));
+    if (!exclusiveRefIds.isEmpty()) repository.save(toStep(
+      InventorySagaStepType.deleteProducts, inv, accountUsername, exclusiveRefIds.stream().map(UUID::toString).toList()
+    ));
+  }
+
+  private InventorySagaStepEntity toStep(InventorySagaStepType type, InventoryEntity inv, String accountUsername, List<String> refIds) {
+    Instant now = Instant.now();
+    return InventorySagaStepEntity.builder()
+      .type(type)
+      .inventoryId(inv.getId())
+      .accountId(inv.getAccountId())
+      .accountUsername(accountUsername)
+      .referenceIds(refIds)
+      .nextAttemptAt(now)
+      .createdAt(now)
+    .build();
+  }
+}
@@ -0,0 +1,200 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ResponseDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventorySagaStepEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventorySagaStepType;
+import com.nahuelgg.inventory_app.inventories.exceptions.InternalRequestException;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySagaStepRepository;
+import com.nahuelgg.inventory_app.inventories.services.InventoryService;
+import com.nahuelgg.inventory_app.inventories.services.JwtService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+  Ejecuta los pasos remotos registrados por InventorySaga, fuera de cualquier transacción y en el orden en que se registraron.
+  Cada paso se borra al completarse; si falla se reintenta con espera exponencial (retry-delay, el doble, el cuádruple...)
+  hasta max-attempts intentos. Todos los pasos se pueden repetir sin efectos extra: asignar un inventario ya asignado no hace
+  nada, quitar uno que no está asignado responde 404 y se toma como hecho, y borrar productos ya borrados no falla.
+  Si se agotan los intentos de asignar un inventario nuevo se compensa borrándolo (InventoryService.revertCreate); los demás
+  pasos quedan guardados como fallidos (nextAttemptAt en null) para revisarlos.
+  Los llamados usan un token de la cuenta del inventario generado en el momento, ya que no hay una request de la que tomarlo.
+  Los pasos de un lote que no dependen entre sí se ejecutan en paralelo (ver DownstreamCalls): los del servicio de usuarios
+  se agrupan por inventario y cada grupo corre en orden, ya que asignar y quitar el mismo inventario no puede invertirse;
+  cada borrado de productos es independiente del resto
+*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InventorySagaRelay {
+  private final InventorySagaStepRepository repository;
+  private final InventoryService inventoryService;
+  private final JwtService jwtService;
+  private final RestTemplate restTemplate;
+  private final DownstreamCalls downstreamCalls;
+  // un lock y no synchronized: con hilos virtuales, esperar a los otros servicios dentro de un bloque synchronized fija el hilo
+  // virtual a su hilo del sistema mientras dura el llamado
+  private final ReentrantLock runLock = new ReentrantLock();
+
+  @Value("${inventory.saga.relay-enabled:true}")
+  private boolean enabled;
+  @Value("${inventory.saga.batch-size:50}")
+  private int batchSize;
+  @Value("${inventory.saga.max-attempts:5}")
+  private int maxAttempts;
+  @Value("${inventory.saga.retry-delay:5s}")
+  private Duration retryDelay;
+  @Value("${services.products.url:http://api-products:8081}")
+  private String productsServiceUrl;
+  @Value("${services.users.url:http://api-users:8082}")
+  private String usersServiceUrl;
+
+  @Scheduled(
+    initialDelayString = "${inventory.saga.relay-interval:1s}",
+    fixedDelayString = "${inventory.saga.relay-interval:1s}"
+  )
+  public void run() {
+    if (!enabled) return;
+
+    try {
+      runPendingSteps();
+    } catch (RuntimeException e) {
+      log.warn("No se pudieron ejecutar los pasos pendientes de inventarios, se reintentará: {}", e.getMessage());
+    }
+  }
+
+  // Ejecuta los pasos que ya pueden ejecutarse y devuelve la cantidad de pasos completados
+  public int runPendingSteps() {
+    runLock.lock();
+    try {
+      return runBatches();
+    } finally {
+      runLock.unlock();
+    }
+  }
+
+  private int runBatches() {
+    int completed = 0;
+    while (true) {
+      List<InventorySagaStepEntity> batch = repository.findByNextAttemptAtLessThanEqualOrderByIdAsc(Instant.now(), Limit.of(batchSize));
+      List<Supplier<Integer>> groups = batch.stream().collect(Collectors.groupingBy(
+        step -> step.getType() == InventorySagaStepType.deleteProducts ? (Object) step.getId() : step.getInventoryId(),
+        LinkedHashMap::new, Collectors.toList()
+      )).values().stream().<Supplier<Integer>>map(group -> () -> runInOrder(group)).toList();
+      int completedInBatch = downstreamCalls.all(groups).stream().mapToInt(Integer::intValue).sum();
+      completed += completedInBatch;
+
+      if (batch.size() < batchSize || completedInBatch == 0) return completed;
+    }
+  }
+
+  // si un paso falla, los siguientes del grupo esperan a la próxima ejecución para no adelantarse a él
+  private int runInOrder(List<InventorySagaStepEntity> group) {
+    int completed = 0;
+    for (InventorySagaStepEntity step : group) {
+      if (!runStep(step)) return completed;
+      completed++;
+    }
+    return completed;
+  }
+
+  private boolean runStep(InventorySagaStepEntity step) {
+    try {
+      perform(step);
+    } catch (RuntimeException e) {
+      registerFailure(step, e);
+      return false;
+    }
+    repository.deleteById(step.getId());
+    return true;
+  }
+
+  private void perform(InventorySagaStepEntity step) {
+    switch (step.getType()) {
+      case assignInventory -> request(usersAccountUrl("/account/add-inventory", step), HttpMethod.PUT, step);
+      case unassignInventory -> {
+        try {
+          request(usersAccountUrl("/account/remove-inventory", step), HttpMethod.PUT, step);
+        } catch (HttpClientErrorException.NotFound e) {
+          // ya no estaba asignado
+        }
+      }
+      case deleteProducts -> request(
+        UriComponentsBuilder.fromUriString(productsServiceUrl + "/product/delete-by-ids")
+          .queryParam("ids", step.getReferenceIds().toArray())
+          .queryParam("accountId", step.getAccountId().toString())
+        .toUriString(),
+        HttpMethod.DELETE, step
+      );
+    }
+  }
+
+  private String usersAccountUrl(String path, InventorySagaStepEntity step) {
+    return UriComponentsBuilder.fromUriString(usersServiceUrl + path)
+      .queryParam("accountId", step.getAccountId().toString())
+      .queryParam("invRefId", step.getInventoryId().toString())
+    .toUriString();
+  }
+
+  private void request(String url, HttpMethod method, InventorySagaStepEntity step) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setBearerAuth(jwtService.generateAccountAdminToken(step.getAccountUsername(), step.getAccountId().toString()));
+
+    ResponseEntity<ResponseDTO> response = restTemplate.exchange(url, method, new HttpEntity<>(headers), ResponseDTO.class);
+    if (response == null || !response.getStatusCode().is2xxSuccessful())
+      throw new InternalRequestException(
+        response != null && response.getBody() != null ? String.valueOf(response.getBody().getError()) : "sin respuesta",
+        String.valueOf(response)
+      );
+  }
+
+  private void registerFailure(InventorySagaStepEntity step, RuntimeException e) {
+    step.setAttempts(step.getAttempts() + 1);
+    String error = String.valueOf(e.getMessage());
+    step.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+
+    if (step.getAttempts() < maxAttempts) {
+      step.setNextAttemptAt(Instant.now().plus(retryDelay.multipliedBy(1L << Math.min(step.getAttempts() - 1, 16))));
+      repository.save(step);
+      log.warn(
+        "Falló el paso {} del inventario {} (intento {} de {}), se reintentará: {}",
+        step.getType(), step.getInventoryId(), step.getAttempts(), maxAttempts, error
+      );
+      return;
+    }
+
+    step.setNextAttemptAt(null);
+    repository.save(step);
+    if (step.getType() != InventorySagaStepType.assignInventory) {
+      log.error("Se agotaron los intentos del paso {} del inventario {}, queda como fallido: {}", step.getType(), step.getInventoryId(), error);
+      return;
+    }
+
+    log.error("No se pudo asignar el inventario {} a su cuenta, se deshace su creación: {}", step.getInventoryId(), error);
+    try {
+      inventoryService.revertCreate(step.getInventoryId(), step.getAccountUsername());
+    } catch (RuntimeException compensationError) {
+      log.error("No se pudo deshacer la creación del inventario {}: {}", step.getInventoryId(), compensationError.getMessage());
+    }
+  }
+}
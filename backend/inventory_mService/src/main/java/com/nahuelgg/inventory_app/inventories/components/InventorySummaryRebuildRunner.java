@@ -0,0 +1,38 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Recalcula al iniciar los totales por inventario (ver InventorySummaryRepository) de todas las cuentas a partir de product_in_inv:
+// siempre que inventory.summaries.rebuild sea true, o si hay inventarios sin su fila de totales (bases anteriores a la tabla).
+// Cada cuenta se recalcula en su propia transacción
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InventorySummaryRebuildRunner implements ApplicationRunner {
+  private final InventoryRepository inventoryRepository;
+  private final InventorySummaryRepository summaryRepository;
+
+  @Value("${inventory.summaries.rebuild:false}")
+  private boolean rebuild;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!rebuild && summaryRepository.count() == inventoryRepository.count()) return;
+
+    List<UUID> accountIds = inventoryRepository.findAllAccountIds();
+    for (UUID accountId : accountIds) summaryRepository.rebuildAccount(accountId);
+    log.info("Se recalcularon los totales de los inventarios de {} cuentas", accountIds.size());
+  }
+}
@@ -0,0 +1,68 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Caché acotada (por tamaño y tiempo de vida) de los productos obtenidos del servicio de productos, por id de referencia.
+// Las métricas de aciertos, fallos y desalojos se publican como "cache.*" con el tag cache=productDetails
+@Component
+public class ProductDetailsCache {
+  public static final String CACHE_NAME = "productDetails";
+
+  private final Cache<String, ProductFromProductsMSDTO> cache;
+
+  public ProductDetailsCache(
+    @Value("${inventory.product-cache.max-size:10000}") long maxSize,
+    @Value("${inventory.product-cache.ttl:10m}") Duration ttl,
+    MeterRegistry meterRegistry
+  ) {
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfterWrite(ttl)
+      .recordStats()
+    .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+  }
+
+  // Devuelve los productos de las ids pedidas, buscando con el loader solo los que no estén en caché (en un solo llamado).
+  // Las ids que el loader no devuelva no se guardan, así un producto eliminado no queda en caché como vacío
+  public List<ProductFromProductsMSDTO> getAll(
+    Collection<String> refIds, Function<List<String>, List<ProductFromProductsMSDTO>> loader
+  ) {
+    Map<String, ProductFromProductsMSDTO> found = cache.getAll(refIds, (Set<? extends String> missingIds) ->
+      loader.apply(List.copyOf(missingIds)).stream().collect(
+        Collectors.toMap(ProductFromProductsMSDTO::getId, p -> p, (p1, p2) -> p1)
+      )
+    );
+
+    return List.copyOf(found.values());
+  }
+
+  public void put(ProductFromProductsMSDTO product) {
+    if (product != null && product.getId() != null) cache.put(product.getId(), product);
+  }
+
+  public void invalidate(String refId) {
+    cache.invalidate(refId);
+  }
+
+  public void invalidateAll(Collection<String> refIds) {
+    cache.invalidateAll(refIds);
+  }
+}
@@ -0,0 +1,33 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.nahuelgg.inventory_app.inventories.services.ReconciliationService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Ejecuta periódicamente la reconciliación de productos con el servicio de productos (ver ReconciliationService_Impl).
+// Usa fixedDelay, así una ejecución lenta nunca se superpone con la siguiente
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductReconciliationJob {
+  private final ReconciliationService reconciliationService;
+
+  @Value("${inventory.reconciliation.enabled:true}")
+  private boolean enabled;
+
+  @Scheduled(
+    initialDelayString = "${inventory.reconciliation.initial-delay:1m}",
+    fixedDelayString = "${inventory.reconciliation.interval:10m}"
+  )
+  public void run() {
+    if (!enabled) return;
+
+    int removed = reconciliationService.reconcileAll();
+    if (removed > 0) log.info("Reconciliación de productos: se eliminaron {} productos sin referencia", removed);
+  }
+}
@@ -0,0 +1,253 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nahuelgg.inventory_app.inventories.services.AuthorizationService;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLOutputType;
+import graphql.schema.GraphQLTypeUtil;
+
+/*
+  Calcula el costo de cada operación GraphQL antes de ejecutarla y rechaza las que superan los límites, así una sola consulta
+  no puede traer miles de filas y productos del otro servicio. El costo de un campo es:
+    cantidad de elementos * (peso del campo + costo de sus subcampos)
+  Los escalares pesan 0, los objetos 1 (salvo los de FIELD_WEIGHTS) y las mutations MUTATION_WEIGHT. La cantidad es 1 salvo en
+  las listas, que usan first/last si los tienen (los de la conexión valen para sus edges) o la cantidad esperada configurada.
+  Se rechazan las operaciones que pasen la profundidad máxima, el costo máximo por operación o lo que le queda a la cuenta
+  logueada de su presupuesto de la ventana actual. Cada respuesta informa el costo en extensions.cost
+*/
+@Component
+public class QueryCostInstrumentation extends SimplePerformantInstrumentation {
+  static final int MUTATION_WEIGHT = 10;
+  // peso por elemento de los campos que además de leer la base traen datos del servicio de productos
+  static final Map<String, Integer> FIELD_WEIGHTS = Map.of(
+    "Inventory.products", 3,
+    "ProductInInventoryConnection.edges", 3
+  );
+
+  private final AuthorizationService authorizationService;
+  private final int maxDepth;
+  private final long maxCost;
+  private final long accountBudget;
+  private final Duration budgetWindow;
+  private final int defaultListSize;
+  private final int maxPageSize;
+  private final Map<String, Integer> expectedListSizes;
+  // costo consumido por cada cuenta en su ventana actual
+  private final Cache<String, BudgetWindow> budgets;
+
+  private record BudgetWindow(Instant resetAt, long used) {}
+
+  static class CostState implements InstrumentationState {
+    Long cost;
+    Long remaining;
+    Instant resetAt;
+  }
+
+  private record Cost(long cost, int depth) {}
+
+  public QueryCostInstrumentation(
+    AuthorizationService authorizationService,
+    @Value("${inventory.query-cost.max-depth:10}") int maxDepth,
+    @Value("${inventory.query-cost.max-cost:5000}") long maxCost,
+    @Value("${inventory.query-cost.account-budget:100000}") long accountBudget,
+    @Value("${inventory.query-cost.budget-window:1m}") Duration budgetWindow,
+    @Value("${inventory.query-cost.default-list-size:10}") int defaultListSize,
+    @Value("${inventory.query-cost.expected-inventories:10}") int expectedInventories,
+    @Value("${inventory.query-cost.expected-products:100}") int expectedProducts,
+    @Value("${inventory.products-page.default-size:50}") int defaultPageSize,
+    @Value("${inventory.products-page.max-size:500}") int maxPageSize
+  ) {
+    this.authorizationService = authorizationService;
+    this.maxDepth = maxDepth;
+    this.maxCost = maxCost;
+    this.accountBudget = accountBudget;
+    this.budgetWindow = budgetWindow;
+    this.defaultListSize = defaultListSize;
+    this.maxPageSize = maxPageSize;
+    this.expectedListSizes = Map.of(
+      "Query.getByAccount", expectedInventories,
+      "Query.getSummariesByAccount", expectedInventories,
+      "Query.searchProductsInInventories", expectedInventories,
+      "Inventory.products", expectedProducts,
+      "ProductInInventoryConnection.edges", defaultPageSize
+    );
+    this.budgets = Caffeine.newBuilder().expireAfterWrite(budgetWindow).build();
+  }
+
+  @Override
+  public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+    return new CostState();
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+    InstrumentationExecuteOperationParameters parameters, InstrumentationState state
+  ) {
+    ExecutionContext context = parameters.getExecutionContext();
+    Cost cost = calculate(context);
+    CostState costState = (CostState) state;
+    costState.cost = cost.cost();
+
+    if (cost.depth() > maxDepth) throw rejection(
+      "La consulta tiene una profundidad de %d, el máximo es %d".formatted(cost.depth(), maxDepth), costState
+    );
+    if (cost.cost() > maxCost) throw rejection(
+      "La consulta tiene un costo de %d, el máximo por consulta es %d".formatted(cost.cost(), maxCost), costState
+    );
+
+    String accountId = authorizationService.getLoggedAccountId();
+    if (accountId != null) consumeBudget(accountId, costState);
+
+    return SimpleInstrumentationContext.noOp();
+  }
+
+  @Override
+  public CompletableFuture<ExecutionResult> instrumentExecutionResult(
+    ExecutionResult executionResult, InstrumentationExecutionParameters parameters, InstrumentationState state
+  ) {
+    CostState costState = (CostState) state;
+    if (costState == null || costState.cost == null) return CompletableFuture.completedFuture(executionResult);
+
+    return CompletableFuture.completedFuture(executionResult.transform(builder -> builder.addExtension("cost", report(costState))));
+  }
+
+  // Descuenta el costo del presupuesto de la cuenta, o rechaza la consulta sin descontar nada si no le alcanza
+  private void consumeBudget(String accountId, CostState state) {
+    Instant now = Instant.now();
+    boolean[] rejected = { false };
+    BudgetWindow window = budgets.asMap().compute(accountId, (id, current) -> {
+      BudgetWindow active = current == null || !now.isBefore(current.resetAt()) ? new BudgetWindow(now.plus(budgetWindow), 0) : current;
+      rejected[0] = active.used() + state.cost > accountBudget;
+      return rejected[0] ? active : new BudgetWindow(active.resetAt(), active.used() + state.cost);
+    });
+    state.remaining = accountBudget - window.used();
+    state.resetAt = window.resetAt();
+
+    if (rejected[0]) throw rejection(
+      "La consulta tiene un costo de %d y a la cuenta le quedan %d de %d hasta %s".formatted(state.cost, state.remaining, accountBudget, state.resetAt),
+      state
+    );
+  }
+
+  private Map<String, Object> report(CostState state) {
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("requested", state.cost);
+    report.put("maxCost", maxCost);
+    if (state.remaining != null) {
+      report.put("budget", accountBudget);
+      report.put("remaining", state.remaining);
+      report.put("resetAt", state.resetAt.toString());
+    }
+    return report;
+  }
+
+  private AbortExecutionException rejection(String message, CostState state) {
+    GraphQLError error = GraphqlErrorBuilder.newError()
+      .message(message)
+      .extensions(Map.of("classification", "QueryCostExceeded", "cost", report(state)))
+    .build();
+    return new AbortExecutionException(List.of(error));
+  }
+
+  // Recorre los campos de la operación desde las hojas, sumando el costo de cada uno al de su padre
+  Cost calculate(ExecutionContext context) {
+    Map<QueryVisitorFieldEnvironment, Long> childrenCost = new HashMap<>();
+    long[] total = { 0 };
+    int[] depth = { 0 };
+
+    QueryTraverser.newQueryTraverser()
+      .schema(context.getGraphQLSchema())
+      .document(context.getDocument())
+      .operationName(context.getOperationDefinition().getName())
+      .coercedVariables(context.getCoercedVariables())
+    .build().visitPostOrder(new QueryVisitorStub() {
+      @Override
+      public void visitField(QueryVisitorFieldEnvironment env) {
+        // la introspección (__typename, __schema, ...) no accede a la base ni a otros servicios
+        if (isIntrospection(env)) return;
+
+        long cost = fieldCost(env, childrenCost.getOrDefault(env, 0L));
+        depth[0] = Math.max(depth[0], depthOf(env));
+
+        if (env.getParentEnvironment() == null) total[0] = saturatedAdd(total[0], cost);
+        else childrenCost.merge(env.getParentEnvironment(), cost, QueryCostInstrumentation::saturatedAdd);
+      }
+    });
+
+    return new Cost(total[0], depth[0]);
+  }
+
+  private long fieldCost(QueryVisitorFieldEnvironment env, long childrenCost) {
+    GraphQLFieldDefinition definition = env.getFieldDefinition();
+    String coordinates = env.getFieldsContainer().getName() + "." + definition.getName();
+    GraphQLOutputType type = definition.getType();
+    int weight = GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(type)) ? 0 : FIELD_WEIGHTS.getOrDefault(coordinates, 1);
+    if (env.getFieldsContainer() == env.getSchema().getMutationType()) weight = MUTATION_WEIGHT;
+
+    return saturatedMultiply(listSize(env, coordinates, type), saturatedAdd(weight, childrenCost));
+  }
+
+  private long listSize(QueryVisitorFieldEnvironment env, String coordinates, GraphQLOutputType type) {
+    if (!(GraphQLTypeUtil.unwrapNonNull(type) instanceof GraphQLList)) return 1;
+
+    Integer requested = pageSize(env.getArguments());
+    if (requested == null && env.getParentEnvironment() != null) requested = pageSize(env.getParentEnvironment().getArguments());
+    if (requested != null) return Math.max(0, Math.min(requested, maxPageSize));
+
+    return expectedListSizes.getOrDefault(coordinates, defaultListSize);
+  }
+
+  private static Integer pageSize(Map<String, Object> arguments) {
+    Object size = arguments.get("first") != null ? arguments.get("first") : arguments.get("last");
+    return size instanceof Number number ? number.intValue() : null;
+  }
+
+  private static boolean isIntrospection(QueryVisitorFieldEnvironment env) {
+    return env.getFieldDefinition().getName().startsWith("__") || env.getFieldsContainer().getName().startsWith("__");
+  }
+
+  // las listas anidadas pueden dar costos enormes antes de rechazarse por profundidad, se topean en vez de desbordar
+  private static long saturatedAdd(long a, long b) {
+    long sum = a + b;
+    return sum < 0 ? Long.MAX_VALUE : sum;
+  }
+
+  private static long saturatedMultiply(long a, long b) {
+    return a != 0 && b > Long.MAX_VALUE / a ? Long.MAX_VALUE : a * b;
+  }
+
+  private static int depthOf(QueryVisitorFieldEnvironment env) {
+    int depth = 0;
+    for (QueryVisitorFieldEnvironment current = env; current != null; current = current.getParentEnvironment()) depth++;
+    return depth;
+  }
+}
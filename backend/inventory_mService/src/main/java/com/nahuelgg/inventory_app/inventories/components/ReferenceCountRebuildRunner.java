@@ -0,0 +1,40 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductReferenceCountRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Recalcula al iniciar los contadores de referencias (ver ProductReferenceCountRepository) de todas las cuentas: siempre que
+// inventory.reference-counts.rebuild sea true, o si la tabla está vacía y hay productos en inventario (bases anteriores a los contadores).
+// Cada cuenta se recalcula en su propia transacción
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceCountRebuildRunner implements ApplicationRunner {
+  private final InventoryRepository inventoryRepository;
+  private final ProductInInvRepository productInInvRepository;
+  private final ProductReferenceCountRepository referenceCountRepository;
+
+  @Value("${inventory.reference-counts.rebuild:false}")
+  private boolean rebuild;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!rebuild && (referenceCountRepository.count() > 0 || productInInvRepository.count() == 0)) return;
+
+    List<UUID> accountIds = inventoryRepository.findAllAccountIds();
+    for (UUID accountId : accountIds) referenceCountRepository.rebuildAccount(accountId);
+    log.info("Se recalcularon los contadores de referencias de {} cuentas", accountIds.size());
+  }
+}
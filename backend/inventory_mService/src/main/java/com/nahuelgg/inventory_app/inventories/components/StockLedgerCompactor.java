@@ -0,0 +1,142 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductChangeDTO;
+import com.nahuelgg.inventory_app.inventories.entities.StockMovementEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventoryChangeType;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.StockMovementRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+  Compacta el ledger de movimientos de stock (ver StockMovementRepository): toma los movimientos más antiguos de a batch-size,
+  suma los de cada producto y los aplica al stock de product_in_inv y a los totales del inventario con un batch por inventario
+  (igual que StockMovementBuffer), y los borra, todo en una transacción. Así la fila de un producto muy vendido se actualiza
+  una vez por compactación y no una por venta.
+
+  - La transacción es READ COMMITTED: en MySQL, con REPEATABLE READ la lectura bloqueante de los movimientos también bloquearía
+    el hueco después del último, y los INSERTs de movimientos nuevos esperarían a que termine la compactación.
+  - Como las variaciones de un producto se suman antes de aplicarse, el stock se limita a 0 una vez por compactación; las de
+    productos que ya no están en el inventario se descartan.
+  - Corre aunque inventory.stock-ledger.enabled sea false, así se compactan los movimientos que quedaron al desactivarlo
+*/
+@Slf4j
+@Component
+public class StockLedgerCompactor {
+  private final StockMovementRepository movementRepository;
+  private final ProductInInvRepository productInvRepository;
+  private final InventorySummaryRepository summaryRepository;
+  private final InventoryChangePublisher changePublisher;
+  private final TransactionTemplate transactionTemplate;
+  private final boolean enabled;
+  private final int batchSize;
+  private final ReentrantLock runLock = new ReentrantLock();
+
+  public StockLedgerCompactor(
+    StockMovementRepository movementRepository,
+    ProductInInvRepository productInvRepository,
+    InventorySummaryRepository summaryRepository,
+    InventoryChangePublisher changePublisher,
+    PlatformTransactionManager transactionManager,
+    @Value("${inventory.stock-ledger.compaction-enabled:true}") boolean enabled,
+    @Value("${inventory.stock-ledger.batch-size:1000}") int batchSize
+  ) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("inventory.stock-ledger.batch-size debe ser mayor a 0");
+
+    this.movementRepository = movementRepository;
+    this.productInvRepository = productInvRepository;
+    this.summaryRepository = summaryRepository;
+    this.changePublisher = changePublisher;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+  }
+
+  @Scheduled(
+    initialDelayString = "${inventory.stock-ledger.compaction-interval:1s}",
+    fixedDelayString = "${inventory.stock-ledger.compaction-interval:1s}"
+  )
+  public void run() {
+    if (!enabled) return;
+
+    try {
+      compact();
+    } catch (RuntimeException e) {
+      log.error("No se pudieron compactar los movimientos de stock, se reintentará", e);
+    }
+  }
+
+  // Compacta todos los movimientos registrados hasta el momento, un batch por transacción, y devuelve la cantidad compactada.
+  // Si falla un batch, sus movimientos siguen en el ledger y se compactan en la próxima ejecución
+  public int compact() {
+    runLock.lock();
+    try {
+      int compacted = 0;
+      while (true) {
+        int compactedInBatch = transactionTemplate.execute(status -> compactBatch());
+        compacted += compactedInBatch;
+        if (compactedInBatch < batchSize) return compacted;
+      }
+    } finally {
+      runLock.unlock();
+    }
+  }
+
+  private int compactBatch() {
+    List<StockMovementEntity> movements = movementRepository.findByOrderByIdAsc(Limit.of(batchSize));
+    if (movements.isEmpty()) return 0;
+
+    // en orden de id, así los totales de los inventarios se bloquean en el mismo orden que al escribir el StockMovementBuffer
+    Map<UUID, Map<UUID, Integer>> byInventory = new TreeMap<>();
+    for (StockMovementEntity movement : movements)
+      byInventory.computeIfAbsent(movement.getInventoryId(), id -> new LinkedHashMap<>())
+        .merge(movement.getReferenceId(), movement.getDelta(), Integer::sum);
+    List<Long> ids = movements.stream().map(StockMovementEntity::getId).toList();
+
+    byInventory.forEach((inventoryId, sums) -> {
+      List<StockDeltaDTO> deltas = new ArrayList<>();
+      sums.forEach((referenceId, delta) -> {
+        if (delta != 0) deltas.add(new StockDeltaDTO(referenceId.toString(), delta));
+      });
+      if (deltas.isEmpty()) return;
+
+      summaryRepository.applyStockDeltas(inventoryId, deltas);
+      int[] updatedRows = productInvRepository.adjustStockBatch(inventoryId, deltas);
+      List<ProductChangeDTO> applied = new ArrayList<>();
+      for (int i = 0; i < updatedRows.length; i++) {
+        if (updatedRows[i] == 0)
+          log.warn("Movimientos de stock descartados, el producto {} no está en el inventario {}", deltas.get(i).getProductRefId(), inventoryId);
+        else
+          applied.add(ProductChangeDTO.builder().refId(deltas.get(i).getProductRefId()).stockDelta(deltas.get(i).getDelta()).build());
+      }
+      changePublisher.publish(InventoryChangeDTO.builder()
+        .invId(inventoryId.toString()).type(InventoryChangeType.stockChanged).products(applied)
+      .build());
+    });
+    movementRepository.deleteAllByIdInBatch(ids);
+
+    return movements.size();
+  }
+}
@@ -0,0 +1,291 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductChangeDTO;
+import com.nahuelgg.inventory_app.inventories.enums.InventoryChangeType;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+  Buffer en memoria de los movimientos de stock recibidos, que suma las variaciones por (inventario, producto) y las escribe
+  agrupadas en product_in_inv cada flush-interval, o antes si se acumulan flush-threshold productos distintos pendientes.
+  Así, muchos movimientos sobre el mismo producto entre dos escrituras terminan en un único UPDATE.
+
+  - Está dividido en 'stripes' mapas con su propio lock, para que los movimientos de distintos productos no compitan por el mismo.
+  - Si los movimientos que se agregan no entran sin pasar max-pending productos pendientes, quien los agrega escribe antes el
+    buffer (contrapresión). Los de una misma llamada a addAll se agregan todos o ninguno.
+  - Si la escritura falla, las variaciones vuelven al buffer y se reintentan en la próxima.
+  - Al detenerse la aplicación se escribe lo pendiente; si no se puede, se guarda en spill-file y se vuelve a cargar al iniciar.
+    Una caída abrupta del proceso sí puede perder los movimientos de como mucho el último flush-interval.
+
+  Como las variaciones se suman antes de aplicarse, el stock se limita a 0 una vez por escritura y no por cada movimiento, y a
+  los suscriptos al inventario les llega una única variación por producto y escritura. Por lo mismo, cada batch tiene referencias
+  distintas y los totales del inventario (InventorySummaryRepository.applyStockDeltas) se actualizan con un batch antes de cada uno
+*/
+@Slf4j
+@Component
+public class StockMovementBuffer implements SmartLifecycle {
+  static final Duration MAX_FLUSH_INTERVAL = Duration.ofMinutes(1);
+
+  public record StockKey(UUID inventoryId, UUID referenceId) {}
+  record PendingMovement(UUID inventoryId, UUID referenceId, int delta) {}
+
+  private static class Stripe {
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<StockKey, Integer> deltas = new HashMap<>();
+  }
+
+  private final ProductInInvRepository productInvRepository;
+  private final InventorySummaryRepository summaryRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+  private final InventoryChangePublisher changePublisher;
+
+  private final Stripe[] stripes;
+  private final Duration flushInterval;
+  private final int flushThreshold;
+  private final int maxPending;
+  private final Path spillFile;
+
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private ScheduledExecutorService scheduler;
+  private volatile boolean running;
+
+  public StockMovementBuffer(
+    ProductInInvRepository productInvRepository,
+    InventorySummaryRepository summaryRepository,
+    TransactionTemplate transactionTemplate,
+    ObjectMapper objectMapper,
+    InventoryChangePublisher changePublisher,
+    @Value("${inventory.stock-movements.stripes:16}") int stripes,
+    @Value("${inventory.stock-movements.flush-interval:500ms}") Duration flushInterval,
+    @Value("${inventory.stock-movements.flush-threshold:1000}") int flushThreshold,
+    @Value("${inventory.stock-movements.max-pending:10000}") int maxPending,
+    @Value("${inventory.stock-movements.spill-file:/var/lib/inventories/stock-movements-pending.ndjson}") Path spillFile
+  ) {
+    if (stripes < 1 || flushThreshold < 1 || maxPending < flushThreshold)
+      throw new IllegalArgumentException("Configuración inválida del buffer de movimientos de stock: se requiere stripes >= 1 y max-pending >= flush-threshold >= 1");
+    if (flushInterval.isNegative() || flushInterval.isZero() || flushInterval.compareTo(MAX_FLUSH_INTERVAL) > 0)
+      throw new IllegalArgumentException("inventory.stock-movements.flush-interval debe ser mayor a 0 y como máximo " + MAX_FLUSH_INTERVAL);
+
+    this.productInvRepository = productInvRepository;
+    this.summaryRepository = summaryRepository;
+    this.transactionTemplate = transactionTemplate;
+    this.objectMapper = objectMapper;
+    this.changePublisher = changePublisher;
+    this.flushInterval = flushInterval;
+    this.flushThreshold = flushThreshold;
+    this.maxPending = maxPending;
+    this.spillFile = spillFile;
+
+    this.stripes = new Stripe[stripes];
+    for (int i = 0; i < stripes; i++) this.stripes[i] = new Stripe();
+  }
+
+  public void add(UUID inventoryId, UUID referenceId, int delta) {
+    addAll(inventoryId, Map.of(referenceId, delta));
+  }
+
+  // Agrega las variaciones por referencia de un inventario todas o ninguna: si no entran sin pasar max-pending se escribe antes
+  // el buffer y, si esa escritura falla, se relanza la excepción sin haber agregado ninguna. Así quien reintenta la llamada no
+  // suma dos veces las que ya se habían agregado
+  public void addAll(UUID inventoryId, Map<UUID, Integer> deltas) {
+    long toAdd = deltas.values().stream().filter(delta -> delta != 0).count();
+    if (toAdd == 0) return;
+    if (pending.get() + toAdd > maxPending) flush();
+
+    deltas.forEach((referenceId, delta) -> {
+      if (delta != 0) merge(new StockKey(inventoryId, referenceId), delta);
+    });
+
+    // las variaciones ya quedaron agregadas: si esta escritura falla se reintentan en la próxima, sin fallar la llamada
+    int pendingNow = pending.get();
+    if (pendingNow >= maxPending) {
+      flushQuietly();
+    } else if (pendingNow >= flushThreshold && running && flushRequested.compareAndSet(false, true)) {
+      scheduler.execute(this::flushQuietly);
+    }
+  }
+
+  public int getPendingCount() {
+    return pending.get();
+  }
+
+  // Escribe todas las variaciones pendientes en una transacción, con un batch por inventario.
+  // Devuelve la cantidad de productos actualizados; si falla, las variaciones vuelven al buffer y se relanza la excepción
+  public int flush() {
+    flushLock.lock();
+    try {
+      flushRequested.set(false);
+      Map<StockKey, Integer> drained = drain();
+      if (drained.isEmpty()) return 0;
+
+      // en orden de id, así dos escrituras (de distintas instancias) bloquean los totales de los inventarios en el mismo orden
+      Map<UUID, List<StockDeltaDTO>> byInventory = new TreeMap<>();
+      drained.forEach((key, delta) -> byInventory.computeIfAbsent(key.inventoryId(), id -> new ArrayList<>()).add(
+        new StockDeltaDTO(key.referenceId().toString(), delta)
+      ));
+
+      try {
+        transactionTemplate.executeWithoutResult(status -> byInventory.forEach((inventoryId, deltas) -> {
+          summaryRepository.applyStockDeltas(inventoryId, deltas);
+          int[] updatedRows = productInvRepository.adjustStockBatch(inventoryId, deltas);
+          List<ProductChangeDTO> applied = new ArrayList<>();
+          for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == 0)
+              log.warn("Movimiento de stock descartado, el producto {} no está en el inventario {}", deltas.get(i).getProductRefId(), inventoryId);
+            else
+              applied.add(ProductChangeDTO.builder().refId(deltas.get(i).getProductRefId()).stockDelta(deltas.get(i).getDelta()).build());
+          }
+          changePublisher.publish(InventoryChangeDTO.builder()
+            .invId(inventoryId.toString()).type(InventoryChangeType.stockChanged).products(applied)
+          .build());
+        }));
+      } catch (RuntimeException e) {
+        drained.forEach(this::merge);
+        throw e;
+      }
+
+      return drained.size();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.error("No se pudieron escribir los movimientos de stock pendientes, se reintentará", e);
+    }
+  }
+
+  private void merge(StockKey key, int delta) {
+    Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    stripe.lock.lock();
+    try {
+      Integer previous = stripe.deltas.putIfAbsent(key, delta);
+      if (previous == null) pending.incrementAndGet();
+      else stripe.deltas.put(key, previous + delta);
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  private Map<StockKey, Integer> drain() {
+    Map<StockKey, Integer> drained = new HashMap<>();
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        if (stripe.deltas.isEmpty()) continue;
+        drained.putAll(stripe.deltas);
+        pending.addAndGet(-stripe.deltas.size());
+        stripe.deltas = new HashMap<>();
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    drained.values().removeIf(delta -> delta == 0);
+    return drained;
+  }
+
+  @Override
+  public void start() {
+    loadSpillFile();
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "stock-movement-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(flushInterval.toMillis() + 5000, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    flushQuietly();
+    if (pending.get() > 0) writeSpillFile();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  // se detiene después del servidor web (fases menores se detienen más tarde), así no llegan movimientos nuevos mientras se vacía
+  @Override
+  public int getPhase() {
+    return SmartLifecycle.DEFAULT_PHASE - 4096;
+  }
+
+  private void writeSpillFile() {
+    Map<StockKey, Integer> drained = drain();
+    Path directory = spillFile.toAbsolutePath().getParent();
+    try (BufferedWriter writer = Files.newBufferedWriter(Files.createDirectories(directory).resolve(spillFile.getFileName()))) {
+      for (Map.Entry<StockKey, Integer> entry : drained.entrySet()) {
+        writer.write(objectMapper.writeValueAsString(
+          new PendingMovement(entry.getKey().inventoryId(), entry.getKey().referenceId(), entry.getValue())
+        ));
+        writer.newLine();
+      }
+      log.warn("Se guardaron {} movimientos de stock pendientes en {}", drained.size(), spillFile.toAbsolutePath());
+    } catch (IOException e) {
+      log.error("No se pudieron guardar los movimientos de stock pendientes: {}", drained, e);
+    }
+  }
+
+  private void loadSpillFile() {
+    if (!Files.exists(spillFile)) return;
+
+    try (BufferedReader reader = Files.newBufferedReader(spillFile)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) continue;
+        PendingMovement movement = objectMapper.readValue(line, PendingMovement.class);
+        merge(new StockKey(movement.inventoryId(), movement.referenceId()), movement.delta());
+      }
+      Files.delete(spillFile);
+      log.info("Se recuperaron {} movimientos de stock pendientes de {}", pending.get(), spillFile.toAbsolutePath());
+    } catch (IOException e) {
+      throw new IllegalStateException("No se pudieron leer los movimientos de stock pendientes de " + spillFile.toAbsolutePath(), e);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.nahuelgg.inventory_app.inventories.configs;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.nahuelgg.inventory_app.inventories.components.GraphQlDocumentCache;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+
+// Consultas persistidas automáticas (protocolo de Apollo) en /graphql: el cliente puede mandar solo el hash SHA-256 del documento
+// en extensions.persistedQuery.sha256Hash. Si el servicio no lo tiene responde PersistedQueryNotFound y el cliente reenvía el
+// texto junto al hash, que se verifica y se guarda ya parseado y validado en GraphQlDocumentCache.
+// Las consultas que llegan sin hash se guardan en la misma caché con el hash de su texto, por lo que tampoco se vuelven a
+// parsear ni validar, y un cliente puede pasar a mandar solo el hash de una que ya envió completa
+@Configuration
+public class GraphQlDocumentsConfig {
+  @Bean
+  public GraphQlSourceBuilderCustomizer persistedDocuments(GraphQlDocumentCache documentCache) {
+    ApolloPersistedQuerySupport documentProvider = new ApolloPersistedQuerySupport(documentCache) {
+      @Override
+      protected Optional<Object> getPersistedQueryId(ExecutionInput executionInput) {
+        Optional<Object> persistedQueryId = super.getPersistedQueryId(executionInput);
+        return persistedQueryId.isPresent() ? persistedQueryId : Optional.of(sha256Hex(executionInput.getQuery()));
+      }
+    };
+
+    return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(documentProvider));
+  }
+
+  static String sha256Hex(String text) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.nahuelgg.inventory_app.inventories.configs;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.graphql.data.pagination.CursorEncoder;
+import org.springframework.graphql.data.pagination.CursorStrategy;
+import org.springframework.graphql.data.pagination.EncodingCursorStrategy;
+import org.springframework.graphql.data.query.JsonKeysetCursorStrategy;
+import org.springframework.graphql.data.query.ScrollPositionCursorStrategy;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+
+// Estrategia de cursores de las conexiones GraphQL (ej: Inventory.productsConnection). Es la misma que arma Spring for GraphQL
+// por defecto (keyset serializado a JSON y codificado en base64), pero permitiendo UUID entre los valores de las claves,
+// ya que por defecto solo acepta fechas y el keyset de los productos en inventario es su id
+@Configuration
+public class GraphQlPaginationConfig {
+  @Bean
+  public EncodingCursorStrategy<ScrollPosition> cursorStrategy() {
+    BasicPolymorphicTypeValidator validator = BasicPolymorphicTypeValidator.builder()
+      .allowIfBaseType(Map.class)
+      .allowIfSubType("java.time.")
+      .allowIfSubType(UUID.class)
+    .build();
+    ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    mapper.activateDefaultTyping(validator, ObjectMapper.DefaultTyping.NON_FINAL);
+
+    CodecConfigurer codecConfigurer = ServerCodecConfigurer.create();
+    codecConfigurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(mapper));
+    codecConfigurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper));
+
+    return CursorStrategy.withEncoder(
+      new ScrollPositionCursorStrategy(new JsonKeysetCursorStrategy(codecConfigurer)), CursorEncoder.base64()
+    );
+  }
+}
@@ -0,0 +1,80 @@
+package com.nahuelgg.inventory_app.inventories.configs;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+// Cliente HTTP compartido para los llamados a los otros microservicios (productos y usuarios).
+// Por defecto usa un pool de conexiones reutilizables (keep-alive) con límite total y por destino, y timeouts de conexión,
+// lectura y espera de una conexión libre, para que un servicio lento no deje bloqueados los hilos de este.
+// Con services.http-client.http2-enabled=true se usa el cliente del JDK negociando HTTP/2, que multiplexa los llamados sobre
+// una conexión por destino (en ese modo los límites de conexiones del pool no aplican)
+@Configuration
+public class InterServiceClientConfig {
+  @Value("${services.http-client.max-connections:100}")
+  private int maxConnections;
+  @Value("${services.http-client.max-connections-per-route:20}")
+  private int maxConnectionsPerRoute;
+  @Value("${services.http-client.connect-timeout:2s}")
+  private Duration connectTimeout;
+  @Value("${services.http-client.read-timeout:10s}")
+  private Duration readTimeout;
+  @Value("${services.http-client.idle-timeout:30s}")
+  private Duration idleTimeout;
+  @Value("${services.http-client.http2-enabled:false}")
+  private boolean http2Enabled;
+
+  @Bean
+  public RestTemplate restTemplate() {
+    return new RestTemplate(http2Enabled ? http2RequestFactory() : pooledRequestFactory());
+  }
+
+  private ClientHttpRequestFactory pooledRequestFactory() {
+    PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+      .setMaxConnTotal(maxConnections)
+      .setMaxConnPerRoute(maxConnectionsPerRoute)
+      .setDefaultConnectionConfig(ConnectionConfig.custom()
+        .setConnectTimeout(Timeout.of(connectTimeout))
+        .setSocketTimeout(Timeout.of(readTimeout))
+        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+      .build())
+    .build();
+
+    CloseableHttpClient httpClient = HttpClients.custom()
+      .setConnectionManager(connectionManager)
+      .evictIdleConnections(TimeValue.of(idleTimeout))
+      .evictExpiredConnections()
+    .build();
+
+    HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+    // tiempo máximo de espera por una conexión libre del pool, si se superan los límites
+    requestFactory.setConnectionRequestTimeout(connectTimeout);
+    requestFactory.setReadTimeout(readTimeout);
+    return requestFactory;
+  }
+
+  private ClientHttpRequestFactory http2RequestFactory() {
+    HttpClient httpClient = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_2)
+      .connectTimeout(connectTimeout)
+    .build();
+
+    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+    requestFactory.setReadTimeout(readTimeout);
+    return requestFactory;
+  }
+}
@@ -26,7 +26,7 @@ public class E2ETestController {
   @QueryMapping
   public List<InventoryDTO> getAllInventories() {
     return inventoryRepository.findAll().stream().map(
-      inv -> mapper.mapInvEntity(inv, List.of())
+      inv -> mapper.mapInvEntity(inv)
     ).toList();
   }
 
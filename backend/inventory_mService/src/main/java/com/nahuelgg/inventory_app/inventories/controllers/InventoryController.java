@@ -1,30 +1,51 @@
 package com.nahuelgg.inventory_app.inventories.controllers;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
+import org.springframework.graphql.data.query.ScrollSubrange;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Controller;
 
+import com.nahuelgg.inventory_app.inventories.components.InventoryChangePublisher;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.EditProductInputDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInInvFilterDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInputDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductToCopyDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventorySummaryDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductInInvDTO;
 import com.nahuelgg.inventory_app.inventories.enums.Permissions;
+import com.nahuelgg.inventory_app.inventories.exceptions.ResourceNotFoundException;
 import com.nahuelgg.inventory_app.inventories.services.AuthorizationService;
 import com.nahuelgg.inventory_app.inventories.services.InventoryService;
 
 import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
 
 @Controller
 @RequiredArgsConstructor
 public class InventoryController {
   private final InventoryService service;
   private final AuthorizationService authorizationService;
+  private final InventoryChangePublisher changePublisher;
+
+  @Value("${inventory.products-page.default-size:50}")
+  private int defaultPageSize;
+  @Value("${inventory.products-page.max-size:500}")
+  private int maxPageSize;
 
   // Queries
   @QueryMapping
@@ -41,6 +62,15 @@ public class InventoryController {
     return service.getByAccount(UUID.fromString(accountId));
   }
 
+  // Totales de cada inventario de la cuenta (cantidad de productos, unidades, disponibles y valor del stock), en una sola
+  // consulta y sin leer sus productos
+  @QueryMapping
+  public List<InventorySummaryDTO> getSummariesByAccount(@Argument String accountId) {
+    if (!authorizationService.checkAccountIsLogged() || !authorizationService.checkActionIsToLoggedAccount(accountId))
+      throw new AccessDeniedException("Necesita iniciar sesión para realizar esta acción");
+    return service.getSummariesByAccount(UUID.fromString(accountId));
+  }
+
   @QueryMapping
   public List<InventoryDTO> searchProductsInInventories(
     @Argument String name, @Argument String brand, @Argument String model, @Argument List<String> categories, @Argument String accountId
@@ -50,6 +80,57 @@ public class InventoryController {
     return service.searchProductsInInventories(name, brand, model, categories, UUID.fromString(accountId));
   }
 
+  // Resuelve el campo "products" de todos los inventarios de la respuesta en un solo llamado.
+  // Los inventarios que ya traen sus productos (por ejemplo los de la búsqueda, que vienen filtrados) se devuelven tal cual
+  @BatchMapping(typeName = "Inventory", field = "products")
+  public List<List<ProductInInvDTO>> products(List<InventoryDTO> inventories) {
+    List<UUID> idsToLoad = inventories.stream().filter(inv -> inv.getProducts() == null).map(
+      inv -> UUID.fromString(inv.getId())
+    ).distinct().toList();
+
+    Map<String, List<ProductInInvDTO>> productsLoaded = idsToLoad.isEmpty() ? Map.of() : service.getProductsOfInventories(idsToLoad);
+
+    return inventories.stream().map(
+      inv -> inv.getProducts() != null ? inv.getProducts() : productsLoaded.getOrDefault(inv.getId(), List.of())
+    ).toList();
+  }
+
+  // Resuelve el campo "summary" de todos los inventarios de la respuesta con una sola consulta por clave primaria
+  @BatchMapping(typeName = "Inventory", field = "summary")
+  public List<InventorySummaryDTO> summary(List<InventoryDTO> inventories) {
+    Map<String, InventorySummaryDTO> summaries = service.getSummariesOfInventories(
+      inventories.stream().map(inv -> UUID.fromString(inv.getId())).distinct().toList()
+    );
+
+    return inventories.stream().map(inv -> summaries.get(inv.getId())).toList();
+  }
+
+  // Resuelve el campo "productsConnection" (paginado estilo Relay con first/after o last/before) de a una página por inventario.
+  // Si no se indica la cantidad se usa inventory.products-page.default-size, y nunca se devuelven más de max-size por página
+  @SchemaMapping(typeName = "Inventory", field = "productsConnection")
+  public Window<ProductInInvDTO> productsConnection(InventoryDTO inventory, ScrollSubrange subrange, @Argument ProductInInvFilterDTO filter) {
+    ScrollPosition position = subrange.position().orElse(
+      subrange.forward() ? ScrollPosition.keyset() : ScrollPosition.keyset().backward()
+    );
+    int count = Math.min(subrange.count().orElse(defaultPageSize), maxPageSize);
+
+    return service.getProductsPage(UUID.fromString(inventory.getId()), filter, position, count);
+  }
+
+  // Subscriptions
+  // Cambios de stock y de productos del inventario a medida que se confirman, para no tener que consultar getByAccount
+  // periódicamente. Se sirve por WebSocket (spring.graphql.websocket.path), con el token en el header del handshake
+  @SubscriptionMapping
+  public Flux<InventoryChangeDTO> inventoryChanges(@Argument String invId, @Argument String accountId) {
+    if (!authorizationService.checkAccountIsLogged() || !authorizationService.checkActionIsToLoggedAccount(accountId))
+      throw new AccessDeniedException("Necesita iniciar sesión para realizar esta acción");
+
+    InventoryDTO inv = service.getById(UUID.fromString(invId));
+    if (inv == null || !inv.getAccountId().equals(accountId)) throw new ResourceNotFoundException("inventario", "id", invId);
+
+    return changePublisher.changesOf(UUID.fromString(invId));
+  }
+
   // Basic mutations
   @MutationMapping
   public InventoryDTO create(@Argument String name, @Argument String accountId) {
@@ -108,6 +189,14 @@ public class InventoryController {
     return service.copyProducts(products, UUID.fromString(idTo));
   }
 
+  @MutationMapping
+  public InventoryDTO cloneInventory(@Argument String sourceId, @Argument String name, @Argument String accountId) {
+    if (!authorizationService.checkUserIsAdmin() || !authorizationService.checkActionIsToLoggedAccount(accountId))
+      throw new AccessDeniedException("No tiene permisos para realizar esta acción");
+
+    return service.cloneInventory(UUID.fromString(sourceId), name, UUID.fromString(accountId));
+  }
+
   @MutationMapping
   public boolean editStockOfProduct(@Argument int relativeNewStock, @Argument String productRefId, @Argument String invId, @Argument String accountId) {
     if (!authorizationService.checkAccountIdAndUserPerm(accountId, Permissions.editInventory, invId))
@@ -116,6 +205,22 @@ public class InventoryController {
     return service.editStockOfProduct(relativeNewStock, UUID.fromString(productRefId), UUID.fromString(invId));
   }
 
+  @MutationMapping
+  public boolean adjustStock(@Argument List<StockDeltaDTO> deltas, @Argument String invId, @Argument String accountId) {
+    if (!authorizationService.checkAccountIdAndUserPerm(accountId, Permissions.editInventory, invId))
+      throw new AccessDeniedException("No tiene permisos para realizar esta acción");
+
+    return service.adjustStock(deltas, UUID.fromString(invId));
+  }
+
+  @MutationMapping
+  public boolean recordStockMovements(@Argument List<StockDeltaDTO> movements, @Argument String invId, @Argument String accountId) {
+    if (!authorizationService.checkAccountIdAndUserPerm(accountId, Permissions.editInventory, invId))
+      throw new AccessDeniedException("No tiene permisos para realizar esta acción");
+
+    return service.recordStockMovements(movements, UUID.fromString(invId));
+  }
+
   @MutationMapping
   public boolean deleteProductsInInventory(@Argument List<String> productRefIds, @Argument String invId, @Argument String accountId) {
     if (!authorizationService.checkAccountIdAndUserPerm(accountId, Permissions.deleteProducts, invId))
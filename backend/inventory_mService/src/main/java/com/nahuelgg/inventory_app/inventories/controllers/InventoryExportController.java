@@ -0,0 +1,106 @@
+package com.nahuelgg.inventory_app.inventories.controllers;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductInInvDTO;
+import com.nahuelgg.inventory_app.inventories.enums.ExportFormat;
+import com.nahuelgg.inventory_app.inventories.exceptions.ResourceNotFoundException;
+import com.nahuelgg.inventory_app.inventories.services.AuthorizationService;
+import com.nahuelgg.inventory_app.inventories.services.InventoryService;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+// Exporta todos los productos de un inventario en CSV o NDJSON (un producto por línea), escritos en la respuesta a medida que
+// se leen de la base (ver InventoryService_Impl.exportProducts), así la memoria usada no depende del tamaño del inventario.
+// Igual que /product/batch-get del servicio de productos, el content type se fija a mano para que los errores sigan
+// respondiéndose normalmente
+@RestController
+@RequestMapping("/inventory")
+@RequiredArgsConstructor
+public class InventoryExportController {
+  static final List<String> CSV_COLUMNS = List.of("refId", "name", "brand", "model", "description", "unitPrice", "categories", "stock", "isAvailable");
+
+  private final InventoryService service;
+  private final AuthorizationService authorizationService;
+  private final ObjectMapper objectMapper;
+
+  @GetMapping("/{invId}/export")
+  public void export(
+    @PathVariable String invId, @RequestParam String accountId, @RequestParam(defaultValue = "csv") ExportFormat format,
+    HttpServletResponse response
+  ) throws IOException {
+    if (!authorizationService.checkAccountIsLogged() || !authorizationService.checkActionIsToLoggedAccount(accountId)) {
+      response.sendError(HttpStatus.FORBIDDEN.value());
+      return;
+    }
+
+    response.setStatus(HttpStatus.OK.value());
+    response.setContentType(format == ExportFormat.csv ? "text/csv;charset=UTF-8" : MediaType.APPLICATION_NDJSON_VALUE);
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+      ContentDisposition.attachment().filename("inventory-" + invId + "." + format.name()).build().toString()
+    );
+    Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+    ObjectWriter jsonWriter = objectMapper.writerFor(ProductInInvDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    try {
+      if (format == ExportFormat.csv) writeCsvLine(out, CSV_COLUMNS);
+      service.exportProducts(UUID.fromString(invId), UUID.fromString(accountId), product -> {
+        try {
+          if (format == ExportFormat.csv) {
+            writeCsvLine(out, Stream.of(
+              product.getRefId(), product.getName(), product.getBrand(), product.getModel(), product.getDescription(),
+              product.getUnitPrice(), product.getCategories() != null ? String.join("|", product.getCategories()) : "",
+              product.getStock(), product.getIsAvailable()
+            ).map(value -> value != null ? value.toString() : "").toList());
+          } else {
+            jsonWriter.writeValue(out, product);
+            out.write('\n');
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (ResourceNotFoundException e) {
+      // todavía no se escribió nada más que el encabezado, que queda en el buffer de la respuesta: se descarta junto con el
+      // content type, así la página de error se responde en JSON
+      response.reset();
+      response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
+      return;
+    }
+    out.flush();
+  }
+
+  // los valores con separadores, comillas o saltos de línea van entre comillas, duplicando las comillas internas (RFC 4180)
+  private void writeCsvLine(Writer out, List<String> values) throws IOException {
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) out.write(',');
+      String value = values.get(i);
+      if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0)
+        out.write('"' + value.replace("\"", "\"\"") + '"');
+      else
+        out.write(value);
+    }
+    out.write("\r\n");
+  }
+}
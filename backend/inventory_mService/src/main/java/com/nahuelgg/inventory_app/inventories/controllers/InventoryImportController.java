@@ -0,0 +1,179 @@
+package com.nahuelgg.inventory_app.inventories.controllers;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nahuelgg.inventory_app.inventories.dtos.ImportProgressDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.ImportRowErrorDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInputDTO;
+import com.nahuelgg.inventory_app.inventories.enums.Permissions;
+import com.nahuelgg.inventory_app.inventories.exceptions.ResourceNotFoundException;
+import com.nahuelgg.inventory_app.inventories.services.AuthorizationService;
+import com.nahuelgg.inventory_app.inventories.services.InventoryService;
+import com.nahuelgg.inventory_app.inventories.utilities.CsvReader;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/*
+  Agrega productos a un inventario desde un CSV enviado como cuerpo de la request (text/csv), leído a medida que llega.
+  - La primera línea indica las columnas, en cualquier orden: name, brand y unitPrice son obligatorias; model, description,
+    categories (separadas por "|") y stock opcionales. Las demás se ignoran, así se puede importar un archivo de /export.
+  - Los registros se agrupan de a import.chunk-size y los válidos de cada grupo se agregan con InventoryService.addProducts,
+    en su propia transacción. Los grupos ya agregados se mantienen aunque falle uno posterior.
+  - Por cada grupo se responde una línea NDJSON con el progreso y los registros rechazados (ver ImportProgressDTO)
+*/
+@RestController
+@RequestMapping("/inventory")
+@RequiredArgsConstructor
+public class InventoryImportController {
+  static final List<String> REQUIRED_COLUMNS = List.of("name", "brand", "unitPrice");
+
+  private final InventoryService service;
+  private final AuthorizationService authorizationService;
+  private final ObjectMapper objectMapper;
+
+  @Value("${inventory.import.chunk-size:500}")
+  private int chunkSize;
+
+  @PostMapping(value = "/{invId}/import", consumes = "text/csv")
+  public void importProducts(
+    @PathVariable String invId, @RequestParam String accountId, HttpServletRequest request, HttpServletResponse response
+  ) throws IOException {
+    if (!authorizationService.checkAccountIdAndUserPerm(accountId, Permissions.addProducts, invId)) {
+      response.sendError(HttpStatus.FORBIDDEN.value());
+      return;
+    }
+
+    CsvReader csv = new CsvReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+    List<String> header = csv.readRecord();
+    Map<String, Integer> columns = new HashMap<>();
+    if (header != null) {
+      for (int i = 0; i < header.size(); i++) columns.putIfAbsent(header.get(i).trim(), i);
+    }
+    if (!columns.keySet().containsAll(REQUIRED_COLUMNS)) {
+      response.sendError(HttpStatus.BAD_REQUEST.value(), "La primera línea del CSV debe tener al menos las columnas " + REQUIRED_COLUMNS);
+      return;
+    }
+
+    ImportProgressDTO progress = ImportProgressDTO.builder().errors(new ArrayList<>()).build();
+    List<ProductInputDTO> chunk = new ArrayList<>(chunkSize);
+    List<Integer> chunkLines = new ArrayList<>(chunkSize);
+    ObjectWriter writer = objectMapper.writerFor(ImportProgressDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    UUID invUUID = UUID.fromString(invId), accountUUID = UUID.fromString(accountId);
+
+    List<String> record;
+    while ((record = csv.readRecord()) != null) {
+      progress.setRowsRead(progress.getRowsRead() + 1);
+      try {
+        chunk.add(parseRecord(record, columns));
+        chunkLines.add(csv.getRecordLine());
+      } catch (IllegalArgumentException e) {
+        progress.getErrors().add(new ImportRowErrorDTO(csv.getRecordLine(), e.getMessage()));
+      }
+      if (progress.getRowsRead() % chunkSize != 0) continue;
+
+      if (!addChunk(chunk, chunkLines, progress, invUUID, accountUUID, response)) return;
+      writeProgress(writer, progress, response);
+    }
+
+    if (!addChunk(chunk, chunkLines, progress, invUUID, accountUUID, response)) return;
+    progress.setDone(true);
+    writeProgress(writer, progress, response);
+  }
+
+  // Devuelve false si el inventario no existe y todavía no se respondió nada, en cuyo caso ya se respondió 404
+  private boolean addChunk(
+    List<ProductInputDTO> chunk, List<Integer> chunkLines, ImportProgressDTO progress, UUID invId, UUID accountId,
+    HttpServletResponse response
+  ) throws IOException {
+    if (chunk.isEmpty()) return true;
+
+    try {
+      progress.setImported(progress.getImported() + service.addProducts(chunk, invId, accountId).size());
+    } catch (RuntimeException e) {
+      if (e instanceof ResourceNotFoundException && !response.isCommitted()) {
+        response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
+        return false;
+      }
+      for (int line : chunkLines) progress.getErrors().add(new ImportRowErrorDTO(line, "No se pudo agregar el producto: " + e.getMessage()));
+    }
+    chunk.clear();
+    chunkLines.clear();
+    return true;
+  }
+
+  private void writeProgress(ObjectWriter writer, ImportProgressDTO progress, HttpServletResponse response) throws IOException {
+    progress.setFailed(progress.getFailed() + progress.getErrors().size());
+    if (!response.isCommitted()) {
+      response.setStatus(HttpStatus.OK.value());
+      response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+    OutputStream out = response.getOutputStream();
+    writer.writeValue(out, progress);
+    out.write('\n');
+    out.flush();
+    progress.getErrors().clear();
+  }
+
+  private ProductInputDTO parseRecord(List<String> record, Map<String, Integer> columns) {
+    String name = valueOf(record, columns, "name");
+    String brand = valueOf(record, columns, "brand");
+    String unitPrice = valueOf(record, columns, "unitPrice");
+    String stock = valueOf(record, columns, "stock");
+    String categories = valueOf(record, columns, "categories");
+    if (name == null) throw new IllegalArgumentException("Falta el nombre");
+    if (brand == null) throw new IllegalArgumentException("Falta la marca");
+    if (unitPrice == null) throw new IllegalArgumentException("Falta el precio unitario");
+
+    ProductInputDTO product = ProductInputDTO.builder()
+      .name(name)
+      .brand(brand)
+      .model(valueOf(record, columns, "model"))
+      .description(valueOf(record, columns, "description"))
+      .unitPrice(parseNumber(unitPrice, "precio unitario"))
+      .stock(stock != null ? parseNumber(stock, "stock") : 0)
+      .categories(categories != null ? Arrays.stream(categories.split("\\|")).map(String::trim).filter(c -> !c.isEmpty()).toList() : null)
+    .build();
+    if (product.getUnitPrice() < 0) throw new IllegalArgumentException("El precio unitario no puede ser negativo");
+    if (product.getStock() < 0) throw new IllegalArgumentException("El stock no puede ser negativo");
+    return product;
+  }
+
+  // valor de la columna sin espacios alrededor, o null si está vacío o el registro tiene menos columnas
+  private String valueOf(List<String> record, Map<String, Integer> columns, String column) {
+    Integer index = columns.get(column);
+    if (index == null || index >= record.size()) return null;
+    String value = record.get(index).trim();
+    return value.isEmpty() ? null : value;
+  }
+
+  private int parseNumber(String value, String field) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("El " + field + " debe ser un número entero: " + value);
+    }
+  }
+}
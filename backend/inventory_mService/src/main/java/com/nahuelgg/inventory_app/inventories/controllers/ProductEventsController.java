@@ -0,0 +1,37 @@
+package com.nahuelgg.inventory_app.inventories.controllers;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductChangeEventDTO;
+import com.nahuelgg.inventory_app.inventories.services.AuthorizationService;
+import com.nahuelgg.inventory_app.inventories.services.ProductProjectionService;
+
+import lombok.RequiredArgsConstructor;
+
+// Recibe las notificaciones de cambios de productos del servicio de productos. Todas las notificaciones de un llamado deben
+// ser de productos de la cuenta del token; se aplican juntas en una transacción
+@RestController
+@RequestMapping("/product-events")
+@RequiredArgsConstructor
+public class ProductEventsController {
+  private final ProductProjectionService productProjectionService;
+  private final AuthorizationService authorizationService;
+
+  @PostMapping("")
+  public ResponseEntity<Void> receive(@RequestBody List<ProductChangeEventDTO> events) {
+    boolean allToLoggedAccount = events.stream().allMatch(
+      event -> event.getProduct() != null && authorizationService.checkActionIsToLoggedAccount(event.getProduct().getAccountId())
+    );
+    if (!allToLoggedAccount) return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+
+    productProjectionService.applyEvents(events);
+    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+  }
+}
@@ -0,0 +1,20 @@
+package com.nahuelgg.inventory_app.inventories.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Progreso de una importación de productos desde CSV (ver InventoryImportController), informado al terminar cada grupo de
+// registros. Los totales son acumulados; errors solo tiene los registros rechazados en ese grupo. La última línea tiene done en true
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ImportProgressDTO {
+  private int rowsRead;
+  private int imported;
+  private int failed;
+  private List<ImportRowErrorDTO> errors;
+  private boolean done;
+}
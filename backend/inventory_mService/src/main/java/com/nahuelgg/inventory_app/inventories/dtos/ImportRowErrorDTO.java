@@ -0,0 +1,14 @@
+package com.nahuelgg.inventory_app.inventories.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// registro del CSV que no se importó, con la línea del archivo en la que empieza
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ImportRowErrorDTO {
+  private int line;
+  private String error;
+}
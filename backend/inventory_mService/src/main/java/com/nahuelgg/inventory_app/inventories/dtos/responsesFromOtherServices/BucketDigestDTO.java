@@ -0,0 +1,14 @@
+package com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class BucketDigestDTO {
+  private Integer bucket;
+  private Long count;
+  private Long hash;
+}
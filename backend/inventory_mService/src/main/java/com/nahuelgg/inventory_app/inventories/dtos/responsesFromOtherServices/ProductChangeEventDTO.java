@@ -0,0 +1,20 @@
+package com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Notificación de un cambio de producto enviada por el servicio de productos. En las de tipo deleted el producto solo trae id y cuenta.
+// version crece con cada cambio del mismo producto, así se puede descartar una notificación más vieja que la ya aplicada
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ProductChangeEventDTO {
+  public enum Type {
+    upserted, deleted
+  }
+
+  private Type type;
+  private Long version;
+  private ProductFromProductsMSDTO product;
+}
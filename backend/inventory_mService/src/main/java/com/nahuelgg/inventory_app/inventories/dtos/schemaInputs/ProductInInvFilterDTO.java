@@ -0,0 +1,14 @@
+package com.nahuelgg.inventory_app.inventories.dtos.schemaInputs;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ProductInInvFilterDTO {
+  private Boolean isAvailable;
+  private Integer minStock;
+  private Integer maxStock;
+}
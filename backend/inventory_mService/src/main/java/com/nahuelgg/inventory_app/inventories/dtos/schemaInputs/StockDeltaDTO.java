@@ -0,0 +1,13 @@
+package com.nahuelgg.inventory_app.inventories.dtos.schemaInputs;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class StockDeltaDTO {
+  private String productRefId;
+  private Integer delta;
+}
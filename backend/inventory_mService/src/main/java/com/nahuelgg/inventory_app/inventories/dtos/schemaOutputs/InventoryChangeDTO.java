@@ -0,0 +1,18 @@
+package com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs;
+
+import java.util.List;
+
+import com.nahuelgg.inventory_app.inventories.enums.InventoryChangeType;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class InventoryChangeDTO {
+  private String invId;
+  private InventoryChangeType type;
+  private List<ProductChangeDTO> products;
+}
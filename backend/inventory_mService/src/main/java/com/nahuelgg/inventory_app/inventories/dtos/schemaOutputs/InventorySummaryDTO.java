@@ -0,0 +1,16 @@
+package com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class InventorySummaryDTO {
+  private String invId;
+  private Integer skuCount;
+  private Long totalUnits;
+  private Integer availableCount;
+  private Long stockValue;
+}
@@ -0,0 +1,15 @@
+package com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// stockDelta solo está en los cambios de stock y stock (el inicial) solo en los productos agregados
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ProductChangeDTO {
+  private String refId;
+  private Integer stockDelta;
+  private Integer stock;
+}
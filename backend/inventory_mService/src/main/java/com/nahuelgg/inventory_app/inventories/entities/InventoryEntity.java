@@ -8,14 +8,18 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity(name = "inventory")
+// para los inventarios de una cuenta y el control de nombres repetidos dentro de ella
+@Table(indexes = @Index(name = "idx_inventory_account_id_name", columnList = "account_id, name"))
 @Data @Builder(toBuilder = true)
 @NoArgsConstructor @AllArgsConstructor
 public class InventoryEntity {
@@ -26,7 +30,8 @@ public class InventoryEntity {
   @Column(nullable = false)
   private UUID accountId;
 
-  @OneToMany(mappedBy = "inventory", cascade = CascadeType.REMOVE, fetch = FetchType.EAGER)
+  // no se carga junto al inventario: los productos se leen paginados (o en lote) desde ProductInInvRepository
+  @OneToMany(mappedBy = "inventory", cascade = CascadeType.REMOVE, fetch = FetchType.LAZY)
   private List<ProductInInvEntity> products;
 
   @PrePersist
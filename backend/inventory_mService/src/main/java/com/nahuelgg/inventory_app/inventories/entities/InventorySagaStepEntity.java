@@ -0,0 +1,61 @@
+package com.nahuelgg.inventory_app.inventories.entities;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import com.nahuelgg.inventory_app.inventories.enums.InventorySagaStepType;
+import com.nahuelgg.inventory_app.inventories.utilities.StringListConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Paso remoto pendiente de la creación o el borrado de un inventario, guardado en la misma transacción que el cambio local
+// (ver InventorySaga). La id autoincremental define el orden en que se ejecutan
+@Entity(name = "inventory_saga_step")
+@Table(indexes = {
+  // para los pasos a ejecutar y los pendientes de un inventario
+  @Index(name = "idx_inventory_saga_step_next_attempt_at", columnList = "next_attempt_at, id"),
+  @Index(name = "idx_inventory_saga_step_inventory_id", columnList = "inventory_id")
+})
+@Data @Builder
+@AllArgsConstructor @NoArgsConstructor
+public class InventorySagaStepEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private InventorySagaStepType type;
+  @Column(nullable = false)
+  private UUID inventoryId;
+  @Column(nullable = false)
+  private UUID accountId;
+  // usuario de la cuenta, el servicio de usuarios identifica a la cuenta por el subject del token
+  @Column(nullable = false)
+  private String accountUsername;
+  // ids de los productos de referencia a borrar (solo en deleteProducts)
+  @Lob
+  @Convert(converter = StringListConverter.class)
+  private List<String> referenceIds;
+  private int attempts;
+  // null cuando se agotaron los intentos: el paso queda guardado como fallido para revisarlo
+  private Instant nextAttemptAt;
+  @Column(length = 1000)
+  private String lastError;
+  @Column(nullable = false)
+  private Instant createdAt;
+}
@@ -0,0 +1,40 @@
+package com.nahuelgg.inventory_app.inventories.entities;
+
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+  Totales de los productos de un inventario (una fila por inventario), para no tener que leer todos sus productos al mostrarlos.
+  Se mantienen en la misma transacción que cada cambio en product_in_inv o en el precio de un producto (ver InventorySummaryRepository):
+    - skuCount: cantidad de productos en el inventario
+    - totalUnits: suma del stock de esos productos
+    - availableCount: cantidad de productos disponibles
+    - stockValue: suma de stock * precio unitario, con el precio de la copia local (product_projection); sin copia vale 0
+*/
+@Entity(name = "inventory_summary")
+@Table(indexes = @Index(name = "idx_inventory_summary_account_id", columnList = "account_id"))
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class InventorySummaryEntity {
+  @Id
+  private UUID inventoryId;
+  @Column(nullable = false)
+  private UUID accountId;
+  @Column(nullable = false)
+  private Integer skuCount;
+  @Column(nullable = false)
+  private Long totalUnits;
+  @Column(nullable = false)
+  private Integer availableCount;
+  @Column(nullable = false)
+  private Long stockValue;
+}
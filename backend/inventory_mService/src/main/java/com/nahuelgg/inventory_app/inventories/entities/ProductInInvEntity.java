@@ -2,18 +2,31 @@ package com.nahuelgg.inventory_app.inventories.entities;
 
 import java.util.UUID;
 
+import org.hibernate.annotations.Formula;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Entity(name = "product_in_inv")
+@Table(indexes = {
+  // para recorrer los productos de un inventario ordenados por id (paginación por keyset)
+  @Index(name = "idx_product_in_inv_inventory_id", columnList = "inventory_id, id"),
+  // para buscar un producto dentro de un inventario, o las referencias de un inventario sin leer las filas
+  @Index(name = "idx_product_in_inv_inventory_id_reference_id", columnList = "inventory_id, reference_id"),
+  // para buscar en qué inventarios está una referencia
+  @Index(name = "idx_product_in_inv_reference_id", columnList = "reference_id, inventory_id")
+})
 @Data @Builder(toBuilder = true)
 @NoArgsConstructor @AllArgsConstructor
 public class ProductInInvEntity {
@@ -23,6 +36,11 @@ public class ProductInInvEntity {
   private UUID referenceId;
   private Integer stock;
   private Boolean isAvailable;
+  // suma de los movimientos del ledger que todavía no se compactaron en stock (ver StockMovementRepository), calculada en la
+  // misma consulta que carga el producto. Es de solo lectura y queda en null en los productos recién guardados
+  @EqualsAndHashCode.Exclude
+  @Formula("(select coalesce(sum(m.delta), 0) from stock_movement m where m.inventory_id = inventory_id and m.reference_id = reference_id)")
+  private Integer pendingStockDelta;
   @ManyToOne @JoinColumn(nullable = false)
   private InventoryEntity inventory;
 
@@ -0,0 +1,57 @@
+package com.nahuelgg.inventory_app.inventories.entities;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import com.nahuelgg.inventory_app.inventories.utilities.StringListConverter;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+  Copia local (de solo lectura) de los datos de un producto del servicio de productos, para buscar productos en inventarios sin
+  llamar a ese servicio. Se actualiza con las notificaciones de cambios de productos (ver ProductProjectionService_Impl).
+  El id es el mismo que el del producto, es decir el referenceId de product_in_inv.
+  Las categorías se guardan como texto para devolverlas tal cual, y normalizadas (en minúscula) en una tabla aparte para filtrar por ellas
+*/
+@Entity(name = "product_projection")
+@Table(indexes = @Index(name = "idx_product_projection_account_id", columnList = "account_id"))
+@Data @Builder(toBuilder = true)
+@NoArgsConstructor @AllArgsConstructor
+public class ProductProjectionEntity {
+  @Id
+  private UUID id;
+  @Column(nullable = false)
+  private UUID accountId;
+  private String name;
+  private String brand;
+  private String model;
+  @Column(length = 1000)
+  private String description;
+  private Integer unitPrice;
+  @Convert(converter = StringListConverter.class) @Column(length = 2000)
+  private List<String> categories;
+  @ElementCollection(fetch = FetchType.LAZY)
+  @CollectionTable(
+    name = "product_projection_category_keys",
+    joinColumns = @JoinColumn(name = "product_id"),
+    indexes = @Index(name = "idx_product_projection_category_key", columnList = "category_key, product_id")
+  )
+  @Column(name = "category_key")
+  private Set<String> categoryKeys;
+  // versión de la última notificación aplicada, para descartar las que lleguen desordenadas
+  private Long version;
+}
@@ -0,0 +1,35 @@
+package com.nahuelgg.inventory_app.inventories.entities;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Cantidad de productos en inventario (uno por inventario) de la cuenta que referencian cada producto. Se mantiene en la misma
+// transacción que cada alta o baja en product_in_inv (ver ProductReferenceCountRepository) y las filas en 0 se eliminan
+@Entity(name = "product_reference_count")
+@IdClass(ProductReferenceCountEntity.Key.class)
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ProductReferenceCountEntity {
+  @Id
+  private UUID accountId;
+  @Id
+  private UUID referenceId;
+  @Column(nullable = false)
+  private Integer inventoryCount;
+
+  @Data
+  @NoArgsConstructor @AllArgsConstructor
+  public static class Key implements Serializable {
+    private UUID accountId;
+    private UUID referenceId;
+  }
+}
@@ -0,0 +1,39 @@
+package com.nahuelgg.inventory_app.inventories.entities;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Movimiento de stock registrado en el ledger (ver StockMovementRepository): solo se insertan, y StockLedgerCompactor los suma
+// al stock de product_in_inv y los borra. La id autoincremental define el orden en que se compactan
+@Entity(name = "stock_movement")
+@Table(indexes = {
+  // para sumar los movimientos pendientes de un producto al leerlo, y borrar los de los productos que se borran
+  @Index(name = "idx_stock_movement_inventory_id_reference_id", columnList = "inventory_id, reference_id")
+})
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class StockMovementEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+  @Column(nullable = false)
+  private UUID inventoryId;
+  @Column(nullable = false)
+  private UUID referenceId;
+  @Column(nullable = false)
+  private Integer delta;
+  @Column(nullable = false)
+  private Instant createdAt;
+}
@@ -0,0 +1,6 @@
+package com.nahuelgg.inventory_app.inventories.enums;
+
+// Formatos de la exportación de los productos de un inventario (ver InventoryExportController)
+public enum ExportFormat {
+  csv, ndjson
+}
@@ -0,0 +1,6 @@
+package com.nahuelgg.inventory_app.inventories.enums;
+
+// Tipos de cambios que se envían a los suscriptos a un inventario (ver InventoryChangePublisher)
+public enum InventoryChangeType {
+  stockChanged, productsAdded, productsDeleted
+}
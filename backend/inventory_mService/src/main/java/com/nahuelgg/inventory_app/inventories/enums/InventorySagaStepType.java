@@ -0,0 +1,6 @@
+package com.nahuelgg.inventory_app.inventories.enums;
+
+// Pasos remotos de la creación y el borrado de inventarios (ver InventorySaga)
+public enum InventorySagaStepType {
+  assignInventory, unassignInventory, deleteProducts
+}
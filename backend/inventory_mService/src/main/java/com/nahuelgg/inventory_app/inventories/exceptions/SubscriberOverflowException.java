@@ -0,0 +1,9 @@
+package com.nahuelgg.inventory_app.inventories.exceptions;
+
+public class SubscriberOverflowException extends RuntimeException {
+  public SubscriberOverflowException(int bufferSize) {
+    super(String.format(
+      "Se cerró la suscripción porque el cliente acumuló más de %d cambios sin recibir. Vuelva a consultar el inventario y a suscribirse", bufferSize
+    ));
+  }
+}
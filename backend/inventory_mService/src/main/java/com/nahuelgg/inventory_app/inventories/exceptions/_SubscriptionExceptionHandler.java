@@ -0,0 +1,46 @@
+package com.nahuelgg.inventory_app.inventories.exceptions;
+
+import java.util.Map;
+
+import org.springframework.graphql.execution.SubscriptionExceptionResolverAdapter;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+
+// Errores de las suscripciones, tanto los que el método del controller lanza al suscribirse como los que terminan una ya iniciada
+@Component
+public class _SubscriptionExceptionHandler extends SubscriptionExceptionResolverAdapter {
+  @Override
+  protected GraphQLError resolveToSingleError(Throwable ex) {
+    String message = "Ocurrió un error inesperado: " + ex.getMessage();
+    Map<String, Object> extensions = Map.of("classification", "InternalServerError");
+
+    if (ex instanceof AccessDeniedException) {
+      message = ex.getMessage();
+      extensions = Map.of(
+        "classification", "Forbidden"
+      );
+    }
+
+    if (ex instanceof ResourceNotFoundException) {
+      message = ex.getMessage();
+      extensions = Map.of(
+        "classification", "ResourceNotFound"
+      );
+    }
+
+    if (ex instanceof SubscriberOverflowException) {
+      message = ex.getMessage();
+      extensions = Map.of(
+        "classification", "SubscriberOverflow"
+      );
+    }
+
+    return GraphqlErrorBuilder.newError()
+      .message(message)
+      .extensions(extensions)
+    .build();
+  }
+}
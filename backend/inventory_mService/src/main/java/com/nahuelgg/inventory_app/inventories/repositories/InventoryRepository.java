@@ -1,5 +1,6 @@
 package com.nahuelgg.inventory_app.inventories.repositories;
 
+import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -13,9 +14,16 @@ import java.util.List;
 public interface InventoryRepository extends JpaRepository<InventoryEntity, UUID> {
   List<InventoryEntity> findByAccountId(UUID accountId);
 
+  Optional<InventoryView> findViewById(UUID id);
+
+  List<InventoryView> findViewsByAccountId(UUID accountId);
+
   @Query("select i from inventory i join i.products p where p.referenceId in ?1")
   List<InventoryEntity> searchByProductRefId(List<UUID> referenceIds);
   /*group by i having count(distinct p.referenceId) = ?2 */
 
   boolean existsByNameAndAccountId(String name, UUID accountId);
+
+  @Query("select distinct i.accountId from inventory i")
+  List<UUID> findAllAccountIds();
 }
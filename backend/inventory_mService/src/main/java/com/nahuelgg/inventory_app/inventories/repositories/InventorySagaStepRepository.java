@@ -0,0 +1,25 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.nahuelgg.inventory_app.inventories.entities.InventorySagaStepEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventorySagaStepType;
+
+@Repository
+public interface InventorySagaStepRepository extends JpaRepository<InventorySagaStepEntity, Long> {
+  // los 'limit' pasos más antiguos que ya pueden ejecutarse (los fallidos tienen nextAttemptAt en null y no se incluyen)
+  List<InventorySagaStepEntity> findByNextAttemptAtLessThanEqualOrderByIdAsc(Instant now, Limit limit);
+
+  // devuelve la cantidad de pasos borrados
+  @Modifying
+  @Query("delete from inventory_saga_step s where s.inventoryId = ?1 and s.type = ?2")
+  int deleteByInventoryIdAndType(UUID inventoryId, InventorySagaStepType type);
+}
@@ -0,0 +1,129 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.nahuelgg.inventory_app.inventories.entities.InventorySummaryEntity;
+
+/*
+  Totales por inventario (ver InventorySummaryEntity). Se actualizan sumando la variación de las filas afectadas, nunca
+  recorriendo el inventario completo, y quien cambia product_in_inv debe hacerlo en la misma transacción:
+    - al crear un inventario se guarda su fila en 0, y al borrarlo (o los de la cuenta) se borra
+    - altas: addProductsToSummary(+1) después de insertar los productos
+    - bajas: addProductsToSummary(-1) antes de borrar los productos de un inventario, o removeReferencesFromSummaries antes
+      de borrar las filas de esas referencias en toda la cuenta
+    - stock: applyStockDeltas antes de aplicar las variaciones
+    - precio: addToStockValueOfReference con la diferencia entre el precio nuevo y el anterior
+  Los cambios de stock actualizan la fila del inventario antes que sus productos, así los que modifican el mismo inventario
+  se esperan en ella y cada uno calcula su variación sobre el stock ya confirmado por el anterior.
+  Si los datos quedaran inconsistentes (por ejemplo los anteriores a esta tabla), recalculate o rebuildAccount los recalculan
+*/
+@Repository
+public interface InventorySummaryRepository extends JpaRepository<InventorySummaryEntity, UUID>, InventorySummaryRepositoryCustom {
+  // los totales de todos los inventarios de la cuenta, leídos por el índice de account_id
+  List<InventorySummaryEntity> findByAccountId(UUID accountId);
+
+  // suma (sign = 1) o resta (sign = -1) a los totales del inventario los productos con esas referencias que tiene en product_in_inv
+  @Modifying(flushAutomatically = true)
+  @Query("""
+    update inventory_summary s set
+      s.skuCount = s.skuCount + ?3 * (
+        select cast(count(p) as Integer) from product_in_inv p where p.inventory.id = ?1 and p.referenceId in ?2
+      ),
+      s.totalUnits = s.totalUnits + ?3 * (
+        select coalesce(sum(cast(p.stock as Long)), 0L) from product_in_inv p where p.inventory.id = ?1 and p.referenceId in ?2
+      ),
+      s.availableCount = s.availableCount + ?3 * (
+        select cast(count(p) as Integer) from product_in_inv p where p.inventory.id = ?1 and p.referenceId in ?2 and p.isAvailable = true
+      ),
+      s.stockValue = s.stockValue + ?3 * (
+        select coalesce(sum(cast(p.stock as Long) * coalesce(pp.unitPrice, 0)), 0L)
+        from product_in_inv p left join product_projection pp on pp.id = p.referenceId
+        where p.inventory.id = ?1 and p.referenceId in ?2
+      )
+    where s.inventoryId = ?1
+  """)
+  int addProductsToSummary(UUID inventoryId, Collection<UUID> referenceIds, int sign);
+
+  // resta de los inventarios de la cuenta que tienen esas referencias los productos que las referencian
+  @Modifying(flushAutomatically = true)
+  @Query("""
+    update inventory_summary s set
+      s.skuCount = s.skuCount - (
+        select cast(count(p) as Integer) from product_in_inv p where p.inventory.id = s.inventoryId and p.referenceId in ?2
+      ),
+      s.totalUnits = s.totalUnits - (
+        select coalesce(sum(cast(p.stock as Long)), 0L) from product_in_inv p where p.inventory.id = s.inventoryId and p.referenceId in ?2
+      ),
+      s.availableCount = s.availableCount - (
+        select cast(count(p) as Integer) from product_in_inv p
+        where p.inventory.id = s.inventoryId and p.referenceId in ?2 and p.isAvailable = true
+      ),
+      s.stockValue = s.stockValue - (
+        select coalesce(sum(cast(p.stock as Long) * coalesce(pp.unitPrice, 0)), 0L)
+        from product_in_inv p left join product_projection pp on pp.id = p.referenceId
+        where p.inventory.id = s.inventoryId and p.referenceId in ?2
+      )
+    where s.accountId = ?1 and s.inventoryId in (select p.inventory.id from product_in_inv p where p.referenceId in ?2)
+  """)
+  int removeReferencesFromSummaries(UUID accountId, Collection<UUID> referenceIds);
+
+  // suma priceDelta por cada unidad en stock de la referencia al valor de los inventarios de la cuenta que la tienen
+  @Modifying(flushAutomatically = true)
+  @Query("""
+    update inventory_summary s set s.stockValue = s.stockValue + ?3 * (
+      select coalesce(sum(cast(p.stock as Long)), 0L) from product_in_inv p where p.inventory.id = s.inventoryId and p.referenceId = ?2
+    )
+    where s.accountId = ?1 and s.inventoryId in (select p.inventory.id from product_in_inv p where p.referenceId = ?2)
+  """)
+  int addToStockValueOfReference(UUID accountId, UUID referenceId, long priceDelta);
+
+  // recalcula los totales del inventario a partir de todos sus productos
+  @Modifying(flushAutomatically = true)
+  @Query("""
+    update inventory_summary s set
+      s.skuCount = (select cast(count(p) as Integer) from product_in_inv p where p.inventory.id = ?1),
+      s.totalUnits = (select coalesce(sum(cast(p.stock as Long)), 0L) from product_in_inv p where p.inventory.id = ?1),
+      s.availableCount = (select cast(count(p) as Integer) from product_in_inv p where p.inventory.id = ?1 and p.isAvailable = true),
+      s.stockValue = (
+        select coalesce(sum(cast(p.stock as Long) * coalesce(pp.unitPrice, 0)), 0L)
+        from product_in_inv p left join product_projection pp on pp.id = p.referenceId
+        where p.inventory.id = ?1
+      )
+    where s.inventoryId = ?1
+  """)
+  int recalculate(UUID inventoryId);
+
+  @Modifying
+  @Query("delete from inventory_summary s where s.accountId = ?1")
+  int deleteByAccountId(UUID accountId);
+
+  // recalcula los totales de todos los inventarios de la cuenta a partir de product_in_inv
+  @Transactional
+  default void rebuildAccount(UUID accountId) {
+    deleteByAccountId(accountId);
+    insertSummariesOfAccount(accountId);
+  }
+
+  @Modifying(flushAutomatically = true)
+  @Query("""
+    insert into inventory_summary (inventoryId, accountId, skuCount, totalUnits, availableCount, stockValue)
+    select
+      i.id, i.accountId,
+      cast(count(p) as Integer),
+      coalesce(sum(cast(p.stock as Long)), 0L),
+      cast(sum(case when p.isAvailable = true then 1 else 0 end) as Integer),
+      coalesce(sum(cast(p.stock as Long) * coalesce(pp.unitPrice, 0)), 0L)
+    from inventory i left join i.products p left join product_projection pp on pp.id = p.referenceId
+    where i.accountId = ?1
+    group by i.id, i.accountId
+  """)
+  int insertSummariesOfAccount(UUID accountId);
+}
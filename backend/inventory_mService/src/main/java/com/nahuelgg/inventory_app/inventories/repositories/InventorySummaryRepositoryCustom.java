@@ -0,0 +1,15 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+
+// Operaciones de InventorySummaryRepository escritas directamente sobre JDBC, implementadas en InventorySummaryRepositoryImpl
+public interface InventorySummaryRepositoryCustom {
+  // suma a los totales del inventario lo que cambiarán las unidades, los disponibles y el valor al aplicar cada variación
+  // (con el mismo límite en 0 que ProductInInvRepository.adjustStock), en un único batch JDBC. Debe llamarse antes de aplicar
+  // las variaciones y con referencias distintas, ya que cada una se calcula sobre el stock actual; las de productos que no
+  // están en el inventario no suman nada
+  void applyStockDeltas(UUID inventoryId, List<StockDeltaDTO> deltas);
+}
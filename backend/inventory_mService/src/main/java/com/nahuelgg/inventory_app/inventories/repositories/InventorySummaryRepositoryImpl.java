@@ -0,0 +1,64 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.type.descriptor.ValueBinder;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class InventorySummaryRepositoryImpl implements InventorySummaryRepositoryCustom {
+  // las tres variaciones se calculan como en ProductInInvRepositoryImpl.ADJUST_STOCK_SQL (stock limitado a 0, disponible si
+  // queda mayor a 0) sobre la fila del producto; el valor se multiplica como decimal para que no desborde un entero
+  static final String STOCK_DELTA_SQL = """
+    update inventory_summary set
+      total_units = total_units + coalesce((
+        select greatest(coalesce(p.stock, 0) + ?, 0) - coalesce(p.stock, 0)
+        from product_in_inv p where p.inventory_id = ? and p.reference_id = ?
+      ), 0),
+      available_count = available_count + coalesce((
+        select case when coalesce(p.stock, 0) + ? > 0 then 1 else 0 end - case when p.is_available then 1 else 0 end
+        from product_in_inv p where p.inventory_id = ? and p.reference_id = ?
+      ), 0),
+      stock_value = stock_value + coalesce((
+        select (greatest(coalesce(p.stock, 0) + ?, 0) - coalesce(p.stock, 0)) * cast(coalesce(pp.unit_price, 0) as decimal(19))
+        from product_in_inv p left join product_projection pp on pp.id = p.reference_id
+        where p.inventory_id = ? and p.reference_id = ?
+      ), 0)
+    where inventory_id = ?
+  """;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public void applyStockDeltas(UUID inventoryId, List<StockDeltaDTO> deltas) {
+    if (deltas.isEmpty()) return;
+
+    SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+    ValueBinder<Object> uuidBinder = ProductInInvRepositoryImpl.uuidBinder(session);
+    entityManager.flush();
+
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(STOCK_DELTA_SQL)) {
+        for (StockDeltaDTO delta : deltas) {
+          UUID referenceId = UUID.fromString(delta.getProductRefId());
+          for (int column = 0; column < 3; column++) {
+            statement.setInt(column * 3 + 1, delta.getDelta());
+            uuidBinder.bind(statement, inventoryId, column * 3 + 2, session);
+            uuidBinder.bind(statement, referenceId, column * 3 + 3, session);
+          }
+          uuidBinder.bind(statement, inventoryId, 10, session);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+    });
+  }
+}
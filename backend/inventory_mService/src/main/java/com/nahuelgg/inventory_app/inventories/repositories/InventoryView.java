@@ -0,0 +1,11 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.UUID;
+
+// Proyección con solo los campos propios del inventario. Las consultas que la devuelven seleccionan únicamente estas columnas,
+// sin armar la entidad ni tocar la tabla de productos
+public interface InventoryView {
+  UUID getId();
+  String getName();
+  UUID getAccountId();
+}
@@ -1,36 +1,73 @@
 package com.nahuelgg.inventory_app.inventories.repositories;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInInvFilterDTO;
 import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
 import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
 
 @Repository
-public interface ProductInInvRepository extends JpaRepository<ProductInInvEntity, UUID> {
+public interface ProductInInvRepository extends
+  JpaRepository<ProductInInvEntity, UUID>, JpaSpecificationExecutor<ProductInInvEntity>, ProductInInvRepositoryCustom {
   @Query("select p from product_in_inv p join p.inventory i where p.referenceId = ?1 and i.id = ?2")
   Optional<ProductInInvEntity> findByReferenceIdAndInventoryId(UUID referenceId, UUID inventoryId);
 
   List<ProductInInvEntity> findByInventory(InventoryEntity inventory);
 
+  @Query("select p from product_in_inv p where p.inventory.id in ?1")
+  List<ProductInInvEntity> findByInventoryIds(Collection<UUID> inventoryIds);
+
   List<ProductInInvEntity> findByReferenceId(UUID referenceId);
 
-  // esta query buscará las ref ids de los productos que estén solamente en el inventario enviado
-  // Primero selecciona las entidades que estén asociadas a un solo inventario, luego se fijará si esas entidades seleccionadas se encuentran
+  // Suma la variación al stock en la misma sentencia, sin leer antes la fila, por lo que dos ajustes concurrentes no se pisan.
+  // El stock nunca queda negativo y la disponibilidad se calcula con el stock resultante sin ese límite.
+  // Devuelve la cantidad de filas actualizadas (0 si el producto no está en el inventario)
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
   @Query("""
-    select p.referenceId from product_in_inv p where 
-    p.inventory.id = ?1 and
-    p.referenceId in (
-      select p2.referenceId from product_in_inv p2 where
-      p.inventory.accountId = ?2
-      group by p2.referenceId
-      having count(p2.referenceId) = 1
-    )
+    update product_in_inv p set
+      p.isAvailable = case when coalesce(p.stock, 0) + ?1 > 0 then true else false end,
+      p.stock = greatest(coalesce(p.stock, 0) + ?1, 0)
+    where p.referenceId = ?2 and p.inventory.id = ?3
   """)
-  List<UUID> findReferenceIdsExclusiveToInventory(UUID idOfParentInventory, UUID accountId);
+  int adjustStock(int delta, UUID referenceId, UUID inventoryId);
+
+  @Query("select p.referenceId from product_in_inv p where p.inventory.id = ?1")
+  List<UUID> findReferenceIdsByInventoryId(UUID inventoryId);
+
+  @Query("select distinct p.referenceId from product_in_inv p where p.inventory.accountId = ?1")
+  List<UUID> findReferenceIdsByAccountId(UUID accountId);
+
+  // borrado en un solo DELETE de los productos con esas referencias en cualquier inventario de la cuenta
+  @Modifying
+  @Query("delete from product_in_inv p where p.referenceId in ?1 and p.inventory.id in (select i.id from inventory i where i.accountId = ?2)")
+  int deleteByReferenceIdsInAccount(Collection<UUID> referenceIds, UUID accountId);
+
+  // condiciones para las páginas de productos de un inventario (ver InventoryService_Impl.getProductsPage).
+  // Los campos nulos del filtro no agregan condición
+  static Specification<ProductInInvEntity> inInventoryMatching(UUID inventoryId, ProductInInvFilterDTO filter) {
+    List<Specification<ProductInInvEntity>> conditions = new ArrayList<>();
+    conditions.add((p, query, cb) -> cb.equal(p.get("inventory").get("id"), inventoryId));
+
+    if (filter != null) {
+      if (filter.getIsAvailable() != null)
+        conditions.add((p, query, cb) -> cb.equal(p.get("isAvailable"), filter.getIsAvailable()));
+      if (filter.getMinStock() != null)
+        conditions.add((p, query, cb) -> cb.greaterThanOrEqualTo(p.get("stock"), filter.getMinStock()));
+      if (filter.getMaxStock() != null)
+        conditions.add((p, query, cb) -> cb.lessThanOrEqualTo(p.get("stock"), filter.getMaxStock()));
+    }
+
+    return Specification.allOf(conditions);
+  }
 }
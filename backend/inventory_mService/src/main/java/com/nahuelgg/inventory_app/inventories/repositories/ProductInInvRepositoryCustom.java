@@ -0,0 +1,28 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+
+// Operaciones de ProductInInvRepository escritas directamente sobre JDBC, implementadas en ProductInInvRepositoryImpl
+public interface ProductInInvRepositoryCustom {
+  // aplica cada variación de stock con el mismo UPDATE que ProductInInvRepository.adjustStock, todas en un único batch JDBC.
+  // Devuelve, en el orden recibido, la cantidad de filas actualizadas por cada una (0 si el producto no está en el inventario)
+  int[] adjustStockBatch(UUID inventoryId, List<StockDeltaDTO> deltas);
+
+  // inserta los productos (nuevos, con su inventario asignado) con INSERTs en batches JDBC, sin pasar por el contexto de persistencia.
+  // Devuelve la cantidad de filas insertadas
+  int insertAll(List<ProductInInvEntity> products);
+
+  // copia todos los productos de un inventario a otro con un único INSERT ... SELECT, sin leerlos.
+  // Devuelve la cantidad de filas insertadas
+  int copyAllProducts(UUID fromInventoryId, UUID toInventoryId);
+
+  // recorre el stock de los productos del inventario en orden de id con un cursor de solo avance, sin cargar el resultado completo
+  // en memoria. El stream debe cerrarse y consumirse dentro de una transacción; en MySQL, mientras esté abierto, no puede
+  // ejecutarse otra consulta en la misma conexión
+  Stream<ProductStockRow> streamStockOfInventory(UUID inventoryId, int fetchSize);
+}
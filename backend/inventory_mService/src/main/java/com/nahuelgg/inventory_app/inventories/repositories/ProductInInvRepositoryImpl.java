@@ -0,0 +1,161 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.metamodel.mapping.JdbcMapping;
+import org.hibernate.type.descriptor.ValueBinder;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class ProductInInvRepositoryImpl implements ProductInInvRepositoryCustom {
+  // is_available se asigna antes que stock porque MySQL evalúa las asignaciones en orden y usaría el stock ya modificado
+  static final String ADJUST_STOCK_SQL = """
+    update product_in_inv set
+      is_available = case when coalesce(stock, 0) + ? > 0 then true else false end,
+      stock = greatest(coalesce(stock, 0) + ?, 0)
+    where reference_id = ? and inventory_id = ?
+  """;
+
+  private static final String INSERT_SQL = "insert into product_in_inv (id, reference_id, stock, is_available, inventory_id) values (?, ?, ?, ?, ?)";
+  // las ids nuevas se generan en la base, con la función de cada una que devuelve una UUID en el formato de la columna.
+  // El stock copiado incluye los movimientos del ledger sin compactar del original, con el mismo límite en 0 que la compactación
+  // (y que Mappers al leerlo), ya que la compactación los aplica solo al original
+  static final String COPY_ALL_SQL = """
+    insert into product_in_inv (id, reference_id, stock, is_available, inventory_id)
+    select %s, p.reference_id,
+      case when coalesce(m.delta, 0) = 0 then p.stock else greatest(coalesce(p.stock, 0) + m.delta, 0) end,
+      case when coalesce(m.delta, 0) = 0 then p.is_available when coalesce(p.stock, 0) + m.delta > 0 then true else false end,
+      ?
+    from product_in_inv p
+    left join (
+      select reference_id, sum(delta) as delta from stock_movement where inventory_id = ? group by reference_id
+    ) m on m.reference_id = p.reference_id
+    where p.inventory_id = ?
+  """;
+  static final int INSERT_BATCH_SIZE = 1000;
+  static final String STREAM_STOCK_JPQL = """
+    select new com.nahuelgg.inventory_app.inventories.repositories.ProductStockRow(p.referenceId, p.stock, p.isAvailable, p.pendingStockDelta)
+    from product_in_inv p where p.inventory.id = ?1 order by p.id
+  """;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public int[] adjustStockBatch(UUID inventoryId, List<StockDeltaDTO> deltas) {
+    if (deltas.isEmpty()) return new int[0];
+
+    SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+    ValueBinder<Object> uuidBinder = uuidBinder(session);
+    // los cambios pendientes del contexto de persistencia se escriben antes, ya que el batch no pasa por Hibernate
+    entityManager.flush();
+
+    int[] updatedRows = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(ADJUST_STOCK_SQL)) {
+        for (StockDeltaDTO delta : deltas) {
+          statement.setInt(1, delta.getDelta());
+          statement.setInt(2, delta.getDelta());
+          uuidBinder.bind(statement, UUID.fromString(delta.getProductRefId()), 3, session);
+          uuidBinder.bind(statement, inventoryId, 4, session);
+          statement.addBatch();
+        }
+        return statement.executeBatch();
+      }
+    });
+    // igual que clearAutomatically en las queries @Modifying: las entidades ya cargadas tendrían el stock desactualizado
+    entityManager.clear();
+
+    return updatedRows;
+  }
+
+  @Override
+  public int insertAll(List<ProductInInvEntity> products) {
+    if (products.isEmpty()) return 0;
+
+    SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+    ValueBinder<Object> uuidBinder = uuidBinder(session);
+    entityManager.flush();
+
+    return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+      int inserted = 0;
+      try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+        for (int i = 0; i < products.size(); i++) {
+          ProductInInvEntity p = products.get(i);
+          if (p.getId() == null) p.setId(UUID.randomUUID());
+
+          uuidBinder.bind(statement, p.getId(), 1, session);
+          uuidBinder.bind(statement, p.getReferenceId(), 2, session);
+          statement.setObject(3, p.getStock(), Types.INTEGER);
+          statement.setObject(4, p.getIsAvailable(), Types.BOOLEAN);
+          uuidBinder.bind(statement, p.getInventory().getId(), 5, session);
+          statement.addBatch();
+
+          if ((i + 1) % INSERT_BATCH_SIZE == 0 || i == products.size() - 1) {
+            for (int rows : statement.executeBatch()) inserted += rows == Statement.SUCCESS_NO_INFO ? 1 : rows;
+          }
+        }
+      }
+      return inserted;
+    });
+  }
+
+  @Override
+  public int copyAllProducts(UUID fromInventoryId, UUID toInventoryId) {
+    SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+    ValueBinder<Object> uuidBinder = uuidBinder(session);
+    String sql = COPY_ALL_SQL.formatted(newUuidFunction(session.getJdbcServices().getDialect()));
+    entityManager.flush();
+
+    return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        uuidBinder.bind(statement, toInventoryId, 1, session);
+        uuidBinder.bind(statement, fromInventoryId, 2, session);
+        uuidBinder.bind(statement, fromInventoryId, 3, session);
+        return statement.executeUpdate();
+      }
+    });
+  }
+
+  @Override
+  public Stream<ProductStockRow> streamStockOfInventory(UUID inventoryId, int fetchSize) {
+    Dialect dialect = entityManager.unwrap(SharedSessionContractImplementor.class).getJdbcServices().getDialect();
+
+    return entityManager.createQuery(STREAM_STOCK_JPQL, ProductStockRow.class)
+      .setParameter(1, inventoryId)
+      // Connector/J lee todo el resultado antes de devolver la primera fila salvo con fetch size Integer.MIN_VALUE, que lo lee de a una
+      .setHint(HibernateHints.HINT_FETCH_SIZE, dialect instanceof MySQLDialect ? Integer.MIN_VALUE : fetchSize)
+      .setHint(HibernateHints.HINT_READ_ONLY, true)
+    .getResultStream();
+  }
+
+  // en MySQL las UUID se guardan como binary(16); H2 (usada en los tests) tiene un tipo uuid propio
+  private String newUuidFunction(Dialect dialect) {
+    return dialect instanceof MySQLDialect ? "uuid_to_bin(uuid())" : "random_uuid()";
+  }
+
+  // las UUID se escriben con el mismo tipo JDBC que usa Hibernate para las columnas de la entidad
+  // (binary(16) en MySQL, uuid en H2), así el SQL nativo sirve para ambas bases. También lo usa ProductReferenceCountRepositoryImpl
+  @SuppressWarnings("unchecked")
+  static ValueBinder<Object> uuidBinder(SharedSessionContractImplementor session) {
+    JdbcMapping mapping = session.getFactory().getMappingMetamodel()
+      .getEntityDescriptor(ProductInInvEntity.class)
+      .findAttributeMapping("referenceId")
+    .getSingleJdbcMapping();
+
+    return (ValueBinder<Object>) mapping.getJdbcValueBinder();
+  }
+}
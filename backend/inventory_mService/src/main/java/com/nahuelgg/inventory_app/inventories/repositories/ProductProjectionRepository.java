@@ -0,0 +1,42 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+
+@Repository
+public interface ProductProjectionRepository extends JpaRepository<ProductProjectionEntity, UUID>, ProductProjectionRepositoryCustom {
+  /*
+    Productos de los inventarios de la cuenta cuya referencia coincide con los filtros, junto al inventario al que pertenecen,
+    en una sola consulta. Igual que la búsqueda del servicio de productos, cada filtro nulo no agrega condición; los textos y
+    las categorías se reciben en minúscula.
+    La copia debe ser de la misma cuenta que el inventario, así una referencia a un producto de otra cuenta nunca aparece
+  */
+  @Query("""
+    select new com.nahuelgg.inventory_app.inventories.repositories.ProductSearchRow(
+      i.id, i.name, i.accountId, p.stock, p.isAvailable, p.pendingStockDelta, pr
+    )
+    from product_in_inv p
+      join p.inventory i
+      join product_projection pr on pr.id = p.referenceId and pr.accountId = i.accountId
+    where i.accountId = ?5
+      and (?1 is null or lower(pr.name) like %?1%)
+      and (?2 is null or lower(pr.brand) like %?2%)
+      and (?3 is null or lower(pr.model) like %?3%)
+      and (?4 is null or exists (select 1 from product_projection pc join pc.categoryKeys c where pc.id = pr.id and c in ?4))
+    order by i.name, i.id, p.id
+  """)
+  List<ProductSearchRow> searchInAccount(String name, String brand, String model, List<String> categories, UUID accountId);
+
+  // ids de referencia usadas en inventarios de la cuenta que todavía no tienen copia local
+  @Query("""
+    select distinct p.referenceId from product_in_inv p
+    where p.inventory.accountId = ?1 and not exists (select 1 from product_projection pr where pr.id = p.referenceId)
+  """)
+  List<UUID> findReferenceIdsWithoutProjection(UUID accountId);
+}
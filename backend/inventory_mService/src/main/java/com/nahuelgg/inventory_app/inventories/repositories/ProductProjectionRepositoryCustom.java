@@ -0,0 +1,13 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.List;
+
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+
+// Operaciones de ProductProjectionRepository escritas directamente sobre JDBC, implementadas en ProductProjectionRepositoryImpl
+public interface ProductProjectionRepositoryCustom {
+  // inserta copias de productos recién creados, junto con sus categorías normalizadas, en batches JDBC. No pasan por el contexto
+  // de persistencia: saveAll haría un SELECT por copia (el id ya viene asignado) y las dejaría administradas hasta el final de la
+  // request, así una importación grande revisaría en cada flush las copias de todos los grupos anteriores
+  int insertAll(List<ProductProjectionEntity> projections);
+}
@@ -0,0 +1,73 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.type.descriptor.ValueBinder;
+
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+import com.nahuelgg.inventory_app.inventories.utilities.StringListConverter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class ProductProjectionRepositoryImpl implements ProductProjectionRepositoryCustom {
+  private static final String INSERT_SQL = """
+    insert into product_projection (id, account_id, name, brand, model, description, unit_price, categories, version)
+    values (?, ?, ?, ?, ?, ?, ?, ?, ?)
+  """;
+  private static final String INSERT_CATEGORY_KEY_SQL = "insert into product_projection_category_keys (product_id, category_key) values (?, ?)";
+  private static final StringListConverter categoriesConverter = new StringListConverter();
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public int insertAll(List<ProductProjectionEntity> projections) {
+    if (projections.isEmpty()) return 0;
+
+    SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+    ValueBinder<Object> uuidBinder = ProductInInvRepositoryImpl.uuidBinder(session);
+    entityManager.flush();
+
+    return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+      int inserted = 0;
+      try (
+        PreparedStatement statement = connection.prepareStatement(INSERT_SQL);
+        PreparedStatement keysStatement = connection.prepareStatement(INSERT_CATEGORY_KEY_SQL)
+      ) {
+        for (int i = 0; i < projections.size(); i++) {
+          ProductProjectionEntity p = projections.get(i);
+          uuidBinder.bind(statement, p.getId(), 1, session);
+          uuidBinder.bind(statement, p.getAccountId(), 2, session);
+          statement.setString(3, p.getName());
+          statement.setString(4, p.getBrand());
+          statement.setString(5, p.getModel());
+          statement.setString(6, p.getDescription());
+          statement.setObject(7, p.getUnitPrice(), Types.INTEGER);
+          statement.setString(8, categoriesConverter.convertToDatabaseColumn(p.getCategories()));
+          statement.setObject(9, p.getVersion(), Types.BIGINT);
+          statement.addBatch();
+
+          if (p.getCategoryKeys() != null) {
+            for (String key : p.getCategoryKeys()) {
+              uuidBinder.bind(keysStatement, p.getId(), 1, session);
+              keysStatement.setString(2, key);
+              keysStatement.addBatch();
+            }
+          }
+
+          // las categorías se insertan después de sus productos por la clave foránea
+          if ((i + 1) % ProductInInvRepositoryImpl.INSERT_BATCH_SIZE == 0 || i == projections.size() - 1) {
+            inserted += statement.executeBatch().length;
+            keysStatement.executeBatch();
+          }
+        }
+      }
+      return inserted;
+    });
+  }
+}
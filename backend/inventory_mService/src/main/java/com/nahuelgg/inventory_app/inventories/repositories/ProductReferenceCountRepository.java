@@ -0,0 +1,71 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.nahuelgg.inventory_app.inventories.entities.ProductReferenceCountEntity;
+
+/*
+  Contador por cuenta y referencia de los inventarios que tienen ese producto, para saber si un producto está solo en un
+  inventario con búsquedas por clave primaria en vez de agrupar todos los productos de la cuenta.
+  Quien agrega o quita filas de product_in_inv debe actualizarlo en la misma transacción:
+    - altas: addToCounts con +1 por referencia, o addToCountsOfInventory(+1) si se copian todos los productos de un inventario
+    - bajas: addToCounts con -1, addToCountsOfInventory(-1) antes de borrar los productos de un inventario,
+      o deleteByAccountIdAndReferenceIds / deleteByAccountId si se borran todas las filas de esas referencias o de la cuenta
+  Si los datos quedaran inconsistentes (por ejemplo los anteriores a esta tabla), rebuildAccount los recalcula
+*/
+@Repository
+public interface ProductReferenceCountRepository extends
+  JpaRepository<ProductReferenceCountEntity, ProductReferenceCountEntity.Key>, ProductReferenceCountRepositoryCustom {
+  // de las referencias dadas, las que están en un único inventario de la cuenta
+  @Query("select r.referenceId from product_reference_count r where r.accountId = ?1 and r.referenceId in ?2 and r.inventoryCount = 1")
+  List<UUID> findExclusiveReferenceIds(UUID accountId, Collection<UUID> referenceIds);
+
+  // las referencias del inventario que no están en ningún otro de la cuenta
+  @Query("""
+    select r.referenceId from product_reference_count r
+    where r.accountId = ?1 and r.inventoryCount = 1
+      and r.referenceId in (select p.referenceId from product_in_inv p where p.inventory.id = ?2)
+  """)
+  List<UUID> findReferenceIdsExclusiveToInventory(UUID accountId, UUID inventoryId);
+
+  // suma 'delta' a todas las referencias del inventario, que ya tienen su fila por estar en él. Para restar, antes deben
+  // borrarse las filas que quedarían en 0 (las de findReferenceIdsExclusiveToInventory)
+  @Modifying(flushAutomatically = true)
+  @Query("""
+    update product_reference_count r set r.inventoryCount = r.inventoryCount + ?3
+    where r.accountId = ?1 and r.referenceId in (select p.referenceId from product_in_inv p where p.inventory.id = ?2)
+  """)
+  int addToCountsOfInventory(UUID accountId, UUID inventoryId, int delta);
+
+  @Modifying
+  @Query("delete from product_reference_count r where r.accountId = ?1 and r.referenceId in ?2")
+  int deleteByAccountIdAndReferenceIds(UUID accountId, Collection<UUID> referenceIds);
+
+  @Modifying
+  @Query("delete from product_reference_count r where r.accountId = ?1")
+  int deleteByAccountId(UUID accountId);
+
+  // recalcula los contadores de la cuenta a partir de product_in_inv
+  @Transactional
+  default void rebuildAccount(UUID accountId) {
+    deleteByAccountId(accountId);
+    insertCountsOfAccount(accountId);
+  }
+
+  @Modifying(flushAutomatically = true)
+  @Query("""
+    insert into product_reference_count (accountId, referenceId, inventoryCount)
+    select i.accountId, p.referenceId, cast(count(p) as Integer) from product_in_inv p join p.inventory i
+    where i.accountId = ?1
+    group by i.accountId, p.referenceId
+  """)
+  int insertCountsOfAccount(UUID accountId);
+}
@@ -0,0 +1,11 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.Map;
+import java.util.UUID;
+
+// Operaciones de ProductReferenceCountRepository escritas directamente sobre JDBC, implementadas en ProductReferenceCountRepositoryImpl
+public interface ProductReferenceCountRepositoryCustom {
+  // suma a cada referencia de la cuenta su variación (positiva por cada alta en product_in_inv, negativa por cada baja),
+  // creando las filas que no existan y borrando las que queden en 0. Los UPDATE y los INSERT se envían en batches JDBC
+  void addToCounts(UUID accountId, Map<UUID, Integer> deltas);
+}
@@ -0,0 +1,74 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.type.descriptor.ValueBinder;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class ProductReferenceCountRepositoryImpl implements ProductReferenceCountRepositoryCustom {
+  static final String ADD_SQL = "update product_reference_count set inventory_count = inventory_count + ? where account_id = ? and reference_id = ?";
+  private static final String INSERT_SQL = "insert into product_reference_count (account_id, reference_id, inventory_count) values (?, ?, ?)";
+  static final String DELETE_EMPTY_SQL = "delete from product_reference_count where account_id = ? and reference_id = ? and inventory_count <= 0";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public void addToCounts(UUID accountId, Map<UUID, Integer> deltas) {
+    List<Map.Entry<UUID, Integer>> changes = deltas.entrySet().stream().filter(d -> d.getValue() != 0).toList();
+    if (changes.isEmpty()) return;
+
+    SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+    ValueBinder<Object> uuidBinder = ProductInInvRepositoryImpl.uuidBinder(session);
+    entityManager.flush();
+
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      // primero se suma a las filas existentes; las referencias con variación positiva que no tenían fila se insertan después
+      List<Map.Entry<UUID, Integer>> toInsert = new ArrayList<>();
+      try (PreparedStatement statement = connection.prepareStatement(ADD_SQL)) {
+        for (Map.Entry<UUID, Integer> change : changes) {
+          statement.setInt(1, change.getValue());
+          uuidBinder.bind(statement, accountId, 2, session);
+          uuidBinder.bind(statement, change.getKey(), 3, session);
+          statement.addBatch();
+        }
+        int[] updatedRows = statement.executeBatch();
+        for (int i = 0; i < updatedRows.length; i++) {
+          if (updatedRows[i] == 0 && changes.get(i).getValue() > 0) toInsert.add(changes.get(i));
+        }
+      }
+
+      if (!toInsert.isEmpty()) {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+          for (Map.Entry<UUID, Integer> change : toInsert) {
+            uuidBinder.bind(statement, accountId, 1, session);
+            uuidBinder.bind(statement, change.getKey(), 2, session);
+            statement.setInt(3, change.getValue());
+            statement.addBatch();
+          }
+          statement.executeBatch();
+        }
+      }
+
+      if (changes.stream().anyMatch(change -> change.getValue() < 0)) {
+        try (PreparedStatement statement = connection.prepareStatement(DELETE_EMPTY_SQL)) {
+          for (Map.Entry<UUID, Integer> change : changes) {
+            if (change.getValue() > 0) continue;
+            uuidBinder.bind(statement, accountId, 1, session);
+            uuidBinder.bind(statement, change.getKey(), 2, session);
+            statement.addBatch();
+          }
+          statement.executeBatch();
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,12 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.UUID;
+
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+
+// fila del resultado de ProductProjectionRepository.searchInAccount: un producto de un inventario junto a los datos de su referencia.
+// pendingStockDelta son los movimientos del ledger sin compactar (ver ProductInInvEntity)
+public record ProductSearchRow(
+  UUID inventoryId, String inventoryName, UUID accountId, Integer stock, Boolean isAvailable, Integer pendingStockDelta,
+  ProductProjectionEntity product
+) {}
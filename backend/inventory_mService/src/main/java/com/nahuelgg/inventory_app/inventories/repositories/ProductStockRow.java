@@ -0,0 +1,7 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.UUID;
+
+// fila del resultado de ProductInInvRepositoryCustom.streamStockOfInventory: solo el stock de un producto del inventario, sin
+// cargarlo como entidad. pendingStockDelta son los movimientos del ledger sin compactar (ver ProductInInvEntity)
+public record ProductStockRow(UUID referenceId, Integer stock, Boolean isAvailable, Integer pendingStockDelta) {}
@@ -0,0 +1,42 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.nahuelgg.inventory_app.inventories.entities.StockMovementEntity;
+
+import jakarta.persistence.LockModeType;
+
+/*
+  Ledger de movimientos de stock (ver StockMovementEntity). Registrar un movimiento es solo un INSERT (append), así las ventas
+  concurrentes de un mismo producto no esperan el lock de su fila en product_in_inv. Mientras no se compacten, cada lectura de
+  un producto les suma sus movimientos pendientes en la misma consulta (ProductInInvEntity.pendingStockDelta).
+  Además de la compactación, solo se borran los movimientos de los productos e inventarios que se borran, antes que ellos
+*/
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovementEntity, Long>, StockMovementRepositoryCustom {
+  // los 'limit' movimientos más antiguos, bloqueados hasta terminar la transacción: si dos instancias compactan a la vez, la
+  // segunda espera y ya no encuentra los que borró la primera
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  List<StockMovementEntity> findByOrderByIdAsc(Limit limit);
+
+  @Modifying
+  @Query("delete from stock_movement m where m.inventoryId = ?1 and m.referenceId in ?2")
+  int deleteByInventoryIdAndReferenceIds(UUID inventoryId, Collection<UUID> referenceIds);
+
+  @Modifying
+  @Query("delete from stock_movement m where m.inventoryId = ?1")
+  int deleteByInventoryId(UUID inventoryId);
+
+  @Modifying
+  @Query("delete from stock_movement m where m.inventoryId in (select i.id from inventory i where i.accountId = ?1)")
+  int deleteByAccountId(UUID accountId);
+}
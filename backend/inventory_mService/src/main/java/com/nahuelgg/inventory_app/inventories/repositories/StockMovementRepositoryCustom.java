@@ -0,0 +1,13 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+
+// Operaciones de StockMovementRepository escritas directamente sobre JDBC, implementadas en StockMovementRepositoryImpl
+public interface StockMovementRepositoryCustom {
+  // inserta los movimientos del inventario en un único batch JDBC, en su propia transacción si no hay una en curso.
+  // Con ids autoincrementales Hibernate no agrupa los INSERTs, por eso no se usa saveAll
+  void append(UUID inventoryId, List<StockDeltaDTO> movements);
+}
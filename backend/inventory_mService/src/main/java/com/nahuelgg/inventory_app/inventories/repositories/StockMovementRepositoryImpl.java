@@ -0,0 +1,59 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.metamodel.mapping.JdbcMapping;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.entities.StockMovementEntity;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class StockMovementRepositoryImpl implements StockMovementRepositoryCustom {
+  static final String APPEND_SQL = "insert into stock_movement (inventory_id, reference_id, delta, created_at) values (?, ?, ?, ?)";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override @Transactional
+  public void append(UUID inventoryId, List<StockDeltaDTO> movements) {
+    if (movements.isEmpty()) return;
+
+    SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+    ValueBinder<Object> uuidBinder = ProductInInvRepositoryImpl.uuidBinder(session);
+    ValueBinder<Object> instantBinder = instantBinder(session);
+    Instant now = Instant.now();
+
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(APPEND_SQL)) {
+        for (StockDeltaDTO movement : movements) {
+          uuidBinder.bind(statement, inventoryId, 1, session);
+          uuidBinder.bind(statement, UUID.fromString(movement.getProductRefId()), 2, session);
+          statement.setInt(3, movement.getDelta());
+          instantBinder.bind(statement, now, 4, session);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+    });
+  }
+
+  // igual que ProductInInvRepositoryImpl.uuidBinder, con el tipo que usa Hibernate para la columna created_at
+  @SuppressWarnings("unchecked")
+  private static ValueBinder<Object> instantBinder(SharedSessionContractImplementor session) {
+    JdbcMapping mapping = session.getFactory().getMappingMetamodel()
+      .getEntityDescriptor(StockMovementEntity.class)
+      .findAttributeMapping("createdAt")
+    .getSingleJdbcMapping();
+
+    return (ValueBinder<Object>) mapping.getJdbcValueBinder();
+  }
+}
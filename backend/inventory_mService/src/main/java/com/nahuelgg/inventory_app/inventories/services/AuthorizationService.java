@@ -21,6 +21,22 @@ public class AuthorizationService {
     return auth.getAccount().getUsername() != null;
   }
 
+  // usuario de la cuenta logueada, o null si no hay una
+  public String getLoggedAccountUsername() {
+    if (!checkAccountIsLogged()) return null;
+
+    ContextAuthenticationPrincipal auth = (ContextAuthenticationPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    return auth.getAccount().getUsername();
+  }
+
+  // id de la cuenta logueada, o null si no hay una
+  public String getLoggedAccountId() {
+    if (!checkAccountIsLogged()) return null;
+
+    ContextAuthenticationPrincipal auth = (ContextAuthenticationPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    return auth.getAccount().getId();
+  }
+
   public boolean checkUserIsAdmin() {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     if (!checkAccountIsLogged()) return false;
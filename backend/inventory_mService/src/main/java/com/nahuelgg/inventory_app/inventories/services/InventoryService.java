@@ -1,17 +1,30 @@
 package com.nahuelgg.inventory_app.inventories.services;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.EditProductInputDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInInvFilterDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInputDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductToCopyDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventorySummaryDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductInInvDTO;
 
 public interface InventoryService {
   InventoryDTO getById(UUID id);
   List<InventoryDTO> getByAccount(UUID accountID);
+  Map<String, List<ProductInInvDTO>> getProductsOfInventories(List<UUID> invIds);
+  Window<ProductInInvDTO> getProductsPage(UUID invId, ProductInInvFilterDTO filter, ScrollPosition position, int count);
+  List<InventorySummaryDTO> getSummariesByAccount(UUID accountId);
+  Map<String, InventorySummaryDTO> getSummariesOfInventories(List<UUID> invIds);
+  void exportProducts(UUID invId, UUID accountId, Consumer<ProductInInvDTO> consumer);
   List<InventoryDTO> searchProductsInInventories(
     String name, String brand, String model, List<String> categories, UUID accountId
   );
@@ -20,10 +33,15 @@ public interface InventoryService {
   boolean edit(UUID id, String name);
   boolean delete(UUID id, UUID accountId);
   boolean deleteByAccountId(UUID id);
+  boolean revertCreate(UUID id, String accountUsername);
 
   ProductInInvDTO addProduct(ProductInputDTO product, UUID invID, UUID accountId);
+  List<ProductInInvDTO> addProducts(List<ProductInputDTO> products, UUID invId, UUID accountId);
   ProductInInvDTO editProductInInventory(EditProductInputDTO product, UUID invId, UUID accountId);
   boolean copyProducts(List<ProductToCopyDTO> products, UUID idTo);
+  InventoryDTO cloneInventory(UUID sourceId, String name, UUID accountId);
   boolean editStockOfProduct(int relativeNewStock, UUID productRefId, UUID invId);
+  boolean adjustStock(List<StockDeltaDTO> deltas, UUID invId);
+  boolean recordStockMovements(List<StockDeltaDTO> movements, UUID invId);
   boolean deleteProductInInventory(List<UUID> productRefIds, UUID invId, UUID accountId);
 }
@@ -2,7 +2,9 @@ package com.nahuelgg.inventory_app.inventories.services;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
@@ -19,6 +21,7 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -28,6 +31,9 @@ import lombok.RequiredArgsConstructor;
 @Service
 @RequiredArgsConstructor
 public class JwtService {
+  private static final String SERVICE_TOKEN_SUBJECT = "inventory-service";
+  private static final long SERVICE_TOKEN_EXPIRATION_MS = 1000 * 60;
+
   private final ObjectMapper objectMapper;
 
   @Value("${jwt_key}")
@@ -52,6 +58,44 @@ public class JwtService {
     }
   }
 
+  // Token de corta duración para los llamados que este servicio hace por su cuenta (sin una request de usuario de la que tomar
+  // el token), limitado a la cuenta indicada y sin permisos de usuario
+  public String generateServiceToken(String accountId) {
+    Map<String, Object> claims = new HashMap<>();
+    claims.put("accountId", accountId);
+    claims.put("userName", null);
+    claims.put("userRole", null);
+    claims.put("isAdmin", false);
+    claims.put("userPerms", "[]");
+
+    return Jwts.builder()
+      .setClaims(claims)
+      .setSubject(SERVICE_TOKEN_SUBJECT)
+      .setIssuedAt(new Date(System.currentTimeMillis()))
+      .setExpiration(new Date(System.currentTimeMillis() + SERVICE_TOKEN_EXPIRATION_MS))
+      .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+    .compact();
+  }
+
+  // Token de corta duración con el que los pasos remotos de inventarios (ver InventorySagaRelay) actúan como administrador de
+  // la cuenta indicada. El subject es el usuario de la cuenta, que es como la identifica el servicio de usuarios
+  public String generateAccountAdminToken(String accountUsername, String accountId) {
+    Map<String, Object> claims = new HashMap<>();
+    claims.put("accountId", accountId);
+    claims.put("userName", SERVICE_TOKEN_SUBJECT);
+    claims.put("userRole", null);
+    claims.put("isAdmin", true);
+    claims.put("userPerms", "[]");
+
+    return Jwts.builder()
+      .setClaims(claims)
+      .setSubject(accountUsername)
+      .setIssuedAt(new Date(System.currentTimeMillis()))
+      .setExpiration(new Date(System.currentTimeMillis() + SERVICE_TOKEN_EXPIRATION_MS))
+      .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+    .compact();
+  }
+
   public JwtClaimsDTO mapTokenClaims(String token) throws JsonMappingException, JsonProcessingException {
     Claims claims = getAllClaims(token);
     List<PermissionsForInventoryDTO> convertedPerms = objectMapper.readValue(
@@ -0,0 +1,12 @@
+package com.nahuelgg.inventory_app.inventories.services;
+
+import java.util.List;
+
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductChangeEventDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
+
+public interface ProductProjectionService {
+  void applyEvents(List<ProductChangeEventDTO> events);
+  void upsert(ProductFromProductsMSDTO product, Long version);
+  void addCreated(List<ProductFromProductsMSDTO> products);
+}
@@ -0,0 +1,9 @@
+package com.nahuelgg.inventory_app.inventories.services;
+
+import java.util.UUID;
+
+public interface ReconciliationService {
+  int reconcileAll();
+  int reconcileAccount(UUID accountId);
+  int backfillProjections(UUID accountId);
+}
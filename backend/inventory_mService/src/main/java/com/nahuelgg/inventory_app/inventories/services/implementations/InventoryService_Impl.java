@@ -1,11 +1,27 @@
 package com.nahuelgg.inventory_app.inventories.services.implementations;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,21 +31,43 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.components.DownstreamCalls;
+import com.nahuelgg.inventory_app.inventories.components.InventoryChangePublisher;
+import com.nahuelgg.inventory_app.inventories.components.InventorySaga;
+import com.nahuelgg.inventory_app.inventories.components.ProductDetailsCache;
+import com.nahuelgg.inventory_app.inventories.components.StockMovementBuffer;
 import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ResponseDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.EditProductInputDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInInvFilterDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInputDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductToCopyDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventorySummaryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductChangeDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductInInvDTO;
 import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.InventorySummaryEntity;
 import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventoryChangeType;
 import com.nahuelgg.inventory_app.inventories.exceptions.InternalRequestException;
 import com.nahuelgg.inventory_app.inventories.exceptions.ResourceNotFoundException;
 import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryView;
 import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductProjectionRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductReferenceCountRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductSearchRow;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductStockRow;
+import com.nahuelgg.inventory_app.inventories.repositories.StockMovementRepository;
+import com.nahuelgg.inventory_app.inventories.services.AuthorizationService;
 import com.nahuelgg.inventory_app.inventories.services.InventoryService;
+import com.nahuelgg.inventory_app.inventories.services.ProductProjectionService;
 import com.nahuelgg.inventory_app.inventories.utilities.Mappers;
 import com.nahuelgg.inventory_app.inventories.utilities.Validations.Field;
 
@@ -44,10 +82,30 @@ public class InventoryService_Impl implements InventoryService {
   private final InventoryRepository repository;
   private final ProductInInvRepository productInvRepository;
   private final RestTemplate restTemplate;
+  private final ProductDetailsCache productDetailsCache;
+  private final StockMovementBuffer stockMovementBuffer;
+  private final ProductProjectionRepository projectionRepository;
+  private final ProductProjectionService productProjectionService;
+  private final ProductReferenceCountRepository referenceCountRepository;
+  private final InventorySummaryRepository summaryRepository;
+  private final StockMovementRepository stockMovementRepository;
+  private final InventorySaga inventorySaga;
+  private final DownstreamCalls downstreamCalls;
+  private final AuthorizationService authorizationService;
+  private final InventoryChangePublisher changePublisher;
 
   private final ObjectMapper objectMapper;
   private final Mappers mappers = new Mappers();
 
+  @Value("${services.products.url:http://api-products:8081}")
+  private String productsServiceUrl;
+  @Value("${services.products.batch-get-chunk-size:500}")
+  private int batchGetChunkSize;
+  @Value("${inventory.stock-ledger.enabled:false}")
+  private boolean stockLedgerEnabled;
+  @Value("${inventory.export.chunk-size:500}")
+  private int exportChunkSize;
+
   private HttpHeaders setTokenToOtherServicesRequests() {
     HttpHeaders header = new HttpHeaders();
 
@@ -85,104 +143,214 @@ public class InventoryService_Impl implements InventoryService {
     return response.getBody();
   }
 
-  private List<ProductFromProductsMSDTO> getProductsFromMS(InventoryEntity inv) {
-    List<String> productsId = inv.getProducts().stream().map(
-      pInInvEntity -> pInInvEntity.getReferenceId().toString()
-    ).toList();
-
-    String baseUrl = "http://api-products:8081/product/ids";
-    String completeUrl = UriComponentsBuilder.fromUriString(baseUrl)
-      .queryParam("list", productsId.toArray())
-    .toUriString();
+  // se envía a los suscriptos al inventario cuando se confirme la transacción (ver InventoryChangePublisher)
+  private void publishChange(UUID invId, InventoryChangeType type, List<ProductChangeDTO> products) {
+    changePublisher.publish(InventoryChangeDTO.builder().invId(invId.toString()).type(type).products(products).build());
+  }
 
-    ResponseDTO responseDto = makeRestRequest(completeUrl, HttpMethod.GET, null);
-    List<ProductFromProductsMSDTO> responseList = objectMapper.convertValue(
-      responseDto.getData(),
-      new TypeReference<List<ProductFromProductsMSDTO>>() {}
-    );
+  // El servicio de productos responde un producto por línea (NDJSON) a medida que los va leyendo, por lo que se deserializan
+  // de a uno directamente desde el stream de la respuesta, sin esperar ni guardar el cuerpo completo.
+  // Si se piden más de batch-get-chunk-size ids, se dividen en partes que se piden en paralelo (ver DownstreamCalls)
+  private List<ProductFromProductsMSDTO> getProductsFromMS(List<String> productsId) {
+    HttpHeaders headers;
+    try {
+      headers = setTokenToOtherServicesRequests();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.setAccept(List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+
+    int chunkSize = batchGetChunkSize > 0 ? batchGetChunkSize : productsId.size();
+    List<Supplier<List<ProductFromProductsMSDTO>>> calls = new ArrayList<>();
+    for (int from = 0; from < productsId.size(); from += chunkSize) {
+      List<String> chunk = productsId.subList(from, Math.min(from + chunkSize, productsId.size()));
+      calls.add(() -> batchGetFromMS(chunk, headers));
+    }
 
-    sincroniceProductsBetweenServices(productsId, responseList.stream().map(ProductFromProductsMSDTO::getId).toList());
+    // las ids que no devuelva el servicio de productos (productos eliminados desde ese servicio) simplemente no se muestran;
+    // los productos en inventario que las referencian se eliminan en segundo plano (ver ReconciliationService_Impl)
+    return downstreamCalls.all(calls).stream().flatMap(List::stream).toList();
+  }
 
+  private List<ProductFromProductsMSDTO> batchGetFromMS(List<String> productsId, HttpHeaders headers) {
+    List<ProductFromProductsMSDTO> responseList = new ArrayList<>();
+    try {
+      byte[] body = objectMapper.writeValueAsBytes(productsId);
+
+      restTemplate.execute(
+        productsServiceUrl + "/product/batch-get", HttpMethod.POST,
+        request -> {
+          request.getHeaders().addAll(headers);
+          request.getBody().write(body);
+        },
+        response -> {
+          try (MappingIterator<ProductFromProductsMSDTO> products =
+            objectMapper.readerFor(ProductFromProductsMSDTO.class).readValues(response.getBody())
+          ) {
+            while (products.hasNextValue()) responseList.add(products.nextValue());
+          }
+          return null;
+        }
+      );
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
     return responseList;
   }
 
-  // al buscar por ids en el microservicio de productos, si llega una id que no corresponde a ningún producto guardado no se devuelve nada para esa entidad,
-  // lo que significa que probablemente el producto haya sido eliminado directamente desde ese microservicio. Por lo que el servicio de inventario tendría
-  // eliminar también los productos con esa referencia.
-  private void sincroniceProductsBetweenServices(List<String> referenceIdsInInv, List<String> referenceIdsObtained) {
-    List<String> idsOfProductInInvToDelete = referenceIdsInInv.stream().filter(
-      refIdInInv -> !referenceIdsObtained.contains(refIdInInv)
+  // los productos de los inventarios devueltos no se cargan acá, sino en getProductsOfInventories a través del batch loader de GraphQL
+  // (o en getProductsPage para productsConnection), de esta forma solo se consulta al servicio de productos si el campo fue solicitado
+  // y una única vez por request. Por eso alcanza con la proyección que lee solo las columnas del inventario
+  @Override @Transactional(readOnly = true)
+  public InventoryDTO getById(UUID id) {
+    checkFieldsHasContent(new Field("id", id.toString()));
+
+    return repository.findViewById(id).map(inv -> mappers.mapInvView(inv)).orElse(null);
+  }
+
+  @Override @Transactional(readOnly = true)
+  public List<InventoryDTO> getByAccount(UUID accountId) {
+    checkFieldsHasContent(new Field("id de la cuenta", accountId.toString()));
+
+    return repository.findViewsByAccountId(accountId).stream().map(
+      inv -> mappers.mapInvView(inv)
     ).toList();
+  }
+
+  @Override @Transactional(readOnly = true)
+  public Map<String, List<ProductInInvDTO>> getProductsOfInventories(List<UUID> invIds) {
+    checkFieldsHasContent(new Field("ids de inventarios", invIds));
+
+    List<ProductInInvEntity> productsInInvs = productInvRepository.findByInventoryIds(invIds);
+    Map<String, List<ProductInInvDTO>> result = new HashMap<>();
+    invIds.forEach(invId -> result.put(invId.toString(), new ArrayList<>()));
 
-    for (String refId : idsOfProductInInvToDelete) {
-      List<ProductInInvEntity> productsToDelete = productInvRepository.findByReferenceId(UUID.fromString(refId));
+    // se juntan las ids de referencia de todos los inventarios sin repetir, para hacer un solo llamado al servicio de productos
+    List<String> refIds = productsInInvs.stream().map(p -> p.getReferenceId().toString()).distinct().toList();
+    if (refIds.isEmpty()) return result;
 
-      productInvRepository.deleteAll(productsToDelete);
+    Map<String, ProductFromProductsMSDTO> productsFromMS = productDetailsCache.getAll(refIds, this::getProductsFromMS).stream().collect(
+      Collectors.toMap(ProductFromProductsMSDTO::getId, p -> p, (p1, p2) -> p1)
+    );
+
+    for (ProductInInvEntity pInInv : productsInInvs) {
+      ProductFromProductsMSDTO productReference = productsFromMS.get(pInInv.getReferenceId().toString());
+      if (productReference == null) continue;
+
+      result.get(pInInv.getInventory().getId().toString()).add(mappers.mapProductsFromMSToDTO(productReference, pInInv));
     }
+
+    return result;
   }
 
+  // Una página de los productos del inventario: la consulta (keyset sobre el id, con los filtros aplicados en la misma query)
+  // trae solo 'count' filas y al servicio de productos se le piden únicamente los datos de esa página.
+  // Los productos que ya no existan en el servicio de productos se omiten, manteniendo el cursor de los que sí se devuelven
   @Override @Transactional(readOnly = true)
-  public InventoryDTO getById(UUID id) {
-    checkFieldsHasContent(new Field("id", id.toString()));
+  public Window<ProductInInvDTO> getProductsPage(UUID invId, ProductInInvFilterDTO filter, ScrollPosition position, int count) {
+    checkFieldsHasContent(new Field("id del inventario", invId));
 
-    InventoryEntity inv = repository.findById(id).orElse(null);
-    if (inv == null) return null;
+    Window<ProductInInvEntity> page = productInvRepository.findBy(
+      ProductInInvRepository.inInventoryMatching(invId, filter),
+      query -> query.sortBy(Sort.by("id")).limit(count).scroll(position)
+    );
+    if (page.isEmpty()) return Window.from(List.of(), index -> position, false);
 
-    List<ProductFromProductsMSDTO> productsFromMS = getProductsFromMS(inv);
+    List<String> refIds = page.stream().map(p -> p.getReferenceId().toString()).distinct().toList();
+    Map<String, ProductFromProductsMSDTO> productsFromMS = productDetailsCache.getAll(refIds, this::getProductsFromMS).stream().collect(
+      Collectors.toMap(ProductFromProductsMSDTO::getId, p -> p, (p1, p2) -> p1)
+    );
+
+    List<ProductInInvDTO> content = new ArrayList<>();
+    List<ScrollPosition> positions = new ArrayList<>();
+    for (int i = 0; i < page.size(); i++) {
+      ProductInInvEntity pInInv = page.getContent().get(i);
+      ProductFromProductsMSDTO productReference = productsFromMS.get(pInInv.getReferenceId().toString());
+      if (productReference == null) continue;
+
+      content.add(mappers.mapProductsFromMSToDTO(productReference, pInInv));
+      positions.add(page.positionAt(i));
+    }
 
-    return mappers.mapInvEntity(inv, productsFromMS);
+    return Window.from(content, positions::get, page.hasNext());
   }
 
+  // los totales ya calculados de cada inventario (ver InventorySummaryRepository), sin leer sus productos
   @Override @Transactional(readOnly = true)
-  public List<InventoryDTO> getByAccount(UUID accountId) {
+  public List<InventorySummaryDTO> getSummariesByAccount(UUID accountId) {
     checkFieldsHasContent(new Field("id de la cuenta", accountId.toString()));
 
-    return repository.findByAccountId(accountId).stream().map(
-      inv -> mappers.mapInvEntity(inv, getProductsFromMS(inv))
-    ).toList();
+    return summaryRepository.findByAccountId(accountId).stream().map(summary -> mappers.mapSummary(summary)).toList();
   }
 
+  @Override @Transactional(readOnly = true)
+  public Map<String, InventorySummaryDTO> getSummariesOfInventories(List<UUID> invIds) {
+    checkFieldsHasContent(new Field("ids de inventarios", invIds));
+
+    return summaryRepository.findAllById(invIds).stream().collect(
+      Collectors.toMap(summary -> summary.getInventoryId().toString(), summary -> mappers.mapSummary(summary))
+    );
+  }
+
+  // Recorre los productos del inventario con un cursor y los entrega de a uno al consumer, a medida que se leen: solo se guardan
+  // en memoria los export-chunk-size productos cuyos datos se piden juntos al servicio de productos, sea cual sea el tamaño del
+  // inventario. No se usa ProductDetailsCache, ya que un inventario grande reemplazaría en él los productos consultados seguido.
+  // Los productos que ya no existan en el servicio de productos se omiten
+  @Override @Transactional(readOnly = true)
+  public void exportProducts(UUID invId, UUID accountId, Consumer<ProductInInvDTO> consumer) {
+    checkFieldsHasContent(new Field("id del inventario", invId), new Field("id de la cuenta", accountId));
+
+    repository.findViewById(invId).filter(inv -> inv.getAccountId().equals(accountId)).orElseThrow(
+      () -> new ResourceNotFoundException("inventario", "id", invId.toString())
+    );
+
+    try (Stream<ProductStockRow> rows = productInvRepository.streamStockOfInventory(invId, exportChunkSize)) {
+      List<ProductStockRow> chunk = new ArrayList<>(exportChunkSize);
+      Iterator<ProductStockRow> iterator = rows.iterator();
+      while (iterator.hasNext()) {
+        chunk.add(iterator.next());
+        if (chunk.size() < exportChunkSize && iterator.hasNext()) continue;
+
+        Map<String, ProductFromProductsMSDTO> productsFromMS = getProductsFromMS(
+          chunk.stream().map(row -> row.referenceId().toString()).distinct().toList()
+        ).stream().collect(Collectors.toMap(ProductFromProductsMSDTO::getId, p -> p, (p1, p2) -> p1));
+        for (ProductStockRow row : chunk) {
+          ProductFromProductsMSDTO productReference = productsFromMS.get(row.referenceId().toString());
+          if (productReference != null) consumer.accept(mappers.mapStockRowToDTO(productReference, row));
+        }
+        chunk.clear();
+      }
+    }
+  }
+
+  // Busca sobre la copia local de los productos (product_projection), sin llamar al servicio de productos: una sola consulta
+  // devuelve los productos que coinciden junto a su inventario, que acá solo se agrupan por inventario (en el orden de la consulta)
   @Override @Transactional(readOnly = true)
   public List<InventoryDTO> searchProductsInInventories(
     String name, String brand, String model, List<String> categories, UUID accountId
   ) {
     checkFieldsHasContent(new Field("id de la cuenta", accountId.toString()));
 
-    String baseUrl = "http://api-products:8081/product/search";
-    String completeUrl = UriComponentsBuilder.fromUriString(baseUrl)
-      .queryParam("brand", brand)
-      .queryParam("name", name)
-      .queryParam("model", model)
-      .queryParam("categoryNames", categories != null ? categories.toArray() : null)
-      .queryParam("accountId", accountId.toString())
-    .toUriString(); 
-    List<ProductFromProductsMSDTO> resultsOfProducts = objectMapper.convertValue(
-      makeRestRequest(completeUrl, HttpMethod.GET, null).getData(),
-      new TypeReference<List<ProductFromProductsMSDTO>>() {}
+    List<ProductSearchRow> rows = projectionRepository.searchInAccount(
+      name == null || name.isBlank() ? null : name.toLowerCase(),
+      brand == null || brand.isBlank() ? null : brand.toLowerCase(),
+      model == null || model.isBlank() ? null : model.toLowerCase(),
+      categories == null || categories.isEmpty() ? null : categories.stream().map(c -> c.toLowerCase()).toList(),
+      accountId
     );
 
-    // busca inventarios en base a la lista de ids de referencia obtenidas en la solicitud al servicio de productos, 
-    // al resultado lo mapea a DTO
-    List<InventoryDTO> inventoriesWithThoseProducts = repository.searchByProductRefId(
-      resultsOfProducts.stream().map(
-        p -> UUID.fromString(p.getId())
-      ).toList()
-    ).stream().map(
-      i -> mappers.mapInvEntity(i, resultsOfProducts)
-    ).toList();
-
-    // modifica cada DTO de la lista, filtrando los productos a aquellos que contengan alguna de las ids de referencia obtenidas
-    inventoriesWithThoseProducts = inventoriesWithThoseProducts.stream().map(
-      invDto -> invDto.toBuilder()
-        .products(invDto.getProducts().stream().filter(
-          productInDto -> resultsOfProducts.stream().anyMatch(
-            originalProduct -> originalProduct.getId() == productInDto.getRefId()
-          )
-        ).toList())
-      .build()
-    ).toList();
+    Map<UUID, InventoryDTO> inventories = new LinkedHashMap<>();
+    for (ProductSearchRow row : rows) {
+      inventories.computeIfAbsent(row.inventoryId(), id -> InventoryDTO.builder()
+        .id(id.toString())
+        .name(row.inventoryName())
+        .accountId(row.accountId().toString())
+        .products(new ArrayList<>())
+      .build()).getProducts().add(mappers.mapProjectionToDTO(row));
+    }
 
-    return inventoriesWithThoseProducts;
+    return List.copyOf(inventories.values());
   }
 
   // mutations
@@ -193,16 +361,14 @@ public class InventoryService_Impl implements InventoryService {
     if (repository.existsByNameAndAccountId(name, accountId))
       throw new RuntimeException("Ya existe un inventario con ese nombre en la cuenta");
 
+    // la asignación del inventario a la cuenta en el servicio de usuarios la hace después InventorySagaRelay
     InventoryEntity inv = repository.save(InventoryEntity.builder().name(name).accountId(accountId).build());
+    summaryRepository.save(InventorySummaryEntity.builder()
+      .inventoryId(inv.getId()).accountId(accountId).skuCount(0).totalUnits(0L).availableCount(0).stockValue(0L)
+    .build());
+    inventorySaga.inventoryCreated(inv, authorizationService.getLoggedAccountUsername());
 
-    String baseUrl = "http://api-users:8082/account/add-inventory";
-    String completeUrl = UriComponentsBuilder.fromUriString(baseUrl)
-      .queryParam("accountId", accountId.toString())
-      .queryParam("invRefId", inv.getId().toString())
-    .toUriString();
-    makeRestRequest(completeUrl, HttpMethod.PUT, null);
-
-    return mappers.mapInvEntity(inv, List.of());
+    return mappers.mapInvEntity(inv);
   }
 
   @Override @Transactional
@@ -224,10 +390,13 @@ public class InventoryService_Impl implements InventoryService {
       () -> new ResourceNotFoundException("inventario", "id", invId.toString())
     );
       
-    String baseUrl = "http://api-products:8081/product?invId=%s&accountId=%s".formatted(invId.toString(), accountId.toString());
-    ProductFromProductsMSDTO productCreated = (ProductFromProductsMSDTO) makeRestRequest(
-      baseUrl, HttpMethod.POST, mappers.mapProductInput(productInput))
-    .getData();
+    String baseUrl = productsServiceUrl + "/product?invId=%s&accountId=%s".formatted(invId.toString(), accountId.toString());
+    ProductFromProductsMSDTO productCreated = objectMapper.convertValue(
+      makeRestRequest(baseUrl, HttpMethod.POST, mappers.mapProductInput(productInput)).getData(),
+      ProductFromProductsMSDTO.class
+    );
+    if (productCreated.getAccountId() == null) productCreated.setAccountId(accountId.toString());
+    productProjectionService.upsert(productCreated, null);
 
     int checkedStock = productInput.getStock() != null ? productInput.getStock() : 0;
     ProductInInvEntity newProductInv = productInvRepository.save(ProductInInvEntity.builder()
@@ -236,11 +405,64 @@ public class InventoryService_Impl implements InventoryService {
       .isAvailable(productInput.getStock() > 0)
       .inventory(inv)
     .build());
+    referenceCountRepository.addToCounts(inv.getAccountId(), Map.of(newProductInv.getReferenceId(), 1));
+    summaryRepository.addProductsToSummary(invId, List.of(newProductInv.getReferenceId()), 1);
+    publishChange(invId, InventoryChangeType.productsAdded, List.of(
+      ProductChangeDTO.builder().refId(productCreated.getId()).stock(checkedStock).build()
+    ));
 
     return mappers.mapProductsFromMSToDTO(productCreated, newProductInv);
   }
 
-  @Override
+  // Igual que addProduct pero para muchos productos (usado por la importación desde CSV, ver InventoryImportController):
+  // se crean con un solo llamado a /product/batch-create y se insertan en batch, en lugar de un llamado y un INSERT por producto.
+  // Devuelve los productos agregados en el mismo orden recibido
+  @Override @Transactional
+  public List<ProductInInvDTO> addProducts(List<ProductInputDTO> productInputs, UUID invId, UUID accountId) {
+    checkFieldsHasContent(
+      new Field("productos a agregar", productInputs), new Field("id de la cuenta", accountId), new Field("id del inventario", invId)
+    );
+
+    InventoryEntity inv = repository.findById(invId).filter(i -> i.getAccountId().equals(accountId)).orElseThrow(
+      () -> new ResourceNotFoundException("inventario", "id", invId.toString())
+    );
+
+    String baseUrl = productsServiceUrl + "/product/batch-create?invId=%s&accountId=%s".formatted(invId.toString(), accountId.toString());
+    List<ProductFromProductsMSDTO> productsToCreate = productInputs.stream().map(p -> mappers.mapProductInput(p)).toList();
+    productsToCreate.forEach(p -> p.setAccountId(accountId.toString()));
+    List<ProductFromProductsMSDTO> productsCreated = objectMapper.convertValue(
+      makeRestRequest(baseUrl, HttpMethod.POST, productsToCreate).getData(),
+      new TypeReference<List<ProductFromProductsMSDTO>>() {}
+    );
+    if (productsCreated == null || productsCreated.size() != productInputs.size())
+      throw new InternalRequestException("El servicio de productos no devolvió todos los productos creados", baseUrl);
+    productsCreated.forEach(p -> { if (p.getAccountId() == null) p.setAccountId(accountId.toString()); });
+    productProjectionService.addCreated(productsCreated);
+
+    List<ProductInInvEntity> newProducts = new ArrayList<>();
+    for (int i = 0; i < productsCreated.size(); i++) {
+      int checkedStock = productInputs.get(i).getStock() != null ? productInputs.get(i).getStock() : 0;
+      newProducts.add(ProductInInvEntity.builder()
+        .referenceId(UUID.fromString(productsCreated.get(i).getId()))
+        .stock(checkedStock)
+        .isAvailable(checkedStock > 0)
+        .inventory(inv)
+      .build());
+    }
+    productInvRepository.insertAll(newProducts);
+    List<UUID> refIds = newProducts.stream().map(ProductInInvEntity::getReferenceId).toList();
+    referenceCountRepository.addToCounts(accountId, refIds.stream().collect(Collectors.toMap(id -> id, id -> 1)));
+    summaryRepository.addProductsToSummary(invId, refIds, 1);
+    publishChange(invId, InventoryChangeType.productsAdded, newProducts.stream().map(
+      p -> ProductChangeDTO.builder().refId(p.getReferenceId().toString()).stock(p.getStock()).build()
+    ).toList());
+
+    List<ProductInInvDTO> added = new ArrayList<>();
+    for (int i = 0; i < productsCreated.size(); i++) added.add(mappers.mapProductsFromMSToDTO(productsCreated.get(i), newProducts.get(i)));
+    return added;
+  }
+
+  @Override @Transactional
   public ProductInInvDTO editProductInInventory(EditProductInputDTO product, UUID invId, UUID accountId) {
     checkFieldsHasContent(new Field("id de la cuenta", accountId.toString()), new Field("id del inventario", invId.toString()));
 
@@ -255,22 +477,35 @@ public class InventoryService_Impl implements InventoryService {
 
     // se fijará si la referencia de ese producto está únicamente en el inventario seleccionado, si es el caso llama al endpoint
     // que edita el producto de referencia, caso contrario creara uno nuevo
-    if (productInvRepository.findReferenceIdsExclusiveToInventory(invId, accountId).contains(productToEdit.getReferenceId())) {
-      String baseUrl = "http://api-products:8081/product/edit/common-perm?invId=%s&accountId=%s".formatted(invId.toString(), accountId.toString());
-
-      editedProduct = (ProductFromProductsMSDTO) makeRestRequest(
-        baseUrl, HttpMethod.POST, product.mapToProductFromProductService(accountId.toString())
-      ).getData();
+    UUID oldRefId = productToEdit.getReferenceId();
+    if (!referenceCountRepository.findExclusiveReferenceIds(accountId, List.of(oldRefId)).isEmpty()) {
+      String baseUrl = productsServiceUrl + "/product/edit/common-perm?invId=%s&accountId=%s".formatted(invId.toString(), accountId.toString());
+
+      editedProduct = objectMapper.convertValue(
+        makeRestRequest(baseUrl, HttpMethod.POST, product.mapToProductFromProductService(accountId.toString())).getData(),
+        ProductFromProductsMSDTO.class
+      );
     } else {
-      String baseUrl = "http://api-products:8081/product?invId=%s&accountId=%s".formatted(invId.toString(), accountId.toString());
+      String baseUrl = productsServiceUrl + "/product?invId=%s&accountId=%s".formatted(invId.toString(), accountId.toString());
 
-      editedProduct = (ProductFromProductsMSDTO) makeRestRequest(
-        baseUrl, HttpMethod.POST, product.mapToProductFromProductService(accountId.toString())
-      ).getData();
+      editedProduct = objectMapper.convertValue(
+        makeRestRequest(baseUrl, HttpMethod.POST, product.mapToProductFromProductService(accountId.toString())).getData(),
+        ProductFromProductsMSDTO.class
+      );
         
-      productToEdit.setReferenceId(UUID.fromString(editedProduct.getId()));
+      // el producto sale de los totales con el precio de la referencia anterior y vuelve a entrar con el de la nueva
+      UUID newRefId = UUID.fromString(editedProduct.getId());
+      if (!newRefId.equals(oldRefId)) summaryRepository.addProductsToSummary(invId, List.of(oldRefId), -1);
+      productToEdit.setReferenceId(newRefId);
       productInvRepository.save(productToEdit);
+      if (!newRefId.equals(oldRefId)) {
+        referenceCountRepository.addToCounts(accountId, Map.of(oldRefId, -1, newRefId, 1));
+        summaryRepository.addProductsToSummary(invId, List.of(newRefId), 1);
+      }
     }
+    productDetailsCache.invalidate(product.getRefId());
+    if (editedProduct.getAccountId() == null) editedProduct.setAccountId(accountId.toString());
+    productProjectionService.upsert(editedProduct, null);
     
     return mappers.mapProductsFromMSToDTO(editedProduct, productToEdit);
   }
@@ -279,41 +514,127 @@ public class InventoryService_Impl implements InventoryService {
   public boolean copyProducts(List<ProductToCopyDTO> products, UUID idTo) {
     checkFieldsHasContent(new Field("lista de productos a copiar", products), new Field("id de inventario", idTo.toString()));
 
-    InventoryEntity invTo = repository.findById(idTo).orElseThrow(
-      () -> new ResourceNotFoundException("inventario", "id", idTo.toString())
-    );
+    if (!repository.existsById(idTo)) throw new ResourceNotFoundException("inventario", "id", idTo.toString());
+    InventoryEntity invTo = repository.getReferenceById(idTo);
 
-    List<ProductInInvEntity> newList = invTo.getProducts();
-    // en base a la lista de los productos en el input arma las nuevas entidades al inventario seleccionado
+    // solo se leen las referencias ya presentes en el destino; las repetidas (en el destino o en el input) se ignoran
+    Set<UUID> refIdsInInv = new HashSet<>(productInvRepository.findReferenceIdsByInventoryId(idTo));
+    List<ProductInInvEntity> newProducts = new ArrayList<>();
     for (ProductToCopyDTO p : products) {
-      if (!newList.stream().filter(pInv -> p.getRefId().equals(pInv.getReferenceId().toString())).findFirst().isPresent()) {
-        newList.add(ProductInInvEntity.builder()
-          .referenceId(UUID.fromString(p.getRefId()))
+      UUID refId = UUID.fromString(p.getRefId());
+      if (refIdsInInv.add(refId)) {
+        newProducts.add(ProductInInvEntity.builder()
+          .referenceId(refId)
           .stock(p.getStock())
           .isAvailable(p.getStock() > 0)
           .inventory(invTo)
         .build());
       }
     }
-    productInvRepository.saveAll(newList);
+    productInvRepository.insertAll(newProducts);
+    referenceCountRepository.addToCounts(
+      invTo.getAccountId(), newProducts.stream().collect(Collectors.toMap(ProductInInvEntity::getReferenceId, p -> 1))
+    );
+    if (!newProducts.isEmpty())
+      summaryRepository.addProductsToSummary(idTo, newProducts.stream().map(ProductInInvEntity::getReferenceId).toList(), 1);
+    publishChange(idTo, InventoryChangeType.productsAdded, newProducts.stream().map(
+      p -> ProductChangeDTO.builder().refId(p.getReferenceId().toString()).stock(p.getStock()).build()
+    ).toList());
 
     return true;
   }
 
+  // Crea el inventario igual que create y copia los productos del original dentro de la base, con un INSERT ... SELECT
   @Override @Transactional
-  public boolean editStockOfProduct(int relativeNewStock, UUID productRefId, UUID invId) {
-    ProductInInvEntity p = productInvRepository.findByReferenceIdAndInventoryId(productRefId, invId).orElseThrow(
-      () -> new ResourceNotFoundException("producto", "id", productRefId.toString())
+  public InventoryDTO cloneInventory(UUID sourceId, String name, UUID accountId) {
+    checkFieldsHasContent(new Field("id del inventario original", sourceId), new Field("nombre de inventario", name), new Field("id de la cuenta", accountId));
+
+    InventoryView source = repository.findViewById(sourceId).filter(inv -> inv.getAccountId().equals(accountId)).orElseThrow(
+      () -> new ResourceNotFoundException("inventario", "id", sourceId.toString())
     );
-    int newStock = p.getStock() + relativeNewStock;
-    p.setStock(newStock < 0 ? 0 : newStock);
-    p.setIsAvailable(newStock > 0);
 
-    productInvRepository.save(p);
+    InventoryDTO created = create(name, accountId);
+    UUID createdId = UUID.fromString(created.getId());
+    productInvRepository.copyAllProducts(source.getId(), createdId);
+    // todas las referencias copiadas ya tienen su contador por estar en el original
+    referenceCountRepository.addToCountsOfInventory(accountId, createdId, 1);
+    summaryRepository.recalculate(createdId);
+
+    return created;
+  }
+
+  @Override @Transactional
+  public boolean editStockOfProduct(int relativeNewStock, UUID productRefId, UUID invId) {
+    summaryRepository.applyStockDeltas(invId, List.of(new StockDeltaDTO(productRefId.toString(), relativeNewStock)));
+    if (productInvRepository.adjustStock(relativeNewStock, productRefId, invId) == 0)
+      throw new ResourceNotFoundException("producto", "id", productRefId.toString());
+
+    publishChange(invId, InventoryChangeType.stockChanged, List.of(
+      ProductChangeDTO.builder().refId(productRefId.toString()).stockDelta(relativeNewStock).build()
+    ));
+    return true;
+  }
+
+  // Todas las variaciones se aplican en un solo batch y transacción: si alguno de los productos no está en el inventario
+  // no se aplica ninguna. Si un producto se repite, sus variaciones se aplican en orden en batches sucesivos, ya que los
+  // totales del inventario se calculan sobre el stock previo a cada batch
+  @Override @Transactional
+  public boolean adjustStock(List<StockDeltaDTO> deltas, UUID invId) {
+    checkFieldsHasContent(new Field("variaciones de stock", deltas), new Field("id del inventario", invId));
+    for (StockDeltaDTO delta : deltas)
+      checkFieldsHasContent(new Field("id de referencia del producto", delta.getProductRefId()), new Field("variación de stock", delta.getDelta()));
+
+    int[] updatedRows = new int[deltas.size()];
+    Map<String, Integer> occurrences = new HashMap<>();
+    List<List<Integer>> rounds = new ArrayList<>();
+    for (int i = 0; i < deltas.size(); i++) {
+      int round = occurrences.merge(deltas.get(i).getProductRefId(), 1, Integer::sum) - 1;
+      if (round == rounds.size()) rounds.add(new ArrayList<>());
+      rounds.get(round).add(i);
+    }
+    for (List<Integer> round : rounds) {
+      List<StockDeltaDTO> roundDeltas = round.stream().map(deltas::get).toList();
+      summaryRepository.applyStockDeltas(invId, roundDeltas);
+      int[] roundRows = productInvRepository.adjustStockBatch(invId, roundDeltas);
+      for (int i = 0; i < round.size(); i++) updatedRows[round.get(i)] = roundRows[i];
+    }
+
+    List<String> notFound = new ArrayList<>();
+    for (int i = 0; i < updatedRows.length; i++) {
+      if (updatedRows[i] == 0) notFound.add(deltas.get(i).getProductRefId());
+    }
+    if (!notFound.isEmpty())
+      throw new ResourceNotFoundException("producto", "id", String.join(", ", notFound));
+
+    publishChange(invId, InventoryChangeType.stockChanged, deltas.stream().map(
+      delta -> ProductChangeDTO.builder().refId(delta.getProductRefId()).stockDelta(delta.getDelta()).build()
+    ).toList());
     return true;
   }
 
+  // Los movimientos no se aplican en el momento: se suman en el buffer con los demás del mismo producto y se aplican en la
+  // próxima escritura del buffer o, con inventory.stock-ledger.enabled, se insertan en el ledger (StockMovementRepository) y se
+  // aplican al compactarlo. Los de productos que no estén en el inventario se descartan al aplicarse.
+  // Se registran todos o ninguno: se validan antes de tocar el buffer o el ledger, así un reintento no repite los ya registrados
   @Override
+  public boolean recordStockMovements(List<StockDeltaDTO> movements, UUID invId) {
+    checkFieldsHasContent(new Field("movimientos de stock", movements), new Field("id del inventario", invId));
+    Map<UUID, Integer> deltas = new LinkedHashMap<>();
+    for (StockDeltaDTO movement : movements) {
+      checkFieldsHasContent(new Field("id de referencia del producto", movement.getProductRefId()), new Field("variación de stock", movement.getDelta()));
+      deltas.merge(UUID.fromString(movement.getProductRefId()), movement.getDelta(), Integer::sum);
+    }
+
+    if (stockLedgerEnabled) {
+      stockMovementRepository.append(invId, movements);
+      return true;
+    }
+    stockMovementBuffer.addAll(invId, deltas);
+
+    return true;
+  }
+
+  @Override @Transactional
   public boolean deleteProductInInventory(List<UUID> productRefIds, UUID invId, UUID accountId) {
     InventoryEntity inv = repository.findById(invId).orElseThrow(
       () -> new ResourceNotFoundException("inventario", "id", invId.toString())
@@ -329,11 +650,11 @@ public class InventoryService_Impl implements InventoryService {
     );
 
     // Se revisa si las ids de referencia a borrar pertenecen solo al inventario seleccionado, si es el caso se borran esos productos en su BDD
-    List<String> refIdsOfExclusiveProducts = productInvRepository.findReferenceIdsExclusiveToInventory(invId, accountId).stream().map(
+    List<String> refIdsOfExclusiveProducts = referenceCountRepository.findExclusiveReferenceIds(accountId, productRefIds).stream().map(
       uuid -> uuid.toString()
     ).toList();
     if (!refIdsOfExclusiveProducts.isEmpty()) {
-      String url = UriComponentsBuilder.fromUriString("http://api-products:8081/product/delete-by-ids/common-perm")
+      String url = UriComponentsBuilder.fromUriString(productsServiceUrl + "/product/delete-by-ids/common-perm")
         .queryParam("ids", refIdsOfExclusiveProducts)
         .queryParam("invId", invId.toString())
         .queryParam("accountId", accountId.toString())
@@ -346,7 +667,19 @@ public class InventoryService_Impl implements InventoryService {
     List<ProductInInvEntity> psInInvToDelete = productsInInv.stream().filter(
       pInInv -> productRefIds.contains(pInInv.getReferenceId())
     ).toList();
+    // los movimientos pendientes se borran primero, en el mismo orden en que StockLedgerCompactor bloquea las filas
+    if (!psInInvToDelete.isEmpty()) {
+      stockMovementRepository.deleteByInventoryIdAndReferenceIds(invId, psInInvToDelete.stream().map(ProductInInvEntity::getReferenceId).toList());
+      summaryRepository.addProductsToSummary(invId, psInInvToDelete.stream().map(ProductInInvEntity::getReferenceId).toList(), -1);
+    }
     productInvRepository.deleteAll(psInInvToDelete);
+    referenceCountRepository.addToCounts(
+      accountId, psInInvToDelete.stream().collect(Collectors.toMap(ProductInInvEntity::getReferenceId, p -> -1, Integer::sum))
+    );
+    productDetailsCache.invalidateAll(refIdsOfExclusiveProducts);
+    publishChange(invId, InventoryChangeType.productsDeleted, psInInvToDelete.stream().map(
+      p -> ProductChangeDTO.builder().refId(p.getReferenceId().toString()).build()
+    ).toList());
 
     return true;
   }
@@ -356,31 +689,44 @@ public class InventoryService_Impl implements InventoryService {
     InventoryEntity inv = repository.findById(id).orElseThrow(
       () -> new ResourceNotFoundException("inventario", "id", id.toString())
     );
-    
-    String baseUrlToUsers = "http://api-users:8082/account/remove-inventory";
-    String completeUrlToUsers = UriComponentsBuilder.fromUriString(baseUrlToUsers)
-      .queryParam("accountId", inv.getAccountId().toString())
-      .queryParam("invRefId", inv.getId().toString())
-    .toUriString();
-    makeRestRequest(completeUrlToUsers, HttpMethod.PUT, null);
-    
-    List<UUID> refIdsToDelete = productInvRepository.findReferenceIdsExclusiveToInventory(id, accountId);
-    String baseUrlToProducts = "http://api-products:8081/product/delete-by-ids";
-    String completeUrlToProducts = UriComponentsBuilder.fromUriString(baseUrlToProducts)
-      .queryParam("ids", refIdsToDelete.toArray())
-      .queryParam("accountId", accountId.toString())
-    .toUriString();
-    makeRestRequest(completeUrlToProducts, HttpMethod.DELETE, null);
-    
-    productInvRepository.deleteAll(productInvRepository.findByInventory(inv));
-    repository.deleteById(id);
+    deleteAndRecordRemoteSteps(inv, authorizationService.getLoggedAccountUsername());
     return true;
   }
 
+  // compensación de create cuando no se pudo asignar el inventario a la cuenta (ver InventorySagaRelay)
+  @Override @Transactional
+  public boolean revertCreate(UUID id, String accountUsername) {
+    InventoryEntity inv = repository.findById(id).orElse(null);
+    if (inv == null) return false;
+
+    deleteAndRecordRemoteSteps(inv, accountUsername);
+    return true;
+  }
+
+  // Borra el inventario con sus productos y registra los pasos remotos (quitarlo de la cuenta y borrar los productos de
+  // referencia que solo estaban en él), que InventorySagaRelay ejecuta después de confirmarse el borrado
+  private void deleteAndRecordRemoteSteps(InventoryEntity inv, String accountUsername) {
+    UUID accountId = inv.getAccountId();
+    List<UUID> refIdsToDelete = referenceCountRepository.findReferenceIdsExclusiveToInventory(accountId, inv.getId());
+    productDetailsCache.invalidateAll(refIdsToDelete.stream().map(UUID::toString).toList());
+
+    // los contadores de las referencias exclusivas quedarían en 0, así que se borran; los demás se reducen en 1
+    if (!refIdsToDelete.isEmpty()) referenceCountRepository.deleteByAccountIdAndReferenceIds(accountId, refIdsToDelete);
+    referenceCountRepository.addToCountsOfInventory(accountId, inv.getId(), -1);
+    stockMovementRepository.deleteByInventoryId(inv.getId());
+    productInvRepository.deleteAll(productInvRepository.findByInventory(inv));
+    summaryRepository.deleteById(inv.getId());
+    repository.deleteById(inv.getId());
+    inventorySaga.inventoryDeleted(inv, refIdsToDelete, accountUsername);
+  }
+
   @Override @Transactional
   public boolean deleteByAccountId(UUID id) {
     List<InventoryEntity> inventories = repository.findByAccountId(id);
+    stockMovementRepository.deleteByAccountId(id);
     repository.deleteAll(inventories);
+    referenceCountRepository.deleteByAccountId(id);
+    summaryRepository.deleteByAccountId(id);
     return true;
   }
 }
@@ -0,0 +1,124 @@
+package com.nahuelgg.inventory_app.inventories.services.implementations;
+
+import static com.nahuelgg.inventory_app.inventories.utilities.Validations.checkFieldsHasContent;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.nahuelgg.inventory_app.inventories.components.ProductDetailsCache;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductChangeEventDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductProjectionRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductReferenceCountRepository;
+import com.nahuelgg.inventory_app.inventories.services.ProductProjectionService;
+import com.nahuelgg.inventory_app.inventories.utilities.Validations.Field;
+
+import lombok.RequiredArgsConstructor;
+
+/*
+  Mantiene la copia local de los productos (product_projection) usada por searchProductsInInventories.
+  - upserted: crea o reemplaza la copia, salvo que ya se haya aplicado una versión posterior. También actualiza la caché de productos
+    y, si cambió el precio, el valor del stock de los inventarios que lo tienen.
+  - deleted: borra la copia, los productos en inventario de la cuenta que lo referencian (restándolos de los totales de sus
+    inventarios) y su entrada en la caché.
+  Aplicar la misma notificación más de una vez no cambia el resultado, por lo que el emisor puede reenviarlas ante un error
+*/
+@Service
+@RequiredArgsConstructor
+public class ProductProjectionService_Impl implements ProductProjectionService {
+  private final ProductProjectionRepository projectionRepository;
+  private final ProductInInvRepository productInvRepository;
+  private final ProductReferenceCountRepository referenceCountRepository;
+  private final InventorySummaryRepository summaryRepository;
+  private final ProductDetailsCache productDetailsCache;
+
+  @Override @Transactional
+  public void applyEvents(List<ProductChangeEventDTO> events) {
+    checkFieldsHasContent(new Field("notificaciones", events));
+
+    for (ProductChangeEventDTO event : events) {
+      checkFieldsHasContent(new Field("tipo de notificación", event.getType()), new Field("producto", event.getProduct()));
+      checkFieldsHasContent(new Field("id del producto", event.getProduct().getId()), new Field("id de la cuenta", event.getProduct().getAccountId()));
+
+      switch (event.getType()) {
+        case upserted -> upsert(event.getProduct(), event.getVersion());
+        case deleted -> delete(event.getProduct());
+      }
+    }
+  }
+
+  // version puede ser nula cuando la copia se actualiza con la respuesta de un llamado propio al servicio de productos
+  // (por ejemplo al agregar un producto), en ese caso se aplica y se conserva la versión anterior
+  @Override @Transactional
+  public void upsert(ProductFromProductsMSDTO product, Long version) {
+    UUID id = UUID.fromString(product.getId());
+    ProductProjectionEntity projection = projectionRepository.findById(id).orElse(null);
+    if (projection != null && version != null && projection.getVersion() != null && version < projection.getVersion()) return;
+
+    Set<String> categoryKeys = new HashSet<>();
+    if (product.getCategories() != null) product.getCategories().forEach(c -> categoryKeys.add(c.toLowerCase()));
+
+    ProductProjectionEntity updated = (projection != null ? projection.toBuilder() : ProductProjectionEntity.builder().id(id))
+      .accountId(UUID.fromString(product.getAccountId()))
+      .name(product.getName())
+      .brand(product.getBrand())
+      .model(product.getModel())
+      .description(product.getDescription())
+      .unitPrice(product.getUnitPrice())
+      .categories(product.getCategories())
+      .categoryKeys(categoryKeys)
+      .version(version != null ? version : projection != null ? projection.getVersion() : null)
+    .build();
+    projectionRepository.save(updated);
+
+    // sin copia anterior el precio valía 0 en los totales de los inventarios que ya tenían el producto
+    int oldPrice = projection != null && projection.getUnitPrice() != null ? projection.getUnitPrice() : 0;
+    int newPrice = product.getUnitPrice() != null ? product.getUnitPrice() : 0;
+    if (newPrice != oldPrice) summaryRepository.addToStockValueOfReference(updated.getAccountId(), id, (long) newPrice - oldPrice);
+
+    productDetailsCache.put(product);
+  }
+
+  // Copias de productos recién creados por este servicio (ver InventoryService_Impl.addProducts): como todavía no tienen copia
+  // ni están en ningún inventario, se guardan todas juntas sin buscar una anterior ni actualizar los totales de inventarios
+  @Override @Transactional
+  public void addCreated(List<ProductFromProductsMSDTO> products) {
+    projectionRepository.insertAll(products.stream().map(product -> {
+      Set<String> categoryKeys = new HashSet<>();
+      if (product.getCategories() != null) product.getCategories().forEach(c -> categoryKeys.add(c.toLowerCase()));
+
+      return ProductProjectionEntity.builder()
+        .id(UUID.fromString(product.getId()))
+        .accountId(UUID.fromString(product.getAccountId()))
+        .name(product.getName())
+        .brand(product.getBrand())
+        .model(product.getModel())
+        .description(product.getDescription())
+        .unitPrice(product.getUnitPrice())
+        .categories(product.getCategories())
+        .categoryKeys(categoryKeys)
+      .build();
+    }).toList());
+
+    products.forEach(productDetailsCache::put);
+  }
+
+  private void delete(ProductFromProductsMSDTO product) {
+    UUID id = UUID.fromString(product.getId());
+    UUID accountId = UUID.fromString(product.getAccountId());
+    // antes de borrar la copia, así se resta el valor con el mismo precio con el que se sumó
+    summaryRepository.removeReferencesFromSummaries(accountId, List.of(id));
+    projectionRepository.deleteById(id);
+    productInvRepository.deleteByReferenceIdsInAccount(List.of(id), accountId);
+    referenceCountRepository.deleteByAccountIdAndReferenceIds(accountId, List.of(id));
+    productDetailsCache.invalidate(product.getId());
+  }
+}
@@ -0,0 +1,186 @@
+package com.nahuelgg.inventory_app.inventories.services.implementations;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.components.ProductDetailsCache;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.BucketDigestDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ResponseDTO;
+import com.nahuelgg.inventory_app.inventories.exceptions.InternalRequestException;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductProjectionRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductReferenceCountRepository;
+import com.nahuelgg.inventory_app.inventories.services.JwtService;
+import com.nahuelgg.inventory_app.inventories.services.ProductProjectionService;
+import com.nahuelgg.inventory_app.inventories.services.ReconciliationService;
+import com.nahuelgg.inventory_app.inventories.utilities.ReferenceIdDigest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+  Elimina los productos en inventario cuya referencia ya no existe en el servicio de productos (por ejemplo porque se borró
+  directamente desde ese servicio). Antes esto se hacía al leer los productos de un inventario; ahora corre en segundo plano
+  (ver ProductReconciliationJob) y por cuenta:
+    1. se calcula el resumen por rangos de hash (ReferenceIdDigest) de las ids de referencia de la cuenta y se compara con el
+       que devuelve el servicio de productos,
+    2. solo de los rangos que difieren se piden las ids al servicio de productos,
+    3. las ids locales de esos rangos que no estén entre las recibidas se borran de a lotes de delete-batch-size, con un DELETE por lote.
+  Las ids locales se leen antes que las del servicio de productos, así un producto recién creado nunca se toma como huérfano.
+
+  Además completa la copia local de productos (product_projection) con los productos en inventario que todavía no la tienen,
+  por ejemplo los agregados antes de que existiera o cuya notificación de cambio se perdió
+*/
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReconciliationService_Impl implements ReconciliationService {
+  private final InventoryRepository inventoryRepository;
+  private final ProductInInvRepository productInvRepository;
+  private final ProductProjectionRepository projectionRepository;
+  private final ProductReferenceCountRepository referenceCountRepository;
+  private final InventorySummaryRepository summaryRepository;
+  private final ProductProjectionService productProjectionService;
+  private final RestTemplate restTemplate;
+  private final JwtService jwtService;
+  private final ProductDetailsCache productDetailsCache;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+
+  @Value("${services.products.url:http://api-products:8081}")
+  private String productsServiceUrl;
+  @Value("${inventory.reconciliation.buckets:64}")
+  private int buckets;
+  @Value("${inventory.reconciliation.delete-batch-size:500}")
+  private int deleteBatchSize;
+
+  // Si falla la reconciliación de una cuenta se sigue con las demás; se reintentará en la próxima ejecución
+  @Override
+  public int reconcileAll() {
+    int removed = 0;
+    for (UUID accountId : inventoryRepository.findAllAccountIds()) {
+      try {
+        removed += reconcileAccount(accountId);
+      } catch (RuntimeException e) {
+        log.warn("No se pudo reconciliar los productos de la cuenta {}: {}", accountId, e.getMessage());
+      }
+      try {
+        backfillProjections(accountId);
+      } catch (RuntimeException e) {
+        log.warn("No se pudo completar la copia local de productos de la cuenta {}: {}", accountId, e.getMessage());
+      }
+    }
+    return removed;
+  }
+
+  @Override
+  public int reconcileAccount(UUID accountId) {
+    List<UUID> localIds = productInvRepository.findReferenceIdsByAccountId(accountId);
+    if (localIds.isEmpty()) return 0;
+
+    List<BucketDigestDTO> remoteDigest = objectMapper.convertValue(
+      requestToProductsMS("/product/digest?accountId=%s&buckets=%d".formatted(accountId, buckets), HttpMethod.GET, null, accountId),
+      new TypeReference<List<BucketDigestDTO>>() {}
+    );
+    List<BucketDigestDTO> localDigest = ReferenceIdDigest.digest(localIds, buckets);
+
+    Set<Integer> differentBuckets = new HashSet<>();
+    for (int i = 0; i < buckets; i++) {
+      if (!localDigest.get(i).equals(remoteDigest.get(i))) differentBuckets.add(i);
+    }
+    if (differentBuckets.isEmpty()) return 0;
+
+    Set<UUID> remoteIds = new HashSet<>(objectMapper.convertValue(
+      requestToProductsMS("/product/digest/ids?accountId=%s&buckets=%d".formatted(accountId, buckets), HttpMethod.POST, differentBuckets, accountId),
+      new TypeReference<List<UUID>>() {}
+    ));
+    List<UUID> orphans = localIds.stream().filter(
+      id -> differentBuckets.contains(ReferenceIdDigest.bucketOf(id, buckets)) && !remoteIds.contains(id)
+    ).toList();
+
+    for (int from = 0; from < orphans.size(); from += deleteBatchSize) {
+      List<UUID> batch = orphans.subList(from, Math.min(from + deleteBatchSize, orphans.size()));
+      transactionTemplate.executeWithoutResult(status -> {
+        summaryRepository.removeReferencesFromSummaries(accountId, batch);
+        productInvRepository.deleteByReferenceIdsInAccount(batch, accountId);
+        referenceCountRepository.deleteByAccountIdAndReferenceIds(accountId, batch);
+      });
+    }
+    productDetailsCache.invalidateAll(orphans.stream().map(UUID::toString).toList());
+
+    return orphans.size();
+  }
+
+  // Devuelve la cantidad de productos copiados. Los que el servicio de productos no devuelva (eliminados) quedan sin copia
+  // hasta que reconcileAccount borre los productos en inventario que los referencian
+  @Override
+  public int backfillProjections(UUID accountId) {
+    List<UUID> missingIds = projectionRepository.findReferenceIdsWithoutProjection(accountId);
+    if (missingIds.isEmpty()) return 0;
+
+    List<ProductFromProductsMSDTO> products = new ArrayList<>();
+    try {
+      HttpHeaders headers = new HttpHeaders();
+      headers.setBearerAuth(jwtService.generateServiceToken(accountId.toString()));
+      headers.setContentType(MediaType.APPLICATION_JSON);
+      headers.setAccept(List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+      byte[] body = objectMapper.writeValueAsBytes(missingIds);
+
+      restTemplate.execute(
+        productsServiceUrl + "/product/batch-get", HttpMethod.POST,
+        request -> {
+          request.getHeaders().addAll(headers);
+          request.getBody().write(body);
+        },
+        response -> {
+          try (MappingIterator<ProductFromProductsMSDTO> iterator =
+            objectMapper.readerFor(ProductFromProductsMSDTO.class).readValues(response.getBody())
+          ) {
+            while (iterator.hasNextValue()) products.add(iterator.nextValue());
+          }
+          return null;
+        }
+      );
+    } catch (Exception e) {
+      throw new InternalRequestException("Error al obtener los productos de la cuenta " + accountId, e.getMessage());
+    }
+
+    for (ProductFromProductsMSDTO product : products) {
+      if (product.getAccountId() == null) product.setAccountId(accountId.toString());
+      productProjectionService.upsert(product, null);
+    }
+    return products.size();
+  }
+
+  private Object requestToProductsMS(String path, HttpMethod method, Object body, UUID accountId) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setBearerAuth(jwtService.generateServiceToken(accountId.toString()));
+
+    ResponseEntity<ResponseDTO> response = restTemplate.exchange(
+      productsServiceUrl + path, method, new HttpEntity<>(body, headers), ResponseDTO.class
+    );
+    if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null)
+      throw new InternalRequestException("Error al obtener el resumen de productos de la cuenta " + accountId, response.toString());
+
+    return response.getBody().getData();
+  }
+}
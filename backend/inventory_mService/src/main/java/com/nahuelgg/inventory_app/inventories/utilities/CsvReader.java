@@ -0,0 +1,97 @@
+package com.nahuelgg.inventory_app.inventories.utilities;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+  Lee un CSV (RFC 4180, separado por comas) de a un registro por vez, sin cargar el archivo completo en memoria.
+  - Los valores pueden ir entre comillas para incluir comas, saltos de línea o comillas (duplicadas).
+  - Acepta saltos de línea CRLF o LF, saltea las líneas vacías y el BOM inicial que agregan algunas planillas de cálculo.
+  - Una comilla que nunca se cierra toma el resto del archivo como parte del valor
+*/
+public class CsvReader {
+  private final Reader in;
+  private final char[] buffer = new char[8192];
+  private int position = 0, length = 0;
+  private int line = 1, recordLine = 0;
+  private boolean started = false;
+
+  public CsvReader(Reader in) {
+    this.in = in;
+  }
+
+  // Siguiente registro con sus valores en orden, o null si no quedan más
+  public List<String> readRecord() throws IOException {
+    int c = next();
+    if (!started) {
+      started = true;
+      if (c == '\uFEFF') c = next();
+    }
+    while (c == '\r' || c == '\n') {
+      endLine(c);
+      c = next();
+    }
+    if (c == -1) return null;
+
+    recordLine = line;
+    List<String> values = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c == -1) break;
+        if (c == '"') {
+          if (peek() == '"') value.append((char) next());
+          else quoted = false;
+        } else {
+          if (c == '\n' || (c == '\r' && peek() != '\n')) line++;
+          value.append((char) c);
+        }
+      } else if (c == '"' && value.isEmpty()) {
+        quoted = true;
+      } else if (c == ',') {
+        values.add(value.toString());
+        value.setLength(0);
+      } else if (c == '\r' || c == '\n' || c == -1) {
+        endLine(c);
+        break;
+      } else {
+        value.append((char) c);
+      }
+      c = next();
+    }
+    values.add(value.toString());
+    return values;
+  }
+
+  // número de línea del archivo (desde 1) en el que empieza el último registro leído
+  public int getRecordLine() {
+    return recordLine;
+  }
+
+  private void endLine(int c) throws IOException {
+    if (c == -1) return;
+    if (c == '\r' && peek() == '\n') next();
+    line++;
+  }
+
+  private int peek() throws IOException {
+    if (position == length && !fill()) return -1;
+    return buffer[position];
+  }
+
+  private int next() throws IOException {
+    if (position == length && !fill()) return -1;
+    return buffer[position++];
+  }
+
+  private boolean fill() throws IOException {
+    length = in.read(buffer);
+    position = 0;
+    if (length > 0) return true;
+    length = 0;
+    return false;
+  }
+}
@@ -1,15 +1,19 @@
 package com.nahuelgg.inventory_app.inventories.utilities;
 
 import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
 
 import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInputDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventorySummaryDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductInInvDTO;
 import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.InventorySummaryEntity;
 import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryView;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductSearchRow;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductStockRow;
 
 public class Mappers {
   public ProductInInvDTO mapProductsFromMSToDTO(ProductFromProductsMSDTO p, ProductInInvEntity pEntity) {
@@ -21,11 +25,51 @@ public class Mappers {
       .description(p.getDescription())
       .unitPrice(p.getUnitPrice())
       .categories(p.getCategories())
-      .stock(pEntity.getStock())
-      .isAvailable(pEntity.getIsAvailable())
+      .stock(currentStock(pEntity.getStock(), pEntity.getPendingStockDelta()))
+      .isAvailable(currentAvailability(pEntity.getStock(), pEntity.getIsAvailable(), pEntity.getPendingStockDelta()))
     .build();
   }
 
+  public ProductInInvDTO mapProjectionToDTO(ProductSearchRow row) {
+    ProductProjectionEntity p = row.product();
+    return ProductInInvDTO.builder()
+      .refId(p.getId().toString())
+      .name(p.getName())
+      .brand(p.getBrand())
+      .model(p.getModel())
+      .description(p.getDescription())
+      .unitPrice(p.getUnitPrice())
+      .categories(p.getCategories())
+      .stock(currentStock(row.stock(), row.pendingStockDelta()))
+      .isAvailable(currentAvailability(row.stock(), row.isAvailable(), row.pendingStockDelta()))
+    .build();
+  }
+
+  public ProductInInvDTO mapStockRowToDTO(ProductFromProductsMSDTO p, ProductStockRow row) {
+    return ProductInInvDTO.builder()
+      .refId(p.getId())
+      .name(p.getName())
+      .brand(p.getBrand())
+      .model(p.getModel())
+      .description(p.getDescription())
+      .unitPrice(p.getUnitPrice())
+      .categories(p.getCategories())
+      .stock(currentStock(row.stock(), row.pendingStockDelta()))
+      .isAvailable(currentAvailability(row.stock(), row.isAvailable(), row.pendingStockDelta()))
+    .build();
+  }
+
+  // stock del producto con los movimientos del ledger pendientes de compactar, con el mismo límite en 0 que aplica la compactación
+  private Integer currentStock(Integer stock, Integer pendingStockDelta) {
+    if (pendingStockDelta == null || pendingStockDelta == 0) return stock;
+    return Math.max((stock != null ? stock : 0) + pendingStockDelta, 0);
+  }
+
+  private Boolean currentAvailability(Integer stock, Boolean isAvailable, Integer pendingStockDelta) {
+    if (pendingStockDelta == null || pendingStockDelta == 0) return isAvailable;
+    return (stock != null ? stock : 0) + pendingStockDelta > 0;
+  }
+
   public ProductFromProductsMSDTO mapProductInput(ProductInputDTO p) {
     return ProductFromProductsMSDTO.builder()
       .name(p.getName())
@@ -37,23 +81,33 @@ public class Mappers {
     .build();
   }
 
-  public InventoryDTO mapInvEntity(InventoryEntity inv, List<ProductFromProductsMSDTO> products) {
-    List<ProductInInvDTO> productsMapped = new ArrayList<>();
-
-    for (int i = 0; i < products.size(); i++) {
-      ProductFromProductsMSDTO productReference = products.get(i);
-      ProductInInvEntity productInInvEntity = inv.getProducts().stream().filter(
-        p -> p.getReferenceId().equals(UUID.fromString(productReference.getId()))
-      ).findFirst().orElse(null);
+  // deja los productos en null para que el campo sea resuelto luego por el batch loader de GraphQL
+  public InventoryDTO mapInvView(InventoryView inv) {
+    return InventoryDTO.builder()
+      .id(inv.getId().toString())
+      .name(inv.getName())
+      .accountId(inv.getAccountId().toString())
+    .build();
+  }
 
-      if (productInInvEntity != null) productsMapped.add(mapProductsFromMSToDTO(productReference, productInInvEntity));
-    }
+  public InventorySummaryDTO mapSummary(InventorySummaryEntity summary) {
+    return InventorySummaryDTO.builder()
+      .invId(summary.getInventoryId().toString())
+      .skuCount(summary.getSkuCount())
+      .totalUnits(summary.getTotalUnits())
+      .availableCount(summary.getAvailableCount())
+      .stockValue(summary.getStockValue())
+    .build();
+  }
 
+  // con la lista de productos vacía, que el batch loader de GraphQL devuelve tal cual sin consultarlos (por ejemplo para un
+  // inventario recién creado)
+  public InventoryDTO mapInvEntity(InventoryEntity inv) {
     return InventoryDTO.builder()
       .id(inv.getId().toString())
       .name(inv.getName())
       .accountId(inv.getAccountId().toString())
-      .products(productsMapped)
+      .products(new ArrayList<>())
     .build();
   }
 }
@@ -0,0 +1,57 @@
+package com.nahuelgg.inventory_app.inventories.utilities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.BucketDigestDTO;
+
+/*
+  Resumen compacto de un conjunto de ids, usado para comparar las ids de referencia de los productos en inventarios con las
+  ids del servicio de productos sin intercambiar las listas completas. Cada id cae en uno de 'buckets' rangos según su hash, y por rango se
+  informa la cantidad de ids y la suma de sus hashes (independiente del orden). Solo se piden las ids de los rangos que no coinciden.
+
+  El mismo cálculo está en el servicio de productos (ReferenceIdDigest), si se modifica uno se debe modificar el otro
+*/
+public class ReferenceIdDigest {
+  public static final int MAX_BUCKETS = 4096;
+
+  // finalizador de SplitMix64, distribuye los bits de forma uniforme
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  public static long hashOf(UUID id) {
+    return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+  }
+
+  public static int bucketOf(UUID id, int buckets) {
+    return (int) Long.remainderUnsigned(hashOf(id), buckets);
+  }
+
+  public static void checkBuckets(int buckets) {
+    if (buckets < 1 || buckets > MAX_BUCKETS)
+      throw new IllegalArgumentException("La cantidad de rangos debe estar entre 1 y " + MAX_BUCKETS);
+  }
+
+  // las ids se suponen sin repetir
+  public static List<BucketDigestDTO> digest(Collection<UUID> ids, int buckets) {
+    checkBuckets(buckets);
+    long[] counts = new long[buckets];
+    long[] hashes = new long[buckets];
+
+    for (UUID id : ids) {
+      long hash = hashOf(id);
+      int bucket = (int) Long.remainderUnsigned(hash, buckets);
+      counts[bucket]++;
+      hashes[bucket] += mix(hash);
+    }
+
+    List<BucketDigestDTO> result = new ArrayList<>(buckets);
+    for (int i = 0; i < buckets; i++) result.add(new BucketDigestDTO(i, counts[i], hashes[i]));
+    return result;
+  }
+}
@@ -0,0 +1,36 @@
+package com.nahuelgg.inventory_app.inventories.utilities;
+
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// guarda una lista de textos en una sola columna, como arreglo JSON
+@Converter
+public class StringListConverter implements AttributeConverter<List<String>, String> {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Override
+  public String convertToDatabaseColumn(List<String> list) {
+    if (list == null) return null;
+    try {
+      return objectMapper.writeValueAsString(list);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  @Override
+  public List<String> convertToEntityAttribute(String json) {
+    if (json == null) return null;
+    try {
+      return objectMapper.readValue(json, new TypeReference<List<String>>() {});
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+-- Esquema que generaba Hibernate con ddl-auto=update en la versión anterior a las migraciones. Las bases creadas por esa versión
+-- no lo ejecutan: Flyway las toma como versión 1 (spring.flyway.baseline-on-migrate) y aplica solo las migraciones siguientes.
+-- Los tipos que cambian entre MySQL y la base H2 de los tests son placeholders (spring.flyway.placeholders.*)
+
+create table inventory (
+  id ${uuid_type} not null,
+  account_id ${uuid_type} not null,
+  name varchar(255) not null,
+  primary key (id)
+);
+
+create table product_in_inv (
+  id ${uuid_type} not null,
+  reference_id ${uuid_type} not null,
+  stock int,
+  is_available ${boolean_type},
+  inventory_id ${uuid_type} not null,
+  primary key (id),
+  constraint FKcisfs9lk0tkl6tk863p85171g foreign key (inventory_id) references inventory (id)
+);
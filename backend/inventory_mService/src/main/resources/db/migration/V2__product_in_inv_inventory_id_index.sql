@@ -0,0 +1,2 @@
+-- Recorre los productos de un inventario ordenados por id (paginación por keyset de Inventory.productsConnection)
+create index idx_product_in_inv_inventory_id on product_in_inv (inventory_id, id);
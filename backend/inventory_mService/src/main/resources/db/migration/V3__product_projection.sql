@@ -0,0 +1,22 @@
+-- Copia local de los productos del servicio de productos, para buscarlos sin consultarlo (ver ProductProjectionEntity).
+-- En una base existente la completa la reconciliación periódica (ver ReconciliationService_Impl.backfillProjections)
+create table product_projection (
+  id ${uuid_type} not null,
+  account_id ${uuid_type} not null,
+  name varchar(255),
+  brand varchar(255),
+  model varchar(255),
+  description varchar(1000),
+  unit_price int,
+  categories varchar(2000),
+  version bigint,
+  primary key (id)
+);
+create index idx_product_projection_account_id on product_projection (account_id);
+
+create table product_projection_category_keys (
+  product_id ${uuid_type} not null,
+  category_key varchar(255),
+  constraint FKnxj9mtgo8p1r67xk8kewascu4 foreign key (product_id) references product_projection (id)
+);
+create index idx_product_projection_category_key on product_projection_category_keys (category_key, product_id);
@@ -0,0 +1,7 @@
+-- En cuántos inventarios de cada cuenta está cada referencia. En una base existente lo completa ReferenceCountRebuildRunner al iniciar
+create table product_reference_count (
+  account_id ${uuid_type} not null,
+  reference_id ${uuid_type} not null,
+  inventory_count int not null,
+  primary key (account_id, reference_id)
+);
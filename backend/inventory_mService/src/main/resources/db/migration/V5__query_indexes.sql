@@ -0,0 +1,5 @@
+-- Índices de las condiciones más usadas, que sin ellos recorren la tabla entera (ver QueryPlanTest):
+-- inventarios de una cuenta por nombre, y productos de un inventario por referencia y viceversa
+create index idx_inventory_account_id_name on inventory (account_id, name);
+create index idx_product_in_inv_inventory_id_reference_id on product_in_inv (inventory_id, reference_id);
+create index idx_product_in_inv_reference_id on product_in_inv (reference_id, inventory_id);
@@ -0,0 +1,16 @@
+-- Pasos pendientes de las sagas de creación y borrado de inventarios (ver InventorySagaStepEntity)
+create table inventory_saga_step (
+  id bigint not null auto_increment,
+  type enum('assignInventory','deleteProducts','unassignInventory') not null,
+  inventory_id ${uuid_type} not null,
+  account_id ${uuid_type} not null,
+  account_username varchar(255) not null,
+  reference_ids ${clob_type},
+  attempts int not null,
+  next_attempt_at ${timestamp_type},
+  last_error varchar(1000),
+  created_at ${timestamp_type} not null,
+  primary key (id)
+);
+create index idx_inventory_saga_step_next_attempt_at on inventory_saga_step (next_attempt_at, id);
+create index idx_inventory_saga_step_inventory_id on inventory_saga_step (inventory_id);
@@ -0,0 +1,11 @@
+-- Totales por inventario. En una base existente los calcula InventorySummaryRebuildRunner al iniciar
+create table inventory_summary (
+  inventory_id ${uuid_type} not null,
+  account_id ${uuid_type} not null,
+  sku_count int not null,
+  total_units bigint not null,
+  available_count int not null,
+  stock_value bigint not null,
+  primary key (inventory_id)
+);
+create index idx_inventory_summary_account_id on inventory_summary (account_id);
@@ -0,0 +1,10 @@
+-- Ledger de movimientos de stock todavía no compactados en product_in_inv.stock (ver StockMovementRepository)
+create table stock_movement (
+  id bigint not null auto_increment,
+  inventory_id ${uuid_type} not null,
+  reference_id ${uuid_type} not null,
+  delta int not null,
+  created_at ${timestamp_type} not null,
+  primary key (id)
+);
+create index idx_stock_movement_inventory_id_reference_id on stock_movement (inventory_id, reference_id);
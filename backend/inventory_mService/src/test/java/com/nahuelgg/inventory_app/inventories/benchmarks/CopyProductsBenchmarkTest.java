@@ -0,0 +1,105 @@
+package com.nahuelgg.inventory_app.inventories.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductToCopyDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.services.InventoryService;
+
+// Compara el tiempo de copiar todos los productos de un inventario grande a uno nuevo: la implementación anterior de copyProducts
+// (búsqueda lineal de repetidos por producto y saveAll de toda la lista), la actual (set de referencias e inserts en batch)
+// y el INSERT ... SELECT que usa cloneInventory. Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+public class CopyProductsBenchmarkTest {
+  static final int PRODUCTS = 15_000;
+  static final int ITERATIONS = 3;
+
+  @Autowired InventoryService inventoryService;
+  @Autowired InventoryRepository inventoryRepository;
+  @Autowired ProductInInvRepository productInInvRepository;
+  @Autowired TransactionTemplate transactionTemplate;
+
+  UUID accId = UUID.randomUUID();
+  InventoryEntity source;
+  List<ProductToCopyDTO> productsToCopy = new ArrayList<>();
+  int destinies = 0;
+
+  @BeforeEach
+  void setUp() {
+    source = inventoryRepository.save(InventoryEntity.builder().name("source").accountId(accId).build());
+    List<ProductInInvEntity> products = new ArrayList<>();
+    for (int i = 0; i < PRODUCTS; i++) {
+      ProductInInvEntity p = ProductInInvEntity.builder().referenceId(UUID.randomUUID()).stock(i).isAvailable(i > 0).inventory(source).build();
+      products.add(p);
+      productsToCopy.add(new ProductToCopyDTO(p.getReferenceId().toString(), p.getStock()));
+    }
+    transactionTemplate.executeWithoutResult(status -> productInInvRepository.insertAll(products));
+  }
+
+  // copyProducts antes de usar un set de referencias e inserts en batch
+  private void legacyCopyProducts(UUID idTo) {
+    transactionTemplate.executeWithoutResult(status -> {
+      InventoryEntity invTo = inventoryRepository.findById(idTo).get();
+      List<ProductInInvEntity> newList = new ArrayList<>(productInInvRepository.findByInventory(invTo));
+      for (ProductToCopyDTO p : productsToCopy) {
+        if (!newList.stream().filter(pInv -> p.getRefId().equals(pInv.getReferenceId().toString())).findFirst().isPresent()) {
+          newList.add(ProductInInvEntity.builder()
+            .referenceId(UUID.fromString(p.getRefId()))
+            .stock(p.getStock())
+            .isAvailable(p.getStock() > 0)
+            .inventory(invTo)
+          .build());
+        }
+      }
+      productInInvRepository.saveAll(newList);
+    });
+  }
+
+  private double medianMillis(int iterations, Consumer<UUID> copy) {
+    long[] times = new long[iterations];
+    for (int i = 0; i < iterations; i++) {
+      UUID destinyId = inventoryRepository.save(InventoryEntity.builder().name("destiny" + destinies++).accountId(accId).build()).getId();
+
+      long start = System.nanoTime();
+      copy.accept(destinyId);
+      times[i] = System.nanoTime() - start;
+
+      assertEquals(PRODUCTS, productInInvRepository.findReferenceIdsByInventoryId(destinyId).size());
+    }
+    Arrays.sort(times);
+    return times[iterations / 2] / 1_000_000.0;
+  }
+
+  @Test
+  void copyAllProducts_legacy_vs_setBased_vs_insertSelect() {
+    double legacy = medianMillis(1, this::legacyCopyProducts);
+    double setBased = medianMillis(ITERATIONS, destinyId -> inventoryService.copyProducts(productsToCopy, destinyId));
+    double insertSelect = medianMillis(ITERATIONS, destinyId -> transactionTemplate.executeWithoutResult(
+      status -> productInInvRepository.copyAllProducts(source.getId(), destinyId)
+    ));
+
+    System.out.printf(
+      "copiar %d productos: anterior %.0f ms, set + batch %.0f ms, INSERT ... SELECT %.0f ms%n",
+      PRODUCTS, legacy, setBased, insertSelect
+    );
+  }
+}
@@ -0,0 +1,214 @@
+package com.nahuelgg.inventory_app.inventories.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.components.DownstreamCalls;
+import com.nahuelgg.inventory_app.inventories.components.InventorySagaRelay;
+import com.nahuelgg.inventory_app.inventories.components.ProductDetailsCache;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductInInvDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.InventorySagaStepEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventorySagaStepType;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySagaStepRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.services.InventoryService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Compara llamados en serie contra en paralelo (DownstreamCalls) a un servicio local que simula a los de productos y usuarios
+// con una demora por llamado: los pasos remotos de borrar inventarios (quitar de la cuenta y borrar productos) y un batch-get
+// grande de una vez contra dividido en partes. Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+public class DownstreamFanOutBenchmarkTest {
+  static final long CALL_DELAY_MS = 50;
+  // demora extra del batch-get por cada 100 ids pedidas
+  static final long BATCH_GET_DELAY_PER_100_IDS_MS = 2;
+  static final int DELETED_INVENTORIES = 10;
+  static final int PRODUCTS = 20_000;
+  static final int CHUNK_SIZE = 1_000;
+  static final int ITERATIONS = 5;
+
+  static final ObjectMapper objectMapper = new ObjectMapper();
+  static HttpServer standIn = startStandIn();
+
+  @DynamicPropertySource
+  static void servicesUrls(DynamicPropertyRegistry registry) {
+    String url = "http://localhost:" + standIn.getAddress().getPort();
+    registry.add("services.products.url", () -> url);
+    registry.add("services.users.url", () -> url);
+  }
+
+  @Autowired InventoryService inventoryService;
+  @Autowired InventorySagaRelay sagaRelay;
+  @Autowired DownstreamCalls downstreamCalls;
+  @Autowired ProductDetailsCache productDetailsCache;
+  @Autowired InventoryRepository inventoryRepository;
+  @Autowired ProductInInvRepository productInInvRepository;
+  @Autowired InventorySagaStepRepository sagaStepRepository;
+  @Autowired TransactionTemplate transactionTemplate;
+
+  UUID accId = UUID.randomUUID();
+  InventoryEntity inv;
+  List<String> refIds = new ArrayList<>();
+
+  private static HttpServer startStandIn() {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/product/batch-get", exchange -> {
+        List<String> ids = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<List<String>>() {});
+        StringBuilder ndjson = new StringBuilder();
+        for (String id : ids) ndjson.append(objectMapper.writeValueAsString(Map.of("id", id, "name", "product"))).append('\n');
+        respond(exchange, CALL_DELAY_MS + ids.size() / 100 * BATCH_GET_DELAY_PER_100_IDS_MS, "application/x-ndjson", ndjson.toString());
+      });
+      server.createContext("/", exchange -> respond(exchange, CALL_DELAY_MS, "application/json", "{\"status\":200}"));
+      server.setExecutor(Executors.newFixedThreadPool(32));
+      server.start();
+      return server;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void respond(HttpExchange exchange, long delayMs, String contentType, String body) throws IOException {
+    try {
+      Thread.sleep(delayMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    byte[] bytes = body.getBytes();
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  @AfterAll
+  static void stopStandIn() {
+    standIn.stop(0);
+  }
+
+  @BeforeEach
+  void setUp() {
+    inv = inventoryRepository.save(InventoryEntity.builder().name("inventario").accountId(accId).build());
+    List<ProductInInvEntity> products = new ArrayList<>();
+    for (int i = 0; i < PRODUCTS; i++) {
+      UUID refId = UUID.randomUUID();
+      refIds.add(refId.toString());
+      products.add(ProductInInvEntity.builder().referenceId(refId).stock(i).isAvailable(i > 0).inventory(inv).build());
+    }
+    transactionTemplate.executeWithoutResult(status -> productInInvRepository.insertAll(products));
+
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Authorization", "Bearer token");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  @AfterEach
+  void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+    ReflectionTestUtils.setField(sagaRelay, "downstreamCalls", downstreamCalls);
+    Object service = AopTestUtils.getUltimateTargetObject(inventoryService);
+    ReflectionTestUtils.setField(service, "downstreamCalls", downstreamCalls);
+    ReflectionTestUtils.setField(service, "batchGetChunkSize", 500);
+  }
+
+  private InventorySagaStepEntity step(InventorySagaStepType type, UUID invId) {
+    return InventorySagaStepEntity.builder()
+      .type(type).inventoryId(invId).accountId(accId).accountUsername("accUsername")
+      .referenceIds(type == InventorySagaStepType.deleteProducts ? List.of(UUID.randomUUID().toString()) : null)
+      .nextAttemptAt(Instant.now()).createdAt(Instant.now())
+    .build();
+  }
+
+  private double medianMillis(Runnable setUp, Runnable measured) {
+    long[] times = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      setUp.run();
+      long start = System.nanoTime();
+      measured.run();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[ITERATIONS / 2] / 1_000_000.0;
+  }
+
+  private double deleteStepsMillis(DownstreamCalls calls) {
+    ReflectionTestUtils.setField(sagaRelay, "downstreamCalls", calls);
+    return medianMillis(
+      () -> {
+        for (int i = 0; i < DELETED_INVENTORIES; i++) {
+          UUID invId = UUID.randomUUID();
+          sagaStepRepository.saveAll(List.of(step(InventorySagaStepType.unassignInventory, invId), step(InventorySagaStepType.deleteProducts, invId)));
+        }
+      },
+      () -> assertEquals(DELETED_INVENTORIES * 2, sagaRelay.runPendingSteps())
+    );
+  }
+
+  private double batchGetMillis(DownstreamCalls calls, int chunkSize) {
+    Object service = AopTestUtils.getUltimateTargetObject(inventoryService);
+    ReflectionTestUtils.setField(service, "downstreamCalls", calls);
+    ReflectionTestUtils.setField(service, "batchGetChunkSize", chunkSize);
+    Supplier<List<ProductInInvDTO>> read = () -> inventoryService.getProductsOfInventories(List.of(inv.getId())).get(inv.getId().toString());
+    return medianMillis(
+      () -> productDetailsCache.invalidateAll(refIds),
+      () -> assertEquals(PRODUCTS, read.get().size())
+    );
+  }
+
+  @Test
+  void downstreamCalls_sequential_vs_concurrent() {
+    DownstreamCalls sequential = new DownstreamCalls(Runnable::run);
+
+    double deleteSequential = deleteStepsMillis(sequential);
+    double deleteConcurrent = deleteStepsMillis(downstreamCalls);
+    double batchGetSingle = batchGetMillis(sequential, PRODUCTS);
+    double batchGetChunksSequential = batchGetMillis(sequential, CHUNK_SIZE);
+    double batchGetChunksConcurrent = batchGetMillis(downstreamCalls, CHUNK_SIZE);
+
+    System.out.printf(
+      "pasos remotos de borrar %d inventarios (demora %d ms por llamado): en serie %.0f ms, en paralelo %.0f ms%n",
+      DELETED_INVENTORIES, CALL_DELAY_MS, deleteSequential, deleteConcurrent
+    );
+    System.out.printf(
+      "batch-get de %d productos: un llamado %.0f ms, partes de %d en serie %.0f ms, en paralelo %.0f ms%n",
+      PRODUCTS, batchGetSingle, CHUNK_SIZE, batchGetChunksSequential, batchGetChunksConcurrent
+    );
+  }
+}
@@ -0,0 +1,174 @@
+package com.nahuelgg.inventory_app.inventories.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.components.TokenGenerator;
+import com.nahuelgg.inventory_app.inventories.dtos.ImportProgressDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInputDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.services.InventoryService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Compara agregar productos de a uno con addProduct (un llamado al servicio de productos y un INSERT por producto, estimado a
+// partir de LEGACY_ROWS) contra importar un CSV de ROWS registros con /inventory/{invId}/import (un llamado y un INSERT en batch
+// por grupo). El servicio de productos lo simula un servidor local con una demora fija por llamado. Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+// sin el log de cada sentencia SQL del perfil de test, que con 100k productos sería la mayor parte del tiempo medido
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+  "logging.level.org.hibernate.SQL=WARN",
+  "logging.level.org.hibernate.orm.jdbc.bind=WARN",
+  "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"
+})
+@ActiveProfiles("test")
+public class ImportProductsBenchmarkTest {
+  static final long CALL_DELAY_MS = 5;
+  static final int ROWS = 100_000;
+  static final int LEGACY_ROWS = 500;
+
+  static final ObjectMapper objectMapper = new ObjectMapper();
+  static HttpServer standIn = startStandIn();
+
+  @DynamicPropertySource
+  static void servicesUrls(DynamicPropertyRegistry registry) {
+    registry.add("services.products.url", () -> "http://localhost:" + standIn.getAddress().getPort());
+  }
+
+  @Autowired InventoryService inventoryService;
+  @Autowired InventoryRepository inventoryRepository;
+  @Autowired ProductInInvRepository productInInvRepository;
+  @Autowired TokenGenerator tokenGenerator;
+  @Autowired WebTestClient webClient;
+
+  @LocalServerPort
+  int port;
+
+  UUID accId = UUID.randomUUID();
+
+  // responde los productos recibidos con una id nueva, como /product y /product/batch-create
+  private static HttpServer startStandIn() {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/product/batch-create", exchange -> {
+        List<Map<String, Object>> products = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<List<Map<String, Object>>>() {});
+        products.forEach(p -> p.put("id", UUID.randomUUID().toString()));
+        respond(exchange, objectMapper.writeValueAsString(Map.of("status", 201, "data", products)));
+      });
+      server.createContext("/product", exchange -> {
+        Map<String, Object> product = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<Map<String, Object>>() {});
+        product.put("id", UUID.randomUUID().toString());
+        respond(exchange, objectMapper.writeValueAsString(Map.of("status", 201, "data", product)));
+      });
+      server.setExecutor(Executors.newFixedThreadPool(8));
+      server.start();
+      return server;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void respond(HttpExchange exchange, String body) throws IOException {
+    try {
+      Thread.sleep(CALL_DELAY_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    byte[] bytes = body.getBytes();
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(201, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  @AfterAll
+  static void stopStandIn() {
+    standIn.stop(0);
+  }
+
+  private double addOneByOneMillis() {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder().name("de a uno").accountId(accId).build());
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Authorization", "Bearer token");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+    long start = System.nanoTime();
+    try {
+      for (int i = 0; i < LEGACY_ROWS; i++) {
+        inventoryService.addProduct(
+          ProductInputDTO.builder().name("product" + i).brand("brand").unitPrice(i).stock(i % 10).build(), inv.getId(), accId
+        );
+      }
+    } finally {
+      RequestContextHolder.resetRequestAttributes();
+    }
+    double millis = (System.nanoTime() - start) / 1_000_000.0;
+
+    assertEquals(LEGACY_ROWS, productInInvRepository.findReferenceIdsByInventoryId(inv.getId()).size());
+    return millis;
+  }
+
+  private double importMillis() throws IOException {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder().name("importado").accountId(accId).build());
+    StringBuilder csv = new StringBuilder("name,brand,model,unitPrice,categories,stock\r\n");
+    for (int i = 0; i < ROWS; i++) csv.append("product").append(i).append(",brand,model,").append(i).append(",a|b,").append(i % 10).append("\r\n");
+    String token = tokenGenerator.generateAdminToken("accUsername", accId.toString());
+
+    long start = System.nanoTime();
+    String body = webClient.mutate().responseTimeout(Duration.ofMinutes(10)).build()
+      .post().uri("http://localhost:" + port + "/inventory/" + inv.getId() + "/import?accountId=" + accId)
+      .headers(headers -> headers.setBearerAuth(token))
+      .contentType(MediaType.parseMediaType("text/csv")).bodyValue(csv.toString())
+    .exchange()
+      .expectStatus().isOk()
+      .expectBody(String.class).returnResult().getResponseBody();
+    double millis = (System.nanoTime() - start) / 1_000_000.0;
+
+    List<String> lines = body.lines().toList();
+    ImportProgressDTO last = objectMapper.readValue(lines.get(lines.size() - 1), ImportProgressDTO.class);
+    assertTrue(last.isDone());
+    assertEquals(ROWS, last.getImported());
+    assertEquals(ROWS, productInInvRepository.findReferenceIdsByInventoryId(inv.getId()).size());
+    return millis;
+  }
+
+  @Test
+  void addProductOneByOne_vs_csvImport() throws IOException {
+    double oneByOne = addOneByOneMillis();
+    double imported = importMillis();
+
+    System.out.printf(
+      "agregar %d productos: de a uno %.0f ms (estimado, medido con %d), importación CSV %.0f ms%n",
+      ROWS, oneByOne * ROWS / LEGACY_ROWS, LEGACY_ROWS, imported
+    );
+  }
+}
@@ -0,0 +1,140 @@
+package com.nahuelgg.inventory_app.inventories.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.graphql.test.tester.HttpGraphQlTester;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.components.ProductDetailsCache;
+import com.nahuelgg.inventory_app.inventories.components.TokenGenerator;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+
+// Compara la latencia de getByAccount en una cuenta grande pidiendo solo los campos del inventario contra pidiendo también sus productos.
+// El servicio de productos se simula con una demora fija por llamado. Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class InventoryReadBenchmarkTest {
+  static final int INVENTORIES = 50;
+  static final int PRODUCTS_PER_INVENTORY = 400;
+  static final long PRODUCTS_SERVICE_DELAY_MS = 20;
+  static final int WARMUP = 3;
+  static final int ITERATIONS = 10;
+
+  @Autowired ObjectMapper objectMapper;
+  @Autowired TokenGenerator tokenGenerator;
+  @Autowired ProductDetailsCache productDetailsCache;
+  @Autowired InventoryRepository inventoryRepository;
+  @Autowired ProductInInvRepository productInInvRepository;
+
+  @MockitoBean RestTemplate restCaller;
+
+  @LocalServerPort
+  int port;
+
+  String accId = UUID.randomUUID().toString();
+  List<String> refIds = new ArrayList<>();
+  HttpGraphQlTester tester;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    for (int i = 0; i < INVENTORIES; i++) {
+      InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder()
+        .name("inventario" + i)
+        .accountId(UUID.fromString(accId))
+      .build());
+
+      List<ProductInInvEntity> products = new ArrayList<>();
+      for (int j = 0; j < PRODUCTS_PER_INVENTORY; j++) {
+        UUID refId = UUID.randomUUID();
+        refIds.add(refId.toString());
+        products.add(ProductInInvEntity.builder().referenceId(refId).stock(j).isAvailable(j > 0).inventory(inv).build());
+      }
+      productInInvRepository.saveAll(products);
+    }
+
+    when(restCaller.execute(anyString(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any()))
+      .thenAnswer(invocation -> {
+        Thread.sleep(PRODUCTS_SERVICE_DELAY_MS);
+        MockClientHttpRequest request = new MockClientHttpRequest();
+        invocation.<RequestCallback>getArgument(2).doWithRequest(request);
+        List<String> ids = objectMapper.readValue(request.getBodyAsBytes(), new TypeReference<List<String>>() {});
+
+        StringBuilder ndjson = new StringBuilder();
+        for (String id : ids) {
+          ndjson.append(objectMapper.writeValueAsString(ProductFromProductsMSDTO.builder().id(id).name("product").build())).append("\n");
+        }
+        return invocation.<ResponseExtractor<Object>>getArgument(3).extractData(
+          new MockClientHttpResponse(ndjson.toString().getBytes(), HttpStatus.OK)
+        );
+      });
+
+    String token = tokenGenerator.generateAccountToken("accUsername", accId);
+    WebTestClient.Builder client = WebTestClient.bindToServer()
+      .baseUrl("http://localhost:" + port + "/graphql")
+      .responseTimeout(Duration.ofMinutes(1))
+      .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(-1));
+    tester = HttpGraphQlTester.builder(client)
+      .headers(headers -> headers.setBearerAuth(token))
+    .build();
+  }
+
+  private double medianMillis(String query) {
+    long[] times = new long[ITERATIONS];
+    for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+      // sin caché, para medir el costo completo de traer los productos en cada iteración
+      productDetailsCache.invalidateAll(refIds);
+
+      long start = System.nanoTime();
+      tester.document(query).execute().errors().verify();
+      if (i >= WARMUP) times[i - WARMUP] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[ITERATIONS / 2] / 1_000_000.0;
+  }
+
+  @Test
+  void getByAccount_onlyInventoryFields_vs_withProducts() {
+    double onlyInventoryFields = medianMillis("""
+      query { getByAccount(accountId: "%s") { id name accountId } }
+    """.formatted(accId));
+    double withProducts = medianMillis("""
+      query { getByAccount(accountId: "%s") { id name accountId products { name stock } } }
+    """.formatted(accId));
+
+    System.out.printf(
+      "getByAccount (%d inventarios, %d productos): solo inventario %.2f ms, con productos %.2f ms (mediana de %d)%n",
+      INVENTORIES, INVENTORIES * PRODUCTS_PER_INVENTORY, onlyInventoryFields, withProducts, ITERATIONS
+    );
+  }
+}
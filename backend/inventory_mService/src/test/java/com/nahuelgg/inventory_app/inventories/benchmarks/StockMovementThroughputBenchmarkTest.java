@@ -0,0 +1,138 @@
+package com.nahuelgg.inventory_app.inventories.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.nahuelgg.inventory_app.inventories.components.StockLedgerCompactor;
+import com.nahuelgg.inventory_app.inventories.components.StockMovementBuffer;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.StockMovementRepository;
+import com.nahuelgg.inventory_app.inventories.services.InventoryService;
+
+// Compara cuántos movimientos de stock por segundo se registran con un UPDATE por movimiento (editStockOfProduct) contra
+// acumulándolos en el StockMovementBuffer (recordStockMovements) y contra insertándolos en el ledger (con y sin contar su
+// compactación), con varios hilos escaneando unos pocos productos muy vendidos.
+// Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+public class StockMovementThroughputBenchmarkTest {
+  static final int THREADS = 8;
+  static final int MOVEMENTS_PER_THREAD = 2_000;
+  static final int HOT_PRODUCTS = 20;
+  static final int INITIAL_STOCK = 1_000_000;
+
+  @Autowired InventoryService inventoryService;
+  @Autowired StockMovementBuffer stockMovementBuffer;
+  @Autowired StockMovementRepository stockMovementRepository;
+  @Autowired StockLedgerCompactor stockLedgerCompactor;
+  @Autowired InventoryRepository inventoryRepository;
+  @Autowired ProductInInvRepository productInInvRepository;
+
+  UUID invId;
+  List<ProductInInvEntity> products = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inventario")
+      .accountId(UUID.randomUUID())
+    .build());
+    invId = inv.getId();
+
+    for (int i = 0; i < HOT_PRODUCTS; i++) {
+      products.add(ProductInInvEntity.builder().referenceId(UUID.randomUUID()).stock(INITIAL_STOCK).isAvailable(true).inventory(inv).build());
+    }
+    products = productInInvRepository.saveAll(products);
+  }
+
+  private double movementsPerSecond(BiConsumer<UUID, Integer> recordMovement, Runnable afterAll) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      long start = System.nanoTime();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < MOVEMENTS_PER_THREAD; i++) {
+            recordMovement.accept(products.get((thread + i) % HOT_PRODUCTS).getReferenceId(), -1);
+          }
+        }));
+      }
+      for (Future<?> future : futures) future.get();
+      afterAll.run();
+
+      return THREADS * MOVEMENTS_PER_THREAD / ((System.nanoTime() - start) / 1_000_000_000.0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private int totalStock() {
+    return productInInvRepository.findAllById(products.stream().map(p -> p.getId()).toList()).stream()
+      .mapToInt(p -> p.getStock()).sum();
+  }
+
+  @Test
+  void perRequestUpdates_vs_coalescedBuffer() throws Exception {
+    int movements = THREADS * MOVEMENTS_PER_THREAD;
+
+    double perRequest = movementsPerSecond(
+      (refId, delta) -> inventoryService.editStockOfProduct(delta, refId, invId), () -> {}
+    );
+    assertEquals(HOT_PRODUCTS * INITIAL_STOCK - movements, totalStock());
+
+    double buffered = movementsPerSecond(
+      (refId, delta) -> inventoryService.recordStockMovements(List.of(new StockDeltaDTO(refId.toString(), delta)), invId),
+      stockMovementBuffer::flush
+    );
+    assertEquals(HOT_PRODUCTS * INITIAL_STOCK - 2 * movements, totalStock());
+
+    System.out.printf(
+      "movimientos de stock (%d hilos, %d movimientos, %d productos): un UPDATE por movimiento %.0f mov/s, con buffer %.0f mov/s%n",
+      THREADS, movements, HOT_PRODUCTS, perRequest, buffered
+    );
+  }
+
+  @Test
+  void perRequestUpdates_vs_appendOnlyLedger() throws Exception {
+    int movements = THREADS * MOVEMENTS_PER_THREAD;
+
+    double perRequest = movementsPerSecond(
+      (refId, delta) -> inventoryService.editStockOfProduct(delta, refId, invId), () -> {}
+    );
+    assertEquals(HOT_PRODUCTS * INITIAL_STOCK - movements, totalStock());
+
+    BiConsumer<UUID, Integer> append = (refId, delta) -> stockMovementRepository.append(invId, List.of(new StockDeltaDTO(refId.toString(), delta)));
+    double appended = movementsPerSecond(append, () -> {});
+    stockLedgerCompactor.compact();
+    assertEquals(HOT_PRODUCTS * INITIAL_STOCK - 2 * movements, totalStock());
+
+    double appendedAndCompacted = movementsPerSecond(append, stockLedgerCompactor::compact);
+    assertEquals(HOT_PRODUCTS * INITIAL_STOCK - 3 * movements, totalStock());
+
+    System.out.printf(
+      "movimientos de stock (%d hilos, %d movimientos, %d productos): un UPDATE por movimiento %.0f mov/s, " +
+      "insertados en el ledger %.0f mov/s, insertados y compactados %.0f mov/s%n",
+      THREADS, movements, HOT_PRODUCTS, perRequest, appended, appendedAndCompacted
+    );
+  }
+}
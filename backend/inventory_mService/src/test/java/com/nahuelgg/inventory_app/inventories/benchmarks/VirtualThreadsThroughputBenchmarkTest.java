@@ -0,0 +1,199 @@
+package com.nahuelgg.inventory_app.inventories.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.Application;
+import com.nahuelgg.inventory_app.inventories.components.TokenGenerator;
+import com.nahuelgg.inventory_app.inventories.dtos.PermissionsForInventoryDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.enums.Permissions;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Prueba de carga que compara cuántas requests por segundo sostiene el servicio atendiendo con el pool de hilos de Tomcat
+// (200 hilos por defecto) contra hacerlo con hilos virtuales. Cada request es la mutation addProduct, que espera a un servicio
+// local que simula al de productos con una demora fija y después escribe en la base. Con cada vez más clientes simultáneos se
+// mide el throughput y la latencia p99; el máximo sostenible es el mayor throughput sin errores y con p99 dentro de MAX_P99_MS.
+// El modo con hilos virtuales solo se mide si se ejecuta con Java 21 o superior. Se ejecuta con: mvn test -Pbenchmark
+@Tag("benchmark")
+public class VirtualThreadsThroughputBenchmarkTest {
+  static final long PRODUCTS_SERVICE_DELAY_MS = 100;
+  static final int[] CONCURRENT_CLIENTS = { 50, 200, 400, 800 };
+  static final Duration WARM_UP = Duration.ofSeconds(2);
+  static final Duration MEASURED = Duration.ofSeconds(5);
+  static final long MAX_P99_MS = 1_000;
+  // addProduct mantiene su conexión a la base mientras espera al servicio de productos, así que con el pool por defecto (10)
+  // ambos modos quedarían limitados a unas 10 / demora requests por segundo; se agranda para comparar los modelos de hilos
+  static final int DB_POOL_SIZE = 400;
+
+  static final ObjectMapper objectMapper = new ObjectMapper();
+  static final ScheduledExecutorService delayedResponses = Executors.newScheduledThreadPool(4);
+  static HttpServer productsStandIn = startProductsStandIn();
+  static final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+  record LoadResult(int clients, double requestsPerSecond, long p99Millis, int errors) {
+    boolean sustainable() {
+      return errors == 0 && p99Millis <= MAX_P99_MS;
+    }
+  }
+
+  // responde sin ocupar un hilo durante la demora, así el servicio simulado no es el cuello de botella
+  private static HttpServer startProductsStandIn() {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1_000);
+      server.createContext("/product", exchange -> delayedResponses.schedule(
+        () -> respond(exchange), PRODUCTS_SERVICE_DELAY_MS, TimeUnit.MILLISECONDS
+      ));
+      server.setExecutor(Executors.newFixedThreadPool(8));
+      server.start();
+      return server;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void respond(HttpExchange exchange) {
+    try (exchange) {
+      byte[] body = objectMapper.writeValueAsBytes(Map.of("status", 200, "data", Map.of(
+        "id", UUID.randomUUID().toString(), "name", "product", "brand", "brand", "unitPrice", 2
+      )));
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } catch (IOException e) {
+      // el cliente cerró la conexión
+    }
+  }
+
+  @AfterAll
+  static void stopStandIn() {
+    productsStandIn.stop(0);
+    delayedResponses.shutdown();
+  }
+
+  private ConfigurableApplicationContext startService(boolean virtualThreads) {
+    // como argumentos y no con properties(), que solo serían valores por defecto debajo de los de application.properties
+    return new SpringApplicationBuilder(Application.class).profiles("test").run(
+      "--server.port=0",
+      "--spring.datasource.url=jdbc:h2:mem:throughput-" + (virtualThreads ? "virtual" : "platform"),
+      "--spring.datasource.hikari.maximum-pool-size=" + DB_POOL_SIZE,
+      "--spring.threads.virtual.enabled=" + virtualThreads,
+      "--services.products.url=http://localhost:" + productsStandIn.getAddress().getPort(),
+      // el pool del cliente HTTP no debe ser el que limita, en ningún modo
+      "--services.http-client.max-connections=2000",
+      "--services.http-client.max-connections-per-route=2000",
+      "--logging.level.org.hibernate.SQL=WARN",
+      "--logging.level.org.hibernate.orm.jdbc.bind=WARN",
+      "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"
+    );
+  }
+
+  private List<LoadResult> measure(boolean virtualThreads) throws Exception {
+    try (ConfigurableApplicationContext service = startService(virtualThreads)) {
+      String accId = UUID.randomUUID().toString();
+      InventoryEntity inv = service.getBean(InventoryRepository.class)
+        .save(InventoryEntity.builder().name("inventario").accountId(UUID.fromString(accId)).build());
+      String token = service.getBean(TokenGenerator.class).generateUserToken("accUsername", accId, List.of(PermissionsForInventoryDTO.builder()
+        .idOfInventoryReferenced(inv.getId().toString())
+        .permissions(List.of(Permissions.addProducts))
+      .build()));
+      String body = objectMapper.writeValueAsString(Map.of(
+        "query", "mutation($product: ProductInput!, $invId: ID!, $accountId: ID!) { addProduct(product: $product, invId: $invId, accountId: $accountId) { refId } }",
+        "variables", Map.of(
+          "product", Map.of("name", "product", "brand", "brand", "unitPrice", 2, "stock", 4),
+          "invId", inv.getId().toString(),
+          "accountId", accId
+        )
+      ));
+      HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + service.getEnvironment().getProperty("local.server.port") + "/graphql"))
+        .header("Authorization", "Bearer " + token)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+      .build();
+
+      List<LoadResult> results = new ArrayList<>();
+      for (int clients : CONCURRENT_CLIENTS) {
+        run(request, clients, WARM_UP);
+        results.add(run(request, clients, MEASURED));
+      }
+      return results;
+    }
+  }
+
+  // cada cliente envía una request apenas recibe la respuesta de la anterior
+  private LoadResult run(HttpRequest request, int clients, Duration duration) throws InterruptedException {
+    Semaphore inFlight = new Semaphore(clients);
+    List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger errors = new AtomicInteger();
+    long start = System.nanoTime();
+    long end = start + duration.toNanos();
+
+    while (System.nanoTime() < end) {
+      if (!inFlight.tryAcquire(10, TimeUnit.MILLISECONDS)) continue;
+      long sent = System.nanoTime();
+      client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, e) -> {
+        if (e != null || response.statusCode() != 200 || response.body().contains("\"errors\"")) errors.incrementAndGet();
+        else latencies.add(System.nanoTime() - sent);
+        inFlight.release();
+      });
+    }
+    inFlight.acquire(clients);
+    double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+    List<Long> sorted = new ArrayList<>(latencies);
+    Collections.sort(sorted);
+    long p99 = sorted.isEmpty() ? 0 : sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1) / 1_000_000;
+    return new LoadResult(clients, sorted.size() / seconds, p99, errors.get());
+  }
+
+  private void report(String mode, List<LoadResult> results) {
+    for (LoadResult result : results) {
+      System.out.printf(
+        "%s, %d clientes: %.0f requests/s, p99 %d ms, %d errores%n",
+        mode, result.clients(), result.requestsPerSecond(), result.p99Millis(), result.errors()
+      );
+    }
+    System.out.printf(
+      "%s: máximo sostenible %.0f requests/s%n",
+      mode, results.stream().filter(LoadResult::sustainable).mapToDouble(LoadResult::requestsPerSecond).max().orElse(0)
+    );
+  }
+
+  @Test
+  void addProduct_platformThreads_vs_virtualThreads() throws Exception {
+    report("pool de hilos de Tomcat", measure(false));
+
+    if (Runtime.version().feature() < 21) {
+      System.out.printf("hilos virtuales: no disponibles en Java %d, se necesita Java 21 o superior%n", Runtime.version().feature());
+      return;
+    }
+    report("hilos virtuales", measure(true));
+  }
+}
@@ -0,0 +1,121 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class DownstreamCallsTest {
+  DownstreamCalls downstreamCalls;
+
+  @BeforeEach
+  void beforeEach() {
+    downstreamCalls = new DownstreamCalls(4, false);
+  }
+
+  @AfterEach
+  void afterEach() {
+    downstreamCalls.shutdown();
+    SecurityContextHolder.clearContext();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private Supplier<Integer> delayed(int result, long millis) {
+    return () -> {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return result;
+    };
+  }
+
+  @Test
+  void all_runsCallsConcurrentlyAndKeepsTheirOrder() {
+    long start = System.nanoTime();
+    List<Integer> results = downstreamCalls.all(List.of(delayed(1, 300), delayed(2, 100), delayed(3, 200)));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    assertEquals(List.of(1, 2, 3), results);
+    assertTrue(elapsedMillis < 550, "los llamados no se ejecutaron en paralelo: " + elapsedMillis + " ms");
+  }
+
+  @Test
+  void all_propagatesRequestAndSecurityContext() {
+    Authentication auth = new UsernamePasswordAuthenticationToken("account", "token");
+    SecurityContextHolder.getContext().setAuthentication(auth);
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Authorization", "Bearer token");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+    Supplier<String> readContext = () -> {
+      String header = ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).getRequest().getHeader("Authorization");
+      return SecurityContextHolder.getContext().getAuthentication().getName() + " " + header;
+    };
+
+    assertEquals(List.of("account Bearer token", "account Bearer token"), downstreamCalls.all(List.of(readContext, readContext)));
+
+    // los hilos del pool no conservan el contexto de llamados anteriores
+    SecurityContextHolder.clearContext();
+    RequestContextHolder.resetRequestAttributes();
+    assertEquals(List.of("null", "null"), downstreamCalls.all(List.<Supplier<String>>of(
+      () -> String.valueOf(SecurityContextHolder.getContext().getAuthentication()),
+      () -> String.valueOf(RequestContextHolder.getRequestAttributes())
+    )));
+  }
+
+  // en un JDK sin hilos virtuales se usa el pool de siempre
+  @Test
+  void all_withVirtualThreadsEnabled_runsCallsConcurrentlyWithTheCallerContext() {
+    DownstreamCalls virtualCalls = new DownstreamCalls(2, true);
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Authorization", "Bearer token");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    Supplier<Integer> readHeader = () -> {
+      delayed(0, 200).get();
+      return ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).getRequest().getHeader("Authorization").length();
+    };
+
+    try {
+      long start = System.nanoTime();
+      assertEquals(List.of(12, 12), virtualCalls.all(List.of(readHeader, readHeader)));
+      long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+      assertTrue(elapsedMillis < 380, "los llamados no se ejecutaron en paralelo: " + elapsedMillis + " ms");
+    } finally {
+      virtualCalls.shutdown();
+    }
+  }
+
+  @Test
+  void all_rethrowsTheFailureOfTheFirstFailedCall() {
+    List<Supplier<Integer>> calls = List.of(
+      delayed(1, 10),
+      () -> { throw new IllegalStateException("first"); },
+      () -> { throw new IllegalArgumentException("second"); }
+    );
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> downstreamCalls.all(calls));
+    assertEquals("first", e.getMessage());
+  }
+
+  @Test
+  void all_runsASingleCallInTheCallerThread() {
+    Thread caller = Thread.currentThread();
+    assertEquals(List.of(true), downstreamCalls.all(List.of(() -> Thread.currentThread() == caller)));
+    assertNull(RequestContextHolder.getRequestAttributes());
+  }
+}
@@ -0,0 +1,144 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductChangeDTO;
+import com.nahuelgg.inventory_app.inventories.enums.InventoryChangeType;
+import com.nahuelgg.inventory_app.inventories.exceptions.SubscriberOverflowException;
+
+import reactor.core.publisher.BaseSubscriber;
+
+public class InventoryChangePublisherTest {
+  InventoryChangePublisher publisher = new InventoryChangePublisher(2);
+  UUID invId = UUID.randomUUID();
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) TransactionSynchronizationManager.clearSynchronization();
+  }
+
+  private InventoryChangeDTO change(UUID invId, int delta) {
+    return InventoryChangeDTO.builder()
+      .invId(invId.toString())
+      .type(InventoryChangeType.stockChanged)
+      .products(List.of(ProductChangeDTO.builder().refId(UUID.randomUUID().toString()).stockDelta(delta).build()))
+    .build();
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    assertTrue(condition.getAsBoolean());
+  }
+
+  // suscriptor que no pide elementos hasta que se le indica, como un cliente que no lee su WebSocket
+  private static class SlowSubscriber extends BaseSubscriber<InventoryChangeDTO> {
+    final List<InventoryChangeDTO> received = new CopyOnWriteArrayList<>();
+    final CompletableFuture<Throwable> error = new CompletableFuture<>();
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {}
+
+    @Override
+    protected void hookOnNext(InventoryChangeDTO value) {
+      received.add(value);
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+      error.complete(throwable);
+    }
+  }
+
+  @Test
+  void subscribersOnlyReceiveTheChangesOfTheirInventory() throws Exception {
+    CompletableFuture<List<InventoryChangeDTO>> received = publisher.changesOf(invId).take(2).collectList().toFuture();
+
+    publisher.publish(change(invId, 1));
+    publisher.publish(change(UUID.randomUUID(), 2));
+    publisher.publish(change(invId, 3));
+
+    assertEquals(List.of(1, 3), received.get(5, TimeUnit.SECONDS).stream().map(c -> c.getProducts().get(0).getStockDelta()).toList());
+  }
+
+  @Test
+  void changesInsideATransactionAreSentOnlyAfterCommit() throws InterruptedException {
+    List<InventoryChangeDTO> received = new CopyOnWriteArrayList<>();
+    publisher.changesOf(invId).subscribe(received::add);
+
+    TransactionSynchronizationManager.initSynchronization();
+    publisher.publish(change(invId, 1));
+    Thread.sleep(100);
+    assertEquals(0, received.size());
+
+    TransactionSynchronizationUtils.triggerAfterCommit();
+    TransactionSynchronizationManager.clearSynchronization();
+    awaitUntil(() -> received.size() == 1);
+  }
+
+  @Test
+  void changesOfARolledBackTransactionAreNotSent() throws Exception {
+    List<InventoryChangeDTO> received = new CopyOnWriteArrayList<>();
+    publisher.changesOf(invId).subscribe(received::add);
+
+    TransactionSynchronizationManager.initSynchronization();
+    publisher.publish(change(invId, 1));
+    TransactionSynchronizationUtils.invokeAfterCompletion(
+      TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK
+    );
+    TransactionSynchronizationManager.clearSynchronization();
+    Thread.sleep(100);
+
+    assertEquals(0, received.size());
+  }
+
+  @Test
+  void aSlowSubscriberIsClosedWithoutHoldingBackTheOthers() throws Exception {
+    SlowSubscriber slow = new SlowSubscriber();
+    publisher.changesOf(invId).subscribe(slow);
+    List<InventoryChangeDTO> fast = new CopyOnWriteArrayList<>();
+    publisher.changesOf(invId).subscribe(fast::add);
+
+    // de a uno, esperando que el suscriptor que sí lee reciba cada cambio antes de enviar el siguiente
+    for (int i = 0; i < 10; i++) {
+      publisher.publish(change(invId, i));
+      int expected = i + 1;
+      awaitUntil(() -> fast.size() == expected);
+    }
+
+    // el lento ya no recibe más cambios del sink, solo los que tenía pendientes (el buffer y el que estaba por enviarse)
+    assertEquals(1, publisher.getSubscriberCount());
+    slow.request(Long.MAX_VALUE);
+    assertInstanceOf(SubscriberOverflowException.class, slow.error.get(5, TimeUnit.SECONDS));
+    assertEquals(List.of(0, 1, 2), slow.received.stream().map(c -> c.getProducts().get(0).getStockDelta()).toList());
+  }
+
+  @Test
+  void changesWithoutProductsAreNotSent() throws Exception {
+    List<InventoryChangeDTO> received = new CopyOnWriteArrayList<>();
+    publisher.changesOf(invId).subscribe(received::add);
+
+    publisher.publish(InventoryChangeDTO.builder().invId(invId.toString()).type(InventoryChangeType.productsDeleted).products(List.of()).build());
+    Thread.sleep(100);
+
+    assertFalse(received.size() > 0);
+  }
+}
@@ -0,0 +1,166 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ResponseDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventorySagaStepEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventorySagaStepType;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySagaStepRepository;
+import com.nahuelgg.inventory_app.inventories.services.InventoryService;
+import com.nahuelgg.inventory_app.inventories.services.JwtService;
+
+@ExtendWith(MockitoExtension.class)
+public class InventorySagaRelayTest {
+  @Mock InventorySagaStepRepository repository;
+  @Mock InventoryService inventoryService;
+  @Mock JwtService jwtService;
+  @Mock RestTemplate restTemplate;
+  @Spy DownstreamCalls downstreamCalls = new DownstreamCalls(Runnable::run);
+
+  @InjectMocks InventorySagaRelay relay;
+
+  UUID accId = UUID.randomUUID();
+  UUID invId = UUID.randomUUID();
+
+  @BeforeEach
+  void beforeEach() {
+    ReflectionTestUtils.setField(relay, "batchSize", 10);
+    ReflectionTestUtils.setField(relay, "maxAttempts", 3);
+    ReflectionTestUtils.setField(relay, "retryDelay", Duration.ofSeconds(5));
+    ReflectionTestUtils.setField(relay, "productsServiceUrl", "http://api-products:8081");
+    ReflectionTestUtils.setField(relay, "usersServiceUrl", "http://api-users:8082");
+    when(jwtService.generateAccountAdminToken("account", accId.toString())).thenReturn("token");
+  }
+
+  private InventorySagaStepEntity step(long id, InventorySagaStepType type, int attempts) {
+    return InventorySagaStepEntity.builder()
+      .id(id).type(type).inventoryId(invId).accountId(accId).accountUsername("account")
+      .referenceIds(type == InventorySagaStepType.deleteProducts ? List.of("ref1", "ref2") : null)
+      .attempts(attempts).nextAttemptAt(Instant.now()).createdAt(Instant.now())
+    .build();
+  }
+
+  private void pending(InventorySagaStepEntity... steps) {
+    when(repository.findByNextAttemptAtLessThanEqualOrderByIdAsc(any(Instant.class), any(Limit.class))).thenReturn(List.of(steps));
+  }
+
+  @Test
+  void runPendingSteps_callsOtherServicesInOrderAndDeletesCompletedSteps() {
+    pending(step(1, InventorySagaStepType.unassignInventory, 0), step(2, InventorySagaStepType.deleteProducts, 0));
+    when(restTemplate.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())).thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+    assertEquals(2, relay.runPendingSteps());
+
+    verify(restTemplate).exchange(contains("http://api-users:8082/account/remove-inventory"), eq(HttpMethod.PUT), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    verify(restTemplate).exchange(contains("ids=ref1&ids=ref2"), eq(HttpMethod.DELETE), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    verify(repository).deleteById(1L);
+    verify(repository).deleteById(2L);
+  }
+
+  @Test
+  void runPendingSteps_takesUnassignOfMissingInventoryAsDone() {
+    pending(step(1, InventorySagaStepType.unassignInventory, 0));
+    when(restTemplate.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any()))
+      .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+
+    assertEquals(1, relay.runPendingSteps());
+    verify(repository).deleteById(1L);
+  }
+
+  @Test
+  void runPendingSteps_skipsLaterStepsOfSameInventoryAfterAFailure() {
+    pending(
+      step(1, InventorySagaStepType.assignInventory, 0),
+      step(2, InventorySagaStepType.unassignInventory, 0),
+      step(3, InventorySagaStepType.deleteProducts, 0)
+    );
+    when(restTemplate.exchange(contains("/account/add-inventory"), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any()))
+      .thenThrow(new ResourceAccessException("Connection refused"));
+    when(restTemplate.exchange(contains("/product/delete-by-ids"), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any()))
+      .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+    assertEquals(1, relay.runPendingSteps());
+
+    verify(restTemplate, never()).exchange(contains("/account/remove-inventory"), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    verify(repository).deleteById(3L);
+    verify(repository, never()).deleteById(2L);
+  }
+
+  @Test
+  void runPendingSteps_reschedulesFailedStepWithBackoff() {
+    InventorySagaStepEntity step = step(1, InventorySagaStepType.assignInventory, 1);
+    pending(step);
+    when(restTemplate.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any()))
+      .thenThrow(new ResourceAccessException("Connection refused"));
+
+    Instant before = Instant.now();
+    assertEquals(0, relay.runPendingSteps());
+
+    assertEquals(2, step.getAttempts());
+    assertTrue(!step.getNextAttemptAt().isBefore(before.plusSeconds(10)));
+    assertTrue(step.getLastError().contains("Connection refused"));
+    verify(repository).save(step);
+    verify(repository, never()).deleteById(any());
+    verify(inventoryService, never()).revertCreate(any(), any());
+  }
+
+  @Test
+  void runPendingSteps_revertsCreateWhenAssignRunsOutOfAttempts() {
+    InventorySagaStepEntity step = step(1, InventorySagaStepType.assignInventory, 2);
+    pending(step);
+    when(restTemplate.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any()))
+      .thenThrow(new ResourceAccessException("Connection refused"));
+
+    relay.runPendingSteps();
+
+    assertNull(step.getNextAttemptAt());
+    verify(repository).save(step);
+    verify(inventoryService).revertCreate(invId, "account");
+  }
+
+  @Test
+  void runPendingSteps_leavesOtherStepsFailedWhenOutOfAttempts() {
+    InventorySagaStepEntity step = step(1, InventorySagaStepType.deleteProducts, 2);
+    pending(step);
+    when(restTemplate.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any()))
+      .thenReturn(new ResponseEntity<>(ResponseDTO.builder().build(), HttpStatus.INTERNAL_SERVER_ERROR));
+
+    relay.runPendingSteps();
+
+    assertNull(step.getNextAttemptAt());
+    assertEquals(3, step.getAttempts());
+    verify(repository).save(step);
+    verify(inventoryService, never()).revertCreate(any(), any());
+  }
+}
@@ -0,0 +1,151 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.nahuelgg.inventory_app.inventories.services.AuthorizationService;
+
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLError;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class QueryCostInstrumentationTest {
+  // tipos de la conexión que Spring for GraphQL agrega al esquema al iniciar
+  static final String CONNECTION_TYPES = """
+    type ProductInInventoryConnection { edges: [ProductInInventoryEdge]! pageInfo: PageInfo! }
+    type ProductInInventoryEdge { cursor: String! node: ProductInInventory! }
+    type PageInfo { hasPreviousPage: Boolean! hasNextPage: Boolean! startCursor: String endCursor: String }
+  """;
+
+  static final GraphQLSchema schema = loadSchema();
+
+  @Mock AuthorizationService authorizationService;
+
+  QueryCostInstrumentation instrumentation;
+  GraphQL graphQL;
+
+  private static GraphQLSchema loadSchema() {
+    TypeDefinitionRegistry registry = new TypeDefinitionRegistry();
+    for (String file : new String[] { "graphql/schema.graphqls", "graphql/e2e.graphqls" }) {
+      try (InputStream in = QueryCostInstrumentationTest.class.getClassLoader().getResourceAsStream(file)) {
+        registry.merge(new SchemaParser().parse(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    registry.merge(new SchemaParser().parse(CONNECTION_TYPES));
+    return new SchemaGenerator().makeExecutableSchema(registry, RuntimeWiring.newRuntimeWiring().build());
+  }
+
+  private void useLimits(int maxDepth, long maxCost, long accountBudget) {
+    instrumentation = new QueryCostInstrumentation(authorizationService, maxDepth, maxCost, accountBudget, Duration.ofMinutes(1), 10, 10, 100, 50, 500);
+    graphQL = GraphQL.newGraphQL(schema).instrumentation(instrumentation).build();
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    useLimits(10, 5000, 100000);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> costOf(ExecutionResult result) {
+    return (Map<String, Object>) result.getExtensions().get("cost");
+  }
+
+  @Test
+  void listFieldsMultiplyByTheirExpectedSize() {
+    ExecutionResult result = graphQL.execute("{ getByAccount(accountId: \"acc\") { name products { name stock } } }");
+
+    // 10 inventarios * (1 + 100 productos * 3)
+    assertTrue(result.getErrors().isEmpty());
+    assertEquals(3010L, costOf(result).get("requested"));
+  }
+
+  @Test
+  void connectionEdgesUseTheRequestedPageSize() {
+    ExecutionResult result = graphQL.execute("""
+      { getById(id: "inv", accountId: "acc") { productsConnection(first: 20) { edges { cursor node { name } } pageInfo { hasNextPage } } } }
+    """);
+
+    // getById 1 + conexión (1 + 20 edges * (3 + node 1) + pageInfo 1)
+    assertEquals(83L, costOf(result).get("requested"));
+  }
+
+  @Test
+  void introspectionHasNoCost() {
+    ExecutionResult result = graphQL.execute("{ __schema { types { name fields { name type { name ofType { name } } } } } }");
+
+    assertTrue(result.getErrors().isEmpty());
+    assertEquals(0L, costOf(result).get("requested"));
+  }
+
+  @Test
+  void rejectsOperationsOverTheMaxCostBeforeExecuting() {
+    ExecutionResult result = graphQL.execute("""
+      { getByAccount(accountId: "acc") { productsConnection(first: 500) { edges { node { name } } } } }
+    """);
+
+    assertNull(result.getData());
+    GraphQLError error = result.getErrors().get(0);
+    assertEquals("QueryCostExceeded", error.getExtensions().get("classification"));
+    assertTrue(error.getMessage().contains("el máximo por consulta es 5000"));
+    assertEquals(20020L, costOf(result).get("requested"));
+  }
+
+  @Test
+  void rejectsOperationsOverTheMaxDepth() {
+    useLimits(4, 5000, 100000);
+
+    ExecutionResult result = graphQL.execute("{ getById(id: \"inv\", accountId: \"acc\") { productsConnection { edges { node { name } } } } }");
+
+    assertEquals(1, result.getErrors().size());
+    assertTrue(result.getErrors().get(0).getMessage().contains("profundidad de 5"));
+  }
+
+  @Test
+  void consumesTheAccountBudgetAndRejectsWhenItRunsOut() {
+    useLimits(10, 5000, 5000);
+    when(authorizationService.getLoggedAccountId()).thenReturn("acc");
+    String query = "{ getByAccount(accountId: \"acc\") { products { name } } }";
+
+    ExecutionResult first = graphQL.execute(query);
+    assertTrue(first.getErrors().isEmpty());
+    assertEquals(1990L, costOf(first).get("remaining"));
+
+    ExecutionResult second = graphQL.execute(query);
+    assertEquals("QueryCostExceeded", second.getErrors().get(0).getExtensions().get("classification"));
+    assertEquals(1990L, costOf(second).get("remaining"));
+
+    // una consulta que entra en lo que queda se sigue aceptando
+    ExecutionResult third = graphQL.execute("{ getById(id: \"inv\", accountId: \"acc\") { name } }");
+    assertTrue(third.getErrors().isEmpty());
+    assertEquals(1989L, costOf(third).get("remaining"));
+  }
+
+  @Test
+  void mutationsHaveAFixedWeight() {
+    ExecutionResult result = graphQL.execute("mutation { edit(invId: \"inv\", name: \"nombre\", accountId: \"acc\") }");
+
+    assertEquals(10L, costOf(result).get("requested"));
+  }
+}
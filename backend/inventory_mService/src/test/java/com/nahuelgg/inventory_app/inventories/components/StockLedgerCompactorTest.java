@@ -0,0 +1,126 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductChangeDTO;
+import com.nahuelgg.inventory_app.inventories.entities.StockMovementEntity;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.StockMovementRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class StockLedgerCompactorTest {
+  @Mock StockMovementRepository movementRepository;
+  @Mock ProductInInvRepository productInInvRepository;
+  @Mock InventorySummaryRepository summaryRepository;
+  @Mock InventoryChangePublisher changePublisher;
+  @Mock PlatformTransactionManager transactionManager;
+
+  UUID invId = UUID.randomUUID();
+  UUID refId1 = UUID.randomUUID();
+  UUID refId2 = UUID.randomUUID();
+  long nextId = 1;
+
+  private StockLedgerCompactor createCompactor(int batchSize) {
+    return new StockLedgerCompactor(
+      movementRepository, productInInvRepository, summaryRepository, changePublisher, transactionManager, true, batchSize
+    );
+  }
+
+  private StockMovementEntity movement(UUID referenceId, int delta) {
+    return StockMovementEntity.builder()
+      .id(nextId++).inventoryId(invId).referenceId(referenceId).delta(delta).createdAt(Instant.now())
+    .build();
+  }
+
+  @Test
+  void compact_appliesOneSummedDeltaPerProductAndDeletesTheMovements() {
+    List<StockMovementEntity> movements = List.of(movement(refId1, -1), movement(refId2, 3), movement(refId1, -2));
+    when(movementRepository.findByOrderByIdAsc(Limit.of(10))).thenReturn(movements);
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenReturn(new int[] {1, 1});
+
+    assertEquals(3, createCompactor(10).compact());
+
+    List<StockDeltaDTO> expected = List.of(new StockDeltaDTO(refId1.toString(), -3), new StockDeltaDTO(refId2.toString(), 3));
+    InOrder order = inOrder(summaryRepository, productInInvRepository, movementRepository);
+    order.verify(summaryRepository).applyStockDeltas(invId, expected);
+    order.verify(productInInvRepository).adjustStockBatch(invId, expected);
+    order.verify(movementRepository).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+
+    ArgumentCaptor<InventoryChangeDTO> published = ArgumentCaptor.forClass(InventoryChangeDTO.class);
+    verify(changePublisher).publish(published.capture());
+    assertEquals(List.of(-3, 3), published.getValue().getProducts().stream().map(ProductChangeDTO::getStockDelta).toList());
+  }
+
+  @Test
+  void compact_discardsMovementsOfProductsNotInTheInventory() {
+    when(movementRepository.findByOrderByIdAsc(Limit.of(10))).thenReturn(List.of(movement(refId1, -1), movement(refId2, -1)));
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenReturn(new int[] {1, 0});
+
+    assertEquals(2, createCompactor(10).compact());
+
+    verify(movementRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+    ArgumentCaptor<InventoryChangeDTO> published = ArgumentCaptor.forClass(InventoryChangeDTO.class);
+    verify(changePublisher).publish(published.capture());
+    assertEquals(List.of(refId1.toString()), published.getValue().getProducts().stream().map(ProductChangeDTO::getRefId).toList());
+  }
+
+  @Test
+  void compact_movementsThatCancelOutOnlyGetDeleted() {
+    when(movementRepository.findByOrderByIdAsc(Limit.of(10))).thenReturn(List.of(movement(refId1, -2), movement(refId1, 2)));
+
+    assertEquals(2, createCompactor(10).compact());
+
+    verify(productInInvRepository, never()).adjustStockBatch(any(), any());
+    verify(summaryRepository, never()).applyStockDeltas(any(), any());
+    verify(movementRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+  }
+
+  @Test
+  void compact_continuesWhileBatchesAreFull() {
+    when(movementRepository.findByOrderByIdAsc(Limit.of(2))).thenReturn(
+      List.of(movement(refId1, -1), movement(refId1, -1)),
+      List.of(movement(refId1, -1))
+    );
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenReturn(new int[] {1});
+
+    assertEquals(3, createCompactor(2).compact());
+
+    verify(movementRepository, times(2)).findByOrderByIdAsc(Limit.of(2));
+    verify(productInInvRepository, times(2)).adjustStockBatch(eq(invId), any());
+  }
+
+  @Test
+  void compact_keepsTheMovementsIfApplyingThemFails() {
+    when(movementRepository.findByOrderByIdAsc(Limit.of(10))).thenReturn(List.of(movement(refId1, -1)));
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenThrow(new RuntimeException("sin conexión"));
+
+    assertThrows(RuntimeException.class, () -> createCompactor(10).compact());
+
+    verify(movementRepository, never()).deleteAllByIdInBatch(any());
+    verify(transactionManager).rollback(any());
+  }
+}
@@ -0,0 +1,220 @@
+package com.nahuelgg.inventory_app.inventories.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductChangeDTO;
+import com.nahuelgg.inventory_app.inventories.enums.InventoryChangeType;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class StockMovementBufferTest {
+  @Mock ProductInInvRepository productInInvRepository;
+  @Mock InventorySummaryRepository summaryRepository;
+  @Mock PlatformTransactionManager transactionManager;
+  InventoryChangePublisher changePublisher = new InventoryChangePublisher(16);
+  @TempDir Path tempDir;
+
+  UUID invId = UUID.randomUUID();
+  UUID refId1 = UUID.randomUUID();
+  UUID refId2 = UUID.randomUUID();
+  Path spillFile;
+
+  @BeforeEach
+  void beforeEach() {
+    spillFile = tempDir.resolve("pending.ndjson");
+  }
+
+  private StockMovementBuffer createBuffer(int flushThreshold, int maxPending) {
+    return new StockMovementBuffer(
+      productInInvRepository, summaryRepository, new TransactionTemplate(transactionManager), new ObjectMapper(), changePublisher,
+      4, Duration.ofMinutes(1), flushThreshold, maxPending, spillFile
+    );
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<StockDeltaDTO> captureFlushedDeltas(int calls) {
+    ArgumentCaptor<List<StockDeltaDTO>> captor = ArgumentCaptor.forClass(List.class);
+    verify(productInInvRepository, times(calls)).adjustStockBatch(eq(invId), captor.capture());
+    return captor.getValue();
+  }
+
+  @Test
+  void flush_writesOneCoalescedDeltaPerProduct() {
+    StockMovementBuffer buffer = createBuffer(100, 1000);
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenReturn(new int[] {1, 1});
+
+    buffer.add(invId, refId1, -1);
+    buffer.add(invId, refId1, -1);
+    buffer.add(invId, refId2, 5);
+    buffer.add(invId, refId1, 3);
+    assertEquals(2, buffer.getPendingCount());
+
+    assertEquals(2, buffer.flush());
+
+    List<StockDeltaDTO> flushed = captureFlushedDeltas(1);
+    assertEquals(2, flushed.size());
+    assertTrue(flushed.contains(new StockDeltaDTO(refId1.toString(), 1)));
+    assertTrue(flushed.contains(new StockDeltaDTO(refId2.toString(), 5)));
+    assertEquals(0, buffer.getPendingCount());
+    // los totales del inventario se calculan sobre el stock previo, antes del batch
+    InOrder order = inOrder(summaryRepository, productInInvRepository);
+    order.verify(summaryRepository).applyStockDeltas(invId, flushed);
+    order.verify(productInInvRepository).adjustStockBatch(invId, flushed);
+  }
+
+  @Test
+  void flush_publishesTheAppliedDeltasOnly() throws Exception {
+    StockMovementBuffer buffer = createBuffer(100, 1000);
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenReturn(new int[] {1});
+    CompletableFuture<InventoryChangeDTO> published = changePublisher.changesOf(invId).next().toFuture();
+
+    buffer.add(invId, refId1, 2);
+    buffer.add(invId, refId1, 3);
+    buffer.flush();
+
+    InventoryChangeDTO change = published.get(5, TimeUnit.SECONDS);
+    assertEquals(InventoryChangeType.stockChanged, change.getType());
+    assertEquals(List.of(ProductChangeDTO.builder().refId(refId1.toString()).stockDelta(5).build()), change.getProducts());
+  }
+
+  @Test
+  void flush_skipsProductsWhoseMovementsCancelOut() {
+    StockMovementBuffer buffer = createBuffer(100, 1000);
+
+    buffer.add(invId, refId1, 2);
+    buffer.add(invId, refId1, -2);
+
+    assertEquals(0, buffer.flush());
+    verify(productInInvRepository, never()).adjustStockBatch(any(), any());
+  }
+
+  @Test
+  void flush_keepsDeltasIfWriteFails() {
+    StockMovementBuffer buffer = createBuffer(100, 1000);
+    when(productInInvRepository.adjustStockBatch(eq(invId), any()))
+      .thenThrow(new RuntimeException("db down"))
+      .thenReturn(new int[] {1});
+
+    buffer.add(invId, refId1, -4);
+    assertThrows(RuntimeException.class, () -> buffer.flush());
+    assertEquals(1, buffer.getPendingCount());
+
+    buffer.add(invId, refId1, -1);
+    buffer.flush();
+
+    assertEquals(List.of(new StockDeltaDTO(refId1.toString(), -5)), captureFlushedDeltas(2));
+  }
+
+  @Test
+  void add_flushesSynchronouslyWhenMaxPendingIsReached() {
+    StockMovementBuffer buffer = createBuffer(1, 2);
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenReturn(new int[] {1, 1});
+
+    buffer.add(invId, refId1, 1);
+    verify(productInInvRepository, never()).adjustStockBatch(any(), any());
+
+    buffer.add(invId, refId2, 1);
+    verify(productInInvRepository, times(1)).adjustStockBatch(eq(invId), any());
+    assertEquals(0, buffer.getPendingCount());
+  }
+
+  @Test
+  void addAll_addsNothingIfMakingRoomFails() {
+    StockMovementBuffer buffer = createBuffer(2, 2);
+    UUID refId3 = UUID.randomUUID();
+    when(productInInvRepository.adjustStockBatch(eq(invId), any()))
+      .thenThrow(new RuntimeException("db down"))
+      .thenReturn(new int[] {1});
+
+    buffer.add(invId, refId1, 1);
+    Map<UUID, Integer> deltas = new LinkedHashMap<>();
+    deltas.put(refId2, 2);
+    deltas.put(refId3, 3);
+    assertThrows(RuntimeException.class, () -> buffer.addAll(invId, deltas));
+    assertEquals(1, buffer.getPendingCount());
+
+    buffer.flush();
+    assertEquals(List.of(new StockDeltaDTO(refId1.toString(), 1)), captureFlushedDeltas(2));
+  }
+
+  @Test
+  void stop_spillsPendingDeltasAndStartReplaysThem() throws Exception {
+    StockMovementBuffer buffer = createBuffer(100, 1000);
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenThrow(new RuntimeException("db down"));
+
+    buffer.start();
+    buffer.add(invId, refId1, -3);
+    buffer.stop();
+    assertTrue(Files.exists(spillFile));
+
+    StockMovementBuffer restarted = createBuffer(100, 1000);
+    restarted.start();
+    assertFalse(Files.exists(spillFile));
+    assertEquals(1, restarted.getPendingCount());
+
+    reset(productInInvRepository);
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenReturn(new int[] {1});
+    restarted.flush();
+    restarted.stop();
+
+    assertEquals(List.of(new StockDeltaDTO(refId1.toString(), -3)), captureFlushedDeltas(1));
+    assertFalse(Files.exists(spillFile));
+  }
+
+  @Test
+  void stop_createsMissingSpillDirectory() throws Exception {
+    spillFile = tempDir.resolve("inventories/pending.ndjson");
+    StockMovementBuffer buffer = createBuffer(100, 1000);
+    when(productInInvRepository.adjustStockBatch(eq(invId), any())).thenThrow(new RuntimeException("db down"));
+
+    buffer.start();
+    buffer.add(invId, refId1, -3);
+    buffer.stop();
+
+    assertTrue(Files.exists(spillFile));
+  }
+
+  @Test
+  void constructor_rejectsUnboundedFlushInterval() {
+    assertThrows(IllegalArgumentException.class, () -> new StockMovementBuffer(
+      productInInvRepository, summaryRepository, new TransactionTemplate(transactionManager), new ObjectMapper(), changePublisher,
+      4, Duration.ofMinutes(5), 100, 1000, spillFile
+    ));
+  }
+}
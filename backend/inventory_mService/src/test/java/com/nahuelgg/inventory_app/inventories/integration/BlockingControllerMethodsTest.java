@@ -0,0 +1,118 @@
+package com.nahuelgg.inventory_app.inventories.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.graphql.data.method.annotation.support.AnnotatedControllerConfigurer;
+import org.springframework.graphql.test.tester.HttpGraphQlTester;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.client.RestTemplate;
+
+import com.nahuelgg.inventory_app.inventories.components.TokenGenerator;
+import com.nahuelgg.inventory_app.inventories.dtos.PermissionsForInventoryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ResponseDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductInInvDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.enums.Permissions;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+
+// Con hilos virtuales (spring.threads.virtual.enabled en Java 21) Spring GraphQL ejecuta los métodos de los controllers en un
+// hilo virtual nuevo del executor de la aplicación y no en el hilo de la request. Acá se fuerza ese comportamiento con hilos
+// comunes para comprobar que el token de la request sigue llegando a los llamados a los otros servicios
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class BlockingControllerMethodsTest {
+  @TestConfiguration
+  static class AllControllerMethodsBlocking {
+    @Bean
+    static BeanPostProcessor blockingControllerMethods() {
+      return new BeanPostProcessor() {
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+          if (bean instanceof AnnotatedControllerConfigurer configurer) {
+            configurer.setExecutor(new SimpleAsyncTaskExecutor("graphql-"));
+            configurer.setBlockingMethodPredicate(method -> true);
+          }
+          return bean;
+        }
+      };
+    }
+  }
+
+  @Autowired WebTestClient webClientBuilder;
+  @Autowired TokenGenerator tokenGenerator;
+  @Autowired InventoryRepository inventoryRepository;
+
+  @MockitoBean RestTemplate restCaller;
+
+  @LocalServerPort
+  int port;
+
+  @Test
+  void addProduct_sendsTheRequestTokenFromTheExecutorThread() {
+    String accId = UUID.randomUUID().toString();
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder().name("inventario").accountId(UUID.fromString(accId)).build());
+    String token = tokenGenerator.generateUserToken("accUsername", accId, List.of(PermissionsForInventoryDTO.builder()
+      .idOfInventoryReferenced(inv.getId().toString())
+      .permissions(List.of(Permissions.addProducts))
+    .build()));
+
+    String productId = UUID.randomUUID().toString();
+    AtomicReference<String> callerThread = new AtomicReference<>();
+    AtomicReference<String> sentAuthorization = new AtomicReference<>();
+    when(restCaller.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())).thenAnswer(invocation -> {
+      callerThread.set(Thread.currentThread().getName());
+      sentAuthorization.set(invocation.<HttpEntity<?>>getArgument(2).getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+      return new ResponseEntity<>(ResponseDTO.builder()
+        .data(ProductFromProductsMSDTO.builder().id(productId).name("product").brand("brand").unitPrice(2).accountId(accId).build())
+      .build(), HttpStatus.OK);
+    });
+
+    ProductInInvDTO result = HttpGraphQlTester.create(webClientBuilder).mutate()
+      .url("http://localhost:" + port + "/graphql")
+      .headers(headers -> headers.setBearerAuth(token))
+    .build()
+      .document("""
+        mutation($product: ProductInput!, $invId: ID!, $accountId: ID!) {
+          addProduct(product: $product, invId: $invId, accountId: $accountId) {
+            refId
+          }
+        }
+      """)
+      .variables(Map.of(
+        "product", Map.of("name", "product", "brand", "brand", "unitPrice", 2, "stock", 4),
+        "invId", inv.getId().toString(),
+        "accountId", accId
+      ))
+      .execute()
+      .path("addProduct").entity(ProductInInvDTO.class).get();
+
+    assertEquals(productId, result.getRefId());
+    assertFalse(callerThread.get().startsWith("http-nio"), "el controller se ejecutó en el hilo de la request: " + callerThread.get());
+    assertEquals("Bearer " + token, sentAuthorization.get());
+  }
+}
@@ -2,17 +2,32 @@ package com.nahuelgg.inventory_app.inventories.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,32 +38,64 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.graphql.test.tester.GraphQlTester.Response;
 import org.springframework.graphql.test.tester.HttpGraphQlTester;
+import org.springframework.graphql.test.tester.WebSocketGraphQlTester;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.components.GraphQlDocumentCache;
+import com.nahuelgg.inventory_app.inventories.components.InventoryChangePublisher;
+import com.nahuelgg.inventory_app.inventories.components.InventorySagaRelay;
 import com.nahuelgg.inventory_app.inventories.components.TokenGenerator;
+import com.nahuelgg.inventory_app.inventories.components.StockMovementBuffer;
+import com.nahuelgg.inventory_app.inventories.controllers.InventoryImportController;
+import com.nahuelgg.inventory_app.inventories.dtos.ImportProgressDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.ImportRowErrorDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.PermissionsForInventoryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductChangeEventDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ResponseDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.EditProductInputDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductToCopyDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventorySummaryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductChangeDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductInInvDTO;
 import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
 import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventoryChangeType;
 import com.nahuelgg.inventory_app.inventories.enums.Permissions;
 import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySagaStepRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
 import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductProjectionRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductReferenceCountRepository;
 import com.nahuelgg.inventory_app.inventories.services.JwtService;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 public class ControllerTest {
@@ -59,6 +106,15 @@ public class ControllerTest {
 
   @Autowired InventoryRepository inventoryRepository;
   @Autowired ProductInInvRepository productInInvRepository;
+  @Autowired ProductProjectionRepository productProjectionRepository;
+  @Autowired ProductReferenceCountRepository referenceCountRepository;
+  @Autowired StockMovementBuffer stockMovementBuffer;
+  @Autowired InventorySagaStepRepository sagaStepRepository;
+  @Autowired InventorySummaryRepository summaryRepository;
+  @Autowired InventorySagaRelay sagaRelay;
+  @Autowired MeterRegistry meterRegistry;
+  @Autowired InventoryChangePublisher changePublisher;
+  @Autowired InventoryImportController importController;
 
   @MockitoBean RestTemplate restCaller;
   
@@ -98,11 +154,23 @@ public class ControllerTest {
     });
   }
 
+  private ProductChangeEventDTO upsertedEvent(ProductFromProductsMSDTO product, Long version) {
+    return ProductChangeEventDTO.builder().type(ProductChangeEventDTO.Type.upserted).version(version).product(product).build();
+  }
+
+  private WebTestClient.ResponseSpec postProductEvents(String token, List<ProductChangeEventDTO> events) {
+    return webClientBuilder.post().uri("http://localhost:" + port + "/product-events")
+      .headers(generateHeaderWithToken(token))
+      .bodyValue(events)
+    .exchange();
+  }
+
   @BeforeEach
   void setUp() {
     graphQlTester = HttpGraphQlTester.create(webClientBuilder);
 
     url = "http://localhost:" + port + "/graphql";
+    sagaStepRepository.deleteAll();
   }
 
   // Inventory crud tests
@@ -144,6 +212,230 @@ public class ControllerTest {
     response.path("getById").entity(InventoryDTO.class).isEqualTo(expected);
   }
 
+  @Test
+  void productsConnection_paginatesWithCursor() throws Exception {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inventario1")
+      .accountId(UUID.fromString(accId))
+    .build());
+    List<ProductFromProductsMSDTO> productsInMS = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ProductInInvEntity p = productInInvRepository.save(ProductInInvEntity.builder()
+        .referenceId(UUID.randomUUID())
+        .stock(i)
+        .isAvailable(i > 0)
+        .inventory(inv)
+      .build());
+      productsInMS.add(ProductFromProductsMSDTO.builder().id(p.getReferenceId().toString()).name("product" + i).build());
+    }
+
+    // responde en NDJSON los productos pedidos en el body, como /product/batch-get
+    List<List<String>> idsRequested = new ArrayList<>();
+    when(restCaller.execute(anyString(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any()))
+      .thenAnswer(invocation -> {
+        MockClientHttpRequest request = new MockClientHttpRequest();
+        invocation.<RequestCallback>getArgument(2).doWithRequest(request);
+        List<String> ids = objectMapper.readValue(request.getBodyAsBytes(), new TypeReference<List<String>>() {});
+        idsRequested.add(ids);
+
+        StringBuilder ndjson = new StringBuilder();
+        for (ProductFromProductsMSDTO p : productsInMS) {
+          if (ids.contains(p.getId())) ndjson.append(objectMapper.writeValueAsString(p)).append("\n");
+        }
+        return invocation.<ResponseExtractor<Object>>getArgument(3).extractData(
+          new MockClientHttpResponse(ndjson.toString().getBytes(), HttpStatus.OK)
+        );
+      });
+
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+    String query = """
+      query ($after: String) {
+        getById(id: "%s", accountId: "%s") {
+          productsConnection(first: 2, after: $after) {
+            edges { cursor node { refId name stock } }
+            pageInfo { hasNextPage endCursor }
+          }
+        }
+      }
+    """.formatted(inv.getId().toString(), accId);
+    HttpGraphQlTester tester = graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build();
+
+    Response firstPage = tester.document(query).execute();
+    firstPage.errors().verify();
+    firstPage.path("getById.productsConnection.edges").entityList(Object.class).hasSize(2);
+    firstPage.path("getById.productsConnection.pageInfo.hasNextPage").entity(Boolean.class).isEqualTo(true);
+    String endCursor = firstPage.path("getById.productsConnection.pageInfo.endCursor").entity(String.class).get();
+
+    Response secondPage = tester.document(query).variable("after", endCursor).execute();
+    secondPage.errors().verify();
+    secondPage.path("getById.productsConnection.edges").entityList(Object.class).hasSize(1);
+    secondPage.path("getById.productsConnection.pageInfo.hasNextPage").entity(Boolean.class).isEqualTo(false);
+
+    List<String> refIdsReturned = new ArrayList<>(firstPage.path("getById.productsConnection.edges[*].node.refId").entityList(String.class).get());
+    refIdsReturned.addAll(secondPage.path("getById.productsConnection.edges[*].node.refId").entityList(String.class).get());
+    assertEquals(
+      productsInMS.stream().map(ProductFromProductsMSDTO::getId).sorted().toList(),
+      refIdsReturned.stream().sorted().toList()
+    );
+    // solo se piden al servicio de productos los de la página actual
+    assertEquals(List.of(2, 1), idsRequested.stream().map(List::size).toList());
+  }
+
+  @Test
+  void importProducts_addsValidRecordsInChunksAndReportsTheRejected() throws Exception {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inventario1")
+      .accountId(UUID.fromString(accId))
+    .build());
+
+    // responde los productos recibidos con una id nueva, como /product/batch-create
+    List<Integer> createdPerCall = new ArrayList<>();
+    when(restCaller.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(ResponseDTO.class))).thenAnswer(invocation -> {
+      List<ProductFromProductsMSDTO> products = objectMapper.convertValue(
+        invocation.<HttpEntity<?>>getArgument(2).getBody(), new TypeReference<List<ProductFromProductsMSDTO>>() {}
+      );
+      products.forEach(p -> p.setId(UUID.randomUUID().toString()));
+      createdPerCall.add(products.size());
+      return new ResponseEntity<>(ResponseDTO.builder().data(products).build(), HttpStatus.CREATED);
+    });
+    ReflectionTestUtils.setField(importController, "chunkSize", 2);
+
+    String csv = String.join("\r\n",
+      "name,brand,unitPrice,stock,categories,isAvailable",
+      "tornillo,marca,10,5,a|b,true",
+      "\"tuerca, grande\",marca,20,,,",
+      "sin marca,,10,1,,",
+      "precio,marca,abc,1,,",
+      "arandela,marca,5,0,,"
+    );
+    String token = tokenGenerator.generateAdminToken(accUsername, accId);
+    String importUrl = "http://localhost:" + port + "/inventory/" + inv.getId() + "/import?accountId=" + accId;
+
+    try {
+      String body = webClientBuilder.post().uri(importUrl).headers(generateHeaderWithToken(token))
+        .contentType(MediaType.parseMediaType("text/csv")).bodyValue(csv)
+      .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class).returnResult().getResponseBody();
+
+      List<ImportProgressDTO> progress = new ArrayList<>();
+      for (String line : body.lines().toList()) progress.add(objectMapper.readValue(line, ImportProgressDTO.class));
+      assertEquals(List.of(2, 4, 5), progress.stream().map(ImportProgressDTO::getRowsRead).toList());
+      assertEquals(List.of(2, 2, 3), progress.stream().map(ImportProgressDTO::getImported).toList());
+      assertEquals(List.of(0, 2, 2), progress.stream().map(ImportProgressDTO::getFailed).toList());
+      assertEquals(List.of(4, 5), progress.get(1).getErrors().stream().map(ImportRowErrorDTO::getLine).toList());
+      assertEquals(List.of(false, false, true), progress.stream().map(ImportProgressDTO::isDone).toList());
+    } finally {
+      ReflectionTestUtils.setField(importController, "chunkSize", 500);
+    }
+
+    // un llamado al servicio de productos por grupo
+    assertEquals(List.of(2, 1), createdPerCall);
+    List<ProductInInvEntity> added = productInInvRepository.findByInventory(inv);
+    assertEquals(Set.of(5, 0), added.stream().map(ProductInInvEntity::getStock).collect(Collectors.toSet()));
+    assertEquals(3, added.size());
+    assertEquals(3, productProjectionRepository.findAllById(added.stream().map(ProductInInvEntity::getReferenceId).toList()).size());
+
+    // sin permiso, y sin las columnas obligatorias
+    String otherAccToken = tokenGenerator.generateAdminToken(accUsername, UUID.randomUUID().toString());
+    webClientBuilder.post().uri(importUrl).headers(generateHeaderWithToken(otherAccToken))
+      .contentType(MediaType.parseMediaType("text/csv")).bodyValue(csv)
+    .exchange().expectStatus().isForbidden();
+    webClientBuilder.post().uri(importUrl).headers(generateHeaderWithToken(token))
+      .contentType(MediaType.parseMediaType("text/csv")).bodyValue("name,unitPrice\r\ntornillo,10")
+    .exchange().expectStatus().isBadRequest();
+  }
+
+  @Test
+  void exportInventory_streamsCsvAndNdjson() throws Exception {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inventario1")
+      .accountId(UUID.fromString(accId))
+    .build());
+    ProductInInvEntity p = productInInvRepository.save(ProductInInvEntity.builder()
+      .referenceId(UUID.randomUUID())
+      .stock(5)
+      .isAvailable(true)
+      .inventory(inv)
+    .build());
+    ProductFromProductsMSDTO productInMS = ProductFromProductsMSDTO.builder()
+      .id(p.getReferenceId().toString()).name("tornillo, \"grande\"").brand("marca").categories(List.of("a", "b"))
+    .build();
+
+    when(restCaller.execute(anyString(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any()))
+      .thenAnswer(invocation -> invocation.<ResponseExtractor<Object>>getArgument(3).extractData(
+        new MockClientHttpResponse((objectMapper.writeValueAsString(productInMS) + "\n").getBytes(), HttpStatus.OK)
+      ));
+
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+    String exportUrl = "http://localhost:" + port + "/inventory/" + inv.getId() + "/export?accountId=" + accId;
+
+    String csv = webClientBuilder.get().uri(exportUrl + "&format=csv").headers(generateHeaderWithToken(token)).exchange()
+      .expectStatus().isOk()
+      .expectHeader().contentType("text/csv;charset=UTF-8")
+      .expectBody(String.class).returnResult().getResponseBody();
+    assertEquals(
+      "refId,name,brand,model,description,unitPrice,categories,stock,isAvailable\r\n" +
+      p.getReferenceId() + ",\"tornillo, \"\"grande\"\"\",marca,,,,a|b,5,true\r\n",
+      csv
+    );
+
+    String ndjson = webClientBuilder.get().uri(exportUrl + "&format=ndjson").headers(generateHeaderWithToken(token)).exchange()
+      .expectStatus().isOk()
+      .expectBody(String.class).returnResult().getResponseBody();
+    List<String> lines = ndjson.lines().toList();
+    assertEquals(1, lines.size());
+    ProductInInvDTO exported = objectMapper.readValue(lines.get(0), ProductInInvDTO.class);
+    assertEquals(p.getReferenceId().toString(), exported.getRefId());
+    assertEquals(5, exported.getStock());
+
+    // inventario de otra cuenta
+    String otherAccToken = tokenGenerator.generateAccountToken(accUsername, UUID.randomUUID().toString());
+    webClientBuilder.get().uri(exportUrl).headers(generateHeaderWithToken(otherAccToken)).exchange()
+      .expectStatus().isForbidden();
+    webClientBuilder.get().uri("http://localhost:" + port + "/inventory/" + UUID.randomUUID() + "/export?accountId=" + accId)
+      .headers(generateHeaderWithToken(token)).exchange()
+      .expectStatus().isNotFound();
+  }
+
+  @Test
+  void productsConnection_appliesFilter() throws Exception {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inventario1")
+      .accountId(UUID.fromString(accId))
+    .build());
+    ProductInInvEntity available = productInInvRepository.save(ProductInInvEntity.builder()
+      .referenceId(UUID.randomUUID()).stock(5).isAvailable(true).inventory(inv)
+    .build());
+    productInInvRepository.save(ProductInInvEntity.builder()
+      .referenceId(UUID.randomUUID()).stock(0).isAvailable(false).inventory(inv)
+    .build());
+    ProductFromProductsMSDTO availableInMS = ProductFromProductsMSDTO.builder().id(available.getReferenceId().toString()).name("product").build();
+
+    when(restCaller.execute(anyString(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any()))
+      .thenAnswer(invocation -> invocation.<ResponseExtractor<Object>>getArgument(3).extractData(
+        new MockClientHttpResponse((objectMapper.writeValueAsString(availableInMS) + "\n").getBytes(), HttpStatus.OK)
+      ));
+
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+    String query = """
+      query {
+        getById(id: "%s", accountId: "%s") {
+          productsConnection(first: 10, filter: { isAvailable: true }) {
+            edges { node { refId } }
+            pageInfo { hasNextPage }
+          }
+        }
+      }
+    """.formatted(inv.getId().toString(), accId);
+
+    Response response = graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build()
+      .document(query).execute();
+    response.errors().verify();
+    response.path("getById.productsConnection.edges[*].node.refId").entityList(String.class).containsExactly(available.getReferenceId().toString());
+    response.path("getById.productsConnection.pageInfo.hasNextPage").entity(Boolean.class).isEqualTo(false);
+  }
+
   @Test
   void getById_deniedIfUnauthenticated() {
     UUID idToSearch = UUID.randomUUID();
@@ -212,6 +504,75 @@ public class ControllerTest {
     );
   }
 
+  @Test
+  void getByAccount_withoutProductsSelected_doesNotCallProductsService() {
+    inventoryRepository.save(InventoryEntity.builder()
+      .name("inv1")
+      .accountId(UUID.fromString(accId))
+    .build());
+
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+
+    String query = """
+      query {
+        getByAccount(accountId: "%s") {
+          id
+          name
+        }
+      }
+    """.formatted(accId);
+
+    Response response = graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build()
+      .document(query).execute();
+    response.errors().verify();
+    response.path("getByAccount[*].name").entityList(String.class).containsExactly("inv1");
+
+    verifyNoInteractions(restCaller);
+  }
+
+  @Test
+  void getByAccount_reportsQueryCost() {
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+
+    webClientBuilder.post().uri(url).headers(generateHeaderWithToken(token))
+      .bodyValue(Map.of("query", "query { getByAccount(accountId: \"%s\") { id name } }".formatted(accId)))
+    .exchange()
+      .expectBody()
+      .jsonPath("$.errors").doesNotExist()
+      .jsonPath("$.extensions.cost.requested").isEqualTo(10)
+      .jsonPath("$.extensions.cost.remaining").isEqualTo(100000 - 10);
+  }
+
+  @Test
+  void getByAccount_overMaxCost_isRejectedBeforeExecuting() {
+    inventoryRepository.save(InventoryEntity.builder()
+      .name("inv1")
+      .accountId(UUID.fromString(accId))
+    .build());
+
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+
+    String query = """
+      query {
+        getByAccount(accountId: "%s") {
+          productsConnection(first: 500) {
+            edges { node { name } }
+          }
+        }
+      }
+    """.formatted(accId);
+
+    webClientBuilder.post().uri(url).headers(generateHeaderWithToken(token))
+      .bodyValue(Map.of("query", query))
+    .exchange()
+      .expectBody()
+      .jsonPath("$.data").doesNotExist()
+      .jsonPath("$.errors[0].extensions.classification").isEqualTo("QueryCostExceeded")
+      .jsonPath("$.extensions.cost.requested").isEqualTo(20020);
+
+    verifyNoInteractions(restCaller);
+  }
+
   @Test
   void create_allowIfUserIsAdmin() {
     String token = tokenGenerator.generateAdminToken(accUsername, accId);
@@ -241,6 +602,18 @@ public class ControllerTest {
     assertEquals("inventoryA", result.getName());
     assertEquals(accId, result.getAccountId());
     assertTrue(inventoryRepository.findById(UUID.fromString(result.getId())).isPresent());
+
+    // la asignación a la cuenta se hace después de responder, con un token de la misma cuenta
+    verifyNoInteractions(restCaller);
+    assertEquals(1, sagaRelay.runPendingSteps());
+    ArgumentCaptor<String> usedUrl = ArgumentCaptor.forClass(String.class);
+    ArgumentCaptor<HttpEntity> usedEntity = ArgumentCaptor.forClass(HttpEntity.class);
+    verify(restCaller).exchange(usedUrl.capture(), eq(HttpMethod.PUT), usedEntity.capture(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    assertTrue(usedUrl.getValue().contains("/account/add-inventory"));
+    assertTrue(usedUrl.getValue().contains(result.getId()));
+    String usedToken = usedEntity.getValue().getHeaders().getFirst(HttpHeaders.AUTHORIZATION).substring(7);
+    assertEquals(accUsername, jwtService.getClaim(usedToken, claims -> claims.getSubject()));
+    assertTrue(sagaStepRepository.findAll().isEmpty());
   }
 
   @Test
@@ -318,6 +691,12 @@ public class ControllerTest {
       .document(query).execute().path("delete").entity(Boolean.class).isEqualTo(true);
 
     assertTrue(inventoryRepository.findById(invToDelete.getId()).isEmpty());
+
+    verifyNoInteractions(restCaller);
+    assertEquals(1, sagaRelay.runPendingSteps());
+    ArgumentCaptor<String> usedUrl = ArgumentCaptor.forClass(String.class);
+    verify(restCaller).exchange(usedUrl.capture(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    assertTrue(usedUrl.getValue().contains("/account/remove-inventory"));
   }
 
   @Test
@@ -414,19 +793,14 @@ public class ControllerTest {
       .referenceId(ref3).stock(6).inventory(invSaved2)
     .build());
 
-    // datos en la BDD del servicio de productos
-    ProductFromProductsMSDTO prMs1 = ProductFromProductsMSDTO.builder()
-      .id(ref1.toString()).name("product").accountId(accId)
-    .build();
-    ProductFromProductsMSDTO prMs2 = ProductFromProductsMSDTO.builder()
-      .id(ref2.toString()).name("product").accountId(accId)
-    .build();
-
-    when(restCaller.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())).thenReturn(new ResponseEntity<>(
-      ResponseDTO.builder().data(List.of(prMs1, prMs2)).build(), HttpStatus.OK
-    ));
-
+    // notificaciones del servicio de productos con los datos de sus productos, que quedan en la copia local
     String token = tokenGenerator.generateAccountToken(accUsername, accId);
+    postProductEvents(token, List.of(
+      upsertedEvent(ProductFromProductsMSDTO.builder().id(ref1.toString()).name("product").accountId(accId).build(), 1L),
+      upsertedEvent(ProductFromProductsMSDTO.builder().id(ref2.toString()).name("product").accountId(accId).build(), 2L),
+      upsertedEvent(ProductFromProductsMSDTO.builder().id(ref3.toString()).name("other").accountId(accId).build(), 3L)
+    )).expectStatus().isNoContent();
+
     String query = """
       query {
         searchProductsInInventories(name: "pr", accountId: "%s") {
@@ -451,6 +825,45 @@ public class ControllerTest {
       result.get(0).getProducts().stream().noneMatch(pr -> pr.getRefId().equals(ref3.toString())) &&
       result.get(1).getProducts().stream().noneMatch(pr -> pr.getRefId().equals(ref3.toString())) 
     );
+    verifyNoInteractions(restCaller);
+  }
+
+  @Test
+  @DirtiesContext
+  void productEvents_applyOnlyNewerVersionsAndDeleteReferences() {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inv1")
+      .accountId(UUID.fromString(accId))
+    .build());
+    UUID ref1 = UUID.randomUUID(), ref2 = UUID.randomUUID();
+    productInInvRepository.save(ProductInInvEntity.builder().referenceId(ref1).stock(3).inventory(inv).build());
+    productInInvRepository.save(ProductInInvEntity.builder().referenceId(ref2).stock(5).inventory(inv).build());
+
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+    ProductFromProductsMSDTO product1 = ProductFromProductsMSDTO.builder().id(ref1.toString()).name("newName").accountId(accId).build();
+    ProductFromProductsMSDTO product2 = ProductFromProductsMSDTO.builder().id(ref2.toString()).name("product2").accountId(accId).build();
+    postProductEvents(token, List.of(upsertedEvent(product1, 5L), upsertedEvent(product2, 6L))).expectStatus().isNoContent();
+
+    // una notificación con versión anterior llega tarde y se ignora; la eliminación borra también el producto del inventario
+    postProductEvents(token, List.of(
+      upsertedEvent(ProductFromProductsMSDTO.builder().id(ref1.toString()).name("oldName").accountId(accId).build(), 4L),
+      ProductChangeEventDTO.builder().type(ProductChangeEventDTO.Type.deleted).version(7L).product(product2).build()
+    )).expectStatus().isNoContent();
+
+    assertEquals("newName", productProjectionRepository.findById(ref1).get().getName());
+    assertFalse(productProjectionRepository.existsById(ref2));
+    assertEquals(List.of(ref1), productInInvRepository.findReferenceIdsByAccountId(UUID.fromString(accId)));
+  }
+
+  @Test
+  void productEvents_deniedIfProductIsOfAnotherAccount() {
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+    ProductFromProductsMSDTO product = ProductFromProductsMSDTO.builder()
+      .id(UUID.randomUUID().toString()).name("product").accountId(UUID.randomUUID().toString())
+    .build();
+
+    postProductEvents(token, List.of(upsertedEvent(product, 1L))).expectStatus().isForbidden();
+    assertFalse(productProjectionRepository.existsById(UUID.fromString(product.getId())));
   }
 
   @Test
@@ -576,6 +989,7 @@ public class ControllerTest {
     productInInvRepository.save(ProductInInvEntity.builder()
       .referenceId(refId).stock(4).inventory(inv)
     .build());
+    referenceCountRepository.rebuildAccount(UUID.fromString(accId));
 
     EditProductInputDTO input = EditProductInputDTO.builder()
       .refId(refId.toString()).name("name2")
@@ -640,6 +1054,7 @@ public class ControllerTest {
     productInInvRepository.save(ProductInInvEntity.builder()
       .referenceId(refId).stock(6).inventory(anotherInv)
     .build());
+    referenceCountRepository.rebuildAccount(UUID.fromString(accId));
 
     EditProductInputDTO input = EditProductInputDTO.builder()
       .refId(refId.toString()).name("name2")
@@ -744,6 +1159,8 @@ public class ControllerTest {
     productInInvRepository.save(ProductInInvEntity.builder()
       .referenceId(ref2).inventory(anotherInv)
     .build());
+    // los productos se guardaron directo en el repositorio, sin actualizar los contadores de referencias
+    referenceCountRepository.rebuildAccount(UUID.fromString(accId));
 
     when(restCaller.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())).thenReturn(new ResponseEntity<>(HttpStatus.NO_CONTENT));
 
@@ -773,6 +1190,7 @@ public class ControllerTest {
     assertTrue(capturer.getValue().contains(ref1.toString()));
     assertFalse(capturer.getValue().contains(ref2.toString()));
     assertTrue(capturer.getValue().contains(ref3.toString()));
+    assertIterableEquals(List.of(ref2), referenceCountRepository.findExclusiveReferenceIds(UUID.fromString(accId), List.of(ref1, ref2, ref3)));
   }
 
   @Test
@@ -863,6 +1281,77 @@ public class ControllerTest {
     );
   }
 
+  @Test
+  @DirtiesContext
+  void cloneInventory_copiesProductsIfUserIsAdmin() {
+    InventoryEntity source = inventoryRepository.save(InventoryEntity.builder()
+      .name("source")
+      .accountId(UUID.fromString(accId))
+    .build());
+    UUID refId1 = UUID.randomUUID(), refId2 = UUID.randomUUID();
+    productInInvRepository.save(ProductInInvEntity.builder().referenceId(refId1).stock(3).isAvailable(true).inventory(source).build());
+    productInInvRepository.save(ProductInInvEntity.builder().referenceId(refId2).stock(0).isAvailable(false).inventory(source).build());
+    referenceCountRepository.rebuildAccount(UUID.fromString(accId));
+
+    when(restCaller.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())).thenReturn(new ResponseEntity<>(
+      HttpStatus.OK
+    ));
+
+    String token = tokenGenerator.generateAdminToken(accUsername, accId);
+    String query = """
+      mutation {
+        cloneInventory(sourceId: "%s", name: "clone", accountId: "%s") {
+          id
+          name
+        }
+      }
+    """.formatted(source.getId(), accId);
+
+    Response response = graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build()
+      .document(query).execute();
+    response.errors().verify();
+
+    InventoryDTO result = response.path("cloneInventory").entity(InventoryDTO.class).get();
+    assertEquals("clone", result.getName());
+    UUID cloneId = UUID.fromString(result.getId());
+    assertEquals(3, productInInvRepository.findByReferenceIdAndInventoryId(refId1, cloneId).get().getStock());
+    assertFalse(productInInvRepository.findByReferenceIdAndInventoryId(refId2, cloneId).get().getIsAvailable());
+    assertEquals(2, productInInvRepository.findReferenceIdsByInventoryId(source.getId()).size());
+    assertIterableEquals(List.of(), referenceCountRepository.findReferenceIdsExclusiveToInventory(UUID.fromString(accId), cloneId));
+
+    // al borrar el original, los productos quedan solo en la copia y no se borran en el servicio de productos
+    graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build()
+      .document("mutation { delete(id: \"%s\", accountId: \"%s\") }".formatted(source.getId(), accId)).execute().errors().verify();
+    assertEquals(2, sagaRelay.runPendingSteps());
+    ArgumentCaptor<String> urls = ArgumentCaptor.forClass(String.class);
+    verify(restCaller, times(2)).exchange(urls.capture(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    // los pasos de inventarios distintos se ejecutan en paralelo, así que el orden de los llamados no está definido
+    assertEquals(
+      Set.of("/account/add-inventory", "/account/remove-inventory"),
+      urls.getAllValues().stream().map(u -> u.substring(u.indexOf("/account/"), u.indexOf('?'))).collect(Collectors.toSet())
+    );
+    assertEquals(
+      Set.of(refId1, refId2),
+      Set.copyOf(referenceCountRepository.findReferenceIdsExclusiveToInventory(UUID.fromString(accId), cloneId))
+    );
+  }
+
+  @Test
+  void cloneInventory_deniedIfNotAdmin() {
+    String token = tokenGenerator.generateUserToken(accUsername, accId, null);
+    String query = """
+      mutation {
+        cloneInventory(sourceId: "%s", name: "clone", accountId: "%s") {
+          id
+        }
+      }
+    """.formatted(UUID.randomUUID(), accId);
+
+    graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build()
+      .document(query).execute().errors().satisfy(errors -> assertEquals(1, errors.size()));
+    verifyNoInteractions(restCaller);
+  }
+
   @Test
   void copyProducts_deniedIfHasWrongPerm() {
     UUID existingInvId = UUID.randomUUID();
@@ -942,4 +1431,294 @@ public class ControllerTest {
 
     checkOperationIsForbidden(query, token, null);
   }
+
+  @Test
+  void adjustStock_allowIfHasRightPerm() {
+    InventoryEntity savedInv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inv")
+      .accountId(UUID.fromString(accId))
+    .build());
+    ProductInInvEntity p1 = productInInvRepository.save(ProductInInvEntity.builder()
+      .referenceId(UUID.randomUUID()).stock(4).isAvailable(true).inventory(savedInv)
+    .build());
+    ProductInInvEntity p2 = productInInvRepository.save(ProductInInvEntity.builder()
+      .referenceId(UUID.randomUUID()).stock(1).isAvailable(true).inventory(savedInv)
+    .build());
+
+    String token = tokenGenerator.generateUserToken(accUsername, accId, List.of(PermissionsForInventoryDTO.builder()
+      .idOfInventoryReferenced(savedInv.getId().toString())
+      .permissions(List.of(Permissions.editInventory))
+    .build()));
+
+    String query = """
+      mutation ($deltas: [StockDelta!]!, $invId: ID!, $accountId: ID!) {
+        adjustStock(deltas: $deltas, invId: $invId, accountId: $accountId)
+      }
+    """;
+    Map<String, Object> variables = Map.of(
+      "deltas", List.of(
+        Map.of("productRefId", p1.getReferenceId().toString(), "delta", 3),
+        Map.of("productRefId", p2.getReferenceId().toString(), "delta", -2),
+        Map.of("productRefId", p1.getReferenceId().toString(), "delta", -1)
+      ),
+      "invId", savedInv.getId().toString(),
+      "accountId", accId
+    );
+
+    graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build()
+      .document(query).variables(variables).execute().path("adjustStock").entity(Boolean.class).isEqualTo(true);
+
+    assertEquals(6, productInInvRepository.findById(p1.getId()).get().getStock());
+    assertEquals(0, productInInvRepository.findById(p2.getId()).get().getStock());
+    assertFalse(productInInvRepository.findById(p2.getId()).get().getIsAvailable());
+  }
+
+  @Test
+  void adjustStock_rollsBackIfAProductIsNotInInventory() {
+    InventoryEntity savedInv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inv")
+      .accountId(UUID.fromString(accId))
+    .build());
+    ProductInInvEntity p1 = productInInvRepository.save(ProductInInvEntity.builder()
+      .referenceId(UUID.randomUUID()).stock(4).isAvailable(true).inventory(savedInv)
+    .build());
+
+    String token = tokenGenerator.generateUserToken(accUsername, accId, List.of(PermissionsForInventoryDTO.builder()
+      .idOfInventoryReferenced(savedInv.getId().toString())
+      .permissions(List.of(Permissions.editInventory))
+    .build()));
+
+    String query = """
+      mutation {
+        adjustStock(deltas: [{ productRefId: "%s", delta: 3 }, { productRefId: "%s", delta: 1 }], invId: "%s", accountId: "%s")
+      }
+    """.formatted(p1.getReferenceId().toString(), UUID.randomUUID().toString(), savedInv.getId().toString(), accId);
+
+    graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build()
+      .document(query).execute().errors().satisfy(errors -> assertEquals(1, errors.size()));
+
+    assertEquals(4, productInInvRepository.findById(p1.getId()).get().getStock());
+  }
+
+  @Test
+  void recordStockMovements_coalescesMovementsUntilFlush() {
+    InventoryEntity savedInv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inv")
+      .accountId(UUID.fromString(accId))
+    .build());
+    ProductInInvEntity p1 = productInInvRepository.save(ProductInInvEntity.builder()
+      .referenceId(UUID.randomUUID()).stock(10).isAvailable(true).inventory(savedInv)
+    .build());
+
+    String token = tokenGenerator.generateUserToken(accUsername, accId, List.of(PermissionsForInventoryDTO.builder()
+      .idOfInventoryReferenced(savedInv.getId().toString())
+      .permissions(List.of(Permissions.editInventory))
+    .build()));
+
+    String query = """
+      mutation ($movements: [StockDelta!]!, $invId: ID!, $accountId: ID!) {
+        recordStockMovements(movements: $movements, invId: $invId, accountId: $accountId)
+      }
+    """;
+    for (int i = 0; i < 3; i++) {
+      Map<String, Object> variables = Map.of(
+        "movements", List.of(Map.of("productRefId", p1.getReferenceId().toString(), "delta", -1)),
+        "invId", savedInv.getId().toString(),
+        "accountId", accId
+      );
+      graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build()
+        .document(query).variables(variables).execute().path("recordStockMovements").entity(Boolean.class).isEqualTo(true);
+    }
+
+    stockMovementBuffer.flush();
+    assertEquals(7, productInInvRepository.findById(p1.getId()).get().getStock());
+  }
+
+  @Test
+  void recordStockMovements_denyIfNotHasPerm() {
+    InventoryEntity savedInv = inventoryRepository.save(InventoryEntity.builder()
+      .name("inv")
+      .accountId(UUID.fromString(accId))
+    .build());
+
+    String token = tokenGenerator.generateUserToken(accUsername, accId, null);
+
+    String query = """
+      mutation ($movements: [StockDelta!]!, $invId: ID!, $accountId: ID!) {
+        recordStockMovements(movements: $movements, invId: $invId, accountId: $accountId)
+      }
+    """;
+    Map<String, Object> variables = Map.of(
+      "movements", List.of(Map.of("productRefId", UUID.randomUUID().toString(), "delta", 1)),
+      "invId", savedInv.getId().toString(),
+      "accountId", accId
+    );
+
+    graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build()
+      .document(query).variables(variables).execute().errors().satisfy(errors -> assertEquals(1, errors.size()));
+    assertEquals(0, stockMovementBuffer.getPendingCount());
+  }
+
+  // Persisted queries tests
+  private WebTestClient.BodyContentSpec postGraphQl(String token, String query, String hash) {
+    Map<String, Object> body = new HashMap<>();
+    if (query != null) body.put("query", query);
+    if (hash != null) body.put("extensions", Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash)));
+
+    return webClientBuilder.post().uri(url).headers(generateHeaderWithToken(token)).bodyValue(body).exchange().expectBody();
+  }
+
+  private static String sha256Hex(String text) throws NoSuchAlgorithmException {
+    return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void persistedQuery_isRegisteredOnMissAndThenServedByHash() throws NoSuchAlgorithmException {
+    inventoryRepository.save(InventoryEntity.builder().name("inv1").accountId(UUID.fromString(accId)).build());
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+    String query = "query { getByAccount(accountId: \"%s\") { name } }".formatted(accId);
+    String hash = sha256Hex(query);
+
+    postGraphQl(token, null, hash).jsonPath("$.errors[0].message").isEqualTo("PersistedQueryNotFound");
+    postGraphQl(token, query, hash).jsonPath("$.data.getByAccount[0].name").isEqualTo("inv1");
+    postGraphQl(token, null, hash)
+      .jsonPath("$.errors").doesNotExist()
+      .jsonPath("$.data.getByAccount[0].name").isEqualTo("inv1");
+  }
+
+  @Test
+  void persistedQuery_withHashNotMatchingTheText_isNotRegistered() throws NoSuchAlgorithmException {
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+    String hash = sha256Hex("query { getByAccount(accountId: \"%s\") { id } }".formatted(accId));
+
+    postGraphQl(token, "query { getByAccount(accountId: \"%s\") { name } }".formatted(accId), hash)
+      .jsonPath("$.errors[0].message").isEqualTo("PersistedQueryIdInvalid");
+    postGraphQl(token, null, hash).jsonPath("$.errors[0].message").isEqualTo("PersistedQueryNotFound");
+  }
+
+  @Test
+  void queryWithoutHash_isParsedAndValidatedOnlyOnce() throws NoSuchAlgorithmException {
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+    String query = "query { getByAccount(accountId: \"%s\") { id name } }".formatted(accId);
+    FunctionCounter hits = meterRegistry.get("cache.gets").tags("cache", GraphQlDocumentCache.CACHE_NAME, "result", "hit").functionCounter();
+    double hitsBefore = hits.count();
+
+    postGraphQl(token, query, null).jsonPath("$.errors").doesNotExist();
+    postGraphQl(token, query, null).jsonPath("$.errors").doesNotExist();
+
+    assertEquals(hitsBefore + 1, hits.count());
+    // y queda registrada como consulta persistida
+    postGraphQl(token, null, sha256Hex(query)).jsonPath("$.errors").doesNotExist();
+  }
+
+  // Subscriptions tests
+  private Flux<InventoryChangeDTO> subscribeToChanges(String token, String invId) {
+    WebSocketGraphQlTester tester = WebSocketGraphQlTester.builder("ws://localhost:" + port + "/graphql/ws", new ReactorNettyWebSocketClient())
+      .headers(generateHeaderWithToken(token))
+    .build();
+
+    return tester.document("""
+      subscription {
+        inventoryChanges(invId: "%s", accountId: "%s") { invId type products { refId stockDelta stock } }
+      }
+    """.formatted(invId, accId)).executeSubscription().toFlux("inventoryChanges", InventoryChangeDTO.class);
+  }
+
+  private void awaitSubscribers(int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (changePublisher.getSubscriberCount() != count && System.currentTimeMillis() < deadline) Thread.sleep(20);
+    assertEquals(count, changePublisher.getSubscriberCount());
+  }
+
+  @Test
+  void inventoryChanges_receivesTheStockDeltaAfterTheMutationCommits() throws Exception {
+    InventoryEntity savedInv = inventoryRepository.save(InventoryEntity.builder().name("inv").accountId(UUID.fromString(accId)).build());
+    UUID refId = UUID.randomUUID();
+    productInInvRepository.save(ProductInInvEntity.builder().referenceId(refId).stock(4).isAvailable(true).inventory(savedInv).build());
+    String token = tokenGenerator.generateUserToken(accUsername, accId, List.of(PermissionsForInventoryDTO.builder()
+      .idOfInventoryReferenced(savedInv.getId().toString())
+      .permissions(List.of(Permissions.editInventory))
+    .build()));
+
+    CompletableFuture<InventoryChangeDTO> change = subscribeToChanges(token, savedInv.getId().toString()).next().toFuture();
+    awaitSubscribers(1);
+
+    graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build().document("""
+      mutation {
+        editStockOfProduct(relativeNewStock: -3, productRefId: "%s", invId: "%s", accountId: "%s")
+      }
+    """.formatted(refId, savedInv.getId(), accId)).execute().path("editStockOfProduct").entity(Boolean.class).isEqualTo(true);
+
+    InventoryChangeDTO received = change.get(5, TimeUnit.SECONDS);
+    assertEquals(savedInv.getId().toString(), received.getInvId());
+    assertEquals(InventoryChangeType.stockChanged, received.getType());
+    assertEquals(List.of(ProductChangeDTO.builder().refId(refId.toString()).stockDelta(-3).build()), received.getProducts());
+    awaitSubscribers(0);
+  }
+
+  @Test
+  void inventoryChanges_deniedForInventoriesOfOtherAccounts() {
+    InventoryEntity otherInv = inventoryRepository.save(InventoryEntity.builder().name("inv").accountId(UUID.randomUUID()).build());
+    String token = tokenGenerator.generateAccountToken(accUsername, accId);
+
+    Exception e = assertThrows(Exception.class, () -> subscribeToChanges(token, otherInv.getId().toString()).blockFirst(Duration.ofSeconds(5)));
+    assertTrue(e.getMessage().contains("classification=ResourceNotFound"), e.getMessage());
+    assertEquals(0, changePublisher.getSubscriberCount());
+  }
+
+  @Test
+  void inventoryChanges_deniedWithoutToken() {
+    InventoryEntity savedInv = inventoryRepository.save(InventoryEntity.builder().name("inv").accountId(UUID.fromString(accId)).build());
+
+    WebSocketGraphQlTester tester = WebSocketGraphQlTester.builder("ws://localhost:" + port + "/graphql/ws", new ReactorNettyWebSocketClient()).build();
+    Flux<InventoryChangeDTO> changes = tester.document("""
+      subscription { inventoryChanges(invId: "%s", accountId: "%s") { invId } }
+    """.formatted(savedInv.getId(), accId)).executeSubscription().toFlux("inventoryChanges", InventoryChangeDTO.class);
+
+    Exception e = assertThrows(Exception.class, () -> changes.blockFirst(Duration.ofSeconds(5)));
+    assertTrue(e.getMessage().contains("classification=Forbidden"), e.getMessage());
+  }
+
+  // Summaries tests
+  @Test
+  void getSummariesByAccount_reflectsStockMutations() {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder().name("inv").accountId(UUID.fromString(accId)).build());
+    ProductProjectionEntity projection = productProjectionRepository.save(ProductProjectionEntity.builder()
+      .id(UUID.randomUUID()).accountId(UUID.fromString(accId)).name("product").unitPrice(5)
+    .build());
+    productInInvRepository.save(ProductInInvEntity.builder().referenceId(projection.getId()).stock(4).isAvailable(true).inventory(inv).build());
+    productInInvRepository.save(ProductInInvEntity.builder().referenceId(UUID.randomUUID()).stock(2).isAvailable(true).inventory(inv).build());
+    summaryRepository.rebuildAccount(UUID.fromString(accId));
+
+    String token = tokenGenerator.generateUserToken(accUsername, accId, List.of(PermissionsForInventoryDTO.builder()
+      .idOfInventoryReferenced(inv.getId().toString())
+      .permissions(List.of(Permissions.editInventory))
+    .build()));
+    HttpGraphQlTester tester = graphQlTester.mutate().url(url).headers(generateHeaderWithToken(token)).build();
+
+    tester.document("""
+      mutation ($deltas: [StockDelta!]!, $invId: ID!, $accountId: ID!) {
+        adjustStock(deltas: $deltas, invId: $invId, accountId: $accountId)
+      }
+    """).variables(Map.of(
+      "deltas", List.of(Map.of("productRefId", projection.getId().toString(), "delta", -6)),
+      "invId", inv.getId().toString(),
+      "accountId", accId
+    )).execute().path("adjustStock").entity(Boolean.class).isEqualTo(true);
+
+    // el stock del producto queda en 0: sin unidades, no disponible y sin valor
+    InventorySummaryDTO expected = InventorySummaryDTO.builder()
+      .invId(inv.getId().toString()).skuCount(2).totalUnits(2L).availableCount(1).stockValue(0L)
+    .build();
+    tester.document("""
+      query {
+        getSummariesByAccount(accountId: "%s") { invId skuCount totalUnits availableCount stockValue }
+        getByAccount(accountId: "%s") { summary { invId skuCount totalUnits availableCount stockValue } }
+      }
+    """.formatted(accId, accId)).execute()
+      .path("getSummariesByAccount").entityList(InventorySummaryDTO.class).containsExactly(expected)
+      .path("getByAccount[0].summary").entity(InventorySummaryDTO.class).isEqualTo(expected);
+
+    verifyNoInteractions(restCaller);
+  }
 }
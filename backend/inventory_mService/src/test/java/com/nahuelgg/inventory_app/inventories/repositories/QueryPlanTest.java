@@ -0,0 +1,200 @@
+package com.nahuelgg.inventory_app.inventories.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInInvFilterDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.InventorySagaStepEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventorySagaStepType;
+
+import jakarta.persistence.EntityManager;
+
+// Ejecuta cada consulta de los repositorios sobre datos de varias cuentas y revisa con EXPLAIN que ninguna recorra una tabla
+// entera. Las consultas generadas por Hibernate se registran con un StatementInspector; las de SQL directo se toman de las
+// constantes de los Impl. Los métodos heredados de JpaRepository (por clave primaria) no se revisan.
+// El esquema es el de las migraciones de db/migration (en los tests Hibernate solo lo valida), así que los índices revisados son
+// los que crean esas migraciones
+@DataJpaTest(properties =
+  "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.nahuelgg.inventory_app.inventories.repositories.QueryPlanTest$RecordedStatements"
+)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@ActiveProfiles("test")
+public class QueryPlanTest {
+  public static class RecordedStatements implements StatementInspector {
+    static final Set<String> sqls = Collections.synchronizedSet(new LinkedHashSet<>());
+
+    @Override
+    public String inspect(String sql) {
+      sqls.add(sql);
+      return sql;
+    }
+  }
+
+  // consultas que por definición leen todas las filas, con el motivo
+  private static final Map<String, String> EXPECTED_SCANS = Map.of(
+    "select distinct ie1_0.account_id from inventory ie1_0", "findAllAccountIds lista las cuentas de todos los inventarios"
+  );
+
+  static final int ACCOUNTS = 4, INVENTORIES_PER_ACCOUNT = 5, PRODUCTS_PER_INVENTORY = 40;
+
+  @Autowired EntityManager entityManager;
+  @Autowired InventoryRepository inventoryRepository;
+  @Autowired ProductInInvRepository productInInvRepository;
+  @Autowired ProductProjectionRepository projectionRepository;
+  @Autowired ProductReferenceCountRepository referenceCountRepository;
+  @Autowired InventorySagaStepRepository sagaStepRepository;
+  @Autowired InventorySummaryRepository summaryRepository;
+  @Autowired StockMovementRepository movementRepository;
+
+  UUID accId;
+  InventoryEntity inv;
+  List<UUID> refIds = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    for (int a = 0; a < ACCOUNTS; a++) {
+      UUID accountId = UUID.randomUUID();
+      List<UUID> refIdsOfAccount = new ArrayList<>();
+      for (int r = 0; r < PRODUCTS_PER_INVENTORY * 2; r++) {
+        ProductProjectionEntity projection = projectionRepository.save(ProductProjectionEntity.builder()
+          .id(UUID.randomUUID()).accountId(accountId).name("product" + r).brand("brand" + r % 7)
+          .categoryKeys(Set.of("category" + r % 5))
+        .build());
+        refIdsOfAccount.add(projection.getId());
+      }
+
+      for (int i = 0; i < INVENTORIES_PER_ACCOUNT; i++) {
+        InventoryEntity inventory = inventoryRepository.save(InventoryEntity.builder().name("inv" + i).accountId(accountId).build());
+        List<ProductInInvEntity> products = new ArrayList<>();
+        for (int p = 0; p < PRODUCTS_PER_INVENTORY; p++) {
+          products.add(ProductInInvEntity.builder()
+            .referenceId(refIdsOfAccount.get((i * 7 + p) % refIdsOfAccount.size())).stock(p).isAvailable(p > 0).inventory(inventory)
+          .build());
+        }
+        productInInvRepository.saveAll(products);
+        // movimientos sin compactar de unos pocos productos
+        movementRepository.append(inventory.getId(), products.stream().limit(5).map(
+          p -> new StockDeltaDTO(p.getReferenceId().toString(), -1)
+        ).toList());
+
+        // pasos ya ejecutados se borran, así que solo quedan unos pocos pendientes o fallidos por inventario
+        sagaStepRepository.save(InventorySagaStepEntity.builder()
+          .type(InventorySagaStepType.unassignInventory).inventoryId(inventory.getId()).accountId(accountId).accountUsername("account" + a)
+          .nextAttemptAt(i % 2 == 0 ? null : Instant.now().plusSeconds(60 * i)).createdAt(Instant.now())
+        .build());
+
+        if (inv == null) {
+          accId = accountId;
+          inv = inventory;
+          refIds = products.stream().map(ProductInInvEntity::getReferenceId).limit(3).toList();
+        }
+      }
+      referenceCountRepository.rebuildAccount(accountId);
+      summaryRepository.rebuildAccount(accountId);
+    }
+    entityManager.flush();
+    entityManager.createNativeQuery("analyze").executeUpdate();
+    RecordedStatements.sqls.clear();
+  }
+
+  private String explain(String sql) {
+    return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement("explain " + sql); ResultSet result = statement.executeQuery()) {
+        StringBuilder plan = new StringBuilder();
+        while (result.next()) plan.append(result.getString(1)).append('\n');
+        return plan.toString();
+      }
+    });
+  }
+
+  @Test
+  void repositoryQueries_useIndexes() {
+    inventoryRepository.findByAccountId(accId);
+    inventoryRepository.findViewsByAccountId(accId);
+    inventoryRepository.searchByProductRefId(refIds);
+    inventoryRepository.existsByNameAndAccountId("inv0", accId);
+    inventoryRepository.findAllAccountIds();
+
+    productInInvRepository.findByReferenceIdAndInventoryId(refIds.get(0), inv.getId());
+    productInInvRepository.findByInventory(inv);
+    productInInvRepository.findByInventoryIds(List.of(inv.getId()));
+    productInInvRepository.findByReferenceId(refIds.get(0));
+    productInInvRepository.adjustStock(1, refIds.get(0), inv.getId());
+    productInInvRepository.findReferenceIdsByInventoryId(inv.getId());
+    productInInvRepository.findReferenceIdsByAccountId(accId);
+    productInInvRepository.findBy(
+      ProductInInvRepository.inInventoryMatching(inv.getId(), ProductInInvFilterDTO.builder().minStock(2).isAvailable(true).build()),
+      query -> query.sortBy(Sort.by("id")).limit(10).scroll(ScrollPosition.keyset())
+    );
+
+    projectionRepository.searchInAccount("product", "brand", null, List.of("category1"), accId);
+    projectionRepository.findReferenceIdsWithoutProjection(accId);
+
+    referenceCountRepository.findExclusiveReferenceIds(accId, refIds);
+    referenceCountRepository.findReferenceIdsExclusiveToInventory(accId, inv.getId());
+    referenceCountRepository.addToCountsOfInventory(accId, inv.getId(), 1);
+    referenceCountRepository.rebuildAccount(accId);
+    referenceCountRepository.deleteByAccountIdAndReferenceIds(accId, refIds);
+
+    summaryRepository.findByAccountId(accId);
+    summaryRepository.addProductsToSummary(inv.getId(), refIds, 1);
+    summaryRepository.addToStockValueOfReference(accId, refIds.get(0), 2);
+    summaryRepository.recalculate(inv.getId());
+    summaryRepository.rebuildAccount(accId);
+    summaryRepository.removeReferencesFromSummaries(accId, refIds);
+
+    sagaStepRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(Instant.now(), Limit.of(50));
+    sagaStepRepository.deleteByInventoryIdAndType(inv.getId(), InventorySagaStepType.assignInventory);
+
+    movementRepository.findByOrderByIdAsc(Limit.of(50));
+    movementRepository.deleteByInventoryIdAndReferenceIds(inv.getId(), refIds);
+    movementRepository.deleteByInventoryId(inv.getId());
+    movementRepository.deleteByAccountId(accId);
+
+    productInInvRepository.deleteByReferenceIdsInAccount(refIds, accId);
+    entityManager.flush();
+
+    List<String> sqls = new ArrayList<>(RecordedStatements.sqls);
+    sqls.removeIf(sql -> sql.startsWith("insert into") && !sql.contains("select"));
+    sqls.add(ProductInInvRepositoryImpl.ADJUST_STOCK_SQL);
+    sqls.add(ProductInInvRepositoryImpl.COPY_ALL_SQL.formatted("random_uuid()"));
+    sqls.add(ProductReferenceCountRepositoryImpl.ADD_SQL);
+    sqls.add(ProductReferenceCountRepositoryImpl.DELETE_EMPTY_SQL);
+    sqls.add(InventorySummaryRepositoryImpl.STOCK_DELTA_SQL);
+
+    Map<String, String> scans = new LinkedHashMap<>();
+    for (String sql : sqls) {
+      String plan = explain(sql);
+      if (plan.contains(".tableScan") && !EXPECTED_SCANS.containsKey(sql)) scans.put(sql, plan);
+    }
+    assertTrue(scans.isEmpty(), () -> "Consultas que recorren tablas enteras:\n" + String.join("\n\n", scans.values()));
+  }
+}
@@ -6,9 +6,13 @@ import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,10 +20,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.test.context.ActiveProfiles;
 
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInInvFilterDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
 import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.InventorySummaryEntity;
 import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductReferenceCountEntity;
+import com.nahuelgg.inventory_app.inventories.entities.StockMovementEntity;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
@@ -27,11 +42,25 @@ import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
 public class RepositoriesTest {
   private final InventoryRepository inventoryRepository;
   private final ProductInInvRepository productInInvRepository;
+  private final ProductProjectionRepository projectionRepository;
+  private final ProductReferenceCountRepository referenceCountRepository;
+  private final InventorySummaryRepository summaryRepository;
+  private final StockMovementRepository movementRepository;
+  private final TestEntityManager entityManager;
 
   @Autowired
-  public RepositoriesTest(InventoryRepository iRepository, ProductInInvRepository pRepository) {
+  public RepositoriesTest(
+    InventoryRepository iRepository, ProductInInvRepository pRepository, ProductProjectionRepository prRepository,
+    ProductReferenceCountRepository rcRepository, InventorySummaryRepository sRepository, StockMovementRepository mRepository,
+    TestEntityManager entityManager
+  ) {
     this.inventoryRepository = iRepository;
     this.productInInvRepository = pRepository;
+    this.projectionRepository = prRepository;
+    this.referenceCountRepository = rcRepository;
+    this.summaryRepository = sRepository;
+    this.movementRepository = mRepository;
+    this.entityManager = entityManager;
   }
 
   UUID accId1 = UUID.randomUUID(), accId2 = UUID.randomUUID(), 
@@ -93,7 +122,10 @@ public class RepositoriesTest {
 
   @Test
   void invRepository_searchByProductRefId() {
-    assertIterableEquals(List.of(inv1, inv2, inv3), inventoryRepository.searchByProductRefId(List.of(pRefId1)));
+    // la consulta no ordena: el orden depende del índice que use la base
+    List<InventoryEntity> withRefId1 = inventoryRepository.searchByProductRefId(List.of(pRefId1));
+    assertEquals(3, withRefId1.size());
+    assertEquals(Set.of(inv1, inv2, inv3), Set.copyOf(withRefId1));
     assertIterableEquals(List.of(inv1), inventoryRepository.searchByProductRefId(List.of(pRefId2)));
   }
 
@@ -111,8 +143,392 @@ public class RepositoriesTest {
   }
 
   @Test
-  void productInInvRepository_findByReferenceAndNotRepeatedInOtherInvs() {   
-    assertIterableEquals(List.of(p2.getReferenceId()), productInInvRepository.findReferenceIdsExclusiveToInventory(inv1.getId(), accId1));
-    assertIterableEquals(List.of(), productInInvRepository.findReferenceIdsExclusiveToInventory(inv2.getId(), accId1));
+  void referenceCountRepository_findByReferenceAndNotRepeatedInOtherInvs() {
+    referenceCountRepository.rebuildAccount(accId1);
+    referenceCountRepository.rebuildAccount(accId2);
+
+    assertEquals(2, countOf(accId1, pRefId1));
+    assertEquals(1, countOf(accId2, pRefId1));
+    assertIterableEquals(List.of(p2.getReferenceId()), referenceCountRepository.findReferenceIdsExclusiveToInventory(accId1, inv1.getId()));
+    assertIterableEquals(List.of(), referenceCountRepository.findReferenceIdsExclusiveToInventory(accId1, inv2.getId()));
+    assertIterableEquals(List.of(pRefId2), referenceCountRepository.findExclusiveReferenceIds(accId1, List.of(pRefId1, pRefId2)));
+  }
+
+  @Test
+  void referenceCountRepository_addToCountsInsertsAndDeletesRows() {
+    referenceCountRepository.rebuildAccount(accId1);
+    UUID newRefId = UUID.randomUUID();
+
+    referenceCountRepository.addToCounts(accId1, Map.of(pRefId1, -1, pRefId2, 1, newRefId, 2));
+    assertEquals(1, countOf(accId1, pRefId1));
+    assertEquals(2, countOf(accId1, pRefId2));
+    assertEquals(2, countOf(accId1, newRefId));
+
+    referenceCountRepository.addToCounts(accId1, Map.of(newRefId, -2));
+    assertEquals(null, countOf(accId1, newRefId));
+
+    // addToCountsOfInventory solo cambia las referencias del inventario (pRefId1 y pRefId2 en inv1)
+    referenceCountRepository.addToCountsOfInventory(accId1, inv1.getId(), 1);
+    assertEquals(2, countOf(accId1, pRefId1));
+    assertEquals(3, countOf(accId1, pRefId2));
+  }
+
+  // los contadores se cambian con SQL directo, así que se lee la fila sin pasar por el contexto de persistencia
+  private Integer countOf(UUID accountId, UUID referenceId) {
+    entityManager.clear();
+    return referenceCountRepository.findById(new ProductReferenceCountEntity.Key(accountId, referenceId))
+      .map(ProductReferenceCountEntity::getInventoryCount)
+    .orElse(null);
+  }
+
+  @Test
+  void productInInvRepository_scrollsInventoryProductsByKeyset() {
+    Window<ProductInInvEntity> firstPage = productInInvRepository.findBy(
+      ProductInInvRepository.inInventoryMatching(inv1.getId(), null),
+      query -> query.sortBy(Sort.by("id")).limit(1).scroll(ScrollPosition.keyset())
+    );
+    Window<ProductInInvEntity> secondPage = productInInvRepository.findBy(
+      ProductInInvRepository.inInventoryMatching(inv1.getId(), null),
+      query -> query.sortBy(Sort.by("id")).limit(1).scroll(firstPage.positionAt(0))
+    );
+
+    assertEquals(1, firstPage.size());
+    assertTrue(firstPage.hasNext());
+    assertEquals(1, secondPage.size());
+    assertFalse(secondPage.hasNext());
+    assertEquals(
+      Set.of(p1.getId(), p2.getId()),
+      Set.of(firstPage.getContent().get(0).getId(), secondPage.getContent().get(0).getId())
+    );
+  }
+
+  @Test
+  void productInInvRepository_scrollAppliesFilter() {
+    Window<ProductInInvEntity> page = productInInvRepository.findBy(
+      ProductInInvRepository.inInventoryMatching(inv1.getId(), ProductInInvFilterDTO.builder().minStock(5).isAvailable(true).build()),
+      query -> query.sortBy(Sort.by("id")).limit(10).scroll(ScrollPosition.keyset())
+    );
+
+    assertIterableEquals(List.of(p2), page.getContent());
+    assertFalse(page.hasNext());
+  }
+
+  @Test
+  void productInInvRepository_adjustStockClampsAtZero() {
+    assertEquals(1, productInInvRepository.adjustStock(-10, pRefId1, inv1.getId()));
+    ProductInInvEntity updated = productInInvRepository.findById(p1.getId()).get();
+    assertEquals(0, updated.getStock());
+    assertFalse(updated.getIsAvailable());
+
+    assertEquals(1, productInInvRepository.adjustStock(3, pRefId1, inv1.getId()));
+    updated = productInInvRepository.findById(p1.getId()).get();
+    assertEquals(3, updated.getStock());
+    assertTrue(updated.getIsAvailable());
+
+    assertEquals(0, productInInvRepository.adjustStock(3, pRefId2, inv2.getId()));
+  }
+
+  @Test
+  void productInInvRepository_adjustStockBatch() {
+    int[] updatedRows = productInInvRepository.adjustStockBatch(inv1.getId(), List.of(
+      new StockDeltaDTO(pRefId1.toString(), 2),
+      new StockDeltaDTO(pRefId2.toString(), -6),
+      new StockDeltaDTO(UUID.randomUUID().toString(), 1)
+    ));
+
+    assertEquals(List.of(1, 1, 0), Arrays.stream(updatedRows).boxed().toList());
+    assertEquals(6, productInInvRepository.findById(p1.getId()).get().getStock());
+    assertEquals(0, productInInvRepository.findById(p2.getId()).get().getStock());
+    assertFalse(productInInvRepository.findById(p2.getId()).get().getIsAvailable());
+    // el mismo producto en otro inventario no cambia
+    assertEquals(16, productInInvRepository.findById(p3.getId()).get().getStock());
+  }
+
+  @Test
+  void invRepository_findAllAccountIds() {
+    assertEquals(Set.of(accId1, accId2), Set.copyOf(inventoryRepository.findAllAccountIds()));
+  }
+
+  @Test
+  void productInInvRepository_findReferenceIdsByAccountId() {
+    assertEquals(Set.of(pRefId1, pRefId2), Set.copyOf(productInInvRepository.findReferenceIdsByAccountId(accId1)));
+    assertEquals(List.of(pRefId1), productInInvRepository.findReferenceIdsByAccountId(accId2));
+  }
+
+  @Test
+  void productInInvRepository_deleteByReferenceIdsInAccount() {
+    assertEquals(2, productInInvRepository.deleteByReferenceIdsInAccount(List.of(pRefId1), accId1));
+
+    assertEquals(List.of(pRefId2), productInInvRepository.findReferenceIdsByAccountId(accId1));
+    // la misma referencia en un inventario de otra cuenta no se borra
+    assertEquals(List.of(pRefId1), productInInvRepository.findReferenceIdsByAccountId(accId2));
+  }
+
+  private void saveProjections() {
+    projectionRepository.save(ProductProjectionEntity.builder()
+      .id(pRefId1)
+      .accountId(accId1)
+      .name("Screwdriver")
+      .brand("brandA")
+      .categories(List.of("Tools", "Hand"))
+      .categoryKeys(Set.of("tools", "hand"))
+    .build());
+    projectionRepository.save(ProductProjectionEntity.builder()
+      .id(pRefId2)
+      .accountId(accId1)
+      .name("Hammer")
+      .brand("brandB")
+      .categories(List.of("Tools"))
+      .categoryKeys(Set.of("tools"))
+    .build());
+  }
+
+  @Test
+  void projectionRepository_searchInAccountJoinsInventoryProducts() {
+    saveProjections();
+
+    List<ProductSearchRow> byName = projectionRepository.searchInAccount("screw", null, null, null, accId1);
+    assertEquals(
+      List.of(inv1.getId(), inv2.getId()),
+      byName.stream().map(ProductSearchRow::inventoryId).toList()
+    );
+    assertEquals(List.of(4, 16), byName.stream().map(ProductSearchRow::stock).toList());
+    assertEquals(List.of("Tools", "Hand"), byName.get(0).product().getCategories());
+
+    assertEquals(3, projectionRepository.searchInAccount(null, null, null, List.of("tools", "garden"), accId1).size());
+    assertEquals(2, projectionRepository.searchInAccount(null, null, null, List.of("hand"), accId1).size());
+    List<ProductSearchRow> byBrand = projectionRepository.searchInAccount(null, "brandb", null, null, accId1);
+    assertEquals(1, byBrand.size());
+    assertEquals(inv1.getId(), byBrand.get(0).inventoryId());
+    assertEquals(pRefId2, byBrand.get(0).product().getId());
+
+    // inv3 referencia pRefId1 pero es de otra cuenta que la copia, por lo que no aparece
+    assertEquals(List.of(), projectionRepository.searchInAccount("screw", null, null, null, accId2));
+  }
+
+  @Test
+  void projectionRepository_findReferenceIdsWithoutProjection() {
+    assertEquals(Set.of(pRefId1, pRefId2), Set.copyOf(projectionRepository.findReferenceIdsWithoutProjection(accId1)));
+
+    saveProjections();
+
+    assertEquals(List.of(), projectionRepository.findReferenceIdsWithoutProjection(accId1));
+  }
+
+  @Test
+  void projectionRepository_insertAllWithCategoryKeys() {
+    List<ProductProjectionEntity> projections = List.of(
+      ProductProjectionEntity.builder()
+        .id(pRefId1).accountId(accId1).name("Screwdriver").brand("brandA").unitPrice(10)
+        .categories(List.of("Tools", "Hand")).categoryKeys(Set.of("tools", "hand"))
+      .build(),
+      ProductProjectionEntity.builder().id(pRefId2).accountId(accId1).name("Hammer").brand("brandB").build()
+    );
+
+    assertEquals(2, projectionRepository.insertAll(projections));
+
+    // las filas no pasan por el contexto de persistencia, así que se leen de la base
+    assertFalse(entityManager.getEntityManager().contains(projections.get(0)));
+    ProductProjectionEntity screwdriver = projectionRepository.findById(pRefId1).get();
+    assertEquals(10, screwdriver.getUnitPrice());
+    assertEquals(List.of("Tools", "Hand"), screwdriver.getCategories());
+    assertEquals(Set.of("tools", "hand"), screwdriver.getCategoryKeys());
+    assertTrue(projectionRepository.findById(pRefId2).get().getCategoryKeys().isEmpty());
+    assertEquals(2, projectionRepository.searchInAccount(null, null, null, List.of("hand"), accId1).size());
+  }
+
+  @Test
+  void productInInvRepository_insertAllInBatches() {
+    InventoryEntity inv = inventoryRepository.save(InventoryEntity.builder().name("inventory_C").accountId(accId1).build());
+    List<ProductInInvEntity> products = new ArrayList<>();
+    for (int i = 0; i < ProductInInvRepositoryImpl.INSERT_BATCH_SIZE + 5; i++) {
+      products.add(ProductInInvEntity.builder().referenceId(UUID.randomUUID()).stock(i).isAvailable(i > 0).inventory(inv).build());
+    }
+
+    assertEquals(products.size(), productInInvRepository.insertAll(products));
+
+    assertEquals(
+      Set.copyOf(products.stream().map(ProductInInvEntity::getReferenceId).toList()),
+      Set.copyOf(productInInvRepository.findReferenceIdsByInventoryId(inv.getId()))
+    );
+    ProductInInvEntity first = productInInvRepository.findById(products.get(0).getId()).get();
+    assertEquals(0, first.getStock());
+    assertFalse(first.getIsAvailable());
+  }
+
+  @Test
+  void productInInvRepository_copyAllProducts() {
+    InventoryEntity clone = inventoryRepository.save(InventoryEntity.builder().name("inventory_C").accountId(accId1).build());
+
+    assertEquals(2, productInInvRepository.copyAllProducts(inv1.getId(), clone.getId()));
+
+    assertEquals(Optional.of(4), productInInvRepository.findByReferenceIdAndInventoryId(pRefId1, clone.getId()).map(ProductInInvEntity::getStock));
+    assertEquals(Optional.of(6), productInInvRepository.findByReferenceIdAndInventoryId(pRefId2, clone.getId()).map(ProductInInvEntity::getStock));
+    // el original no cambia y las copias tienen ids nuevas
+    assertEquals(Optional.of(p1), productInInvRepository.findByReferenceIdAndInventoryId(pRefId1, inv1.getId()));
+    assertEquals(6, productInInvRepository.count());
+  }
+
+  @Test
+  void productInInvRepository_copyAllProductsWithPendingMovements() {
+    movementRepository.append(inv1.getId(), List.of(
+      new StockDeltaDTO(pRefId1.toString(), -3),
+      new StockDeltaDTO(pRefId1.toString(), -2),
+      new StockDeltaDTO(pRefId2.toString(), 1)
+    ));
+    movementRepository.append(inv2.getId(), List.of(new StockDeltaDTO(pRefId1.toString(), -10)));
+    InventoryEntity clone = inventoryRepository.save(InventoryEntity.builder().name("inventory_C").accountId(accId1).build());
+
+    assertEquals(2, productInInvRepository.copyAllProducts(inv1.getId(), clone.getId()));
+    entityManager.clear();
+
+    // la copia tiene el stock que se lee del original (con el límite en 0), sin movimientos propios por compactar
+    ProductInInvEntity copy1 = productInInvRepository.findByReferenceIdAndInventoryId(pRefId1, clone.getId()).get();
+    ProductInInvEntity copy2 = productInInvRepository.findByReferenceIdAndInventoryId(pRefId2, clone.getId()).get();
+    assertEquals(List.of(0, false, 0), List.of(copy1.getStock(), copy1.getIsAvailable(), copy1.getPendingStockDelta()));
+    assertEquals(List.of(7, true, 0), List.of(copy2.getStock(), copy2.getIsAvailable(), copy2.getPendingStockDelta()));
+    assertEquals(4, productInInvRepository.findById(p1.getId()).get().getStock());
+  }
+
+  private void savePrices(int priceOfRef1, int priceOfRef2) {
+    projectionRepository.save(ProductProjectionEntity.builder().id(pRefId1).accountId(accId1).name("Screwdriver").unitPrice(priceOfRef1).build());
+    projectionRepository.save(ProductProjectionEntity.builder().id(pRefId2).accountId(accId1).name("Hammer").unitPrice(priceOfRef2).build());
+  }
+
+  // las consultas de los totales no limpian el contexto de persistencia, así que se leen de nuevo desde la base
+  private Set<InventorySummaryEntity> summariesOf(UUID accountId) {
+    entityManager.flush();
+    entityManager.clear();
+    return Set.copyOf(summaryRepository.findByAccountId(accountId));
+  }
+
+  @Test
+  void summaryRepository_rebuildAccountFromProducts() {
+    savePrices(10, 3);
+
+    summaryRepository.rebuildAccount(accId1);
+
+    assertEquals(Set.of(
+      new InventorySummaryEntity(inv1.getId(), accId1, 2, 10L, 2, 4 * 10 + 6 * 3L),
+      new InventorySummaryEntity(inv2.getId(), accId1, 1, 16L, 0, 16 * 10L)
+    ), summariesOf(accId1));
+    // los inventarios de otras cuentas no se recalculan
+    assertEquals(Set.of(), summariesOf(accId2));
+  }
+
+  @Test
+  void summaryRepository_incrementalUpdatesMatchARebuild() {
+    savePrices(10, 3);
+    summaryRepository.rebuildAccount(accId1);
+
+    // stock: se limita en 0 igual que en product_in_inv
+    List<StockDeltaDTO> deltas = List.of(new StockDeltaDTO(pRefId1.toString(), -10), new StockDeltaDTO(pRefId2.toString(), 2));
+    summaryRepository.applyStockDeltas(inv1.getId(), deltas);
+    productInInvRepository.adjustStockBatch(inv1.getId(), deltas);
+    summaryRepository.applyStockDeltas(inv2.getId(), List.of(new StockDeltaDTO(pRefId1.toString(), 1)));
+    productInInvRepository.adjustStock(1, pRefId1, inv2.getId());
+
+    // altas y bajas
+    UUID newRefId = UUID.randomUUID();
+    productInInvRepository.insertAll(List.of(ProductInInvEntity.builder().referenceId(newRefId).stock(5).isAvailable(true).inventory(inv2).build()));
+    summaryRepository.addProductsToSummary(inv2.getId(), List.of(newRefId), 1);
+    summaryRepository.addProductsToSummary(inv1.getId(), List.of(pRefId2), -1);
+    productInInvRepository.deleteAll(productInInvRepository.findByReferenceIdAndInventoryId(pRefId2, inv1.getId()).stream().toList());
+
+    // precio
+    savePrices(12, 3);
+    summaryRepository.addToStockValueOfReference(accId1, pRefId1, 2);
+
+    Set<InventorySummaryEntity> incremental = summariesOf(accId1);
+    assertEquals(new InventorySummaryEntity(inv2.getId(), accId1, 2, 22L, 2, 17 * 12L), incremental.stream()
+      .filter(summary -> summary.getInventoryId().equals(inv2.getId())).findFirst().get());
+
+    summaryRepository.rebuildAccount(accId1);
+    assertEquals(summariesOf(accId1), incremental);
+  }
+
+  @Test
+  void summaryRepository_removeReferencesFromSummariesOfTheAccount() {
+    savePrices(10, 3);
+    summaryRepository.rebuildAccount(accId1);
+    summaryRepository.rebuildAccount(accId2);
+
+    assertEquals(2, summaryRepository.removeReferencesFromSummaries(accId1, List.of(pRefId1)));
+    productInInvRepository.deleteByReferenceIdsInAccount(List.of(pRefId1), accId1);
+
+    assertEquals(Set.of(
+      new InventorySummaryEntity(inv1.getId(), accId1, 1, 6L, 1, 6 * 3L),
+      new InventorySummaryEntity(inv2.getId(), accId1, 0, 0L, 0, 0L)
+    ), summariesOf(accId1));
+    // la misma referencia en un inventario de otra cuenta no cambia
+    assertEquals(Set.of(new InventorySummaryEntity(inv3.getId(), accId2, 1, 8L, 0, 8 * 10L)), summariesOf(accId2));
+  }
+
+  @Test
+  void movementRepository_pendingMovementsAreAddedWhenReadingProducts() {
+    saveProjections();
+    movementRepository.append(inv1.getId(), List.of(
+      new StockDeltaDTO(pRefId1.toString(), -3),
+      new StockDeltaDTO(pRefId1.toString(), -2),
+      new StockDeltaDTO(pRefId2.toString(), 1)
+    ));
+    entityManager.flush();
+    entityManager.clear();
+
+    assertEquals(-5, productInInvRepository.findById(p1.getId()).get().getPendingStockDelta());
+    assertEquals(1, productInInvRepository.findById(p2.getId()).get().getPendingStockDelta());
+    // el mismo producto en otro inventario no tiene movimientos pendientes
+    assertEquals(0, productInInvRepository.findById(p3.getId()).get().getPendingStockDelta());
+    // el stock guardado no cambia hasta compactar los movimientos
+    assertEquals(4, productInInvRepository.findById(p1.getId()).get().getStock());
+
+    List<ProductSearchRow> rows = projectionRepository.searchInAccount("screw", null, null, null, accId1);
+    assertEquals(List.of(-5, 0), rows.stream().map(ProductSearchRow::pendingStockDelta).toList());
+  }
+
+  @Test
+  void productInInvRepository_streamStockOfInventory() {
+    movementRepository.append(inv1.getId(), List.of(new StockDeltaDTO(pRefId2.toString(), -2)));
+    entityManager.flush();
+    entityManager.clear();
+
+    List<ProductStockRow> rows;
+    try (Stream<ProductStockRow> stream = productInInvRepository.streamStockOfInventory(inv1.getId(), 1)) {
+      rows = stream.toList();
+    }
+
+    // con los movimientos pendientes del ledger, y en el mismo orden de id que usa la base
+    Map<UUID, ProductStockRow> expected = Map.of(
+      pRefId1, new ProductStockRow(pRefId1, 4, true, 0),
+      pRefId2, new ProductStockRow(pRefId2, 6, true, -2)
+    );
+    List<UUID> refIdsInIdOrder = productInInvRepository.findAll(Sort.by("id")).stream()
+      .filter(p -> p.getInventory().getId().equals(inv1.getId())).map(ProductInInvEntity::getReferenceId).toList();
+    assertEquals(refIdsInIdOrder.stream().map(expected::get).toList(), rows);
+  }
+
+  @Test
+  void movementRepository_findsTheOldestMovementsInOrder() {
+    movementRepository.append(inv1.getId(), List.of(new StockDeltaDTO(pRefId1.toString(), -1), new StockDeltaDTO(pRefId2.toString(), -2)));
+    movementRepository.append(inv2.getId(), List.of(new StockDeltaDTO(pRefId1.toString(), -3)));
+
+    List<StockMovementEntity> oldest = movementRepository.findByOrderByIdAsc(Limit.of(2));
+    assertEquals(List.of(-1, -2), oldest.stream().map(StockMovementEntity::getDelta).toList());
+    assertEquals(List.of(inv1.getId(), inv1.getId()), oldest.stream().map(StockMovementEntity::getInventoryId).toList());
+    assertTrue(oldest.stream().allMatch(movement -> movement.getCreatedAt() != null));
+  }
+
+  @Test
+  void movementRepository_deletesMovementsOfDeletedProductsAndInventories() {
+    movementRepository.append(inv1.getId(), List.of(new StockDeltaDTO(pRefId1.toString(), -1), new StockDeltaDTO(pRefId2.toString(), -1)));
+    movementRepository.append(inv2.getId(), List.of(new StockDeltaDTO(pRefId1.toString(), -1)));
+    movementRepository.append(inv3.getId(), List.of(new StockDeltaDTO(pRefId1.toString(), -1)));
+
+    assertEquals(1, movementRepository.deleteByInventoryIdAndReferenceIds(inv1.getId(), List.of(pRefId1)));
+    assertEquals(1, movementRepository.deleteByInventoryId(inv2.getId()));
+    assertEquals(1, movementRepository.deleteByAccountId(accId1));
+
+    // solo quedan los del inventario de la otra cuenta
+    assertEquals(List.of(inv3.getId()), movementRepository.findAll().stream().map(StockMovementEntity::getInventoryId).toList());
   }
 }
@@ -1,44 +1,93 @@
 package com.nahuelgg.inventory_app.inventories.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.components.DownstreamCalls;
+import com.nahuelgg.inventory_app.inventories.components.InventoryChangePublisher;
+import com.nahuelgg.inventory_app.inventories.components.InventorySaga;
+import com.nahuelgg.inventory_app.inventories.components.ProductDetailsCache;
+import com.nahuelgg.inventory_app.inventories.components.StockMovementBuffer;
 
 import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ResponseDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductInputDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.ProductToCopyDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaInputs.StockDeltaDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryChangeDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventoryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.InventorySummaryDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductChangeDTO;
 import com.nahuelgg.inventory_app.inventories.dtos.schemaOutputs.ProductInInvDTO;
 import com.nahuelgg.inventory_app.inventories.entities.InventoryEntity;
+import com.nahuelgg.inventory_app.inventories.entities.InventorySummaryEntity;
 import com.nahuelgg.inventory_app.inventories.entities.ProductInInvEntity;
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+import com.nahuelgg.inventory_app.inventories.enums.InventoryChangeType;
+import com.nahuelgg.inventory_app.inventories.exceptions.EmptyFieldException;
+import com.nahuelgg.inventory_app.inventories.exceptions.ResourceNotFoundException;
 import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryView;
 import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductProjectionRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductReferenceCountRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductSearchRow;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductStockRow;
+import com.nahuelgg.inventory_app.inventories.repositories.StockMovementRepository;
+import com.nahuelgg.inventory_app.inventories.services.AuthorizationService;
 import com.nahuelgg.inventory_app.inventories.services.implementations.InventoryService_Impl;
 import com.nahuelgg.inventory_app.inventories.utilities.Mappers;
 
@@ -47,9 +96,23 @@ public class InventoryServiceTest {
   @Mock InventoryRepository inventoryRepository;
   @Mock ProductInInvRepository productInInvRepository;
   @Mock RestTemplate restTemplate;
+  @Mock StockMovementBuffer stockMovementBuffer;
+  @Mock ProductProjectionRepository projectionRepository;
+  @Mock ProductProjectionService productProjectionService;
+  @Mock ProductReferenceCountRepository referenceCountRepository;
+  @Mock InventorySummaryRepository summaryRepository;
+  @Mock StockMovementRepository stockMovementRepository;
+  @Mock InventorySaga inventorySaga;
+  @Mock AuthorizationService authorizationService;
+  @Mock InventoryChangePublisher changePublisher;
+  @Spy DownstreamCalls downstreamCalls = new DownstreamCalls(Runnable::run);
+  @Spy ObjectMapper objectMapper = new ObjectMapper();
+  @Spy ProductDetailsCache productDetailsCache = new ProductDetailsCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
 
   @InjectMocks InventoryService_Impl inventoryService;
 
+  List<List<String>> idsRequestedToProductsMS = new ArrayList<>();
+
   UUID accId = UUID.randomUUID();
 
   InventoryDTO invDTO1;
@@ -62,6 +125,9 @@ public class InventoryServiceTest {
   @BeforeEach
   void setUp() {
     ReflectionTestUtils.setField(inventoryService, "mappers", new Mappers());
+    ReflectionTestUtils.setField(inventoryService, "productsServiceUrl", "http://api-products:8081");
+    ReflectionTestUtils.setField(inventoryService, "batchGetChunkSize", 500);
+    ReflectionTestUtils.setField(inventoryService, "exportChunkSize", 500);
 
     pFromProductsMSDTO1 = ProductFromProductsMSDTO.builder()
       .id(UUID.randomUUID().toString())
@@ -124,15 +190,40 @@ public class InventoryServiceTest {
     pInInvEntity2.setInventory(invEntity1);
   }
 
-  void configRestTemplateToGetProductsFromIds() {
+  // simula /product/batch-get: guarda las ids enviadas en el body y responde en NDJSON los productos conocidos que se pidieron
+  void configRestTemplateToGetProductsFromIds() throws Exception {
     setContextAuth();
-    when(restTemplate.exchange(
-      anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())
-    ).thenReturn(new ResponseEntity<>(ResponseDTO.builder().data(List.of(pFromProductsMSDTO1, pFromProductsMSDTO2)).build(), HttpStatus.OK));
+    when(restTemplate.execute(
+      anyString(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any())
+    ).thenAnswer(invocation -> {
+      MockClientHttpRequest request = new MockClientHttpRequest();
+      invocation.<RequestCallback>getArgument(2).doWithRequest(request);
+      List<String> ids = objectMapper.readValue(request.getBodyAsBytes(), new TypeReference<List<String>>() {});
+      idsRequestedToProductsMS.add(ids);
+
+      StringBuilder ndjson = new StringBuilder();
+      for (ProductFromProductsMSDTO p : List.of(pFromProductsMSDTO1, pFromProductsMSDTO2)) {
+        if (ids.contains(p.getId())) ndjson.append(objectMapper.writeValueAsString(p)).append("\n");
+      }
+      MockClientHttpResponse response = new MockClientHttpResponse(ndjson.toString().getBytes(), HttpStatus.OK);
+      return invocation.<ResponseExtractor<Object>>getArgument(3).extractData(response);
+    });
+  }
+
+  void verifyBatchGetCalls(int times) {
+    ArgumentCaptor<String> url = ArgumentCaptor.forClass(String.class);
+    verify(restTemplate, times(times)).execute(
+      url.capture(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any()
+    );
+    url.getAllValues().forEach(u -> assertEquals("http://api-products:8081/product/batch-get", u));
   }
 
   private void setContextAuth() {
     SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("userInfo", "token"));
+
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Authorization", "Bearer token");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
   }
 
   void testRestRequest(String urlToCheck) {
@@ -142,48 +233,163 @@ public class InventoryServiceTest {
     assertTrue(urlToProductMicroservice.getValue().contains(urlToCheck));
   }
 
+  InventoryView viewOf(InventoryEntity inv) {
+    return new InventoryView() {
+      public UUID getId() { return inv.getId(); }
+      public String getName() { return inv.getName(); }
+      public UUID getAccountId() { return inv.getAccountId(); }
+    };
+  }
+
   @Test 
   void getById_returnsExpectedDTO() {
-    when(inventoryRepository.findById(invEntity1.getId())).thenReturn(Optional.of(invEntity1));
-    configRestTemplateToGetProductsFromIds();
+    when(inventoryRepository.findViewById(invEntity1.getId())).thenReturn(Optional.of(viewOf(invEntity1)));
     
-    assertEquals(invDTO1, inventoryService.getById(invEntity1.getId()));
-    verify(inventoryRepository).findById(invEntity1.getId());
-    
-    testRestRequest("http://api-products:8081/product/ids?list=");
+    assertEquals(invDTO1.toBuilder().products(null).build(), inventoryService.getById(invEntity1.getId()));
+    verify(inventoryRepository).findViewById(invEntity1.getId());
+    verify(inventoryRepository, never()).findById(any());
+    verify(restTemplate, never()).exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    verify(restTemplate, never()).execute(anyString(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any());
   }
 
   @Test 
   void getByAccount_returnsExpectedList() {
-    when(inventoryRepository.findByAccountId(accId)).thenReturn(List.of(invEntity1));
+    when(inventoryRepository.findViewsByAccountId(accId)).thenReturn(List.of(viewOf(invEntity1)));
+
+    assertIterableEquals(List.of(invDTO1.toBuilder().products(null).build()), inventoryService.getByAccount(accId));
+    verify(inventoryRepository).findViewsByAccountId(accId);
+    verify(inventoryRepository, never()).findByAccountId(any());
+    verify(restTemplate, never()).exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    verify(restTemplate, never()).execute(anyString(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any());
+  }
+
+  @Test
+  void getProductsOfInventories_makesOneCallWithDistinctIds() throws Exception {
+    InventoryEntity invEntity2 = InventoryEntity.builder()
+      .id(UUID.randomUUID())
+      .name("inventory2")
+      .accountId(accId)
+    .build();
+    ProductInInvEntity pInInv2Entity1 = pInInvEntity1.toBuilder().id(UUID.randomUUID()).stock(9).inventory(invEntity2).build();
+
+    List<UUID> invIds = List.of(invEntity1.getId(), invEntity2.getId());
+    when(productInInvRepository.findByInventoryIds(invIds)).thenReturn(List.of(pInInvEntity1, pInInvEntity2, pInInv2Entity1));
     configRestTemplateToGetProductsFromIds();
 
-    assertIterableEquals(List.of(invDTO1), inventoryService.getByAccount(accId));
-    verify(inventoryRepository).findByAccountId(accId);
+    Map<String, List<ProductInInvDTO>> result = inventoryService.getProductsOfInventories(invIds);
+
+    assertIterableEquals(List.of(pInInvDTO1, pInInvDTO2), result.get(invEntity1.getId().toString()));
+    assertIterableEquals(
+      List.of(ProductInInvDTO.builder()
+        .refId(pFromProductsMSDTO1.getId())
+        .name(pFromProductsMSDTO1.getName())
+        .brand(pFromProductsMSDTO1.getBrand())
+        .stock(9)
+        .isAvailable(true)
+      .build()),
+      result.get(invEntity2.getId().toString())
+    );
 
-    testRestRequest("http://api-products:8081/product/ids?list=");
+    verifyBatchGetCalls(1);
+    assertEquals(2, idsRequestedToProductsMS.get(0).size());
+    assertEquals(
+      Set.of(pInInvEntity1.getReferenceId().toString(), pInInvEntity2.getReferenceId().toString()),
+      Set.copyOf(idsRequestedToProductsMS.get(0))
+    );
   }
 
   @Test
-  void searchProductsInInventories_callsProductsMicroserviceAndReturnsExpected() {
-    List<UUID> refIdList = List.of(UUID.fromString(pFromProductsMSDTO2.getId()));
+  void getProductsOfInventories_splitsLargeBatchGetInChunks() throws Exception {
+    ReflectionTestUtils.setField(inventoryService, "batchGetChunkSize", 1);
+    when(productInInvRepository.findByInventoryIds(List.of(invEntity1.getId()))).thenReturn(List.of(pInInvEntity1, pInInvEntity2));
+    configRestTemplateToGetProductsFromIds();
 
-    setContextAuth();
-    when(restTemplate.exchange(
-      anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())
-    ).thenReturn(
-      new ResponseEntity<>(ResponseDTO.builder().data(List.of(pFromProductsMSDTO2)).build(), HttpStatus.OK)
-    );
-    when(inventoryRepository.searchByProductRefId(refIdList)).thenReturn(List.of(invEntity1));
+    Map<String, List<ProductInInvDTO>> result = inventoryService.getProductsOfInventories(List.of(invEntity1.getId()));
+
+    assertIterableEquals(List.of(pInInvDTO1, pInInvDTO2), result.get(invEntity1.getId().toString()));
+    verifyBatchGetCalls(2);
+    verify(downstreamCalls).all(any());
+    assertEquals(List.of(List.of(pFromProductsMSDTO1.getId()), List.of(pFromProductsMSDTO2.getId())), idsRequestedToProductsMS);
+  }
+
+  @Test
+  void exportProducts_enrichesTheRowsInFixedSizeChunks() throws Exception {
+    ReflectionTestUtils.setField(inventoryService, "exportChunkSize", 2);
+    UUID deletedRefId = UUID.randomUUID();
+    when(inventoryRepository.findViewById(invEntity1.getId())).thenReturn(Optional.of(viewOf(invEntity1)));
+    when(productInInvRepository.streamStockOfInventory(invEntity1.getId(), 2)).thenReturn(Stream.of(
+      new ProductStockRow(pInInvEntity1.getReferenceId(), pInInvEntity1.getStock(), pInInvEntity1.getIsAvailable(), 0),
+      new ProductStockRow(deletedRefId, 3, true, 0),
+      new ProductStockRow(pInInvEntity2.getReferenceId(), pInInvEntity2.getStock(), pInInvEntity2.getIsAvailable(), 0)
+    ));
+    configRestTemplateToGetProductsFromIds();
+
+    List<ProductInInvDTO> exported = new ArrayList<>();
+    inventoryService.exportProducts(invEntity1.getId(), accId, exported::add);
+
+    // el producto que ya no existe en el servicio de productos se omite
+    assertIterableEquals(List.of(pInInvDTO1, pInInvDTO2), exported);
+    assertEquals(List.of(
+      List.of(pInInvEntity1.getReferenceId().toString(), deletedRefId.toString()),
+      List.of(pInInvEntity2.getReferenceId().toString())
+    ), idsRequestedToProductsMS);
+    // no pasa por el cache de productos
+    verify(productDetailsCache, never()).getAll(any(), any());
+  }
+
+  @Test
+  void exportProducts_throwsIfInventoryIsOfAnotherAccount() {
+    when(inventoryRepository.findViewById(invEntity1.getId())).thenReturn(Optional.of(viewOf(invEntity1)));
+
+    assertThrows(ResourceNotFoundException.class, () -> inventoryService.exportProducts(invEntity1.getId(), UUID.randomUUID(), p -> {}));
+    verify(productInInvRepository, never()).streamStockOfInventory(any(), anyInt());
+  }
+
+  @Test
+  void getProductsOfInventories_usesCacheOnSecondCall() throws Exception {
+    List<UUID> invIds = List.of(invEntity1.getId());
+    when(productInInvRepository.findByInventoryIds(invIds)).thenReturn(List.of(pInInvEntity1, pInInvEntity2));
+    configRestTemplateToGetProductsFromIds();
+
+    Map<String, List<ProductInInvDTO>> firstResult = inventoryService.getProductsOfInventories(invIds);
+    Map<String, List<ProductInInvDTO>> secondResult = inventoryService.getProductsOfInventories(invIds);
+
+    assertEquals(firstResult, secondResult);
+    verifyBatchGetCalls(1);
+  }
+
+  @Test
+  void getProductsOfInventories_refetchesInvalidatedProducts() throws Exception {
+    List<UUID> invIds = List.of(invEntity1.getId());
+    when(productInInvRepository.findByInventoryIds(invIds)).thenReturn(List.of(pInInvEntity1, pInInvEntity2));
+    configRestTemplateToGetProductsFromIds();
+
+    inventoryService.getProductsOfInventories(invIds);
+    productDetailsCache.invalidate(pFromProductsMSDTO2.getId());
+    inventoryService.getProductsOfInventories(invIds);
+
+    verifyBatchGetCalls(2);
+    assertEquals(List.of(pFromProductsMSDTO2.getId()), idsRequestedToProductsMS.get(1));
+  }
+
+  @Test
+  void searchProductsInInventories_readsLocalProjectionAndGroupsByInventory() {
+    ProductProjectionEntity projection = ProductProjectionEntity.builder()
+      .id(UUID.fromString(pFromProductsMSDTO2.getId()))
+      .accountId(accId)
+      .name(pFromProductsMSDTO2.getName())
+      .brand(pFromProductsMSDTO2.getBrand())
+    .build();
+    when(projectionRepository.searchInAccount("product2", null, null, List.of("categ"), accId)).thenReturn(List.of(
+      new ProductSearchRow(invEntity1.getId(), invEntity1.getName(), accId, pInInvEntity2.getStock(), pInInvEntity2.getIsAvailable(), 0, projection)
+    ));
 
     InventoryDTO expected = invDTO1.toBuilder()
       .products(List.of(pInInvDTO2))
     .build();
 
-    assertIterableEquals(List.of(expected), inventoryService.searchProductsInInventories("product2", null, null, null, accId));
-    verify(inventoryRepository).searchByProductRefId(refIdList);
-
-    testRestRequest("http://api-products:8081/product/search");
+    assertIterableEquals(List.of(expected), inventoryService.searchProductsInInventories("Product2", " ", null, List.of("Categ"), accId));
+    verifyNoInteractions(restTemplate);
   }
 
   @Test
@@ -202,23 +408,19 @@ public class InventoryServiceTest {
       .products(List.of())
     .build();
 
-    setContextAuth();
     when(inventoryRepository.existsByNameAndAccountId(name, accId)).thenReturn(false);
-    when(restTemplate.exchange(
-      anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())
-    ).thenReturn(
-      new ResponseEntity<>(
-        HttpStatus.OK
-      )
-    );
     when(inventoryRepository.save(any(InventoryEntity.class))).thenReturn(invSaved);
+    when(authorizationService.getLoggedAccountUsername()).thenReturn("account");
 
     InventoryDTO actual = inventoryService.create(name, accId);
 
     assertEquals(expected, actual);
     verify(inventoryRepository).save(any(InventoryEntity.class));
-
-    testRestRequest("http://api-users:8082/account/add-inventory");
+    verify(summaryRepository).save(InventorySummaryEntity.builder()
+      .inventoryId(invSaved.getId()).accountId(accId).skuCount(0).totalUnits(0L).availableCount(0).stockValue(0L)
+    .build());
+    verify(inventorySaga).inventoryCreated(invSaved, "account");
+    verifyNoInteractions(restTemplate);
   }
 
   @Test
@@ -274,72 +476,332 @@ public class InventoryServiceTest {
 
     assertEquals(expectedSaved, pInInvSaved.getValue());
     testRestRequest("http://api-products:8081/product?invId=" + invEntity1.getId().toString());
+    ArgumentCaptor<ProductFromProductsMSDTO> upserted = ArgumentCaptor.forClass(ProductFromProductsMSDTO.class);
+    verify(productProjectionService).upsert(upserted.capture(), ArgumentMatchers.isNull());
+    assertEquals(productCreatedInMicroservice.getId(), upserted.getValue().getId());
+    assertEquals(accId.toString(), upserted.getValue().getAccountId());
+    verify(referenceCountRepository).addToCounts(accId, Map.of(expectedSaved.getReferenceId(), 1));
   }
 
   @Test
-  void copyProducts_addsProductsToDestinyInv() {
-    List<ProductToCopyDTO> inputList = invEntity1.getProducts().stream().map(
-      pInInvE -> new ProductToCopyDTO(pInInvE.getReferenceId().toString(), 1)
-    ).toList();
+  @SuppressWarnings("unchecked")
+  void addProducts_createsAllInOneCallAndInsertsThemInBatch() {
+    List<ProductInputDTO> productsToCreate = List.of(
+      ProductInputDTO.builder().name("p1").brand("b").unitPrice(10).stock(3).build(),
+      ProductInputDTO.builder().name("p2").brand("b").unitPrice(20).stock(0).build()
+    );
+    List<ProductFromProductsMSDTO> productsCreated = List.of(
+      ProductFromProductsMSDTO.builder().id(UUID.randomUUID().toString()).name("p1").brand("b").unitPrice(10).build(),
+      ProductFromProductsMSDTO.builder().id(UUID.randomUUID().toString()).name("p2").brand("b").unitPrice(20).build()
+    );
+    UUID refId1 = UUID.fromString(productsCreated.get(0).getId()), refId2 = UUID.fromString(productsCreated.get(1).getId());
+
+    when(inventoryRepository.findById(invEntity1.getId())).thenReturn(Optional.of(invEntity1));
+    setContextAuth();
+    ArgumentCaptor<HttpEntity<Object>> request = ArgumentCaptor.forClass(HttpEntity.class);
+    when(restTemplate.exchange(anyString(), any(), request.capture(), ArgumentMatchers.<Class<ResponseDTO>>any())).thenReturn(
+      new ResponseEntity<ResponseDTO>(ResponseDTO.builder().data(productsCreated).build(), HttpStatus.CREATED)
+    );
+
+    List<ProductInInvDTO> added = inventoryService.addProducts(productsToCreate, invEntity1.getId(), accId);
+
+    testRestRequest("http://api-products:8081/product/batch-create?invId=" + invEntity1.getId().toString());
+    List<ProductFromProductsMSDTO> sent = (List<ProductFromProductsMSDTO>) request.getValue().getBody();
+    assertTrue(sent.stream().allMatch(p -> accId.toString().equals(p.getAccountId())));
+
+    ArgumentCaptor<List<ProductInInvEntity>> inserted = ArgumentCaptor.forClass(List.class);
+    verify(productInInvRepository).insertAll(inserted.capture());
+    assertEquals(List.of(refId1, refId2), inserted.getValue().stream().map(ProductInInvEntity::getReferenceId).toList());
+    assertEquals(List.of(true, false), inserted.getValue().stream().map(ProductInInvEntity::getIsAvailable).toList());
+    verify(productInInvRepository, never()).save(any());
+    verify(productProjectionService).addCreated(any());
+    verify(referenceCountRepository).addToCounts(accId, Map.of(refId1, 1, refId2, 1));
+    verify(summaryRepository).addProductsToSummary(invEntity1.getId(), List.of(refId1, refId2), 1);
+    assertEquals(List.of(3, 0), added.stream().map(ProductInInvDTO::getStock).toList());
+  }
+
+  @Test
+  void addProducts_throwsIfInventoryIsOfAnotherAccount() {
+    when(inventoryRepository.findById(invEntity1.getId())).thenReturn(Optional.of(invEntity1));
 
+    assertThrows(ResourceNotFoundException.class, () -> inventoryService.addProducts(
+      List.of(ProductInputDTO.builder().name("p1").brand("b").unitPrice(10).build()), invEntity1.getId(), UUID.randomUUID()
+    ));
+    verifyNoInteractions(restTemplate);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void copyProducts_insertsOnlyProductsNotInDestinyInv() {
     UUID destinyInvId = UUID.randomUUID();
-    InventoryEntity destinyInv = InventoryEntity.builder()
-      .id(destinyInvId)
-      .name("inventory2")
-      .accountId(accId)
-      .products(new ArrayList<>())
-    .build();
+    InventoryEntity destinyInv = InventoryEntity.builder().id(destinyInvId).name("inventory2").accountId(accId).build();
+    UUID newRefId = UUID.randomUUID();
+    List<ProductToCopyDTO> inputList = List.of(
+      new ProductToCopyDTO(pInInvEntity1.getReferenceId().toString(), 1),
+      new ProductToCopyDTO(newRefId.toString(), 0),
+      new ProductToCopyDTO(newRefId.toString(), 3)
+    );
+
+    when(inventoryRepository.existsById(destinyInvId)).thenReturn(true);
+    when(inventoryRepository.getReferenceById(destinyInvId)).thenReturn(destinyInv);
+    when(productInInvRepository.findReferenceIdsByInventoryId(destinyInvId)).thenReturn(List.of(pInInvEntity1.getReferenceId()));
+    ArgumentCaptor<List<ProductInInvEntity>> inserted = ArgumentCaptor.forClass(List.class);
+    when(productInInvRepository.insertAll(inserted.capture())).thenReturn(1);
 
-    List<ProductInInvEntity> expectedSavedList = List.of(
-      pInInvEntity1.toBuilder().id(null).inventory(destinyInv).stock(1).build(),
-      pInInvEntity2.toBuilder().id(null).inventory(destinyInv).stock(1).isAvailable(true).build()
+    assertTrue(inventoryService.copyProducts(inputList, destinyInvId));
+
+    assertIterableEquals(
+      List.of(ProductInInvEntity.builder().referenceId(newRefId).stock(0).isAvailable(false).inventory(destinyInv).build()),
+      inserted.getValue()
     );
+    verify(productInInvRepository, never()).saveAll(any());
+    verify(referenceCountRepository).addToCounts(accId, Map.of(newRefId, 1));
+    verify(changePublisher).publish(InventoryChangeDTO.builder()
+      .invId(destinyInvId.toString())
+      .type(InventoryChangeType.productsAdded)
+      .products(List.of(ProductChangeDTO.builder().refId(newRefId.toString()).stock(0).build()))
+    .build());
+  }
 
-    when(inventoryRepository.findById(destinyInvId)).thenReturn(Optional.of(destinyInv));
-    ArgumentCaptor<List<ProductInInvEntity>> savedList = ArgumentCaptor.forClass(List.class);
-    when(productInInvRepository.saveAll(savedList.capture())).thenReturn(expectedSavedList);
+  @Test
+  void copyProducts_throwsIfDestinyInvNotFound() {
+    UUID destinyInvId = UUID.randomUUID();
+    when(inventoryRepository.existsById(destinyInvId)).thenReturn(false);
+
+    assertThrows(ResourceNotFoundException.class, () -> inventoryService.copyProducts(
+      List.of(new ProductToCopyDTO(UUID.randomUUID().toString(), 1)), destinyInvId
+    ));
+  }
+
+  @Test
+  void cloneInventory_createsInventoryAndCopiesProductsInDatabase() {
+    InventoryView source = viewOf(invEntity1);
+    InventoryEntity cloneSaved = InventoryEntity.builder().id(UUID.randomUUID()).name("clone").accountId(accId).build();
+
+    when(inventoryRepository.findViewById(invEntity1.getId())).thenReturn(Optional.of(source));
+    when(inventoryRepository.existsByNameAndAccountId("clone", accId)).thenReturn(false);
+    when(inventoryRepository.save(any(InventoryEntity.class))).thenReturn(cloneSaved);
+    when(productInInvRepository.copyAllProducts(invEntity1.getId(), cloneSaved.getId())).thenReturn(2);
+
+    InventoryDTO result = inventoryService.cloneInventory(invEntity1.getId(), "clone", accId);
+
+    assertEquals(cloneSaved.getId().toString(), result.getId());
+    verify(productInInvRepository).copyAllProducts(invEntity1.getId(), cloneSaved.getId());
+    verify(referenceCountRepository).addToCountsOfInventory(accId, cloneSaved.getId(), 1);
+    verify(summaryRepository).recalculate(cloneSaved.getId());
+    verify(inventorySaga).inventoryCreated(eq(cloneSaved), any());
+  }
+
+  @Test
+  void cloneInventory_throwsIfSourceIsOfAnotherAccount() {
+    when(inventoryRepository.findViewById(invEntity1.getId())).thenReturn(Optional.of(viewOf(invEntity1)));
+
+    assertThrows(ResourceNotFoundException.class, () -> inventoryService.cloneInventory(invEntity1.getId(), "clone", UUID.randomUUID()));
+    verify(inventoryRepository, never()).save(any());
+  }
+
+  @Test
+  void editStockOfProduct_updatesWithoutReadingTheEntity() {
+    when(productInInvRepository.adjustStock(2, pInInvEntity1.getReferenceId(), invEntity1.getId())).thenReturn(1);
+
+    assertTrue(inventoryService.editStockOfProduct(2, pInInvEntity1.getReferenceId(), invEntity1.getId()));
+
+    verify(productInInvRepository).adjustStock(2, pInInvEntity1.getReferenceId(), invEntity1.getId());
+    verify(productInInvRepository, never()).findByReferenceIdAndInventoryId(any(), any());
+    verify(productInInvRepository, never()).save(any());
+  }
+
+  @Test
+  void editStockOfProduct_publishesTheDeltaToSubscribers() {
+    when(productInInvRepository.adjustStock(-2, pInInvEntity1.getReferenceId(), invEntity1.getId())).thenReturn(1);
+
+    inventoryService.editStockOfProduct(-2, pInInvEntity1.getReferenceId(), invEntity1.getId());
+
+    verify(changePublisher).publish(InventoryChangeDTO.builder()
+      .invId(invEntity1.getId().toString())
+      .type(InventoryChangeType.stockChanged)
+      .products(List.of(ProductChangeDTO.builder().refId(pInInvEntity1.getReferenceId().toString()).stockDelta(-2).build()))
+    .build());
+  }
+
+  @Test
+  void editStockOfProduct_throwsIfProductNotInInventory() {
+    when(productInInvRepository.adjustStock(2, pInInvEntity1.getReferenceId(), invEntity1.getId())).thenReturn(0);
+
+    assertThrows(ResourceNotFoundException.class,
+      () -> inventoryService.editStockOfProduct(2, pInInvEntity1.getReferenceId(), invEntity1.getId()));
+    verify(changePublisher, never()).publish(any());
+  }
+
+  @Test
+  void adjustStock_appliesAllDeltasInOneBatch() {
+    List<StockDeltaDTO> deltas = List.of(
+      new StockDeltaDTO(pInInvEntity1.getReferenceId().toString(), -3),
+      new StockDeltaDTO(pInInvEntity2.getReferenceId().toString(), 5)
+    );
+    when(productInInvRepository.adjustStockBatch(invEntity1.getId(), deltas)).thenReturn(new int[] {1, 1});
+
+    assertTrue(inventoryService.adjustStock(deltas, invEntity1.getId()));
+    verify(productInInvRepository, times(1)).adjustStockBatch(invEntity1.getId(), deltas);
+  }
+
+  @Test
+  void adjustStock_splitsRepeatedProductsIntoOrderedBatches() {
+    String refId1 = pInInvEntity1.getReferenceId().toString(), refId2 = pInInvEntity2.getReferenceId().toString();
+    List<StockDeltaDTO> deltas = List.of(new StockDeltaDTO(refId1, -3), new StockDeltaDTO(refId2, 5), new StockDeltaDTO(refId1, -4));
+    List<StockDeltaDTO> first = List.of(deltas.get(0), deltas.get(1)), second = List.of(deltas.get(2));
+    when(productInInvRepository.adjustStockBatch(invEntity1.getId(), first)).thenReturn(new int[] {1, 1});
+    when(productInInvRepository.adjustStockBatch(invEntity1.getId(), second)).thenReturn(new int[] {1});
+
+    assertTrue(inventoryService.adjustStock(deltas, invEntity1.getId()));
+
+    // cada batch actualiza antes los totales del inventario, sobre el stock que dejó el anterior
+    InOrder order = inOrder(summaryRepository, productInInvRepository);
+    order.verify(summaryRepository).applyStockDeltas(invEntity1.getId(), first);
+    order.verify(productInInvRepository).adjustStockBatch(invEntity1.getId(), first);
+    order.verify(summaryRepository).applyStockDeltas(invEntity1.getId(), second);
+    order.verify(productInInvRepository).adjustStockBatch(invEntity1.getId(), second);
+  }
+
+  @Test
+  void getSummariesByAccount_readsOnlyTheSummaries() {
+    when(summaryRepository.findByAccountId(accId)).thenReturn(List.of(InventorySummaryEntity.builder()
+      .inventoryId(invEntity1.getId()).accountId(accId).skuCount(2).totalUnits(7L).availableCount(1).stockValue(90L)
+    .build()));
+
+    assertEquals(
+      List.of(InventorySummaryDTO.builder().invId(invEntity1.getId().toString()).skuCount(2).totalUnits(7L).availableCount(1).stockValue(90L).build()),
+      inventoryService.getSummariesByAccount(accId)
+    );
+    verifyNoInteractions(productInInvRepository, restTemplate);
+  }
+
+  @Test
+  void adjustStock_throwsWithTheProductsNotInInventory() {
+    String missingRefId = UUID.randomUUID().toString();
+    List<StockDeltaDTO> deltas = List.of(
+      new StockDeltaDTO(pInInvEntity1.getReferenceId().toString(), -3),
+      new StockDeltaDTO(missingRefId, 5)
+    );
+    when(productInInvRepository.adjustStockBatch(invEntity1.getId(), deltas)).thenReturn(new int[] {1, 0});
+
+    ResourceNotFoundException e = assertThrows(ResourceNotFoundException.class,
+      () -> inventoryService.adjustStock(deltas, invEntity1.getId()));
+    assertTrue(e.getMessage().contains(missingRefId));
+  }
+
+  @Test
+  void recordStockMovements_addsAllMovementsToTheBufferAtOnce() {
+    List<StockDeltaDTO> movements = List.of(
+      new StockDeltaDTO(pInInvEntity1.getReferenceId().toString(), -1),
+      new StockDeltaDTO(pInInvEntity1.getReferenceId().toString(), -2)
+    );
 
-    inventoryService.copyProducts(inputList, destinyInvId);
+    assertTrue(inventoryService.recordStockMovements(movements, invEntity1.getId()));
 
-    assertIterableEquals(expectedSavedList, savedList.getValue());
+    verify(stockMovementBuffer).addAll(invEntity1.getId(), Map.of(pInInvEntity1.getReferenceId(), -3));
+    verify(productInInvRepository, never()).adjustStockBatch(any(), any());
+    verifyNoInteractions(stockMovementRepository);
   }
 
   @Test
-  void editStockOfProduct_saveNewEntityWithRightChange() {
-    when(productInInvRepository.findByReferenceIdAndInventoryId(pInInvEntity1.getReferenceId(), invEntity1.getId())).thenReturn(Optional.of(pInInvEntity1));
+  void recordStockMovements_appendsToTheLedgerIfEnabled() {
+    ReflectionTestUtils.setField(inventoryService, "stockLedgerEnabled", true);
+    List<StockDeltaDTO> movements = List.of(
+      new StockDeltaDTO(pInInvEntity1.getReferenceId().toString(), -1),
+      new StockDeltaDTO(pInInvEntity1.getReferenceId().toString(), -2)
+    );
 
-    inventoryService.editStockOfProduct(2, pInInvEntity1.getReferenceId(), invEntity1.getId());
+    assertTrue(inventoryService.recordStockMovements(movements, invEntity1.getId()));
 
-    ArgumentCaptor<ProductInInvEntity> savedProductInInv = ArgumentCaptor.forClass(ProductInInvEntity.class);
-    verify(productInInvRepository, times(1)).save(savedProductInInv.capture());
-    assertEquals(6, savedProductInInv.getValue().getStock());
+    verify(stockMovementRepository).append(invEntity1.getId(), movements);
+    verifyNoInteractions(stockMovementBuffer);
+    verify(productInInvRepository, never()).adjustStockBatch(any(), any());
   }
 
   @Test
-  void delete_makeRightCalls() {
+  void recordStockMovements_addsNothingIfAnyReferenceIsInvalid() {
+    List<StockDeltaDTO> movements = List.of(
+      new StockDeltaDTO(pInInvEntity1.getReferenceId().toString(), -1),
+      new StockDeltaDTO("no-es-un-uuid", -2)
+    );
+
+    assertThrows(IllegalArgumentException.class, () -> inventoryService.recordStockMovements(movements, invEntity1.getId()));
+    verifyNoInteractions(stockMovementBuffer);
+  }
+
+  @Test
+  void recordStockMovements_throwsEmptyField() {
+    List<StockDeltaDTO> movements = List.of(new StockDeltaDTO(pInInvEntity1.getReferenceId().toString(), null));
+
+    assertThrows(EmptyFieldException.class, () -> inventoryService.recordStockMovements(movements, invEntity1.getId()));
+    verifyNoInteractions(stockMovementBuffer);
+  }
+
+  @Test
+  void delete_deletesLocallyAndRecordsRemoteSteps() {
     when(inventoryRepository.findById(invEntity1.getId())).thenReturn(Optional.of(invEntity1));
     when(productInInvRepository.findByInventory(invEntity1)).thenReturn(List.of(pInInvEntity1));
-    when(productInInvRepository.findReferenceIdsExclusiveToInventory(invEntity1.getId(), accId)).thenReturn(List.of(pInInvEntity1.getReferenceId()));
+    when(referenceCountRepository.findReferenceIdsExclusiveToInventory(accId, invEntity1.getId())).thenReturn(List.of(pInInvEntity1.getReferenceId()));
+    when(authorizationService.getLoggedAccountUsername()).thenReturn("account");
 
-    setContextAuth();
-    when(restTemplate.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())).thenReturn(
-      new ResponseEntity<>(
-        ResponseDTO.builder().build(),
-        HttpStatus.OK
-      )
-    );
-    
     inventoryService.delete(invEntity1.getId(), accId);
 
-    ArgumentCaptor<String> usedUrls = ArgumentCaptor.forClass(String.class);
-    verify(restTemplate, times(2)).exchange(usedUrls.capture(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
-    List<String> listOfUrls = usedUrls.getAllValues();
-    assertTrue(listOfUrls.get(0).contains("http://api-users:8082/account/remove-inventory"));
-    assertTrue(listOfUrls.get(1).contains("http://api-products:8081/product/delete-by-ids"));
-    assertTrue(listOfUrls.get(1).contains(pInInvEntity1.getReferenceId().toString()));
-
     verify(inventoryRepository).deleteById(invEntity1.getId());
     verify(productInInvRepository).deleteAll(List.of(pInInvEntity1));
+    verify(summaryRepository).deleteById(invEntity1.getId());
+    verify(stockMovementRepository).deleteByInventoryId(invEntity1.getId());
+    verify(referenceCountRepository).deleteByAccountIdAndReferenceIds(accId, List.of(pInInvEntity1.getReferenceId()));
+    verify(referenceCountRepository).addToCountsOfInventory(accId, invEntity1.getId(), -1);
+    verify(inventorySaga).inventoryDeleted(invEntity1, List.of(pInInvEntity1.getReferenceId()), "account");
+    verifyNoInteractions(restTemplate);
+  }
+
+  @Test
+  void revertCreate_deletesInventoryAndRecordsRemoteSteps() {
+    when(inventoryRepository.findById(invEntity1.getId())).thenReturn(Optional.of(invEntity1));
+    when(productInInvRepository.findByInventory(invEntity1)).thenReturn(List.of());
+    when(referenceCountRepository.findReferenceIdsExclusiveToInventory(accId, invEntity1.getId())).thenReturn(List.of());
+
+    assertTrue(inventoryService.revertCreate(invEntity1.getId(), "account"));
+
+    verify(inventoryRepository).deleteById(invEntity1.getId());
+    verify(referenceCountRepository, never()).deleteByAccountIdAndReferenceIds(any(), any());
+    verify(inventorySaga).inventoryDeleted(invEntity1, List.of(), "account");
+  }
+
+  @Test
+  void revertCreate_doesNothingIfInventoryWasAlreadyDeleted() {
+    when(inventoryRepository.findById(invEntity1.getId())).thenReturn(Optional.empty());
+
+    assertFalse(inventoryService.revertCreate(invEntity1.getId(), "account"));
+
+    verify(inventoryRepository, never()).deleteById(any());
+    verifyNoInteractions(inventorySaga);
+  }
+
+  @Test
+  void deleteProductInInventory_deletesInProductsMSOnlyRequestedExclusiveProducts() {
+    when(inventoryRepository.findById(invEntity1.getId())).thenReturn(Optional.of(invEntity1));
+    when(referenceCountRepository.findExclusiveReferenceIds(accId, List.of(pInInvEntity1.getReferenceId())))
+      .thenReturn(List.of(pInInvEntity1.getReferenceId()));
+
+    setContextAuth();
+    when(restTemplate.exchange(anyString(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any())).thenReturn(
+      new ResponseEntity<>(ResponseDTO.builder().build(), HttpStatus.OK)
+    );
+
+    assertTrue(inventoryService.deleteProductInInventory(List.of(pInInvEntity1.getReferenceId()), invEntity1.getId(), accId));
+
+    ArgumentCaptor<String> usedUrl = ArgumentCaptor.forClass(String.class);
+    verify(restTemplate).exchange(usedUrl.capture(), any(), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    assertTrue(usedUrl.getValue().contains(pInInvEntity1.getReferenceId().toString()));
+    assertFalse(usedUrl.getValue().contains(pInInvEntity2.getReferenceId().toString()));
+    InOrder order = inOrder(stockMovementRepository, summaryRepository, productInInvRepository);
+    order.verify(stockMovementRepository).deleteByInventoryIdAndReferenceIds(invEntity1.getId(), List.of(pInInvEntity1.getReferenceId()));
+    order.verify(summaryRepository).addProductsToSummary(invEntity1.getId(), List.of(pInInvEntity1.getReferenceId()), -1);
+    order.verify(productInInvRepository).deleteAll(List.of(pInInvEntity1));
+    verify(referenceCountRepository).addToCounts(accId, Map.of(pInInvEntity1.getReferenceId(), -1));
   }
 
   @Test
@@ -347,5 +809,8 @@ public class InventoryServiceTest {
     when(inventoryRepository.findByAccountId(accId)).thenReturn(List.of(invEntity1));
     inventoryService.deleteByAccountId(accId);
     verify(inventoryRepository).deleteAll(List.of(invEntity1));
+    verify(referenceCountRepository).deleteByAccountId(accId);
+    verify(summaryRepository).deleteByAccountId(accId);
+    verify(stockMovementRepository).deleteByAccountId(accId);
   }
 }
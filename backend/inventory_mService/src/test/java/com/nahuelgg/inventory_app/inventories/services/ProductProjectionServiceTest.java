@@ -0,0 +1,156 @@
+package com.nahuelgg.inventory_app.inventories.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.nahuelgg.inventory_app.inventories.components.ProductDetailsCache;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductChangeEventDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
+import com.nahuelgg.inventory_app.inventories.entities.ProductProjectionEntity;
+import com.nahuelgg.inventory_app.inventories.exceptions.EmptyFieldException;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductProjectionRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductReferenceCountRepository;
+import com.nahuelgg.inventory_app.inventories.services.implementations.ProductProjectionService_Impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductProjectionServiceTest {
+  @Mock ProductProjectionRepository projectionRepository;
+  @Mock ProductInInvRepository productInInvRepository;
+  @Mock ProductReferenceCountRepository referenceCountRepository;
+  @Mock InventorySummaryRepository summaryRepository;
+  @Spy ProductDetailsCache productDetailsCache = new ProductDetailsCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+  @InjectMocks ProductProjectionService_Impl productProjectionService;
+
+  UUID accId = UUID.randomUUID(), productId = UUID.randomUUID();
+
+  ProductFromProductsMSDTO product = ProductFromProductsMSDTO.builder()
+    .id(productId.toString())
+    .accountId(accId.toString())
+    .name("product")
+    .categories(List.of("Tools", "Hand"))
+  .build();
+
+  @Test
+  void upsert_savesCategoryKeysInLowercaseAndUpdatesCache() {
+    when(projectionRepository.findById(productId)).thenReturn(Optional.empty());
+
+    productProjectionService.upsert(product, 3L);
+
+    ArgumentCaptor<ProductProjectionEntity> saved = ArgumentCaptor.forClass(ProductProjectionEntity.class);
+    verify(projectionRepository).save(saved.capture());
+    assertEquals(List.of("Tools", "Hand"), saved.getValue().getCategories());
+    assertEquals(Set.of("tools", "hand"), saved.getValue().getCategoryKeys());
+    assertEquals(3L, saved.getValue().getVersion());
+    verify(productDetailsCache).put(product);
+  }
+
+  @Test
+  void addCreated_insertsAllWithoutReadingPreviousCopiesOrTouchingSummaries() {
+    ProductFromProductsMSDTO other = ProductFromProductsMSDTO.builder()
+      .id(UUID.randomUUID().toString()).accountId(accId.toString()).name("other").unitPrice(10)
+    .build();
+
+    productProjectionService.addCreated(List.of(product, other));
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<ProductProjectionEntity>> saved = ArgumentCaptor.forClass(List.class);
+    verify(projectionRepository).insertAll(saved.capture());
+    assertEquals(List.of(productId.toString(), other.getId()), saved.getValue().stream().map(p -> p.getId().toString()).toList());
+    assertEquals(Set.of("tools", "hand"), saved.getValue().get(0).getCategoryKeys());
+    verify(projectionRepository, never()).findById(any());
+    verifyNoInteractions(summaryRepository);
+    verify(productDetailsCache).put(other);
+  }
+
+  @Test
+  void upsert_ignoresOlderVersionsAndKeepsVersionIfNull() {
+    ProductProjectionEntity stored = ProductProjectionEntity.builder().id(productId).accountId(accId).name("stored").version(5L).build();
+    when(projectionRepository.findById(productId)).thenReturn(Optional.of(stored));
+
+    productProjectionService.upsert(product, 4L);
+    verify(projectionRepository, never()).save(any());
+
+    productProjectionService.upsert(product, null);
+    ArgumentCaptor<ProductProjectionEntity> saved = ArgumentCaptor.forClass(ProductProjectionEntity.class);
+    verify(projectionRepository).save(saved.capture());
+    assertEquals("product", saved.getValue().getName());
+    assertEquals(5L, saved.getValue().getVersion());
+  }
+
+  @Test
+  void upsert_addsThePriceDifferenceToTheStockValueOfInventories() {
+    ProductProjectionEntity stored = ProductProjectionEntity.builder().id(productId).accountId(accId).unitPrice(10).build();
+    when(projectionRepository.findById(productId)).thenReturn(Optional.of(stored));
+
+    product.setUnitPrice(14);
+    productProjectionService.upsert(product, null);
+    verify(summaryRepository).addToStockValueOfReference(accId, productId, 4L);
+
+    // sin copia anterior el precio sumado a los totales era 0
+    when(projectionRepository.findById(productId)).thenReturn(Optional.empty());
+    productProjectionService.upsert(product, null);
+    verify(summaryRepository).addToStockValueOfReference(accId, productId, 14L);
+  }
+
+  @Test
+  void upsert_samePriceDoesNotTouchSummaries() {
+    ProductProjectionEntity stored = ProductProjectionEntity.builder().id(productId).accountId(accId).unitPrice(10).build();
+    when(projectionRepository.findById(productId)).thenReturn(Optional.of(stored));
+
+    product.setUnitPrice(10);
+    productProjectionService.upsert(product, null);
+
+    verify(summaryRepository, never()).addToStockValueOfReference(any(), any(), anyLong());
+  }
+
+  @Test
+  void applyEvents_deletedRemovesProjectionAndProductsInInventories() {
+    productDetailsCache.put(product);
+
+    productProjectionService.applyEvents(List.of(
+      ProductChangeEventDTO.builder().type(ProductChangeEventDTO.Type.deleted).version(2L).product(product).build()
+    ));
+
+    // los totales se restan antes de borrar la copia, con el precio con el que se sumaron
+    InOrder order = inOrder(summaryRepository, projectionRepository, productInInvRepository);
+    order.verify(summaryRepository).removeReferencesFromSummaries(accId, List.of(productId));
+    order.verify(projectionRepository).deleteById(productId);
+    order.verify(productInInvRepository).deleteByReferenceIdsInAccount(List.of(productId), accId);
+    verify(referenceCountRepository).deleteByAccountIdAndReferenceIds(accId, List.of(productId));
+    verify(productDetailsCache).invalidate(productId.toString());
+  }
+
+  @Test
+  void applyEvents_throwsEmptyField() {
+    assertThrows(EmptyFieldException.class, () -> productProjectionService.applyEvents(List.of(
+      ProductChangeEventDTO.builder().type(ProductChangeEventDTO.Type.upserted).version(1L).build()
+    )));
+  }
+}
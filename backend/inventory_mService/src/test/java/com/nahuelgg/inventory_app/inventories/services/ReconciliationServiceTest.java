@@ -0,0 +1,185 @@
+package com.nahuelgg.inventory_app.inventories.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.inventories.components.ProductDetailsCache;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ProductFromProductsMSDTO;
+import com.nahuelgg.inventory_app.inventories.dtos.responsesFromOtherServices.ResponseDTO;
+import com.nahuelgg.inventory_app.inventories.repositories.InventoryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.InventorySummaryRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductInInvRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductProjectionRepository;
+import com.nahuelgg.inventory_app.inventories.repositories.ProductReferenceCountRepository;
+import com.nahuelgg.inventory_app.inventories.services.implementations.ReconciliationService_Impl;
+import com.nahuelgg.inventory_app.inventories.utilities.ReferenceIdDigest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class ReconciliationServiceTest {
+  static final int BUCKETS = 8;
+
+  @Mock InventoryRepository inventoryRepository;
+  @Mock ProductInInvRepository productInInvRepository;
+  @Mock ProductReferenceCountRepository referenceCountRepository;
+  @Mock InventorySummaryRepository summaryRepository;
+  @Mock ProductProjectionRepository projectionRepository;
+  @Mock ProductProjectionService productProjectionService;
+  @Mock RestTemplate restTemplate;
+  @Mock JwtService jwtService;
+  @Mock PlatformTransactionManager transactionManager;
+  @Spy ObjectMapper objectMapper = new ObjectMapper();
+  @Spy ProductDetailsCache productDetailsCache = new ProductDetailsCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+  @InjectMocks ReconciliationService_Impl reconciliationService;
+
+  UUID accId = UUID.randomUUID();
+  List<UUID> remoteIds = new ArrayList<>();
+
+  @BeforeEach
+  void beforeEach() {
+    ReflectionTestUtils.setField(reconciliationService, "transactionTemplate", new TransactionTemplate(transactionManager));
+    ReflectionTestUtils.setField(reconciliationService, "productsServiceUrl", "http://api-products:8081");
+    ReflectionTestUtils.setField(reconciliationService, "buckets", BUCKETS);
+    ReflectionTestUtils.setField(reconciliationService, "deleteBatchSize", 2);
+
+    for (int i = 0; i < 20; i++) remoteIds.add(UUID.randomUUID());
+    lenient().when(jwtService.generateServiceToken(accId.toString())).thenReturn("token");
+  }
+
+  // simula el servicio de productos respondiendo con el resumen y las ids de remoteIds
+  private void configProductsServiceDigest() {
+    when(restTemplate.exchange(anyString(), any(HttpMethod.class), any(), ArgumentMatchers.<Class<ResponseDTO>>any()))
+      .thenAnswer(invocation -> {
+        String url = invocation.getArgument(0);
+        Object data;
+        if (url.contains("/product/digest/ids")) {
+          List<Integer> selected = List.copyOf(invocation.<HttpEntity<Set<Integer>>>getArgument(2).getBody());
+          data = remoteIds.stream().filter(id -> selected.contains(ReferenceIdDigest.bucketOf(id, BUCKETS))).toList();
+        } else {
+          data = ReferenceIdDigest.digest(remoteIds, BUCKETS);
+        }
+        return new ResponseEntity<>(ResponseDTO.builder().data(objectMapper.convertValue(data, Object.class)).build(), HttpStatus.OK);
+      });
+  }
+
+  @Test
+  void reconcileAccount_doesNotRequestIdsIfDigestsMatch() {
+    when(productInInvRepository.findReferenceIdsByAccountId(accId)).thenReturn(List.copyOf(remoteIds));
+    configProductsServiceDigest();
+
+    assertEquals(0, reconciliationService.reconcileAccount(accId));
+
+    verify(restTemplate, times(1)).exchange(anyString(), any(HttpMethod.class), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    verify(productInInvRepository, never()).deleteByReferenceIdsInAccount(any(), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void reconcileAccount_deletesOrphansInBatches() {
+    List<UUID> orphans = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+    List<UUID> localIds = new ArrayList<>(remoteIds);
+    localIds.addAll(orphans);
+    when(productInInvRepository.findReferenceIdsByAccountId(accId)).thenReturn(localIds);
+    configProductsServiceDigest();
+
+    assertEquals(3, reconciliationService.reconcileAccount(accId));
+
+    ArgumentCaptor<String> urls = ArgumentCaptor.forClass(String.class);
+    verify(restTemplate, times(2)).exchange(urls.capture(), any(HttpMethod.class), any(), ArgumentMatchers.<Class<ResponseDTO>>any());
+    assertEquals("http://api-products:8081/product/digest?accountId=%s&buckets=%d".formatted(accId, BUCKETS), urls.getAllValues().get(0));
+
+    ArgumentCaptor<List<UUID>> deleted = ArgumentCaptor.forClass(List.class);
+    verify(productInInvRepository, times(2)).deleteByReferenceIdsInAccount(deleted.capture(), eq(accId));
+    assertEquals(
+      orphans.stream().sorted().toList(),
+      deleted.getAllValues().stream().flatMap(List::stream).sorted().toList()
+    );
+    verify(referenceCountRepository, times(2)).deleteByAccountIdAndReferenceIds(eq(accId), any());
+    verify(summaryRepository, times(2)).removeReferencesFromSummaries(eq(accId), any());
+  }
+
+  @Test
+  void reconcileAll_continuesWithOtherAccountsIfOneFails() {
+    UUID failingAccId = UUID.randomUUID();
+    when(inventoryRepository.findAllAccountIds()).thenReturn(List.of(failingAccId, accId));
+    when(productInInvRepository.findReferenceIdsByAccountId(failingAccId)).thenThrow(new RuntimeException("error"));
+    when(productInInvRepository.findReferenceIdsByAccountId(accId)).thenReturn(List.of(UUID.randomUUID()));
+    configProductsServiceDigest();
+
+    assertEquals(1, reconciliationService.reconcileAll());
+  }
+
+  @Test
+  void backfillProjections_copiesProductsWithoutProjection() throws Exception {
+    UUID missing1 = UUID.randomUUID(), missing2 = UUID.randomUUID();
+    when(projectionRepository.findReferenceIdsWithoutProjection(accId)).thenReturn(List.of(missing1, missing2));
+
+    // el servicio de productos solo devuelve uno, el otro fue eliminado
+    ProductFromProductsMSDTO product = ProductFromProductsMSDTO.builder().id(missing1.toString()).name("product").build();
+    MockClientHttpRequest request = new MockClientHttpRequest();
+    when(restTemplate.execute(
+      anyString(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any())
+    ).thenAnswer(invocation -> {
+      invocation.<RequestCallback>getArgument(2).doWithRequest(request);
+      return invocation.<ResponseExtractor<Object>>getArgument(3).extractData(
+        new MockClientHttpResponse((objectMapper.writeValueAsString(product) + "\n").getBytes(), HttpStatus.OK)
+      );
+    });
+
+    assertEquals(1, reconciliationService.backfillProjections(accId));
+
+    assertEquals("Bearer token", request.getHeaders().getFirst("Authorization"));
+    assertEquals(List.of(missing1, missing2), List.of(objectMapper.readValue(request.getBodyAsBytes(), UUID[].class)));
+    ArgumentCaptor<ProductFromProductsMSDTO> upserted = ArgumentCaptor.forClass(ProductFromProductsMSDTO.class);
+    verify(productProjectionService).upsert(upserted.capture(), eq(null));
+    assertEquals(missing1.toString(), upserted.getValue().getId());
+    assertEquals(accId.toString(), upserted.getValue().getAccountId());
+  }
+
+  @Test
+  void backfillProjections_doesNotCallProductsServiceIfNothingIsMissing() {
+    when(projectionRepository.findReferenceIdsWithoutProjection(accId)).thenReturn(List.of());
+
+    assertEquals(0, reconciliationService.backfillProjections(accId));
+
+    verify(restTemplate, never()).execute(anyString(), any(HttpMethod.class), any(RequestCallback.class), ArgumentMatchers.<ResponseExtractor<Object>>any());
+  }
+}
@@ -0,0 +1,18 @@
+package com.nahuelgg.inventory_app.products.dtos;
+
+import com.nahuelgg.inventory_app.products.enums.ProductChangeType;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Notificación de un cambio de producto. En las de tipo deleted el producto solo trae id y cuenta.
+// version es la id del registro en el outbox, por lo que crece con cada cambio del mismo producto
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ProductChangeEventDTO {
+  private ProductChangeType type;
+  private Long version;
+  private ProductDTO product;
+}
@@ -3,18 +3,25 @@ package com.nahuelgg.inventory_app.products.entities;
 import java.util.List;
 import java.util.UUID;
 
+import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity(name = "product")
+// todas las búsquedas parten de los productos de una cuenta; las categorías se leen después por product_id.
+// Los índices los crean las migraciones de db/migration
+@Table(indexes = @Index(name = "idx_product_account_id", columnList = "account_id, id"))
 @Data @Builder
 @AllArgsConstructor @NoArgsConstructor
 public class ProductEntity {
@@ -26,7 +33,13 @@ public class ProductEntity {
   private String model;
   private String description;
   private Double unitPrice;
+  // el índice incluye la categoría para filtrar por ella (en minúscula) sin leer las filas de la tabla
   @ElementCollection(fetch = FetchType.EAGER)
+  @CollectionTable(
+    name = "product_categories",
+    joinColumns = @JoinColumn(name = "product_id"),
+    indexes = @Index(name = "idx_product_categories_product_id_categories", columnList = "product_id, categories")
+  )
   private List<String> categories;
   @Column(nullable = false)
   private UUID accountId;
@@ -0,0 +1,45 @@
+package com.nahuelgg.inventory_app.products.entities;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.Length;
+
+import com.nahuelgg.inventory_app.products.enums.ProductChangeType;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Cambio de producto pendiente de publicar, guardado en la misma transacción que el cambio (ver ProductOutbox).
+// La id autoincremental define el orden de publicación
+@Entity(name = "product_outbox")
+@Data @Builder
+@AllArgsConstructor @NoArgsConstructor
+public class ProductOutboxEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private ProductChangeType type;
+  @Column(nullable = false)
+  private UUID productId;
+  @Column(nullable = false)
+  private UUID accountId;
+  // el producto en JSON, tal como se publica. Sin largo, en MySQL sería un tinytext de hasta 255 bytes
+  @Lob
+  @Column(nullable = false, length = Length.LONG32)
+  private String payload;
+  @Column(nullable = false)
+  private Instant createdAt;
+}
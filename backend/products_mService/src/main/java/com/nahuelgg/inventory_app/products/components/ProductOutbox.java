@@ -0,0 +1,64 @@
+package com.nahuelgg.inventory_app.products.components;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.products.dtos.ProductDTO;
+import com.nahuelgg.inventory_app.products.entities.ProductEntity;
+import com.nahuelgg.inventory_app.products.entities.ProductOutboxEntity;
+import com.nahuelgg.inventory_app.products.enums.ProductChangeType;
+import com.nahuelgg.inventory_app.products.repositories.ProductOutboxRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/*
+  Registra los cambios de productos en product_outbox. Solo puede llamarse dentro de la transacción que hace el cambio,
+  así el registro se guarda si y solo si el cambio se confirma. ProductOutboxRelay es quien después los publica
+*/
+@Component
+@RequiredArgsConstructor
+public class ProductOutbox {
+  private final ProductOutboxRepository repository;
+  private final ObjectMapper objectMapper;
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void upserted(ProductDTO product) {
+    repository.save(toRecord(ProductChangeType.upserted, product));
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void upserted(List<ProductDTO> products) {
+    repository.saveAll(products.stream().map(p -> toRecord(ProductChangeType.upserted, p)).toList());
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void deleted(List<ProductEntity> products) {
+    if (products.isEmpty()) return;
+
+    repository.saveAll(products.stream().map(p -> toRecord(
+      ProductChangeType.deleted,
+      ProductDTO.builder().id(p.getId().toString()).accountId(p.getAccountId().toString()).build()
+    )).toList());
+  }
+
+  private ProductOutboxEntity toRecord(ProductChangeType type, ProductDTO product) {
+    try {
+      return ProductOutboxEntity.builder()
+        .type(type)
+        .productId(UUID.fromString(product.getId()))
+        .accountId(UUID.fromString(product.getAccountId()))
+        .payload(objectMapper.writeValueAsString(product))
+        .createdAt(Instant.now())
+      .build();
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("No se pudo serializar el producto " + product.getId(), e);
+    }
+  }
+}
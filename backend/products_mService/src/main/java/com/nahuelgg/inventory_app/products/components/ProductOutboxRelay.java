@@ -0,0 +1,94 @@
+package com.nahuelgg.inventory_app.products.components;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.products.dtos.ProductChangeEventDTO;
+import com.nahuelgg.inventory_app.products.dtos.ProductDTO;
+import com.nahuelgg.inventory_app.products.entities.ProductOutboxEntity;
+import com.nahuelgg.inventory_app.products.repositories.ProductOutboxRepository;
+import com.nahuelgg.inventory_app.products.services.ProductEventTransport;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+  Publica los cambios registrados en product_outbox a través del ProductEventTransport configurado, de a lotes de batch-size
+  y en el orden en que se registraron. Un lote se borra del outbox solo después de publicarse; si la publicación falla se
+  corta y se reintenta desde el mismo lote en la próxima ejecución, así nunca se publica un cambio antes que uno anterior.
+  Un lote puede publicarse más de una vez (si falla el borrado o se corta el proceso), por eso cada notificación lleva como
+  versión la id del registro y quien las recibe debe ignorar las de versión anterior a la ya aplicada
+*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductOutboxRelay {
+  private final ProductOutboxRepository outboxRepository;
+  private final ProductEventTransport transport;
+  private final ObjectMapper objectMapper;
+  // un lock y no synchronized: con hilos virtuales, publicar dentro de un bloque synchronized fija el hilo virtual a su hilo
+  // del sistema mientras espera al transporte
+  private final ReentrantLock relayLock = new ReentrantLock();
+
+  @Value("${products.outbox.relay-enabled:true}")
+  private boolean enabled;
+  @Value("${products.outbox.batch-size:100}")
+  private int batchSize;
+
+  @Scheduled(
+    initialDelayString = "${products.outbox.relay-interval:1s}",
+    fixedDelayString = "${products.outbox.relay-interval:1s}"
+  )
+  public void run() {
+    if (!enabled) return;
+
+    try {
+      relayPending();
+    } catch (RuntimeException e) {
+      log.warn("No se pudieron publicar los cambios de productos pendientes, se reintentará: {}", e.getMessage());
+    }
+  }
+
+  // Publica hasta vaciar el outbox y devuelve la cantidad de cambios publicados
+  public int relayPending() {
+    relayLock.lock();
+    try {
+      return relayBatches();
+    } finally {
+      relayLock.unlock();
+    }
+  }
+
+  private int relayBatches() {
+    int published = 0;
+    while (true) {
+      List<ProductOutboxEntity> batch = outboxRepository.findAllByOrderByIdAsc(Limit.of(batchSize));
+      if (batch.isEmpty()) return published;
+
+      transport.publish(batch.stream().map(this::toEvent).toList());
+      outboxRepository.deleteAllByIdInBatch(batch.stream().map(ProductOutboxEntity::getId).toList());
+      published += batch.size();
+
+      if (batch.size() < batchSize) return published;
+    }
+  }
+
+  private ProductChangeEventDTO toEvent(ProductOutboxEntity record) {
+    try {
+      return ProductChangeEventDTO.builder()
+        .type(record.getType())
+        .version(record.getId())
+        .product(objectMapper.readValue(record.getPayload(), ProductDTO.class))
+      .build();
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("No se pudo leer el cambio de producto " + record.getId() + " del outbox", e);
+    }
+  }
+}
@@ -1,9 +1,13 @@
 package com.nahuelgg.inventory_app.products.controllers;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,10 +19,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nahuelgg.inventory_app.products.dtos.BucketDigestDTO;
 import com.nahuelgg.inventory_app.products.dtos.ProductDTO;
 import com.nahuelgg.inventory_app.products.dtos.ResponseDTO;
 import com.nahuelgg.inventory_app.products.services.ProductService;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -26,6 +35,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ProductController {
   private final ProductService service;
+  private final ObjectMapper objectMapper;
 
   @GetMapping("/ids")
   public ResponseEntity<ResponseDTO<List<ProductDTO>>> getByIds(@RequestParam List<String> list) {
@@ -35,6 +45,51 @@ public class ProductController {
     return new ResponseEntity<>(response, HttpStatus.OK);
   }
 
+  // Igual que /ids pero recibiendo la lista en el body, para no depender del largo máximo de la url.
+  // La respuesta es NDJSON (un producto por línea) escrita a medida que se leen los productos, sin armar la lista completa;
+  // las ids que no correspondan a ningún producto simplemente no aparecen en la respuesta.
+  // El content type se fija a mano y no con 'produces' para que los errores puedan seguir respondiéndose como JSON
+  @PostMapping("/batch-get")
+  public void batchGet(@RequestBody List<String> ids, HttpServletResponse response) throws IOException {
+    List<UUID> uuidList = ids.stream().map(string -> UUID.fromString(string)).toList();
+    ObjectWriter writer = objectMapper.writerFor(ProductDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    response.setStatus(HttpStatus.OK.value());
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    OutputStream out = response.getOutputStream();
+
+    service.streamByIds(uuidList, product -> {
+      try {
+        writer.writeValue(out, product);
+        out.write('\n');
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    out.flush();
+  }
+
+  // Resumen de las ids de productos de la cuenta en 'buckets' rangos de hash (cantidad y suma de hashes por rango), usado por la
+  // reconciliación del servicio de inventario para detectar qué rangos difieren sin transferir todas las ids
+  @GetMapping("/digest")
+  @PreAuthorize("@authorizationService.checkActionIsToLoggedAccount(#accountId)")
+  public ResponseEntity<ResponseDTO<List<BucketDigestDTO>>> digest(@RequestParam String accountId, @RequestParam int buckets) {
+    ResponseDTO<List<BucketDigestDTO>> response = new ResponseDTO<>(200, null, service.digestIdsOfAccount(UUID.fromString(accountId), buckets));
+
+    return new ResponseEntity<>(response, HttpStatus.OK);
+  }
+
+  // Ids de productos de la cuenta que caen en los rangos recibidos en el body (los que no coincidieron en el resumen)
+  @PostMapping("/digest/ids")
+  @PreAuthorize("@authorizationService.checkActionIsToLoggedAccount(#accountId)")
+  public ResponseEntity<ResponseDTO<List<UUID>>> idsInBuckets(
+    @RequestBody List<Integer> selectedBuckets, @RequestParam String accountId, @RequestParam int buckets
+  ) {
+    ResponseDTO<List<UUID>> response = new ResponseDTO<>(200, null, service.getIdsOfAccountInBuckets(UUID.fromString(accountId), buckets, selectedBuckets));
+
+    return new ResponseEntity<>(response, HttpStatus.OK);
+  }
+
   @GetMapping("/search")
   public ResponseEntity<ResponseDTO<List<ProductDTO>>> search(
     @RequestParam(required = false) String brand,
@@ -55,6 +110,18 @@ public class ProductController {
     
     return new ResponseEntity<>(response, HttpStatus.CREATED);
   }
+
+  // Crea todos los productos recibidos en una transacción, usado por la importación de productos del servicio de inventario.
+  // Requiere el mismo permiso que crear uno solo; devuelve los creados en el mismo orden
+  @PostMapping("/batch-create")
+  @PreAuthorize("@authorizationService.checkUserHasPerm('addProducts', #invId) && @authorizationService.checkActionIsToLoggedAccount(#accountId)")
+  public ResponseEntity<ResponseDTO<List<ProductDTO>>> createAll(
+    @RequestBody List<ProductDTO> products, @RequestParam String invId, @RequestParam String accountId
+  ) {
+    ResponseDTO<List<ProductDTO>> response = new ResponseDTO<>(201, null, service.createAll(products));
+
+    return new ResponseEntity<>(response, HttpStatus.CREATED);
+  }
   
   @PutMapping("/edit")
   @PreAuthorize("@authorizationService.checkUserHasPerm('editProductReferences', '') && @authorizationService.checkActionIsToLoggedAccount(#accountId)")
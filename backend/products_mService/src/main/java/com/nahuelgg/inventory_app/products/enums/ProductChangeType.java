@@ -0,0 +1,5 @@
+package com.nahuelgg.inventory_app.products.enums;
+
+public enum ProductChangeType {
+  upserted, deleted
+}
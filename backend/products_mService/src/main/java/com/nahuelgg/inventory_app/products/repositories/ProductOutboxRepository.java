@@ -0,0 +1,15 @@
+package com.nahuelgg.inventory_app.products.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.nahuelgg.inventory_app.products.entities.ProductOutboxEntity;
+
+@Repository
+public interface ProductOutboxRepository extends JpaRepository<ProductOutboxEntity, Long> {
+  // los 'limit' cambios más antiguos pendientes de publicar
+  List<ProductOutboxEntity> findAllByOrderByIdAsc(Limit limit);
+}
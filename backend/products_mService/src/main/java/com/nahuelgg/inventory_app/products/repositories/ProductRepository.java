@@ -1,8 +1,12 @@
 package com.nahuelgg.inventory_app.products.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -27,4 +31,10 @@ public interface ProductRepository extends JpaRepository<ProductEntity, UUID>{
   List<ProductEntity> search(String brand, String name, String model, List<String> categories, UUID accountId);
 
   List<ProductEntity> findByAccountId(UUID accountId);
+
+  @Query("select p.id from product p where p.accountId = ?1")
+  List<UUID> findIdsByAccountId(UUID accountId);
+
+  // ventana de hasta 'limit' productos de las ids dadas, ordenados por id y a continuación de la posición (keyset) recibida
+  Window<ProductEntity> findByIdInOrderByIdAsc(Collection<UUID> ids, ScrollPosition position, Limit limit);
 }
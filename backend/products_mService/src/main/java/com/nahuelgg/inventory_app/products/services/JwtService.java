@@ -2,7 +2,9 @@ package com.nahuelgg.inventory_app.products.services;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
@@ -17,6 +19,7 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -26,6 +29,9 @@ import lombok.RequiredArgsConstructor;
 @Service
 @RequiredArgsConstructor
 public class JwtService {
+  private static final String SERVICE_TOKEN_SUBJECT = "products-service";
+  private static final long SERVICE_TOKEN_EXPIRATION_MS = 1000 * 60;
+
   private final ObjectMapper objectMapper;
 
   @Value("${jwt_key}")
@@ -52,6 +58,25 @@ public class JwtService {
     }
   }
 
+  // Token de corta duración con el que este servicio se autentica ante otros al actuar sobre una cuenta
+  // (por ejemplo al notificar cambios de productos al servicio de inventario). No tiene usuario ni permisos de usuario
+  public String generateServiceToken(String accountId) {
+    Map<String, Object> claims = new HashMap<>();
+    claims.put("accountId", accountId);
+    claims.put("userName", null);
+    claims.put("userRole", null);
+    claims.put("isAdmin", false);
+    claims.put("userPerms", "[]");
+
+    return Jwts.builder()
+      .setClaims(claims)
+      .setSubject(SERVICE_TOKEN_SUBJECT)
+      .setIssuedAt(new Date(System.currentTimeMillis()))
+      .setExpiration(new Date(System.currentTimeMillis() + SERVICE_TOKEN_EXPIRATION_MS))
+      .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+    .compact();
+  }
+
   public JwtClaimsDTO mapTokenClaims(String token) throws Exception {
     Claims claims = getAllClaims(token);
     List<PermissionsForInventoryDTO> convertedPerms = objectMapper.readValue(
@@ -0,0 +1,11 @@
+package com.nahuelgg.inventory_app.products.services;
+
+import java.util.List;
+
+import com.nahuelgg.inventory_app.products.dtos.ProductChangeEventDTO;
+
+// Medio por el que ProductOutboxRelay entrega las notificaciones de cambios de productos. Se elige con products.events.transport.
+// publish recibe las notificaciones en orden y debe lanzar una excepción si no pudo entregarlas todas, así se reintentan
+public interface ProductEventTransport {
+  void publish(List<ProductChangeEventDTO> events);
+}
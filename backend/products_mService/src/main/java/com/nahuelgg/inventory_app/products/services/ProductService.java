@@ -2,13 +2,19 @@ package com.nahuelgg.inventory_app.products.services;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import com.nahuelgg.inventory_app.products.dtos.BucketDigestDTO;
 import com.nahuelgg.inventory_app.products.dtos.ProductDTO;
 
 public interface ProductService {
   public List<ProductDTO> search(String brand, String name, String model, List<String> categoryNames, UUID accountId);
   public List<ProductDTO> getByIds(List<UUID> ids);
+  public void streamByIds(List<UUID> ids, Consumer<ProductDTO> consumer);
+  public List<BucketDigestDTO> digestIdsOfAccount(UUID accountId, int buckets);
+  public List<UUID> getIdsOfAccountInBuckets(UUID accountId, int buckets, List<Integer> selectedBuckets);
   public ProductDTO create(ProductDTO productToCreate);
+  public List<ProductDTO> createAll(List<ProductDTO> productsToCreate);
   public ProductDTO update(ProductDTO updatedProduct);
   public void delete(UUID id);
   public void deleteByAccountId(UUID id);
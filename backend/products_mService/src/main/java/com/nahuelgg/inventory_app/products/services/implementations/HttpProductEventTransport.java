@@ -0,0 +1,59 @@
+package com.nahuelgg.inventory_app.products.services.implementations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import com.nahuelgg.inventory_app.products.dtos.ProductChangeEventDTO;
+import com.nahuelgg.inventory_app.products.services.JwtService;
+import com.nahuelgg.inventory_app.products.services.ProductEventTransport;
+
+/*
+  Entrega las notificaciones al servicio de inventario (POST /product-events). Como ese endpoint solo acepta productos de la
+  cuenta del token, se hace un llamado por cuenta, con un token de servicio de esa cuenta, respetando el orden recibido
+*/
+@Service
+@ConditionalOnProperty(name = "products.events.transport", havingValue = "http", matchIfMissing = true)
+public class HttpProductEventTransport implements ProductEventTransport {
+  private final RestClient restClient;
+  private final JwtService jwtService;
+
+  public HttpProductEventTransport(
+    RestClient.Builder restClientBuilder,
+    JwtService jwtService,
+    @Value("${services.inventories.url:http://api-inventories:8083}") String inventoriesServiceUrl,
+    @Value("${products.events.http.connect-timeout:2s}") Duration connectTimeout,
+    @Value("${products.events.http.read-timeout:10s}") Duration readTimeout
+  ) {
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(connectTimeout);
+    requestFactory.setReadTimeout(readTimeout);
+
+    this.restClient = restClientBuilder.baseUrl(inventoriesServiceUrl).requestFactory(requestFactory).build();
+    this.jwtService = jwtService;
+  }
+
+  @Override
+  public void publish(List<ProductChangeEventDTO> events) {
+    Map<String, List<ProductChangeEventDTO>> byAccount = new LinkedHashMap<>();
+    events.forEach(event -> byAccount.computeIfAbsent(event.getProduct().getAccountId(), id -> new ArrayList<>()).add(event));
+
+    byAccount.forEach((accountId, accountEvents) -> restClient.post()
+      .uri("/product-events")
+      .headers(headers -> headers.setBearerAuth(jwtService.generateServiceToken(accountId)))
+      .contentType(MediaType.APPLICATION_JSON)
+      .body(accountEvents)
+      .retrieve()
+      .toBodilessEntity()
+    );
+  }
+}
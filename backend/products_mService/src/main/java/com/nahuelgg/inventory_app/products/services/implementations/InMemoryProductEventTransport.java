@@ -0,0 +1,30 @@
+package com.nahuelgg.inventory_app.products.services.implementations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.nahuelgg.inventory_app.products.dtos.ProductChangeEventDTO;
+import com.nahuelgg.inventory_app.products.services.ProductEventTransport;
+
+// Guarda en memoria las notificaciones publicadas, para pruebas o para correr el servicio sin el de inventario
+@Service
+@ConditionalOnProperty(name = "products.events.transport", havingValue = "memory")
+public class InMemoryProductEventTransport implements ProductEventTransport {
+  private final List<ProductChangeEventDTO> published = new ArrayList<>();
+
+  @Override
+  public synchronized void publish(List<ProductChangeEventDTO> events) {
+    published.addAll(events);
+  }
+
+  public synchronized List<ProductChangeEventDTO> getPublished() {
+    return List.copyOf(published);
+  }
+
+  public synchronized void clear() {
+    published.clear();
+  }
+}
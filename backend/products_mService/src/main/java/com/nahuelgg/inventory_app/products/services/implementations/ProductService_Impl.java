@@ -4,28 +4,43 @@ import static com.nahuelgg.inventory_app.products.utilities.Validations.checkFie
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.support.WindowIterator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.nahuelgg.inventory_app.products.components.ProductOutbox;
+import com.nahuelgg.inventory_app.products.dtos.BucketDigestDTO;
 import com.nahuelgg.inventory_app.products.dtos.ProductDTO;
 import com.nahuelgg.inventory_app.products.entities.ProductEntity;
 import com.nahuelgg.inventory_app.products.exceptions.ResourceNotFoundException;
 import com.nahuelgg.inventory_app.products.repositories.ProductRepository;
 import com.nahuelgg.inventory_app.products.services.ProductService;
 import com.nahuelgg.inventory_app.products.utilities.Mappers;
+import com.nahuelgg.inventory_app.products.utilities.ReferenceIdDigest;
 import com.nahuelgg.inventory_app.products.utilities.Validations.Field;
 
 import lombok.RequiredArgsConstructor;
 
+// Cada cambio (alta, edición o baja) se registra en el outbox en la misma transacción, ver ProductOutbox y ProductOutboxRelay
 @Service
 @RequiredArgsConstructor
 public class ProductService_Impl implements ProductService {
   private final ProductRepository repository;
+  private final ProductOutbox outbox;
   private final Mappers mappers = new Mappers();
 
+  @Value("${products.batch-get.window-size:200}")
+  private int batchGetWindowSize;
+
   @Override @Transactional(readOnly = true)
   public List<ProductDTO> search(String brand, String name, String model, List<String> categoryNames, UUID accountId) {
     checkFieldsHasContent(new Field("id de cuenta", accountId));
@@ -48,6 +63,41 @@ public class ProductService_Impl implements ProductService {
     return repository.findAllById(ids).stream().map(p -> mappers.mapEntityToDTO(p)).toList();
   }
 
+  // Recorre los productos con un cursor (keyset por id) de a ventanas de batchGetWindowSize, entregando cada uno al consumer
+  // a medida que se leen. No es transaccional a propósito: cada ventana se consulta en su propia transacción de solo lectura,
+  // así las entidades ya entregadas no quedan retenidas en el contexto de persistencia hasta el final del recorrido
+  @Override
+  public void streamByIds(List<UUID> ids, Consumer<ProductDTO> consumer) {
+    checkFieldsHasContent(new Field("lista de Id", ids));
+
+    WindowIterator<ProductEntity> products = WindowIterator.of(
+      position -> repository.findByIdInOrderByIdAsc(ids, position, Limit.of(batchGetWindowSize))
+    ).startingAt(ScrollPosition.keyset());
+
+    while (products.hasNext()) {
+      consumer.accept(mappers.mapEntityToDTO(products.next()));
+    }
+  }
+
+  // Solo se leen las ids (no las entidades) de los productos de la cuenta, para el resumen por rangos de hash
+  @Override @Transactional(readOnly = true)
+  public List<BucketDigestDTO> digestIdsOfAccount(UUID accountId, int buckets) {
+    checkFieldsHasContent(new Field("id de cuenta", accountId));
+
+    return ReferenceIdDigest.digest(repository.findIdsByAccountId(accountId), buckets);
+  }
+
+  @Override @Transactional(readOnly = true)
+  public List<UUID> getIdsOfAccountInBuckets(UUID accountId, int buckets, List<Integer> selectedBuckets) {
+    checkFieldsHasContent(new Field("id de cuenta", accountId), new Field("rangos", selectedBuckets));
+    ReferenceIdDigest.checkBuckets(buckets);
+
+    Set<Integer> selected = new HashSet<>(selectedBuckets);
+    return repository.findIdsByAccountId(accountId).stream().filter(
+      id -> selected.contains(ReferenceIdDigest.bucketOf(id, buckets))
+    ).toList();
+  }
+
   @Override @Transactional
   public ProductDTO create(ProductDTO productToCreate) {
     checkFieldsHasContent(new Field("producto a crear", productToCreate));
@@ -58,7 +108,31 @@ public class ProductService_Impl implements ProductService {
       new Field("cuenta asociada", productToCreate.getAccountId())
     );
 
-    return mappers.mapEntityToDTO(repository.save(mappers.mapDTOToEntity(productToCreate)));
+    ProductDTO created = mappers.mapEntityToDTO(repository.save(mappers.mapDTOToEntity(productToCreate)));
+    outbox.upserted(created);
+    return created;
+  }
+
+  // Igual que create pero para muchos productos en una sola transacción; los INSERTs se envían en batch (hibernate.jdbc.batch_size).
+  // Si falta un dato en cualquiera de ellos no se crea ninguno. Los creados se devuelven en el mismo orden recibido
+  @Override @Transactional
+  public List<ProductDTO> createAll(List<ProductDTO> productsToCreate) {
+    checkFieldsHasContent(new Field("productos a crear", productsToCreate));
+    for (ProductDTO product : productsToCreate) {
+      checkFieldsHasContent(new Field("producto a crear", product));
+      checkFieldsHasContent(
+        new Field("nombre del producto", product.getName()),
+        new Field("precio unitario", product.getUnitPrice()),
+        new Field("marca", product.getBrand()),
+        new Field("cuenta asociada", product.getAccountId())
+      );
+    }
+
+    List<ProductDTO> created = repository.saveAll(
+      productsToCreate.stream().map(p -> mappers.mapDTOToEntity(p)).toList()
+    ).stream().map(p -> mappers.mapEntityToDTO(p)).toList();
+    outbox.upserted(created);
+    return created;
   }
 
   @Override @Transactional
@@ -69,17 +143,20 @@ public class ProductService_Impl implements ProductService {
       () -> new ResourceNotFoundException("producto", "id", updatedProduct.getId().toString())
     );
 
-    return mappers.mapEntityToDTO(repository.save(mappers.mapDTOToEntity(updatedProduct)));
+    ProductDTO updated = mappers.mapEntityToDTO(repository.save(mappers.mapDTOToEntity(updatedProduct)));
+    outbox.upserted(updated);
+    return updated;
   }
 
   @Override @Transactional
   public void delete(UUID id) {
     checkFieldsHasContent(new Field("id", id));
-    repository.findById(id).orElseThrow(
+    ProductEntity product = repository.findById(id).orElseThrow(
       () -> new ResourceNotFoundException("producto", "id", id.toString())
     );
 
     repository.deleteById(id);
+    outbox.deleted(List.of(product));
   }
 
   @Override @Transactional
@@ -87,11 +164,15 @@ public class ProductService_Impl implements ProductService {
     checkFieldsHasContent(new Field("id", id));
     List<ProductEntity> productsToDelete = repository.findByAccountId(id);
     repository.deleteAll(productsToDelete);
+    outbox.deleted(productsToDelete);
   }
 
   @Override @Transactional
   public void deleteByIds(List<UUID> ids) {
     checkFieldsHasContent(new Field("ids", ids));
-    repository.deleteAllById(ids);    
+    // se leen antes de borrar para registrar la cuenta de cada uno; las ids que no existan se ignoran, igual que antes
+    List<ProductEntity> productsToDelete = repository.findAllById(ids);
+    repository.deleteAll(productsToDelete);
+    outbox.deleted(productsToDelete);
   }
 }
@@ -0,0 +1,20 @@
+-- Esquema que generaba Hibernate con ddl-auto=update en la versión anterior a las migraciones. Las bases creadas por esa versión
+-- no lo ejecutan: Flyway las toma como versión 1 (spring.flyway.baseline-on-migrate) y aplica solo las migraciones siguientes.
+-- Los tipos que cambian entre MySQL y la base H2 de los tests son placeholders (spring.flyway.placeholders.*)
+
+create table product (
+  id ${uuid_type} not null,
+  name varchar(255) not null,
+  brand varchar(255),
+  model varchar(255),
+  description varchar(255),
+  unit_price double,
+  account_id ${uuid_type} not null,
+  primary key (id)
+);
+
+create table product_categories (
+  product_id ${uuid_type} not null,
+  categories varchar(255),
+  constraint FKppc5s0f38pgb35a32dlgyhorc foreign key (product_id) references product (id)
+);
@@ -0,0 +1,11 @@
+-- Cambios de productos pendientes de publicar (ver ProductOutboxEntity). El payload es el producto en JSON, sin límite de largo
+-- (longtext en MySQL)
+create table product_outbox (
+  id bigint not null auto_increment,
+  type enum('deleted','upserted') not null,
+  product_id ${uuid_type} not null,
+  account_id ${uuid_type} not null,
+  payload ${clob_type} not null,
+  created_at ${timestamp_type} not null,
+  primary key (id)
+);
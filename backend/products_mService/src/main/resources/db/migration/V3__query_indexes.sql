@@ -0,0 +1,5 @@
+-- Índices de las condiciones más usadas, que sin ellos recorren la tabla entera (ver QueryPlanTest):
+-- productos de una cuenta, y sus categorías por producto. La búsqueda filtra por lower(categories), que no puede usar un índice
+-- por el valor, pero con la categoría en el índice de product_id se resuelve sin leer las filas
+create index idx_product_account_id on product (account_id, id);
+create index idx_product_categories_product_id_categories on product_categories (product_id, categories);
@@ -0,0 +1,91 @@
+package com.nahuelgg.inventory_app.products.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nahuelgg.inventory_app.products.dtos.ProductChangeEventDTO;
+import com.nahuelgg.inventory_app.products.dtos.ProductDTO;
+import com.nahuelgg.inventory_app.products.entities.ProductOutboxEntity;
+import com.nahuelgg.inventory_app.products.enums.ProductChangeType;
+import com.nahuelgg.inventory_app.products.repositories.ProductOutboxRepository;
+import com.nahuelgg.inventory_app.products.services.ProductEventTransport;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductOutboxRelayTest {
+  @Mock ProductOutboxRepository outboxRepository;
+  @Mock ProductEventTransport transport;
+  @Spy ObjectMapper objectMapper = new ObjectMapper();
+
+  @InjectMocks ProductOutboxRelay relay;
+
+  List<ProductOutboxEntity> records = new ArrayList<>();
+
+  @BeforeEach
+  void beforeEach() throws Exception {
+    ReflectionTestUtils.setField(relay, "batchSize", 2);
+
+    UUID accId = UUID.randomUUID();
+    for (long id = 1; id <= 3; id++) {
+      ProductDTO product = ProductDTO.builder().id(UUID.randomUUID().toString()).name("product" + id).accountId(accId.toString()).build();
+      records.add(ProductOutboxEntity.builder()
+        .id(id)
+        .type(ProductChangeType.upserted)
+        .productId(UUID.fromString(product.getId()))
+        .accountId(accId)
+        .payload(objectMapper.writeValueAsString(product))
+        .createdAt(Instant.now())
+      .build());
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void relayPending_publishesInOrderAndInBatches() {
+    when(outboxRepository.findAllByOrderByIdAsc(any(Limit.class))).thenReturn(records.subList(0, 2), records.subList(2, 3));
+
+    assertEquals(3, relay.relayPending());
+
+    ArgumentCaptor<List<ProductChangeEventDTO>> published = ArgumentCaptor.forClass(List.class);
+    verify(transport, times(2)).publish(published.capture());
+    assertEquals(
+      List.of(1L, 2L, 3L),
+      published.getAllValues().stream().flatMap(List::stream).map(ProductChangeEventDTO::getVersion).toList()
+    );
+    assertEquals("product1", published.getAllValues().get(0).get(0).getProduct().getName());
+    verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+    verify(outboxRepository).deleteAllByIdInBatch(List.of(3L));
+  }
+
+  @Test
+  void relayPending_keepsTheBatchIfPublishingFails() {
+    when(outboxRepository.findAllByOrderByIdAsc(any(Limit.class))).thenReturn(records.subList(0, 2));
+    doThrow(new RuntimeException("inventario no disponible")).when(transport).publish(any());
+
+    assertThrows(RuntimeException.class, () -> relay.relayPending());
+
+    verify(outboxRepository, never()).deleteAllByIdInBatch(any());
+  }
+}
@@ -7,7 +7,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,19 +21,29 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nahuelgg.inventory_app.products.dtos.JwtClaimsDTO.PermissionsForInventoryDTO;
+import com.nahuelgg.inventory_app.products.components.ProductOutboxRelay;
 import com.nahuelgg.inventory_app.products.components.TokenGenerator;
+import com.nahuelgg.inventory_app.products.dtos.BucketDigestDTO;
+import com.nahuelgg.inventory_app.products.dtos.ProductChangeEventDTO;
 import com.nahuelgg.inventory_app.products.dtos.ProductDTO;
 import com.nahuelgg.inventory_app.products.dtos.ResponseDTO;
 import com.nahuelgg.inventory_app.products.entities.ProductEntity;
+import com.nahuelgg.inventory_app.products.entities.ProductOutboxEntity;
 import com.nahuelgg.inventory_app.products.enums.Permissions;
+import com.nahuelgg.inventory_app.products.enums.ProductChangeType;
+import com.nahuelgg.inventory_app.products.repositories.ProductOutboxRepository;
 import com.nahuelgg.inventory_app.products.repositories.ProductRepository;
+import com.nahuelgg.inventory_app.products.services.implementations.InMemoryProductEventTransport;
 import com.nahuelgg.inventory_app.products.utilities.Mappers;
+import com.nahuelgg.inventory_app.products.utilities.ReferenceIdDigest;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -39,6 +51,10 @@ public class ProductControllerTest {
   @Autowired TestRestTemplate restTemplate;
   @Autowired TokenGenerator tokenGenerator;
   @Autowired ProductRepository productRepository;
+  @Autowired ObjectMapper objectMapper;
+  @Autowired ProductOutboxRepository outboxRepository;
+  @Autowired ProductOutboxRelay outboxRelay;
+  @Autowired InMemoryProductEventTransport eventTransport;
   
   Mappers mappers = new Mappers();
   
@@ -94,6 +110,80 @@ public class ProductControllerTest {
     );
   }
 
+  @Test
+  @DirtiesContext
+  void digest_summarizesIdsAndListsThoseOfRequestedBuckets() {
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      ids.add(productRepository.save(ProductEntity.builder()
+        .name("product" + i)
+        .accountId(accId)
+        .unitPrice(10.0)
+      .build()).getId());
+    }
+    productRepository.save(ProductEntity.builder().name("otherAccount").accountId(UUID.randomUUID()).unitPrice(1.0).build());
+
+    String token = tokenGenerator.generateAccountToken(accUsername, accId.toString());
+    ResponseEntity<ResponseDTO<List<BucketDigestDTO>>> digest = restTemplate.exchange(
+      "/product/digest?accountId=" + accId + "&buckets=8", HttpMethod.GET, new HttpEntity<>(generateHeaderWithToken(token)),
+      new ParameterizedTypeReference<ResponseDTO<List<BucketDigestDTO>>>() {}
+    );
+    assertEquals(HttpStatusCode.valueOf(200), digest.getStatusCode());
+    assertEquals(ReferenceIdDigest.digest(ids, 8), digest.getBody().getData());
+
+    int bucket = ReferenceIdDigest.bucketOf(ids.get(0), 8);
+    ResponseEntity<ResponseDTO<List<UUID>>> idsInBucket = restTemplate.exchange(
+      "/product/digest/ids?accountId=" + accId + "&buckets=8", HttpMethod.POST, new HttpEntity<>(List.of(bucket), generateHeaderWithToken(token)),
+      new ParameterizedTypeReference<ResponseDTO<List<UUID>>>() {}
+    );
+    assertEquals(HttpStatusCode.valueOf(200), idsInBucket.getStatusCode());
+    assertEquals(
+      ids.stream().filter(id -> ReferenceIdDigest.bucketOf(id, 8) == bucket).sorted().toList(),
+      idsInBucket.getBody().getData().stream().sorted().toList()
+    );
+  }
+
+  @Test
+  @DirtiesContext
+  void digest_deniedToOtherAccount() {
+    String token = tokenGenerator.generateAccountToken(accUsername, UUID.randomUUID().toString());
+    ResponseEntity<String> response = restTemplate.exchange(
+      "/product/digest?accountId=" + accId + "&buckets=8", HttpMethod.GET, new HttpEntity<>(generateHeaderWithToken(token)), String.class
+    );
+    assertEquals(HttpStatusCode.valueOf(403), response.getStatusCode());
+  }
+
+  @Test
+  @DirtiesContext
+  void batchGet_streamsFoundProductsAsNdjson() throws Exception {
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      ids.add(productRepository.save(ProductEntity.builder()
+        .name("product" + i)
+        .accountId(accId)
+        .unitPrice(10.0)
+      .build()).getId().toString());
+    }
+    ids.add(UUID.randomUUID().toString());
+
+    String token = tokenGenerator.generateAccountToken(accUsername, accId.toString());
+    HttpHeaders headers = generateHeaderWithToken(token);
+    headers.setContentType(MediaType.APPLICATION_JSON);
+
+    ResponseEntity<String> response = restTemplate.exchange(
+      "/product/batch-get", HttpMethod.POST, new HttpEntity<>(ids, headers), String.class
+    );
+    assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode());
+    assertTrue(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_NDJSON));
+
+    List<String> lines = response.getBody().lines().toList();
+    assertEquals(5, lines.size());
+    for (String line : lines) {
+      ProductDTO product = objectMapper.readValue(line, ProductDTO.class);
+      assertTrue(ids.subList(0, 5).contains(product.getId()));
+    }
+  }
+
   @Test
   @DirtiesContext
   void search() {
@@ -196,6 +286,52 @@ public class ProductControllerTest {
     assertTrue(productRepository.findAll().isEmpty());
   }
 
+  @Test
+  @DirtiesContext
+  void createAll_successWithRightPerm() {
+    List<ProductDTO> input = List.of(
+      ProductDTO.builder().name("Celular").brand("marca 1").accountId(accId.toString()).unitPrice(1.0).categories(List.of("a", "b")).build(),
+      ProductDTO.builder().name("Cargador").brand("marca 2").accountId(accId.toString()).unitPrice(2.0).build()
+    );
+
+    String token = tokenGenerator.generateUserToken(accUsername, accId.toString(), List.of(PermissionsForInventoryDTO.builder()
+      .idOfInventoryReferenced(invId)
+      .permissions(List.of(Permissions.addProducts))
+    .build()));
+
+    HttpEntity<List<ProductDTO>> request = new HttpEntity<>(input, generateHeaderWithToken(token));
+    ResponseEntity<ResponseDTO<List<ProductDTO>>> response = restTemplate.exchange(
+      "/product/batch-create?invId=" + invId + "&accountId=" + accId.toString(), HttpMethod.POST, request,
+      new ParameterizedTypeReference<ResponseDTO<List<ProductDTO>>>() {}
+    );
+    assertEquals(HttpStatusCode.valueOf(201), response.getStatusCode());
+
+    List<ProductDTO> created = response.getBody().getData();
+    assertEquals(List.of("Celular", "Cargador"), created.stream().map(ProductDTO::getName).toList());
+    List<UUID> createdIds = created.stream().map(p -> UUID.fromString(p.getId())).toList();
+    assertEquals(2, productRepository.findAllById(createdIds).size());
+    // un registro de cambio por producto, para notificar al servicio de inventario
+    assertEquals(Set.copyOf(createdIds), outboxRepository.findAll().stream()
+      .map(ProductOutboxEntity::getProductId).filter(createdIds::contains).collect(Collectors.toSet()));
+  }
+
+  @Test
+  void createAll_denied() {
+    String token = tokenGenerator.generateUserToken(accUsername, accId.toString(), List.of(PermissionsForInventoryDTO.builder()
+      .idOfInventoryReferenced(invId)
+      .permissions(List.of(Permissions.editInventory))
+    .build()));
+
+    ProductDTO input = ProductDTO.builder().name("Denegado").brand("marca").accountId(accId.toString()).unitPrice(1.0).build();
+    HttpEntity<List<ProductDTO>> request = new HttpEntity<>(List.of(input), generateHeaderWithToken(token));
+    ResponseEntity<ResponseDTO<Object>> response = restTemplate.exchange(
+      "/product/batch-create?invId=" + invId + "&accountId=" + accId.toString(), HttpMethod.POST, request,
+      new ParameterizedTypeReference<ResponseDTO<Object>>() {}
+    );
+    assertEquals(HttpStatusCode.valueOf(403), response.getStatusCode());
+    assertTrue(productRepository.findAll().stream().noneMatch(p -> "Denegado".equals(p.getName())));
+  }
+
   @Test
   @DirtiesContext
   void update_successWithRightPerm() {
@@ -337,6 +473,37 @@ public class ProductControllerTest {
     assertTrue(productRepository.findById(productToDelete.getId()).isEmpty());
   }
 
+  @Test
+  @DirtiesContext
+  void outbox_publishesChangesInOrderOfCommit() {
+    String token = tokenGenerator.generateUserToken(accUsername, accId.toString(), List.of(PermissionsForInventoryDTO.builder()
+      .idOfInventoryReferenced(invId)
+      .permissions(List.of(Permissions.addProducts, Permissions.deleteProductReferences))
+    .build()));
+
+    ProductDTO input = ProductDTO.builder().name("Celular").brand("marca 1").accountId(accId.toString()).unitPrice(1.0).build();
+    ResponseEntity<ResponseDTO<ProductDTO>> created = restTemplate.exchange(
+      "/product?invId=" + invId + "&accountId=" + accId.toString(), HttpMethod.POST, new HttpEntity<>(input, generateHeaderWithToken(token)),
+      new ParameterizedTypeReference<ResponseDTO<ProductDTO>>() {}
+    );
+    String createdId = created.getBody().getData().getId();
+    restTemplate.exchange(
+      "/product/delete?id=" + createdId + "&accountId=" + accId.toString(), HttpMethod.DELETE, new HttpEntity<>(generateHeaderWithToken(token)),
+      new ParameterizedTypeReference<ResponseDTO<String>>() {}
+    );
+    assertEquals(2, outboxRepository.count());
+
+    assertEquals(2, outboxRelay.relayPending());
+
+    List<ProductChangeEventDTO> published = eventTransport.getPublished();
+    assertEquals(List.of(ProductChangeType.upserted, ProductChangeType.deleted), published.stream().map(ProductChangeEventDTO::getType).toList());
+    assertTrue(published.get(0).getVersion() < published.get(1).getVersion());
+    assertEquals("Celular", published.get(0).getProduct().getName());
+    assertEquals(createdId, published.get(1).getProduct().getId());
+    assertEquals(accId.toString(), published.get(1).getProduct().getAccountId());
+    assertEquals(0, outboxRepository.count());
+  }
+
   @Test
   void delete_deniedIfWrongPerm() {
     String token = tokenGenerator.generateUserToken(accUsername, accId.toString(), List.of(
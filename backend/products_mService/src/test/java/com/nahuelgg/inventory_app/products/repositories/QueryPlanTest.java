@@ -0,0 +1,120 @@
+package com.nahuelgg.inventory_app.products.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.nahuelgg.inventory_app.products.entities.ProductEntity;
+import com.nahuelgg.inventory_app.products.entities.ProductOutboxEntity;
+import com.nahuelgg.inventory_app.products.enums.ProductChangeType;
+
+import jakarta.persistence.EntityManager;
+
+// Ejecuta cada consulta de los repositorios sobre productos de varias cuentas y revisa con EXPLAIN que ninguna recorra una tabla
+// entera. Las consultas generadas por Hibernate se registran con un StatementInspector. Los métodos heredados de JpaRepository
+// (por clave primaria) no se revisan.
+// El esquema es el de las migraciones de db/migration (en los tests Hibernate solo lo valida), así que los índices revisados son
+// los que crean esas migraciones
+@DataJpaTest(properties =
+  "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.nahuelgg.inventory_app.products.repositories.QueryPlanTest$RecordedStatements"
+)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@ActiveProfiles("test")
+public class QueryPlanTest {
+  public static class RecordedStatements implements StatementInspector {
+    static final Set<String> sqls = Collections.synchronizedSet(new LinkedHashSet<>());
+
+    @Override
+    public String inspect(String sql) {
+      sqls.add(sql);
+      return sql;
+    }
+  }
+
+  static final int ACCOUNTS = 5, PRODUCTS_PER_ACCOUNT = 100;
+
+  @Autowired EntityManager entityManager;
+  @Autowired ProductRepository productRepository;
+  @Autowired ProductOutboxRepository outboxRepository;
+
+  UUID accId;
+  List<UUID> ids = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    for (int a = 0; a < ACCOUNTS; a++) {
+      UUID accountId = UUID.randomUUID();
+      List<ProductEntity> products = new ArrayList<>();
+      for (int p = 0; p < PRODUCTS_PER_ACCOUNT; p++) {
+        products.add(ProductEntity.builder()
+          .name("product" + p).brand("brand" + p % 7).model("model" + p % 3).accountId(accountId)
+          .categories(List.of("cat" + p % 5, "cat" + p % 4))
+        .build());
+      }
+      productRepository.saveAll(products);
+      for (ProductEntity p : products) {
+        outboxRepository.save(ProductOutboxEntity.builder()
+          .type(ProductChangeType.upserted).productId(p.getId()).accountId(accountId).payload("{}").createdAt(Instant.now())
+        .build());
+      }
+
+      if (accId == null) {
+        accId = accountId;
+        ids = products.stream().map(ProductEntity::getId).limit(3).toList();
+      }
+    }
+    entityManager.flush();
+    entityManager.createNativeQuery("analyze").executeUpdate();
+    RecordedStatements.sqls.clear();
+  }
+
+  private String explain(String sql) {
+    return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement("explain " + sql); ResultSet result = statement.executeQuery()) {
+        StringBuilder plan = new StringBuilder();
+        while (result.next()) plan.append(result.getString(1)).append('\n');
+        return plan.toString();
+      }
+    });
+  }
+
+  @Test
+  void repositoryQueries_useIndexes() {
+    productRepository.search("brand", "product", null, List.of("cat1"), accId);
+    productRepository.search(null, null, null, null, accId);
+    productRepository.findByAccountId(accId);
+    productRepository.findIdsByAccountId(accId);
+    productRepository.findByIdInOrderByIdAsc(ids, ScrollPosition.keyset(), Limit.of(2));
+
+    outboxRepository.findAllByOrderByIdAsc(Limit.of(10));
+
+    Map<String, String> scans = new LinkedHashMap<>();
+    for (String sql : new ArrayList<>(RecordedStatements.sqls)) {
+      String plan = explain(sql);
+      if (plan.contains(".tableScan")) scans.put(sql, plan);
+    }
+    assertTrue(scans.isEmpty(), () -> "Consultas que recorren tablas enteras:\n" + String.join("\n\n", scans.values()));
+  }
+}
@@ -2,6 +2,7 @@ package com.nahuelgg.inventory_app.products.repositories;
 
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
 
@@ -66,16 +67,21 @@ public class RepositoriesTest {
     repository.saveAll(List.of(pr1, pr2, pr3, pr4));
   }
 
+  // las consultas no ordenan: el orden depende del índice que use la base
+  private List<ProductEntity> sortedById(List<ProductEntity> products) {
+    return products.stream().sorted(Comparator.comparing(ProductEntity::getId)).toList();
+  }
+
   @Test
   void productRepository_search_returnsExpected() {
     List<ProductEntity> expectedByName = List.of(pr1, pr2);
     List<ProductEntity> expectedByCategoryName = List.of(pr1, pr2, pr3);
     List<ProductEntity> expectedByAccount = List.of(pr4);
 
-    assertIterableEquals(expectedByName, 
-      repository.search(null, "ventilador", null, null, acc1ID));
-    assertIterableEquals(expectedByCategoryName, 
-      repository.search(null, null, null, List.of("cat1"), acc1ID));
+    assertIterableEquals(sortedById(expectedByName), 
+      sortedById(repository.search(null, "ventilador", null, null, acc1ID)));
+    assertIterableEquals(sortedById(expectedByCategoryName), 
+      sortedById(repository.search(null, null, null, List.of("cat1"), acc1ID)));
     assertIterableEquals(expectedByAccount, 
       repository.search(null, null, null, null, acc2ID));
   }
@@ -85,7 +91,7 @@ public class RepositoriesTest {
     List<ProductEntity> expected1 = List.of(pr1, pr2, pr3);
     List<ProductEntity> expected2 = List.of(pr4);
 
-    assertIterableEquals(expected1, repository.findByAccountId(acc1ID));
+    assertIterableEquals(sortedById(expected1), sortedById(repository.findByAccountId(acc1ID)));
     assertIterableEquals(expected2, repository.findByAccountId(acc2ID));
   }
 }
@@ -70,6 +70,15 @@ public class JwtServiceTest {
     assertEquals("accountUsername", subject);
   }
 
+  @Test
+  void generateServiceToken_isLimitedToTheAccount() {
+    String serviceToken = jwtService.generateServiceToken("acc123");
+
+    assertEquals("acc123", jwtService.getClaim(serviceToken, claims -> claims.get("accountId", String.class)));
+    assertEquals(false, jwtService.getClaim(serviceToken, claims -> claims.get("isAdmin", Boolean.class)));
+    assertFalse(jwtService.isTokenExpired(serviceToken));
+  }
+
   @Test
   void isTokenExpired_false() {
     assertFalse(jwtService.isTokenExpired(token));
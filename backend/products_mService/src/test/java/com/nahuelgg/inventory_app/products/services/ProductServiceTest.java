@@ -4,11 +4,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,17 +20,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import com.nahuelgg.inventory_app.products.components.ProductOutbox;
+import com.nahuelgg.inventory_app.products.dtos.BucketDigestDTO;
 import com.nahuelgg.inventory_app.products.dtos.ProductDTO;
 import com.nahuelgg.inventory_app.products.entities.ProductEntity;
 import com.nahuelgg.inventory_app.products.exceptions.EmptyFieldException;
 import com.nahuelgg.inventory_app.products.exceptions.ResourceNotFoundException;
 import com.nahuelgg.inventory_app.products.repositories.ProductRepository;
 import com.nahuelgg.inventory_app.products.services.implementations.ProductService_Impl;
+import com.nahuelgg.inventory_app.products.utilities.ReferenceIdDigest;
 
 @ExtendWith(MockitoExtension.class)
 public class ProductServiceTest {
   @Mock ProductRepository repository;
+  @Mock ProductOutbox outbox;
 
   @InjectMocks ProductService_Impl service;
 
@@ -127,11 +137,76 @@ public class ProductServiceTest {
       () -> service.getByIds(null));
   }
 
+  @Test
+  void streamByIds_scrollsUntilLastWindow() {
+    ReflectionTestUtils.setField(service, "batchGetWindowSize", 2);
+    List<UUID> ids = List.of(pr1.getId(), pr2.getId(), pr3.getId());
+    ScrollPosition afterPr2 = ScrollPosition.forward(Map.of("id", pr2.getId()));
+
+    when(repository.findByIdInOrderByIdAsc(ids, ScrollPosition.keyset(), Limit.of(2))).thenReturn(
+      Window.from(List.of(pr1, pr2), index -> afterPr2, true)
+    );
+    when(repository.findByIdInOrderByIdAsc(ids, afterPr2, Limit.of(2))).thenReturn(
+      Window.from(List.of(pr3), index -> ScrollPosition.forward(Map.of("id", pr3.getId())), false)
+    );
+
+    List<ProductDTO> streamed = new ArrayList<>();
+    service.streamByIds(ids, streamed::add);
+
+    assertIterableEquals(List.of(prDTO1, prDTO2, prDTO3), streamed);
+  }
+
+  @Test
+  void streamByIds_throwsEmptyField() {
+    assertThrows(EmptyFieldException.class, () -> service.streamByIds(List.of(), p -> {}));
+    assertThrows(EmptyFieldException.class, () -> service.streamByIds(null, p -> {}));
+  }
+
+  @Test
+  void digestIdsOfAccount_summarizesOnlyIdsOfTheAccount() {
+    UUID accountId = UUID.randomUUID();
+    List<UUID> ids = List.of(pr1.getId(), pr2.getId(), pr3.getId());
+    when(repository.findIdsByAccountId(accountId)).thenReturn(ids);
+
+    List<BucketDigestDTO> digest = service.digestIdsOfAccount(accountId, 4);
+
+    assertEquals(ReferenceIdDigest.digest(ids, 4), digest);
+    assertEquals(3L, digest.stream().mapToLong(BucketDigestDTO::getCount).sum());
+  }
+
+  @Test
+  void getIdsOfAccountInBuckets_returnsOnlyIdsInSelectedBuckets() {
+    UUID accountId = UUID.randomUUID();
+    List<UUID> ids = List.of(pr1.getId(), pr2.getId(), pr3.getId());
+    when(repository.findIdsByAccountId(accountId)).thenReturn(ids);
+    int bucketOfPr1 = ReferenceIdDigest.bucketOf(pr1.getId(), 4);
+
+    List<UUID> result = service.getIdsOfAccountInBuckets(accountId, 4, List.of(bucketOfPr1));
+
+    assertEquals(ids.stream().filter(id -> ReferenceIdDigest.bucketOf(id, 4) == bucketOfPr1).toList(), result);
+  }
+
   @Test
   void create() {
     when(repository.save(any(ProductEntity.class))).thenReturn(pr1);
 
     assertEquals(prDTO1, service.create(prDTO1));
+    verify(outbox).upserted(prDTO1);
+  }
+
+  @Test
+  void createAll() {
+    when(repository.saveAll(any())).thenReturn(List.of(pr1, pr2));
+
+    assertEquals(List.of(prDTO1, prDTO2), service.createAll(List.of(prDTO1, prDTO2)));
+    verify(outbox).upserted(List.of(prDTO1, prDTO2));
+  }
+
+  @Test
+  void createAll_throwsEmptyFieldWithoutCreatingAny() {
+    assertThrows(EmptyFieldException.class, () -> service.createAll(List.of()));
+    assertThrows(EmptyFieldException.class, () -> service.createAll(List.of(prDTO1, prDTO2.toBuilder().brand("").build())));
+    verify(repository, never()).saveAll(any());
   }
 
   @Test
@@ -152,6 +227,7 @@ public class ProductServiceTest {
     when(repository.save(any(ProductEntity.class))).thenReturn(pr1);
 
     assertEquals(prDTO1, service.update(prDTO1));
+    verify(outbox).upserted(prDTO1);
   }
 
   @Test
@@ -179,6 +255,7 @@ public class ProductServiceTest {
     service.delete(id);
 
     verify(repository).deleteById(id);
+    verify(outbox).deleted(List.of(pr1));
   }
 
   @Test
@@ -203,6 +280,7 @@ public class ProductServiceTest {
     service.deleteByAccountId(accId);
 
     verify(repository).deleteAll(toDelete);
+    verify(outbox).deleted(toDelete);
   }
 
   @Test
@@ -212,11 +290,13 @@ public class ProductServiceTest {
 
   @Test
   void deleteByIds() {
-    List<UUID> ids = List.of(pr1.getId(), pr2.getId());
+    List<UUID> ids = List.of(pr1.getId(), pr2.getId(), UUID.randomUUID());
+    when(repository.findAllById(ids)).thenReturn(List.of(pr1, pr2));
 
     service.deleteByIds(ids);
 
-    verify(repository).deleteAllById(ids);
+    verify(repository).deleteAll(List.of(pr1, pr2));
+    verify(outbox).deleted(List.of(pr1, pr2));
   }
 
   @Test
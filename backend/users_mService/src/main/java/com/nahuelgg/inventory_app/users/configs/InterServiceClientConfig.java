@@ -0,0 +1,114 @@
+package com.nahuelgg.inventory_app.users.configs;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.client.HttpGraphQlClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.resources.ConnectionProvider;
+
+// Clientes HTTP compartidos para los llamados a los otros microservicios (productos e inventarios).
+// Por defecto usan un pool de conexiones reutilizables (keep-alive) con límite total y por destino, y timeouts de conexión,
+// lectura y espera de una conexión libre, para que un servicio lento no deje bloqueados los hilos de este.
+// Con services.http-client.http2-enabled=true se negocia HTTP/2, que multiplexa los llamados sobre una conexión por destino
+@Configuration
+public class InterServiceClientConfig {
+  @Value("${services.inventories.url:http://api-inventory:8083}")
+  private String inventoriesServiceUrl;
+
+  @Value("${services.http-client.max-connections:100}")
+  private int maxConnections;
+  @Value("${services.http-client.max-connections-per-route:20}")
+  private int maxConnectionsPerRoute;
+  @Value("${services.http-client.connect-timeout:2s}")
+  private Duration connectTimeout;
+  @Value("${services.http-client.read-timeout:10s}")
+  private Duration readTimeout;
+  @Value("${services.http-client.idle-timeout:30s}")
+  private Duration idleTimeout;
+  @Value("${services.http-client.http2-enabled:false}")
+  private boolean http2Enabled;
+
+  @Bean
+  public RestTemplate restTemplate() {
+    return new RestTemplate(http2Enabled ? http2RequestFactory() : pooledRequestFactory());
+  }
+
+  @Bean
+  public HttpGraphQlClient clientToInventoryMS() {
+    // el cliente reactivo arma un pool por destino, por lo que el límite por ruta es el que aplica acá
+    ConnectionProvider connectionProvider = ConnectionProvider.builder("inventories-service")
+      .maxConnections(maxConnectionsPerRoute)
+      .pendingAcquireTimeout(connectTimeout)
+      .maxIdleTime(idleTimeout)
+    .build();
+
+    reactor.netty.http.client.HttpClient httpClient = reactor.netty.http.client.HttpClient.create(connectionProvider)
+      .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+      .responseTimeout(readTimeout)
+      .protocol(http2Enabled ? new HttpProtocol[] { HttpProtocol.H2C, HttpProtocol.HTTP11 } : new HttpProtocol[] { HttpProtocol.HTTP11 });
+
+    WebClient webClient = WebClient.builder()
+      .baseUrl(inventoriesServiceUrl + "/graphql")
+      .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+      .clientConnector(new ReactorClientHttpConnector(httpClient))
+    .build();
+
+    return HttpGraphQlClient.create(webClient);
+  }
+
+  private ClientHttpRequestFactory pooledRequestFactory() {
+    PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+      .setMaxConnTotal(maxConnections)
+      .setMaxConnPerRoute(maxConnectionsPerRoute)
+      .setDefaultConnectionConfig(ConnectionConfig.custom()
+        .setConnectTimeout(Timeout.of(connectTimeout))
+        .setSocketTimeout(Timeout.of(readTimeout))
+        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+      .build())
+    .build();
+
+    CloseableHttpClient httpClient = HttpClients.custom()
+      .setConnectionManager(connectionManager)
+      .evictIdleConnections(TimeValue.of(idleTimeout))
+      .evictExpiredConnections()
+    .build();
+
+    HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+    // tiempo máximo de espera por una conexión libre del pool, si se superan los límites
+    requestFactory.setConnectionRequestTimeout(connectTimeout);
+    requestFactory.setReadTimeout(readTimeout);
+    return requestFactory;
+  }
+
+  private ClientHttpRequestFactory http2RequestFactory() {
+    HttpClient httpClient = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_2)
+      .connectTimeout(connectTimeout)
+    .build();
+
+    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+    requestFactory.setReadTimeout(readTimeout);
+    return requestFactory;
+  }
+}
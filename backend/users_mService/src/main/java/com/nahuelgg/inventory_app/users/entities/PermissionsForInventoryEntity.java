@@ -5,15 +5,19 @@ import java.util.UUID;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity(name = "permission_for_inventory")
+// para los permisos de un inventario, o los de un usuario en un inventario
+@Table(indexes = @Index(name = "idx_permission_for_inventory_inventory_reference_id_user_id", columnList = "inventory_reference_id, user_id"))
 @Data @Builder
 @NoArgsConstructor @AllArgsConstructor
 public class PermissionsForInventoryEntity {
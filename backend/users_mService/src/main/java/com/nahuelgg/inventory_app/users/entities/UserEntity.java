@@ -8,16 +8,20 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity(name = "users")
+// para buscar un usuario por nombre dentro de su cuenta (login de sub usuarios)
+@Table(indexes = @Index(name = "idx_users_associated_account_id_name", columnList = "associated_account_id, name"))
 @Data @Builder(toBuilder = true)
 @NoArgsConstructor @AllArgsConstructor
 public class UserEntity {
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.graphql.client.HttpGraphQlClient;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -59,6 +60,9 @@ public class AccountService_Impl implements AccountService {
   private final RestTemplate restTemplate;
   private final HttpGraphQlClient client;
 
+  @Value("${services.products.url:http://api-products:8081}")
+  private String productsServiceUrl;
+
 
   @Override @Transactional(readOnly = true)
   public List<AccountDTO> getAll() {
@@ -164,6 +168,9 @@ public class AccountService_Impl implements AccountService {
       () -> new ResourceNotFoundException("cuenta", "id", accountId.toString())
     );
 
+    // el servicio de inventarios reintenta la asignación si no recibe respuesta, así que una ya hecha se ignora
+    if (inventoryRefRepository.findByInventoryIdReference(inventoryRefId).isPresent()) return;
+
     List<InventoryRefEntity> inventoriesReferences = account.getInventoriesReferences() == null ? new ArrayList<>() : account.getInventoriesReferences();
     inventoriesReferences.add(
       inventoryRefRepository.save(InventoryRefEntity.builder().inventoryIdReference(inventoryRefId).build())
@@ -230,7 +237,7 @@ public class AccountService_Impl implements AccountService {
       throw new RuntimeException("El borrado de inventarios asociados no se ha podido realizar, operación cancelada");
 
     restTemplate.exchange(
-      "http://api-products:8081/product/delete-by-account?id=" + accountId.toString(),
+      productsServiceUrl + "/product/delete-by-account?id=" + accountId.toString(),
       HttpMethod.DELETE, new HttpEntity<>(setTokenToOtherServicesRequests()), Object.class
     );
     repository.deleteById(accountId);
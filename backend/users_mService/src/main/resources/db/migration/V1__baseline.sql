@@ -0,0 +1,42 @@
+-- Esquema que generaba Hibernate con ddl-auto=update en la versión anterior a las migraciones. Las bases creadas por esa versión
+-- no lo ejecutan: Flyway las toma como versión 1 (spring.flyway.baseline-on-migrate) y aplica solo las migraciones siguientes.
+-- Los tipos que cambian entre MySQL y la base H2 de los tests son placeholders (spring.flyway.placeholders.*)
+
+create table account (
+  id ${uuid_type} not null,
+  username varchar(255) not null,
+  password varchar(255) not null,
+  nick_name varchar(255),
+  primary key (id),
+  constraint UKgex1lmaqpg0ir5g1f5eftyaa1 unique (username)
+);
+
+create table inventory_reference (
+  id ${uuid_type} not null,
+  inventory_id_reference ${uuid_type} not null,
+  associated_account_id ${uuid_type},
+  primary key (id),
+  constraint UKofq4f2uw76t1mjdlowphcmxw5 unique (inventory_id_reference),
+  constraint FKjf1nd41cghdxfu5hi5pa5bnkr foreign key (associated_account_id) references account (id)
+);
+
+create table users (
+  id ${uuid_type} not null,
+  name varchar(255) not null,
+  password varchar(255) not null,
+  role varchar(255) not null,
+  is_admin ${boolean_type} not null,
+  associated_account_id ${uuid_type} not null,
+  primary key (id),
+  constraint FKg4tl5yjosx0jilddlfv46pock foreign key (associated_account_id) references account (id)
+);
+
+create table permission_for_inventory (
+  id ${uuid_type} not null,
+  permissions varchar(255) not null,
+  inventory_reference_id ${uuid_type} not null,
+  user_id ${uuid_type} not null,
+  primary key (id),
+  constraint FKew2ws84npw6pne1v8f9gam3ij foreign key (inventory_reference_id) references inventory_reference (id),
+  constraint FKm0vffptri6amd7fgs9n4ydglf foreign key (user_id) references users (id)
+);
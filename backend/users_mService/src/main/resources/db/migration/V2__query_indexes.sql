@@ -0,0 +1,4 @@
+-- Índices de las condiciones más usadas (ver QueryPlanTest): sub-usuarios de una cuenta por nombre, y permisos de un
+-- inventario por sub-usuario. Amplían los de las claves foráneas, que solo cubren la primera columna
+create index idx_users_associated_account_id_name on users (associated_account_id, name);
+create index idx_permission_for_inventory_inventory_reference_id_user_id on permission_for_inventory (inventory_reference_id, user_id);
@@ -0,0 +1,125 @@
+package com.nahuelgg.inventory_app.users.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.nahuelgg.inventory_app.users.entities.AccountEntity;
+import com.nahuelgg.inventory_app.users.entities.InventoryRefEntity;
+import com.nahuelgg.inventory_app.users.entities.PermissionsForInventoryEntity;
+import com.nahuelgg.inventory_app.users.entities.UserEntity;
+
+import jakarta.persistence.EntityManager;
+
+// Ejecuta cada consulta de los repositorios sobre varias cuentas con sus usuarios y permisos, y revisa con EXPLAIN que ninguna
+// recorra una tabla entera. Las consultas generadas por Hibernate (incluidas las de las relaciones EAGER) se registran con un
+// StatementInspector. Los métodos heredados de JpaRepository (por clave primaria) no se revisan.
+// El esquema es el de las migraciones de db/migration (en los tests Hibernate solo lo valida), así que los índices revisados son
+// los que crean esas migraciones
+@DataJpaTest(properties =
+  "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.nahuelgg.inventory_app.users.repositories.QueryPlanTest$RecordedStatements"
+)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@ActiveProfiles("test")
+public class QueryPlanTest {
+  public static class RecordedStatements implements StatementInspector {
+    static final Set<String> sqls = Collections.synchronizedSet(new LinkedHashSet<>());
+
+    @Override
+    public String inspect(String sql) {
+      sqls.add(sql);
+      return sql;
+    }
+  }
+
+  static final int ACCOUNTS = 10, INVENTORIES_PER_ACCOUNT = 5, USERS_PER_ACCOUNT = 10;
+
+  @Autowired EntityManager entityManager;
+  @Autowired AccountRepository accountRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired InventoryRefRepository inventoryRefRepository;
+  @Autowired PermissionsForInventoryRepository permsRepository;
+
+  AccountEntity account;
+  InventoryRefEntity invRef;
+  UserEntity user;
+
+  @BeforeEach
+  void setUp() {
+    for (int a = 0; a < ACCOUNTS; a++) {
+      List<InventoryRefEntity> invRefs = new ArrayList<>();
+      for (int i = 0; i < INVENTORIES_PER_ACCOUNT; i++)
+        invRefs.add(inventoryRefRepository.save(InventoryRefEntity.builder().inventoryIdReference(UUID.randomUUID()).build()));
+
+      AccountEntity acc = accountRepository.save(AccountEntity.builder()
+        .username("account" + a).password("123").inventoriesReferences(new ArrayList<>(invRefs))
+      .build());
+
+      for (int u = 0; u < USERS_PER_ACCOUNT; u++) {
+        UserEntity usr = userRepository.save(UserEntity.builder()
+          .name("user" + u).password("123").role("general").isAdmin(false).associatedAccount(acc)
+        .build());
+        for (InventoryRefEntity invRefOfAcc : invRefs.subList(0, 2))
+          permsRepository.save(PermissionsForInventoryEntity.builder().inventoryReference(invRefOfAcc).user(usr).permissions("addProducts").build());
+
+        if (account == null) {
+          account = acc;
+          invRef = invRefs.get(0);
+          user = usr;
+        }
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+    entityManager.createNativeQuery("analyze").executeUpdate();
+    RecordedStatements.sqls.clear();
+  }
+
+  private String explain(String sql) {
+    return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement("explain " + sql); ResultSet result = statement.executeQuery()) {
+        StringBuilder plan = new StringBuilder();
+        while (result.next()) plan.append(result.getString(1)).append('\n');
+        return plan.toString();
+      }
+    });
+  }
+
+  @Test
+  void repositoryQueries_useIndexes() {
+    accountRepository.findByUsername("account0");
+    entityManager.clear();
+    userRepository.findByNameAndAssociatedAccountId("user0", account.getId());
+    entityManager.clear();
+    inventoryRefRepository.findByInventoryIdReference(invRef.getInventoryIdReference());
+    permsRepository.findByReferencedInventoryId(invRef.getInventoryIdReference());
+    entityManager.clear();
+    permsRepository.findByInventoryReferenceIdAndUserId(invRef.getInventoryIdReference(), user.getId());
+
+    Map<String, String> scans = new LinkedHashMap<>();
+    for (String sql : new ArrayList<>(RecordedStatements.sqls)) {
+      String plan = explain(sql);
+      if (plan.contains(".tableScan")) scans.put(sql, plan);
+    }
+    assertTrue(scans.isEmpty(), () -> "Consultas que recorren tablas enteras:\n" + String.join("\n\n", scans.values()));
+  }
+}
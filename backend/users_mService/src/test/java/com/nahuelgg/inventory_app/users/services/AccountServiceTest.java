@@ -26,6 +26,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.graphql.client.GraphQlClient;
 import org.springframework.graphql.client.HttpGraphQlClient;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 
 import com.nahuelgg.inventory_app.users.components.DTOMappers;
@@ -72,6 +73,7 @@ public class AccountServiceTest {
 
   @BeforeEach
   void beforeEach() {
+    ReflectionTestUtils.setField(service, "productsServiceUrl", "http://api-products:8081");
     acc = AccountEntity.builder()
       .id(UUID.randomUUID())
       .username("account")
@@ -316,6 +318,19 @@ public class AccountServiceTest {
     verify(invRefRepository).save(any(InventoryRefEntity.class));
   }
 
+  @Test
+  void assignInventory_ignoresAlreadyAssigned() {
+    UUID inventoryId = UUID.randomUUID();
+    InventoryRefEntity existingRef = InventoryRefEntity.builder().id(UUID.randomUUID()).inventoryIdReference(inventoryId).build();
+
+    when(repository.findById(acc.getId())).thenReturn(Optional.of(acc));
+    when(invRefRepository.findByInventoryIdReference(inventoryId)).thenReturn(Optional.of(existingRef));
+
+    service.assignInventory(acc.getId(), inventoryId);
+
+    verify(invRefRepository, never()).save(any());
+  }
+
   @Test
   void assignInventory_throwsEmptyField() {
     assertThrows(EmptyFieldException.class, () -> service.assignInventory(null, UUID.randomUUID()));